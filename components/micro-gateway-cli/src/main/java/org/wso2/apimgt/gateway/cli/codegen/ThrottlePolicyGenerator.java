@@ -97,6 +97,9 @@ public class ThrottlePolicyGenerator {
             return;
         }
         checkDuplicatePolicyNames(applicationPolicies, subscriptionPolicies, resourcePolicies);
+        checkPolicyAlgorithms(applicationPolicies);
+        checkPolicyAlgorithms(subscriptionPolicies);
+        checkPolicyAlgorithms(resourcePolicies);
 
         List<GenSrcFile> genFiles = new ArrayList<>();
         GenSrcFile initGenFile = generateInitBal(applicationPolicies, subscriptionPolicies, resourcePolicies);
@@ -330,4 +333,18 @@ public class ThrottlePolicyGenerator {
             }
         }
     }
+
+    private void checkPolicyAlgorithms(List<ThrottlePolicyMapper> policies) {
+        if (policies == null) {
+            return;
+        }
+        for (ThrottlePolicyMapper policy : policies) {
+            String algorithm = policy.getAlgorithm();
+            if (algorithm != null && !GeneratorConstants.THROTTLE_ALGORITHMS.contains(algorithm)) {
+                throw new CLIRuntimeException("Throttle policy '" + policy.getName() + "' contains an unsupported "
+                        + "algorithm '" + algorithm + "' in the policies.yaml file. Supported algorithms are "
+                        + String.join(", ", GeneratorConstants.THROTTLE_ALGORITHMS));
+            }
+        }
+    }
 }
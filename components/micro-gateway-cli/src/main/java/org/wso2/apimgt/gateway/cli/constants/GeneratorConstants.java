@@ -16,6 +16,8 @@
 package org.wso2.apimgt.gateway.cli.constants;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Constants for swagger code generator.
@@ -61,6 +63,8 @@ public class GeneratorConstants {
     public static final String HYPHEN = "_hyphen_";
     public static final String DOT = "_dot_";
     public static final String SPACE = "_space_";
+    public static final List<String> THROTTLE_ALGORITHMS = Arrays.asList("fixedWindow", "slidingWindowLog",
+            "slidingWindowCounter", "tokenBucket");
 
     /**
      * Enum defining the available types of throttle policies.
@@ -26,6 +26,9 @@ public const string OBJ = "-OS-";
 
 int initializingTime = 0;
 int rotatingTime = 0;
+boolean isAnalyticsEventWriterInitialized = false;
+// Format of the usage data files written by the analytics event writer
+string analyticsFileFormat = DEFAULT_ANALYTICS_FILE_FORMAT;
 
 
 function setRequestAttributesToContext(http:Request request, http:FilterContext context) returns error? {
@@ -60,23 +63,63 @@ public function getEventData(EventDTO dto) returns string {
     return output;
 }
 
+# Initialize the native writer, which keeps the usage data file open and writes the events from a single thread.
+function initAnalyticsFileWriter() {
+    string fileLocation = retrieveConfig(API_USAGE_PATH, API_USAGE_DIR) + PATH_SEPERATOR;
+    int queueSize = getConfigIntValue(FILE_UPLOAD_ANALYTICS, ANALYTICS_WRITER_QUEUE_SIZE,
+        DEFAULT_ANALYTICS_WRITER_QUEUE_SIZE);
+    int bufferSize = getConfigIntValue(FILE_UPLOAD_ANALYTICS, ANALYTICS_WRITER_BUFFER_SIZE,
+        DEFAULT_ANALYTICS_WRITER_BUFFER_SIZE);
+    int flushInterval = getConfigIntValue(FILE_UPLOAD_ANALYTICS, ANALYTICS_WRITER_FLUSH_INTERVAL,
+        DEFAULT_ANALYTICS_WRITER_FLUSH_INTERVAL_IN_MILLIS);
+    string fileFormat = getConfigValue(FILE_UPLOAD_ANALYTICS, ANALYTICS_FILE_FORMAT, DEFAULT_ANALYTICS_FILE_FORMAT);
+    error? result = initAnalyticsEventWriter(fileLocation + TEMP_API_USAGE_FILE, fileFormat, queueSize, bufferSize,
+        flushInterval);
+    if (result is error) {
+        printError(KEY_ANALYTICS_FILTER, "Error while initializing the analytics event writer. Events will be " +
+        "written to the file one at a time.", result);
+    } else {
+        isAnalyticsEventWriterInitialized = true;
+        analyticsFileFormat = fileFormat;
+        printDebug(KEY_ANALYTICS_FILTER, "Analytics event writer initialized.");
+    }
+}
+
+# Queue an event to be written to the usage data file. This does not block, hence it is called within the filter
+# instead of a new strand. If the native writer is not initialized, the event is appended to the file in a new strand,
+# as the file is written with blocking I/O.
+#
+# + eventDTO - Analytics event
 function writeEventToFile(EventDTO eventDTO) {
+    if (!isAnalyticsEventWriterInitialized) {
+        future<()> appendEventFuture = start appendEventToFile(eventDTO);
+    } else if (writeAnalyticsEvent(eventDTO.streamId, eventDTO.timeStamp, eventDTO.metaData, eventDTO.payloadData)) {
+        printDebug(KEY_ANALYTICS_FILTER, "Event is queued to be written");
+    } else {
+        printDebug(KEY_ANALYTICS_FILTER, "Event is dropped as the analytics event queue is full");
+    }
+}
+
+# Append an event to the usage data file. The event is dropped if the file cannot be written.
+#
+# + eventDTO - Analytics event
+function appendEventToFile(EventDTO eventDTO) {
     string fileLocation = retrieveConfig(API_USAGE_PATH, API_USAGE_DIR) + PATH_SEPERATOR;
-    // errors from 'openWritableFile' will be 'panicked'
-    var writableChannel = <io:WritableByteChannel>io:openWritableFile(fileLocation + TEMP_API_USAGE_FILE, true);
+    var writableChannel = io:openWritableFile(fileLocation + TEMP_API_USAGE_FILE, true);
+    if (writableChannel is error) {
+        printError(KEY_ANALYTICS_FILTER, "Error while opening the usage data file. Event is dropped.",
+            writableChannel);
+        return;
+    }
     io:WritableCharacterChannel charChannel = new (writableChannel, "UTF-8");
     var result = charChannel.write(getEventData(eventDTO), 0);
-    if (result is io:GenericError) {
-        closeWC(charChannel);
-        panic result;
-    } else if (result is io:ConnectionTimedOutError) {
-        closeWC(charChannel);
-        panic result;
+    closeWC(charChannel);
+    if (result is error) {
+        printError(KEY_ANALYTICS_FILTER, "Error while writing the event to the usage data file. Event is dropped.",
+            result);
     } else {
-        closeWC(charChannel);
         printDebug(KEY_ANALYTICS_FILTER, "Event is being written");
     }
-
 }
 
 public function closeWC(io:WritableCharacterChannel charChannel) {
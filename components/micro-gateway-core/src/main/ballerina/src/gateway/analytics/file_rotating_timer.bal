@@ -28,6 +28,9 @@ function sendFileRotatingEvent() returns error? {
         var result = rotateFile(path);
         if (result is string) {
             printInfo(KEY_ROTATE_TASK, "File rotated successfully.");
+        } else if (stringutils:equalsIgnoreCase("No files present to rotate.", result.reason())) {
+            //the file is kept open by the analytics event writer even if there are no events
+            return result;
         } else {
             printError(KEY_ROTATE_TASK, "File rotation failed.", result);
         }
@@ -43,7 +43,7 @@ function searchFilesToUpload() returns (error?) {
         foreach var pathEntry in pathList {
             string fileName = pathEntry.getName();
 
-            if (contains(fileName, ZIP_EXTENSION)) {
+            if (contains(fileName, ZIP_EXTENSION) || fileName.endsWith(BINARY_EVENT_FILE_EXTENSION)) {
                 http:Response response = multipartSender(fileLocation, pathEntry.getName(),
                 analyticsUsername, analyticsPassword);
                 if (response.statusCode == 201) {
@@ -21,36 +21,26 @@ import ballerina/mime;
 
 
 public function multipartSender(string location, string file, string username, string password) returns http:Response {
-    mime:Entity filePart = new;
     string filePath = location + PATH_SEPERATOR + file;
-    filePart.setFileAsEntityBody(filePath);
     printDebug(KEY_UPLOAD_TASK, "File being uploaded : " + filePath);
-    filePart.setContentDisposition(getContentDispositionForFormData(file));
-    mime:Entity[] bodyParts = [filePart];
-    http:Request request = new;
-
-    request.addHeader(AUTH_HEADER, getBasicAuthHeaderValue(username, password));
-    request.addHeader(FILE_NAME, file);
-    request.addHeader(ACCEPT, APPLICATION_JSON);
-    request.setBodyParts(bodyParts, contentType = mime:MULTIPART_FORM_DATA);
-    var returnResponse = analyticsFileUploadEndpoint->post("", request);
-
-
-    if (returnResponse is error) {
-        http:Response response = new;
+    //The file is streamed to the analytics server in chunks, instead of being loaded as the body of the request.
+    var statusCode = uploadAnalyticsFile(uploadingUrl, filePath, file, username, password,
+        getConfigValue(LISTENER_CONF_INSTANCE_ID, TRUST_STORE_PATH, DEFAULT_TRUST_STORE_PATH),
+        getConfigValue(LISTENER_CONF_INSTANCE_ID, TRUST_STORE_PASSWORD, DEFAULT_TRUST_STORE_PASSWORD),
+        getConfigBooleanValue(HTTP_CLIENTS_INSTANCE_ID, ENABLE_HOSTNAME_VERIFICATION, true),
+        getClientProxyForInternalServices());
+
+    http:Response response = new;
+    if (statusCode is error) {
         string errorMessage = "Error occurred while sending multipart request: SC 500";
         response.setPayload(errorMessage);
         response.statusCode = 500;
-        printError(KEY_UPLOAD_TASK, errorMessage, returnResponse);
-        return response;
+        printError(KEY_UPLOAD_TASK, errorMessage, statusCode);
     } else {
-        var responseString = returnResponse.getTextPayload();
-        if (responseString is string) {
-            printDebug(KEY_UPLOAD_TASK, "File upload response : " + returnResponse.getTextPayload().toString());
-        }
-        return returnResponse;
+        printDebug(KEY_UPLOAD_TASK, "File upload response status code : " + statusCode.toString());
+        response.statusCode = statusCode;
     }
-
+    return response;
 }
 
 
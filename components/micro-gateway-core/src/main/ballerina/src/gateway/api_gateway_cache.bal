@@ -39,6 +39,11 @@ int jwtGeneratorCacheSize = getConfigIntValue(JWT_GENERATOR_CACHING_ID,
 float jwtGeneratorEvictionFactor = getConfigFloatValue(JWT_GENERATOR_CACHING_ID,
                                                         JWT_GENERATOR_TOKEN_CACHE_EVICTION_FACTOR,
                                                         DEFAULT_TOKEN_CACHE_EVICTION_FACTOR);
+// A cached backend JWT is regenerated in the background once its remaining lifetime is below this time (ms)
+int jwtGeneratorRefreshAheadTime = <int>(getConfigFloatValue(JWT_GENERATOR_CACHING_ID,
+                                                            JWT_GENERATOR_TOKEN_CACHE_REFRESH_AHEAD_FACTOR,
+                                                            DEFAULT_JWT_GENERATOR_TOKEN_CACHE_REFRESH_AHEAD_FACTOR)
+                                        * <float>jwtGeneratorCacheExpiryTime);
 
 cache:CacheConfig jwtGenerationCacheConfig = {
     capacity: jwtGeneratorCacheSize,
@@ -63,6 +63,15 @@ public const string POLICY_KEY = "policyKey";
 public const string KEY_TEMPLATE_VALUE = "keyTemplateValue";
 public const string KEY_TEMPLATE_STATE = "keyTemplateState";
 public const string KEY_TEMPLATE_ADD = "add";
+public const int KEY_TEMPLATE_LITERAL = -1;
+public const int KEY_TEMPLATE_RESOURCE_KEY = 0;
+public const int KEY_TEMPLATE_USER_ID = 1;
+public const int KEY_TEMPLATE_API_CONTEXT = 2;
+public const int KEY_TEMPLATE_API_VERSION = 3;
+public const int KEY_TEMPLATE_APP_TENANT = 4;
+public const int KEY_TEMPLATE_API_TENANT = 5;
+public const int KEY_TEMPLATE_APP_ID = 6;
+public const int KEY_TEMPLATE_CLIENT_IP = 7;
 public const string EVALUATED_CONDITIONS = "evaluatedConditions";
 public const string RESOURCE_TIER_ANN_PACKAGE = "ballerina.gateway";
 public const string RESOURCE_TIER_ANN_NAME = "RateLimit";
@@ -146,6 +155,7 @@ public const string SUB_LEVEL_PREFIX = "sub_";
 //Analytics filter related constants
 public const string ZIP_EXTENSION = ".zip";
 public const string TMP_EXTENSION = ".tmp";
+public const string BINARY_EVENT_FILE_EXTENSION = ".evlog";
 public const string UPLOADING_URL = "uploadingUrl";
 public const string API_USAGE_FILE = "api-usage-data.dat";
 public const string TEMP_API_USAGE_FILE = "api-usage-data.dat.tmp";
@@ -175,12 +185,21 @@ public const string INITIAL_DELAY = "initialDelayInMillis";
 public const string DESTINATION = "destination";
 public const string FILE_UPLOAD_ENABLE = "enable";
 public const string APIM_ANALYTICS_STREAM_VERSION = "streamVersion";
+public const string ANALYTICS_WRITER_QUEUE_SIZE = "writerQueueSize";
+public const string ANALYTICS_WRITER_BUFFER_SIZE = "writerBufferSize";
+public const string ANALYTICS_WRITER_FLUSH_INTERVAL = "writerFlushIntervalInMillis";
+public const string ANALYTICS_FILE_FORMAT = "fileFormat";
+public const string ANALYTICS_BINARY_FILE_FORMAT = "binary";
 
 //gRPC analytics related constants
 public const string GRPC_ANALYTICS = "analytics.gRPCAnalytics";
 public const string GRPC_ANALYTICS_ENABLE = "enable";
 public const string GRPC_ENDPOINT_URL = "endpointURL";
 public const string GRPC_RETRY_TIME_MILLISECONDS = "reconnectTimeInMillies";
+public const string GRPC_MAX_RETRY_TIME_MILLISECONDS = "maxReconnectTimeInMillis";
+public const string GRPC_BUFFER_SIZE = "bufferSize";
+public const string GRPC_BATCH_SIZE = "batchSize";
+public const string GRPC_FLUSH_INTERVAL_MILLISECONDS = "flushIntervalInMillis";
  
 //validation_filter related constatnts
 public const string PATHS = "paths";
@@ -345,6 +364,8 @@ public const string TOKEN_CACHE_ENABLED = "enabled";
 public const string TOKEN_CACHE_EXPIRY = "tokenCacheExpiryTime";
 public const string TOKEN_CACHE_CAPACITY = "tokenCacheCapacity";
 public const string TOKEN_CACHE_EVICTION_FACTOR = "tokenCacheEvictionFactor";
+public const string BASIC_AUTH_CACHE_EXPIRY = "basicAuthCacheExpiryTime";
+public const string BASIC_AUTH_CACHE_CAPACITY = "basicAuthCacheCapacity";
 
 public const string JWT_CONFIG_INSTANCE_ID = "jwtConfig";
 public const string JWT_HEADER = "header";
@@ -353,6 +374,7 @@ public const string EXPECT_HEADER = "Expect";
 public const string VALIDATION_CONFIG_INSTANCE_ID = "validationConfig";
 public const string REQUEST_VALIDATION_ENABLED = "enableRequestValidation";
 public const string RESPONSE_VALIDATION_ENABLED = "enableResponseValidation";
+public const string STREAMING_VALIDATION_ENABLED = "enableStreamingValidation";
 public const string SWAGGER_ABSOLUTE_PATH = "absolutePathToSwagger";
 
 public const string THROTTLE_CONF_INSTANCE_ID = "throttlingConfig";
@@ -361,6 +383,13 @@ public const string PROCESS_THREAD_POOL_CORE_SIZE = "processThreadPoolCoreSize";
 public const string PROCESS_THREAD_POOL_MAXIMUM_SIZE = "processThreadPoolMaximumSize";
 public const string PROCESS_THREAD_POOL_KEEP_ALIVE_TIME = "processThreadPoolKeepAliveTime";
 public const string THROTTLE_CLEANUP_FREQUENCY = "cleanUpFrequency";
+public const string LOCAL_THROTTLE_ALGORITHM = "algorithm";
+public const string LOCAL_THROTTLE_PROCESSING_MODE = "processingMode";
+public const string PROCESS_QUEUE_SIZE = "processQueueSize";
+public const string PROCESS_QUEUE_FULL_POLICY = "queueFullPolicy";
+public const string LOCAL_THROTTLE_COUNTER_STORE = "counterStore";
+public const string COMPACT_COUNTER_STORE_SIZE = "compactCounterStoreSize";
+public const string POLICY_ALGORITHM = "algorithm";
 public const string GLOBAL_TM_EVENT_PUBLISH_ENABLED = "enabledGlobalTMEventPublishing";
 public const string HEADER_CONDITIONS_ENABLED = "enableHeaderConditions";
 public const string QUERY_CONDITIONS_ENABLED = "enableQueryParamConditions";
@@ -383,6 +412,9 @@ public const string TM_BINARY_AUTH_URL = "authURL";
 public const string TM_BINARY_URL_GROUP_TYPE = "type";
 public const string TM_USERNAME = "username";
 public const string TM_PASSWORD = "password";
+public const string TM_PUBLISHING_MODE = "publishingMode";
+public const string TM_AGGREGATION_INTERVAL = "aggregationInterval";
+public const string TM_AGGREGATION_MAX_KEYS = "aggregationMaxKeys";
 public const string TM_PUBLISHER_POOL_MAX_IDLE = "maxIdle";
 public const string TM_PUBLISHER_POOL_INIT_IDLE_CAPACITY = "initIdleCapacity";
 public const string TM_PUBLISHER_THREAD_POOL_CORE_SIZE = "corePoolSize";
@@ -399,6 +431,7 @@ public const string TM_BINARY_AGENT_PROTOCOL_VERSIONS = "sslEnabledProtocols";
 public const string TM_BINARY_AGENT_CIPHERS = "ciphers";
 public const string TM_AGENT_QUEUE_SIZE = "queueSize";
 public const string TM_AGENT_BATCH_SIZE = "batchSize";
+public const string TM_AGENT_MAX_BATCH_DELAY_MS = "maxBatchDelayMS";
 public const string TM_AGENT_THREAD_POOL_CORE_SIZE = "corePoolSize";
 public const string TM_AGENT_THREAD_POOL_MAXIMUM_SIZE = "maxPoolSize";
 public const string TM_AGENT_SOCKET_TIMEOUT_MS = "socketTimeoutMS";
@@ -412,6 +445,12 @@ public const string TM_AGENT_SECURE_MAX_TRANSPORT_POOL_SIZE = "secureMaxIdleTran
 public const string TM_AGENT_SECURE_MAX_IDLE_CONNECTIONS = "secureMaxIdleConnections";
 public const string TM_AGENT_SECURE_EVICTION_TIME_PERIOD = "secureEvictionTimePeriod";
 public const string TM_AGENT_SECURE_MIN_IDLE_TIME_IN_POOL = "secureMinIdleTimeInPool";
+public const string TM_AGENT_TRANSPORT = "transport";
+public const string TM_AGENT_CONNECTIONS_PER_RECEIVER = "connectionsPerReceiver";
+public const string TM_AGENT_MAX_PIPELINED_BATCHES = "maxPipelinedBatches";
+public const string TM_AGENT_SPILL_DIRECTORY = "spillDirectory";
+public const string TM_AGENT_SPILL_MAX_DISK_SIZE_MB = "spillMaxDiskSizeMB";
+public const string TM_AGENT_SPILL_REPLAY_RATE = "spillReplayRate";
 
 public const string TOKEN_REVOCATION_CONF_INSTANCE_ID = "tokenRevocationConfig";
 public const string TOKEN_REVOCATION_ENABLED = "enabledTokenRevocation";
@@ -429,6 +468,10 @@ public const string PERSISTENT_MESSAGE_HOSTNAME = "hostname";
 public const string PERSISTENT_MESSAGE_ENDPOINT = "endpointURL";
 public const string PERSISTENT_MESSAGE_USERNAME = "username";
 public const string PERSISTENT_MESSAGE_PASSWORD = "password";
+public const string REVOKED_TOKEN_FILTER_INSTANCE_ID = "tokenRevocationConfig.filter";
+public const string REVOKED_TOKEN_FILTER_ENABLED = "enable";
+public const string REVOKED_TOKEN_FILTER_EXPECTED_TOKENS = "expectedRevokedTokens";
+public const string REVOKED_TOKEN_FILTER_FALSE_POSITIVE_PROBABILITY = "falsePositiveProbability";
 public const string PERSISTENT_MESSAGE_TYPE = "type";
 public const string CONFIG_USER_SECTION = "b7a.users";
 public const string B7A_LOG = "b7a.log";
@@ -510,6 +553,7 @@ const string KEY_ROTATE_TASK = "RotateTimerTask";
 const string KEY_ETCD_UTIL = "EtcdUtil";
 const string KEY_TOKEN_REVOCATION_ETCD_UTIL = "TokenRevocationETCDUtil";
 const string KEY_TOKEN_REVOCATION_JMS = "TokenRevocationJMS";
+const string KEY_TOKEN_REVOCATION_MAP = "RevokedTokenMap";
 const string KEY_JWT_AUTH_PROVIDER = "JWTAuthProvider";
 public const string KEY_GRPC_ANALYTICS = "gRPCAnalytics";
 const string API_KEY_UTIL = "APIKeyUtil";
@@ -526,6 +570,10 @@ public const string JWT_GEN_UTIL = "JwtGenUtil";
 
 public const int DEFAULT_LISTENER_TIMEOUT = 120000;//2 mins
 public const int DEFAULT_ETCD_TRIGGER_TIME = 10000;//10 seconds
+const int REVOKED_TOKEN_CLEANUP_INTERVAL = 300000;//5 mins
+// Values above these thresholds are treated as epoch milliseconds and epoch seconds respectively
+const int EPOCH_MILLIS_THRESHOLD = 100000000000;
+const int EPOCH_SECONDS_THRESHOLD = 1000000000;
 public const string KEY_GRPC_FILTER = "GrpcFilter";
 
 //jwt claims
@@ -594,6 +642,7 @@ public const string JWT_GENERATOR_TOKEN_CACHE_ENABLED = "tokenCacheEnable";
 public const string JWT_GENERATOR_TOKEN_CACHE_EXPIRY = "tokenCacheExpiryTime";
 public const string JWT_GENERATOR_TOKEN_CACHE_CAPACITY = "tokenCacheCapacity";
 public const string JWT_GENERATOR_TOKEN_CACHE_EVICTION_FACTOR = "tokenCacheEvictionFactor";
+public const string JWT_GENERATOR_TOKEN_CACHE_REFRESH_AHEAD_FACTOR = "tokenCacheRefreshAheadFactor";
 
 // server configurations
 public const string SERVER_CONF_ID = "server";
@@ -69,6 +69,8 @@ public const boolean DEFAULT_CACHING_ENABLED = true;
 public const int DEFAULT_TOKEN_CACHE_EXPIRY = 900000;
 public const int DEFAULT_TOKEN_CACHE_CAPACITY = 10000;
 public const float DEFAULT_TOKEN_CACHE_EVICTION_FACTOR = 0.25;
+public const int DEFAULT_BASIC_AUTH_CACHE_EXPIRY = 60000;
+public const int DEFAULT_BASIC_AUTH_CACHE_CAPACITY = 10000;
 
 //note, for analytics some configuration default values are not set. They are read directly from conf.
 public const boolean DEFAULT_ANALYTICS_ENABLED = false;
@@ -77,12 +79,20 @@ public const int DEFAULT_INITIAL_DELAY_IN_MILLIS = 5000;
 public const string DEFAULT_UPLOADING_EP = "https://localhost:9444/analytics/v1.0/usage/upload-file";
 public const int DEFAULT_ROTATING_PERIOD_IN_MILLIS =  600000;
 public const boolean DEFAULT_TASK_UPLOAD_FILES_ENABLED = true;
+public const int DEFAULT_ANALYTICS_WRITER_QUEUE_SIZE = 65536;
+public const int DEFAULT_ANALYTICS_WRITER_BUFFER_SIZE = 262144;
+public const int DEFAULT_ANALYTICS_WRITER_FLUSH_INTERVAL_IN_MILLIS = 1000;
+public const string DEFAULT_ANALYTICS_FILE_FORMAT = "text";
 public const string DEFAULT_AM_ANALYTICS_VERSION = "3.2.0";
 public const string DEFAULT_AM_ANALYTICS_VERSION_300 = "3.0.0";
 public const string DEFAULT_AM_ANALYTICS_VERSION_310 = "3.1.0";
 //constants for gRPC analytics
 public const string DEFAULT_GRPC_ENDPOINT_URL = "https://localhost:9806";
 public const int DEFAULT_GRPC_RECONNECT_TIME_IN_MILLES = 6000;
+public const int DEFAULT_GRPC_MAX_RECONNECT_TIME_IN_MILLIS = 300000;
+public const int DEFAULT_GRPC_BUFFER_SIZE = 100000;
+public const int DEFAULT_GRPC_BATCH_SIZE = 500;
+public const int DEFAULT_GRPC_FLUSH_INTERVAL_IN_MILLIS = 1000;
 
 public const boolean DEFAULT_HTTP2_ENABLED = true;
 
@@ -104,12 +114,19 @@ public const string DEFAULT_MTSL_CONF_CERT_HEADER_NAME = "X-WSO2-CLIENT-CERTIFIC
 
 public const boolean DEFAULT_REQUEST_VALIDATION_ENABLED = false;
 public const boolean DEFAULT_RESPONSE_VALIDATION_ENABLED = false;
+public const boolean DEFAULT_STREAMING_VALIDATION_ENABLED = false;
 
 // Local throttling related constants
 public const int DEFAULT_PROCESS_THREAD_POOL_CORE_SIZE = 200;
 public const int DEFAULT_PROCESS_THREAD_POOL_MAXIMUM_SIZE = 1000;
 public const int DEFAULT_PROCESS_THREAD_POOL_KEEP_ALIVE_TIME = 200;
 public const int DEFAULT_THROTTLE_CLEANUP_FREQUENCY = 3600000;
+public const string DEFAULT_LOCAL_THROTTLE_ALGORITHM = "fixedWindow";
+public const string DEFAULT_LOCAL_THROTTLE_PROCESSING_MODE = "executor";
+public const int DEFAULT_PROCESS_QUEUE_SIZE = 10000;
+public const string DEFAULT_PROCESS_QUEUE_FULL_POLICY = "callerRuns";
+public const string DEFAULT_LOCAL_THROTTLE_COUNTER_STORE = "heap";
+public const int DEFAULT_COMPACT_COUNTER_STORE_SIZE = 64;
 
 public const boolean DEFAULT_GLOBAL_TM_EVENT_PUBLISH_ENABLED = false;
 public const boolean DEFAULT_HEADER_CONDITIONS_ENABLED = false;
@@ -129,6 +146,9 @@ public const string DEFAULT_TM_RECEIVER_URL_GROUP = "tcp://localhost:9611";
 public const string DEFAULT_TM_AUTH_URL_GROUP = "ssl://localhost:9711";
 public const string DEFAULT_TM_USERNAME = "admin";
 public const string DEFAULT_TM_PASSWORD = "admin";
+public const string DEFAULT_TM_PUBLISHING_MODE = "pooled";
+public const int DEFAULT_TM_AGGREGATION_INTERVAL = 0;
+public const int DEFAULT_TM_AGGREGATION_MAX_KEYS = 100000;
 public const int DEFAULT_TM_PUBLISHER_POOL_MAX_IDLE = 1000;
 public const int DEFAULT_TM_PUBLISHER_POOL_INIT_IDLE_CAPACITY = 200;
 public const int DEFAULT_TM_PUBLISHER_THREAD_POOL_CORE_SIZE = 200;
@@ -150,6 +170,7 @@ public const string DEFAULT_TM_BINARY_AGENT_CIPHERS = "TLS_ECDHE_RSA_WITH_AES_12
 + "SSL_DHE_DSS_WITH_3DES_EDE_CBC_SHA,TLS_EMPTY_RENEGOTIATION_INFO_SCSV";
 public const int DEFAULT_TM_AGENT_QUEUE_SIZE = 32768;
 public const int DEFAULT_TM_AGENT_BATCH_SIZE = 200;
+public const int DEFAULT_TM_AGENT_MAX_BATCH_DELAY_MS = 0;
 public const int DEFAULT_TM_AGENT_THREAD_POOL_CORE_SIZE = 1;
 public const int DEFAULT_TM_AGENT_SOCKET_TIMEOUT_MS = 30000;
 public const int DEFAULT_TM_AGENT_THREAD_POOL_MAXIMUM_SIZE = 1;
@@ -163,11 +184,20 @@ public const int DEFAULT_TM_AGENT_SECURE_MAX_TRANSPORT_POOL_SIZE = 250;
 public const int DEFAULT_TM_AGENT_SECURE_MAX_IDLE_CONNECTIONS = 250;
 public const int DEFAULT_TM_AGENT_SECURE_EVICTION_TIME_PERIOD = 5500;
 public const int DEFAULT_TM_AGENT_SECURE_MIN_IDLE_TIME_IN_POOL = 5000;
+public const string DEFAULT_TM_AGENT_TRANSPORT = "blocking";
+public const int DEFAULT_TM_AGENT_CONNECTIONS_PER_RECEIVER = 2;
+public const int DEFAULT_TM_AGENT_MAX_PIPELINED_BATCHES = 8;
+public const string DEFAULT_TM_AGENT_SPILL_DIRECTORY = "";
+public const int DEFAULT_TM_AGENT_SPILL_MAX_DISK_SIZE_MB = 512;
+public const int DEFAULT_TM_AGENT_SPILL_REPLAY_RATE = 10000;
 
 public const boolean DEFAULT_TOKEN_REVOCATION_ENABLED = false;
 public const string DEFAULT_REALTIME_JMS_CONNECTION_TOPIC = "tokenRevocation";
 public const boolean DEFAULT_PERSISTENT_USE_DEFAULT = false;
 public const string DEFAULT_PERSISTENT_TYPE = "default";
+public const boolean DEFAULT_REVOKED_TOKEN_FILTER_ENABLED = false;
+public const int DEFAULT_REVOKED_TOKEN_FILTER_EXPECTED_TOKENS = 100000;
+public const float DEFAULT_REVOKED_TOKEN_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
 public const string DEFAULT_PERSISTENT_MESSAGE_HOSTNAME = "https://127.0.0.1:2379/v2/keys/jti/";
 public const string DEFAULT_PERSISTENT_MESSAGE_USERNAME = "root";
 public const string DEFAULT_PERSISTENT_MESSAGE_PASSWORD = "root";
@@ -194,6 +224,7 @@ public const int DEFAULT_JWT_GENERATOR_TOKEN_EXPIRY = 900000;
 public const string DEFAULT_JWT_GENERATOR_TOKEN_ISSUER = "wso2.org/products/am";
 public const string DEFAULT_JWT_GENERATOR_IMPLEMENTATION = "org.wso2.micro.gateway.jwt.generator.MGWJWTGeneratorImpl";
 public const boolean DEFAULT_JWT_GENERATOR_TOKEN_CACHE_ENABLED = true;
+public const float DEFAULT_JWT_GENERATOR_TOKEN_CACHE_REFRESH_AHEAD_FACTOR = 0.2;
 public const string DEFAULT_JWT_GENERATOR_CLAIM_RETRIEVAL_IMPLEMENTATION
                                                     = "org.wso2.micro.gateway.jwt.generator.DefaultMGWClaimRetriever";
 
@@ -71,3 +71,12 @@ public const string VALIDATION_GAUGE_TAGS = "VALIDATION_GAUGE_TAGS";
 public const string ANALYTIC_REQUEST_TIME = "ANALYTIC_REQUEST_TIME";
 public const string VALIDATION_REQUEST_TIME = "VALIDATION_REQUEST_TIME";
 
+public const string GRPC_ANALYTICS_QUEUE_DEPTH = "gRPC_Analytics_Queue_Depth";
+public const string GRPC_ANALYTICS_QUEUE_DEPTH_DESC = "Number of gRPC analytics messages waiting to be published";
+public const string GRPC_ANALYTICS_BATCH_SIZE = "gRPC_Analytics_Batch_Size";
+public const string GRPC_ANALYTICS_BATCH_SIZE_DESC = "Number of gRPC analytics messages published in the last batch";
+public const string GRPC_ANALYTICS_DROPPED = "gRPC_Analytics_Dropped_Messages";
+public const string GRPC_ANALYTICS_DROPPED_DESC = "Number of gRPC analytics messages dropped as the buffer was full";
+public const string GRPC_ANALYTICS_RECONNECTS = "gRPC_Analytics_Reconnects";
+public const string GRPC_ANALYTICS_RECONNECTS_DESC = "Number of times the gRPC analytics connection is re-established";
+
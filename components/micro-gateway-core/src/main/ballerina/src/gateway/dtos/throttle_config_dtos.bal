@@ -19,6 +19,12 @@ public type TMBinaryPublisherConfigDto record {
     string authURLGroup = "";
     string username = getConfigValue(TM_BINARY_PUBLISHER_THROTTLE_CONF_INSTANCE_ID, TM_USERNAME, DEFAULT_TM_USERNAME);
     string password = getConfigValue(TM_BINARY_PUBLISHER_THROTTLE_CONF_INSTANCE_ID, TM_PASSWORD, DEFAULT_TM_PASSWORD);
+    string publishingMode = getConfigValue(TM_BINARY_PUBLISHER_THROTTLE_CONF_INSTANCE_ID, TM_PUBLISHING_MODE,
+        DEFAULT_TM_PUBLISHING_MODE);
+    int aggregationInterval = getConfigIntValue(TM_BINARY_PUBLISHER_THROTTLE_CONF_INSTANCE_ID, TM_AGGREGATION_INTERVAL,
+        DEFAULT_TM_AGGREGATION_INTERVAL);
+    int aggregationMaxKeys = getConfigIntValue(TM_BINARY_PUBLISHER_THROTTLE_CONF_INSTANCE_ID, TM_AGGREGATION_MAX_KEYS,
+        DEFAULT_TM_AGGREGATION_MAX_KEYS);
     int maxIdle = getConfigIntValue(TM_BINARY_PUBLISHER_POOL_THROTTLE_CONF_INSTANCE_ID,
         TM_PUBLISHER_POOL_MAX_IDLE, DEFAULT_TM_PUBLISHER_POOL_MAX_IDLE);
     int initIdleCapacity = getConfigIntValue(TM_BINARY_PUBLISHER_POOL_THROTTLE_CONF_INSTANCE_ID,
@@ -36,6 +42,8 @@ public type TMBinaryAgentConfigDto record {
         DEFAULT_TM_AGENT_QUEUE_SIZE);
     int batchSize = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_BATCH_SIZE,
         DEFAULT_TM_AGENT_BATCH_SIZE);
+    int maxBatchDelayMS = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_MAX_BATCH_DELAY_MS,
+        DEFAULT_TM_AGENT_MAX_BATCH_DELAY_MS);
     int corePoolSize = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_THREAD_POOL_CORE_SIZE,
         DEFAULT_TM_AGENT_THREAD_POOL_CORE_SIZE);
     int socketTimeoutMS = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID,  TM_AGENT_SOCKET_TIMEOUT_MS,
@@ -62,6 +70,19 @@ public type TMBinaryAgentConfigDto record {
         TM_AGENT_SECURE_EVICTION_TIME_PERIOD, DEFAULT_TM_AGENT_SECURE_EVICTION_TIME_PERIOD);
     int secureMinIdleTimeInPool = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID,
         TM_AGENT_SECURE_MIN_IDLE_TIME_IN_POOL, DEFAULT_TM_AGENT_SECURE_MIN_IDLE_TIME_IN_POOL);
+    string transport = getConfigValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_TRANSPORT,
+        DEFAULT_TM_AGENT_TRANSPORT);
+    int connectionsPerReceiver = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID,
+        TM_AGENT_CONNECTIONS_PER_RECEIVER, DEFAULT_TM_AGENT_CONNECTIONS_PER_RECEIVER);
+    int maxPipelinedBatches = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID,
+        TM_AGENT_MAX_PIPELINED_BATCHES, DEFAULT_TM_AGENT_MAX_PIPELINED_BATCHES);
+    //the placeholder replacement is handled via the java implementation
+    string spillDirectory = getConfigValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_SPILL_DIRECTORY,
+        DEFAULT_TM_AGENT_SPILL_DIRECTORY);
+    int spillMaxDiskSizeMB = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID,
+        TM_AGENT_SPILL_MAX_DISK_SIZE_MB, DEFAULT_TM_AGENT_SPILL_MAX_DISK_SIZE_MB);
+    int spillReplayRate = getConfigIntValue(TM_BINARY_AGENT_THROTTLE_CONF_INSTANCE_ID, TM_AGENT_SPILL_REPLAY_RATE,
+        DEFAULT_TM_AGENT_SPILL_REPLAY_RATE);
     //the placeholder replacement is handled via the java implementation
     string trustStorePath = getConfigValue(LISTENER_CONF_INSTANCE_ID, TRUST_STORE_PATH, DEFAULT_TRUST_STORE_PATH);
     string trustStorePassword = getConfigValue(LISTENER_CONF_INSTANCE_ID, TRUST_STORE_PASSWORD,
@@ -76,15 +76,19 @@ public type RequestStreamDTO record {
     int resourceTierCount = -1;
     int resourceTierUnitTime = -1;
     string resourceTierTimeUnit = "";
+    string resourceTierAlgorithm = "";
     int appTierCount = -1;
     int appTierUnitTime = -1;
     string appTierTimeUnit = "";
+    string appTierAlgorithm = "";
     int apiTierCount = -1;
     int apiTierUnitTime = -1;
     string apiTierTimeUnit = "";
+    string apiTierAlgorithm = "";
     int subscriptionTierCount = -1;
     int subscriptionTierUnitTime = -1;
     string subscriptionTierTimeUnit = "";
+    string subscriptionTierAlgorithm = "";
 };
 
 public type GlobalThrottleStreamDTO record {
@@ -95,6 +99,17 @@ public type GlobalThrottleStreamDTO record {
     boolean isThrottled = false;
 };
 
+# Custom throttle key template parsed into literal and variable tokens.
+#
+# + tokens - Literal parts of the template, or an empty string where a variable is substituted
+# + variables - Variable substituted at each token, or `KEY_TEMPLATE_LITERAL` for the literal parts
+# + usesApiVersion - Whether the template refers to the API version, which is not defined for every API
+public type KeyTemplateDTO record {|
+    string[] tokens = [];
+    int[] variables = [];
+    boolean usesApiVersion = false;
+|};
+
 public type IPRangeDTO record {
     int id;
     string tenantDomain = "carbon.super";
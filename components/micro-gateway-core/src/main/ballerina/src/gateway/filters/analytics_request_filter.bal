@@ -51,13 +51,13 @@ public type AnalyticsRequestFilter object {
                             // throttle stream gRPC Analytics
                             AnalyticsStreamMessage message = createThrottleMessage(throttleAnalyticsEventDTO);
                             printDebug(KEY_ANALYTICS_FILTER, "gRPC throttle stream message created.");
-                            future<()> throttleDataPublishFuture = start dataToAnalytics(message);
+                            dataToAnalytics(message);
                             printDebug(KEY_ANALYTICS_FILTER, "gRPC throttle stream message published.");
                         }
                         if (isAnalyticsEnabled) {
                             EventDTO|error eventDTO  = trap getEventFromThrottleData(throttleAnalyticsEventDTO);
                             if (eventDTO is EventDTO) {
-                                future<()> responseDataPublishFuture = start writeEventToFile(eventDTO);
+                                writeEventToFile(eventDTO);
                                 printDebug(KEY_ANALYTICS_FILTER, "File upload throttle stream data published." + eventDTO.streamId);
                             } else {
                                 printError(KEY_ANALYTICS_FILTER, "Error while creating throttle analytics event", eventDTO);
@@ -99,14 +99,14 @@ function doFilterFault(http:FilterContext context, string errorMessage) {
             //fault stream gRPC Analytics
             printDebug(KEY_ANALYTICS_FILTER, "gRPC fault stream message publishing for API : " + faultDTO.apiName);
             AnalyticsStreamMessage message = createFaultMessage(faultDTO);
-            future<()> faultDataPublishFuture = start dataToAnalytics(message);
+            dataToAnalytics(message);
             return;
         }
         EventDTO|error eventDTO = trap getEventFromFaultData(faultDTO);
         if (eventDTO is EventDTO) {
             if (isAnalyticsEnabled != false) {
                 printDebug(KEY_ANALYTICS_FILTER, "File Upload fault stream invoked for API : " + faultDTO.apiName);
-                future<()> responseDataPublishFuture = start writeEventToFile(eventDTO);
+                writeEventToFile(eventDTO);
             }
         } else {
             printError(KEY_ANALYTICS_FILTER, "Error while genaratting analytics data for fault event", eventDTO);
@@ -125,7 +125,7 @@ function doFilterResponseData(http:Response response, http:FilterContext context
         //Response stream gRPC Analyrics
         AnalyticsStreamMessage message = createResponseMessage(requestResponseExecutionDTO);
         printDebug(KEY_ANALYTICS_FILTER,"gRPC response stream Data starting to publish");
-        future<()> responseDataPublishFuture = start dataToAnalytics(message);
+        dataToAnalytics(message);
         return;
     }
     if (requestResponseExecutionDTO is RequestResponseExecutionDTO) {
@@ -133,7 +133,7 @@ function doFilterResponseData(http:Response response, http:FilterContext context
         if(event is EventDTO) {
             if (isAnalyticsEnabled) {
                 printDebug(KEY_ANALYTICS_FILTER, "File Upload eventRequestStream called for API : " + requestResponseExecutionDTO.apiName);
-                future<()> responseDataPublishFuture = start writeEventToFile(event);
+                writeEventToFile(event);
             }
         } else {
             printError(KEY_ANALYTICS_FILTER, "Error while genarating analytics data event", event);
@@ -398,19 +398,23 @@ function generateLocalThrottleEvent(http:Request req, http:FilterContext context
     requestStreamDTO.appTierCount = <int>appPolicyDetails.count;
     requestStreamDTO.appTierUnitTime = <int>appPolicyDetails.unitTime;
     requestStreamDTO.appTierTimeUnit = appPolicyDetails.timeUnit.toString();
+    requestStreamDTO.appTierAlgorithm = getPolicyAlgorithm(appPolicyDetails);
     map<json> subPolicyDetails = getPolicyDetails(deployedPolicies, keyValidationDto.tier, SUB_LEVEL_PREFIX);
     requestStreamDTO.subscriptionTierCount = <int>subPolicyDetails.count;
     requestStreamDTO.subscriptionTierUnitTime = <int>subPolicyDetails.unitTime;
     requestStreamDTO.subscriptionTierTimeUnit = subPolicyDetails.timeUnit.toString();
+    requestStreamDTO.subscriptionTierAlgorithm = getPolicyAlgorithm(subPolicyDetails);
     requestStreamDTO.stopOnQuota = <boolean>subPolicyDetails.stopOnQuota;
     map<json> resourcePolicyDetails = getPolicyDetails(deployedPolicies, requestStreamDTO.resourceTier, RESOURCE_LEVEL_PREFIX);
     requestStreamDTO.resourceTierCount = <int>resourcePolicyDetails.count;
     requestStreamDTO.resourceTierUnitTime = <int>resourcePolicyDetails.unitTime;
     requestStreamDTO.resourceTierTimeUnit = resourcePolicyDetails.timeUnit.toString();
+    requestStreamDTO.resourceTierAlgorithm = getPolicyAlgorithm(resourcePolicyDetails);
     map<json> apiPolicyDetails = getPolicyDetails(deployedPolicies, requestStreamDTO.apiTier, RESOURCE_LEVEL_PREFIX);
     requestStreamDTO.apiTierCount = <int>apiPolicyDetails.count;
     requestStreamDTO.apiTierUnitTime = <int>apiPolicyDetails.unitTime;
     requestStreamDTO.apiTierTimeUnit = apiPolicyDetails.timeUnit.toString();
+    requestStreamDTO.apiTierAlgorithm = getPolicyAlgorithm(apiPolicyDetails);
     return requestStreamDTO;
 }
 
@@ -540,22 +544,23 @@ function checkCustomThrottlePolicies(http:Caller caller, http:Request request, h
                         string resourceLevelThrottleKey, string tenantDomain, string clientIp)  returns boolean {
 
     printDebug(KEY_THROTTLE_FILTER, "Checking custom throttlle policies");
-    string userId = keyValidationDto.username;
-    string appTenant = keyValidationDto.subscriberTenantDomain;
-    string apiTenant = tenantDomain;
-    string appId = keyValidationDto.applicationId;
-
-    foreach string key in keyTemplateMap.keys() {
-        string modifiedKey = replaceAll(key, "\\$resourceKey", resourceLevelThrottleKey);
-        modifiedKey = replaceAll(modifiedKey, "\\$userId", userId);
-        modifiedKey = replaceAll(modifiedKey, "\\$apiContext", apiContext);
-        if(apiVersion is string) {
-            modifiedKey = replaceAll(modifiedKey, "\\$apiVersion", apiVersion);
+    if (throttleDataMap.length() == 0) {
+        // None of the custom throttle keys can be throttled until the traffic manager sends a throttle event
+        return true;
+    }
+    string apiVersionValue = "";
+    if (apiVersion is string) {
+        apiVersionValue = apiVersion;
+    }
+    // Values of the key template variables, in the order of the KEY_TEMPLATE_* variable indexes
+    string[] variableValues = [resourceLevelThrottleKey, keyValidationDto.username, apiContext, apiVersionValue,
+        keyValidationDto.subscriberTenantDomain, tenantDomain, keyValidationDto.applicationId, clientIp];
+
+    foreach KeyTemplateDTO keyTemplate in keyTemplateMap {
+        if (keyTemplate.usesApiVersion && apiVersion is ()) {
+            continue;
         }
-        modifiedKey = replaceAll(modifiedKey, "\\$appTenant", appTenant);
-        modifiedKey = replaceAll(modifiedKey, "\\$apiTenant", apiTenant);
-        modifiedKey = replaceAll(modifiedKey, "\\$appId", appId);
-        modifiedKey = replaceAll(modifiedKey, "\\$clientIp", clientIp);
+        string modifiedKey = buildThrottleKey(keyTemplate, variableValues);
         printDebug(KEY_THROTTLE_FILTER, "Custom policy throttle key : " + modifiedKey);
         boolean isThrottled;
         boolean stopOnQuota;
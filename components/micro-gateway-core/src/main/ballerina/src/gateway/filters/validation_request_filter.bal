@@ -70,14 +70,25 @@ function doValidationFilterRequest(http:Caller caller, http:Request request, htt
 
     printDebug(KEY_VALIDATION_FILTER, "The Request resource Path : " + requestPath + ", method : " + requestMethod);
        
-    //getting the payload of the request
-    string payloadVal = "";
+    handle | error valResult;
+    if (enableStreamingValidation) {
+        //the raw payload is validated as it is, without converting it to json and back to a string
+        byte[] payloadBytes = [];
+        var binaryPayload = request.getBinaryPayload();
+        if (binaryPayload is byte[]) {
+            payloadBytes = binaryPayload;
+        }
+        valResult = requestValidateStream(requestPath, requestMethod, payloadBytes, serviceName);
+    } else {
+        //getting the payload of the request
+        string payloadVal = "";
 
-    var reqPayload  = request.getJsonPayload();
-    if (reqPayload is json) {
-        payloadVal = reqPayload.toJsonString();
+        var reqPayload  = request.getJsonPayload();
+        if (reqPayload is json) {
+            payloadVal = reqPayload.toJsonString();
+        }
+        valResult = requestValidate(requestPath, requestMethod, payloadVal, serviceName);
     }
-    var valResult = requestValidate(requestPath, requestMethod, payloadVal, serviceName);
     if (valResult is handle && stringutils:equalsIgnoreCase(valResult.toString(), VALIDATION_STATUS)) {
         return true;
     } else {
@@ -65,12 +65,23 @@ function doValidationFilterResponse(@tainted http:Response response, http:Filter
 
     printDebug(KEY_VALIDATION_FILTER, "The Response validation is enabled.");
     string responseCode = response.statusCode.toString();
-    var payload = response.getJsonPayload();
-    if (payload is json)  {
-        resPayload = payload.toJsonString();
-    }
     string servName = filterContext.getServiceName();
-    var valResult = responseValidate(reqestPath, requestMethod, responseCode, resPayload, servName);
+    handle | error valResult;
+    if (enableStreamingValidation) {
+        //the raw payload is validated as it is, without converting it to json and back to a string
+        byte[] payloadBytes = [];
+        var binaryPayload = response.getBinaryPayload();
+        if (binaryPayload is byte[]) {
+            payloadBytes = binaryPayload;
+        }
+        valResult = responseValidateStream(reqestPath, requestMethod, responseCode, payloadBytes, servName);
+    } else {
+        var payload = response.getJsonPayload();
+        if (payload is json)  {
+            resPayload = payload.toJsonString();
+        }
+        valResult = responseValidate(reqestPath, requestMethod, responseCode, resPayload, servName);
+    }
     if (valResult is handle && stringutils:equalsIgnoreCase(valResult.toString(), VALIDATION_STATUS)) {
         return true;
     } else {
@@ -1,36 +1,31 @@
 import ballerina/grpc;
-import ballerina/task;
+import ballerina/observe;
+import ballerina/runtime;
 
 grpc:StreamingClient gRPCEp = new grpc:StreamingClient();
 boolean gRPCConnection = false; //check gRPC connection
 int reConnectTime =  <int>getConfigIntValue(GRPC_ANALYTICS,GRPC_RETRY_TIME_MILLISECONDS, DEFAULT_GRPC_RECONNECT_TIME_IN_MILLES);
-boolean isTaskStarted = false;    //to check gRPC reconnect task
+int maxReconnectTime = getConfigIntValue(GRPC_ANALYTICS, GRPC_MAX_RETRY_TIME_MILLISECONDS,
+    DEFAULT_GRPC_MAX_RECONNECT_TIME_IN_MILLIS);
+int gRPCBufferSize = getGRPCSizeConfigValue(GRPC_BUFFER_SIZE, DEFAULT_GRPC_BUFFER_SIZE);
+int gRPCBatchSize = getGRPCSizeConfigValue(GRPC_BATCH_SIZE, DEFAULT_GRPC_BATCH_SIZE);
+int gRPCFlushInterval = getConfigIntValue(GRPC_ANALYTICS, GRPC_FLUSH_INTERVAL_MILLISECONDS,
+    DEFAULT_GRPC_FLUSH_INTERVAL_IN_MILLIS);
+boolean isPublisherStarted = false;    //to check the gRPC publishing worker
 
-task:Scheduler gRPCConnectTimer = new({
-        intervalInMillis :  reConnectTime,
-        initialDelayInMillis:0
-});
+//Bounded ring buffer of the messages waiting to be published. Messages are added by the request strands and removed
+//only by the publishing worker, once they are sent.
+(AnalyticsStreamMessage?)[] gRPCMessageBuffer = [];
+int gRPCBufferHead = 0;
+int gRPCBufferedCount = 0;
+int gRPCDroppedCount = 0;
+int gRPCReconnectCount = 0;
+int lastDropLogTime = 0;
 
-service connectGRPC = service {
-    resource function onTrigger(){
-        printDebug(KEY_GRPC_ANALYTICS, "gRPC Reconnect Task Still Running.");
-        isTaskStarted = true;
-        if (!gRPCConnection) {
-            initGRPCService();
-            printWarn(KEY_GRPC_ANALYTICS , "Connection will retry again in "+ reConnectTime.toString() + " milliseconds.");
-            pingMessage(gRPCPingMessage);
-        } else {
-            printInfo(KEY_GRPC_ANALYTICS, "Successfully connected to gRPC server.");
-            // terminates the timer if gRPPCConnection variable assigned as false
-            var stop = gRPCConnectTimer.stop();
-            if (stop is error) {
-                printError(KEY_GRPC_ANALYTICS, "Stopping the gRPC reconnect task is failed.");
-                return;
-            }
-            isTaskStarted = false;
-        }
-    }
-};
+observe:Gauge | () gRPCQueueDepthGauge = ();
+observe:Gauge | () gRPCBatchSizeGauge = ();
+observe:Gauge | () gRPCDroppedGauge = ();
+observe:Gauge | () gRPCReconnectGauge = ();
 
 //gRPC secured client endpoint configuraion  
 AnalyticsSendServiceClient nonblockingGRPCAnalyticsClient = new(getConfigValue(GRPC_ANALYTICS, GRPC_ENDPOINT_URL, DEFAULT_GRPC_ENDPOINT_URL),
@@ -49,57 +44,171 @@ config = {
     timeoutInMillis : 2147483647
 } );
 
-# `initGRPCService` function binds gRPC streaming client endpoint with server message listner.
+# `initGRPCService` function connects the gRPC streaming client endpoint and starts the worker which publishes the
+# buffered messages in batches.
 
 public function initGRPCService(){
-    //registers server message listner (AnalyticsSendServiceMessageListener)
-    var attachResult = gRPCConnectTimer.attach(connectGRPC);
-     if (attachResult is error) {
-        printError(KEY_GRPC_ANALYTICS,"Error attaching the gRPC reconnect service.");
+    boolean startPublisher = false;
+    lock {
+        if (!isPublisherStarted) {
+            isPublisherStarted = true;
+            startPublisher = true;
+        }
+    }
+    if (!startPublisher) {
         return;
     }
+    gRPCQueueDepthGauge = initializeGauge(GRPC_ANALYTICS_QUEUE_DEPTH, GRPC_ANALYTICS_QUEUE_DEPTH_DESC, ());
+    gRPCBatchSizeGauge = initializeGauge(GRPC_ANALYTICS_BATCH_SIZE, GRPC_ANALYTICS_BATCH_SIZE_DESC, ());
+    gRPCDroppedGauge = initializeGauge(GRPC_ANALYTICS_DROPPED, GRPC_ANALYTICS_DROPPED_DESC, ());
+    gRPCReconnectGauge = initializeGauge(GRPC_ANALYTICS_RECONNECTS, GRPC_ANALYTICS_RECONNECTS_DESC, ());
+    if (connectGRPCService()) {
+        printDebug(KEY_GRPC_ANALYTICS, "Initialized gRPC connection sucessfully.");
+    }
+    future<()> publisherFuture = start publishGRPCAnalytics();
+}
+
+# `connectGRPCService` function opens a new stream to the gRPC server, and checks whether the server is available by
+# sending the gRPCPingMessage defined below.
+#
+# + return - `true` if the stream is opened
+function connectGRPCService() returns boolean {
+    //registers server message listner (AnalyticsSendServiceMessageListener)
     var gRPCres = nonblockingGRPCAnalyticsClient -> sendAnalytics(AnalyticsSendServiceMessageListener);
     if (gRPCres is grpc:Error) {
         printError(KEY_GRPC_ANALYTICS, "Error from Connector: " + gRPCres.reason() + " - " + <string> gRPCres.detail()["message"]);
-        return;
-    } else {
-        printDebug(KEY_GRPC_ANALYTICS, "Initialized gRPC connection sucessfully.");
-        gRPCEp = gRPCres;
+        return false;
     }
+    gRPCEp = gRPCres;
+    printDebug(KEY_GRPC_ANALYTICS, "gRPC reconnect Ping Message executed.");
+    grpc:Error? connErr = gRPCEp->send(gRPCPingMessage);
+    if (connErr is grpc:Error) {
+        printDebug(KEY_GRPC_ANALYTICS, "Error from Connector: " + connErr.reason() + " - " + <string> connErr.detail()["message"]);
+        return false;
+    }
+    gRPCConnection = true;
+    return true;
 }
 
-# `pingMessage` function checks whether gRPC server is available when there is a connection failure
-# It sends gRPCPingMessage dfined below to check the connection
+# `dataToAnalytics` function queues analytics data to be published to the gRPC server
+# The message is dropped if the buffer is full, which happens only if the server is unavailable for long.
 # 
 # + message - 'AnalyticsStreamMessage' Message structure defined in the Analytics.proto file
 # 
-public function pingMessage(AnalyticsStreamMessage message){
-    //ping Message used to check gRPC server availability
-    printDebug(KEY_GRPC_ANALYTICS, "gRPC reconnect Ping Message executed.");
-    grpc:Error? connErr = gRPCEp->send(message);
-        if (connErr is grpc:Error) {
-            printDebug(KEY_GRPC_ANALYTICS, "Error from Connector: " + connErr.reason() + " - " + <string> connErr.detail()["message"]);
+public function dataToAnalytics(AnalyticsStreamMessage message){
+    boolean isDropped = false;
+    lock {
+        if (gRPCBufferedCount < gRPCBufferSize) {
+            gRPCMessageBuffer[(gRPCBufferHead + gRPCBufferedCount) % gRPCBufferSize] = message;
+            gRPCBufferedCount += 1;
         } else {
-            printDebug(KEY_GRPC_ANALYTICS, "Completed Sending gRPC Analytics data.");
-            gRPCConnection = true;
+            isDropped = true;
+            gRPCDroppedCount += 1;
         }
+    }
+    if (isDropped) {
+        onGRPCMessageDropped();
+    } else {
+        printDebug(KEY_GRPC_ANALYTICS, "gRPC analytics data queued to be published.");
+    }
 }
 
-# `dataToAnalytics` function sends analytics data to the gRPC server
-# It sends AnalyticsStream message to  APIM_EVENT_RECEIVER Siddhi app's gRPCStream
-# 
-# + message - 'AnalyticsStreamMessage' Message structure defined in the Analytics.proto file
-# 
-public function dataToAnalytics(AnalyticsStreamMessage message){
-    //publishes data to relevant stream
-    printDebug(KEY_GRPC_ANALYTICS, "gRPC analytics data publishing method executed.");
-    grpc:Error? connErr = gRPCEp->send(message);
-        if (connErr is grpc:Error) {
-            printInfo(KEY_GRPC_ANALYTICS, "Error from Connector: " + connErr.reason() + " - " + <string> connErr.detail()["message"]);
-           
-        } else {
-            printDebug(KEY_GRPC_ANALYTICS, "gRPC analytics data published successfully: ");
+# `publishGRPCAnalytics` function sends the buffered messages to the gRPC server in batches from a single worker.
+# Messages arriving within the flush interval are coalesced into a single batch, which is sent back to back on the
+# stream, and a message is removed from the buffer once it is written to the stream. The server does not acknowledge
+# the messages, hence the messages written just before the stream fails could be lost, and the batches are not
+# limited to one in flight by the worker. While the server is unavailable the messages are kept in the buffer, and the
+# worker reconnects with an exponential backoff.
+function publishGRPCAnalytics() {
+    int backoffTime = reConnectTime;
+    while (true) {
+        if (!gRPCConnection) {
+            if (!connectGRPCService()) {
+                printWarn(KEY_GRPC_ANALYTICS, "Connection will retry again in " + backoffTime.toString() +
+                    " milliseconds.");
+                runtime:sleep(backoffTime);
+                backoffTime = backoffTime * 2 > maxReconnectTime ? maxReconnectTime : backoffTime * 2;
+                continue;
+            }
+            gRPCReconnectCount += 1;
+            updateGauge(gRPCReconnectGauge, <float>gRPCReconnectCount);
+            printInfo(KEY_GRPC_ANALYTICS, "Successfully connected to gRPC server.");
+            backoffTime = reConnectTime;
+        }
+        AnalyticsStreamMessage[] batch = peekGRPCMessages();
+        int sentCount = 0;
+        foreach AnalyticsStreamMessage message in batch {
+            grpc:Error? connErr = gRPCEp->send(message);
+            if (connErr is grpc:Error) {
+                printInfo(KEY_GRPC_ANALYTICS, "Error from Connector: " + connErr.reason() + " - " + <string> connErr.detail()["message"]);
+                gRPCConnection = false;
+                break;
+            }
+            sentCount += 1;
+        }
+        removeGRPCMessages(sentCount);
+        updateGauge(gRPCQueueDepthGauge, <float>gRPCBufferedCount);
+        if (sentCount > 0) {
+            updateGauge(gRPCBatchSizeGauge, <float>sentCount);
+            printDebug(KEY_GRPC_ANALYTICS, "gRPC analytics data published successfully. Batch size : " +
+                sentCount.toString() + ", queued : " + gRPCBufferedCount.toString());
+        }
+        if (gRPCConnection && batch.length() < gRPCBatchSize) {
+            runtime:sleep(gRPCFlushInterval);
+        }
+    }
+}
+
+# `getGRPCSizeConfigValue` function reads a size of the gRPC analytics configuration, which should be at least 1 as the
+# buffer positions are computed modulo the buffer size.
+#
+# + key - Key of the size in the gRPC analytics configuration
+# + defaultValue - Size used when the key is not configured
+# + return - Configured size, or 1 if the configured size is less than 1
+function getGRPCSizeConfigValue(string key, int defaultValue) returns int {
+    int size = getConfigIntValue(GRPC_ANALYTICS, key, defaultValue);
+    if (size < 1) {
+        printWarn(KEY_GRPC_ANALYTICS, "Invalid gRPC analytics " + key + " : " + size.toString() +
+            ". It should be at least 1, hence 1 is used.");
+        return 1;
+    }
+    return size;
+}
+
+function peekGRPCMessages() returns AnalyticsStreamMessage[] {
+    AnalyticsStreamMessage[] batch = [];
+    lock {
+        int batchSize = gRPCBufferedCount < gRPCBatchSize ? gRPCBufferedCount : gRPCBatchSize;
+        int i = 0;
+        while (i < batchSize) {
+            batch.push(<AnalyticsStreamMessage>gRPCMessageBuffer[(gRPCBufferHead + i) % gRPCBufferSize]);
+            i += 1;
         }
+    }
+    return batch;
+}
+
+function removeGRPCMessages(int count) {
+    lock {
+        int i = 0;
+        while (i < count) {
+            gRPCMessageBuffer[(gRPCBufferHead + i) % gRPCBufferSize] = ();
+            i += 1;
+        }
+        gRPCBufferHead = (gRPCBufferHead + count) % gRPCBufferSize;
+        gRPCBufferedCount -= count;
+    }
+}
+
+function onGRPCMessageDropped() {
+    updateGauge(gRPCDroppedGauge, <float>gRPCDroppedCount);
+    int currentTime = getCurrentTime();
+    //logs at most once a minute, as every message is dropped while the buffer stays full
+    if (currentTime - lastDropLogTime > 60000) {
+        lastDropLogTime = currentTime;
+        printWarn(KEY_GRPC_ANALYTICS, "gRPC analytics buffer is full, " + gRPCDroppedCount.toString() +
+            " messages dropped so far.");
+    }
 }
 
 service AnalyticsSendServiceMessageListener = service {
@@ -109,19 +218,12 @@ service AnalyticsSendServiceMessageListener = service {
 
     resource function onError(error err) {
         printDebug(KEY_GRPC_ANALYTICS,"On error method in gRPC listner.");
+        //Triggers when there is a gRPC connection error. The publishing worker keeps the messages in the buffer
+        //and reconnects.
         gRPCConnection = false;
-        //Triggers when there is a gRPC connection error.
-        if (err.reason() == "{ballerina/grpc}UnavailableError" && gRPCConnection == false) {
+        if (err.reason() == "{ballerina/grpc}UnavailableError") {
             printDebug(KEY_GRPC_ANALYTICS, "gRPC unavaliable error identified.");
             printError(KEY_GRPC_ANALYTICS, "Error reported from server: " + err.reason() + " - " + <string> err.detail()["message"]);
-            //starts gRPC reconnect task
-            if (isTaskStarted == false) {
-                var startResult = gRPCConnectTimer.start();
-                if (startResult is error ) {
-                    printDebug(KEY_GRPC_ANALYTICS, "Starting the gRPC reconnect task is failed.");
-                    return;
-                }   
-            }
         }
     }
 
@@ -15,21 +15,19 @@
 // under the License.
 
 import ballerina/auth;
-import ballerina/crypto;
 import ballerina/lang.'array as arrays;
 import ballerina/lang.'string as strings;
 import ballerina/runtime;
-import ballerina/config;
 
 # Represents an inbound basic Auth provider, which is a configuration-file-based Auth store provider.
+# The users are loaded once to an in memory user store shared by all the providers, instead of reading the
+# configuration for each request.
 # + basicAuthConfig - The Basic Auth provider configurations.
-# + inboundBasicAuthProvider - The InboundBasicAUthProvider.
 public type BasicAuthProvider object {
 
     *auth:InboundAuthProvider;
 
     public auth:BasicAuthConfig basicAuthConfig;
-    public auth:InboundBasicAuthProvider inboundBasicAuthProvider;
 
     # Provides authentication based on the provided configuration.
     #
@@ -40,7 +38,7 @@ public type BasicAuthProvider object {
         } else {
             self.basicAuthConfig = {tableName: CONFIG_USER_SECTION};
         }
-        self.inboundBasicAuthProvider = new (basicAuthConfig);
+        initBasicAuthUserStore();
     }
 
     # Attempts to authenticate with credentials.
@@ -88,70 +86,44 @@ public type BasicAuthProvider object {
         }
         //Starting a new span
         int | error | () spanHash = startSpan(HASHING_MECHANISM);
-        //Hashing mechanism
-        string passwordFromConfig = readPassword(userName);
-        string hashedPass = password;
-        // this is to support backward compatibility with 3.0.x where only sha1 was supported for hashing.
-        if(passwordFromConfig != "" && !passwordFromConfig.startsWith(SHA_PREFIX)) {
-            hashedPass = crypto:hashSha1(password.toBytes()).toBase16();
-        }
-        printDebug(KEY_AUTHN_FILTER, "Hashed password value : " + hashedPass);
-        string credentials = userName + ":" + hashedPass;
-        string hashedRequest;
-        string encodedVal = credentials.toBytes().toBase64();
-        printDebug(KEY_AUTHN_FILTER, "Encoded Auth header value : " + encodedVal);
-        hashedRequest = BASIC_PREFIX_WITH_SPACE + encodedVal;
+        //Verify the password against the in memory user store
+        string? scopes = authenticateBasicAuthUser(encodedCredentials, userName, password);
         //finishing span
         finishSpan(HASHING_MECHANISM, spanHash);
-        //Starting a new span
-        int | error | () spanInbound = startSpan(BALLERINA_INBOUND_BASICAUTH);
-        var isAuthorized = self.inboundBasicAuthProvider.authenticate(encodedVal);
-        //finishing span
-        finishSpan(BALLERINA_INBOUND_BASICAUTH, spanInbound);
-        if (isAuthorized is boolean) {
-            printDebug(KEY_AUTHN_FILTER, "Basic auth provider returned with value : " + isAuthorized.toString());
-            if (!isAuthorized) {
-                //TODO: Handle the error message properly
-                setErrorMessageToInvocationContext(API_AUTH_INVALID_BASICAUTH_CREDENTIALS);
-                //sendErrorResponse(caller, request, <@untainted> context);
-                return false;
-            }
-            int startingTimeReq = getCurrentTimeForAnalytics();
-            invocationContext.attributes[REQUEST_TIME] = startingTimeReq;
-            invocationContext.attributes[FILTER_FAILED] = false;
-            //Set authenticationContext data
-            authenticationContext.authenticated = true;
-            //Authentication context data is set to default value bacuase in basic authentication we cannot have informtaion on subscription and applications
-            authenticationContext.tier = DEFAULT_SUBSCRIPTION_TIER;
-            authenticationContext.applicationTier = UNLIMITED_TIER;
-            authenticationContext.apiKey = ANONYMOUS_APP_ID;
-            //Username is extracted from the request
-            authenticationContext.username = userName;
-            authenticationContext.applicationId = ANONYMOUS_APP_ID;
-            authenticationContext.applicationName = ANONYMOUS_APP_NAME;
-            authenticationContext.subscriber = ANONYMOUS_APP_OWNER;
-            authenticationContext.consumerKey = ANONYMOUS_CONSUMER_KEY;
-            authenticationContext.apiTier = UNLIMITED_TIER;
-            authenticationContext.apiPublisher = USER_NAME_UNKNOWN;
-            authenticationContext.subscriberTenantDomain = ANONYMOUS_USER_TENANT_DOMAIN;
-            authenticationContext.keyType = PRODUCTION_KEY_TYPE;
-            invocationContext.attributes[KEY_TYPE_ATTR] = authenticationContext.keyType;
-            invocationContext.attributes[AUTHENTICATION_CONTEXT] = authenticationContext;
-            isAuthenticated = true;
-            return isAuthenticated;
-        } else {
-            return prepareError("Failed to authenticate with basic auth hanndler.", isAuthorized);
+        printDebug(KEY_AUTHN_FILTER, "Basic auth user store returned with value : " + (scopes is string).toString());
+        if (scopes is ()) {
+            setErrorMessageToInvocationContext(API_AUTH_INVALID_BASICAUTH_CREDENTIALS);
+            return false;
         }
+        runtime:Principal principal = {userId: userName, username: userName,
+            scopes: scopes == "" ? [] : split(scopes, ",")};
+        invocationContext.principal = principal;
+        runtime:AuthenticationContext authContext = {scheme: AUTHN_SCHEME_BASIC, authToken: credential};
+        invocationContext.authenticationContext = authContext;
+
+        int startingTimeReq = getCurrentTimeForAnalytics();
+        invocationContext.attributes[REQUEST_TIME] = startingTimeReq;
+        invocationContext.attributes[FILTER_FAILED] = false;
+        //Set authenticationContext data
+        authenticationContext.authenticated = true;
+        //Authentication context data is set to default value bacuase in basic authentication we cannot have informtaion on subscription and applications
+        authenticationContext.tier = DEFAULT_SUBSCRIPTION_TIER;
+        authenticationContext.applicationTier = UNLIMITED_TIER;
+        authenticationContext.apiKey = ANONYMOUS_APP_ID;
+        //Username is extracted from the request
+        authenticationContext.username = userName;
+        authenticationContext.applicationId = ANONYMOUS_APP_ID;
+        authenticationContext.applicationName = ANONYMOUS_APP_NAME;
+        authenticationContext.subscriber = ANONYMOUS_APP_OWNER;
+        authenticationContext.consumerKey = ANONYMOUS_CONSUMER_KEY;
+        authenticationContext.apiTier = UNLIMITED_TIER;
+        authenticationContext.apiPublisher = USER_NAME_UNKNOWN;
+        authenticationContext.subscriberTenantDomain = ANONYMOUS_USER_TENANT_DOMAIN;
+        authenticationContext.keyType = PRODUCTION_KEY_TYPE;
+        invocationContext.attributes[KEY_TYPE_ATTR] = authenticationContext.keyType;
+        invocationContext.attributes[AUTHENTICATION_CONTEXT] = authenticationContext;
+        isAuthenticated = true;
+        return isAuthenticated;
     }
 
 };
-
-# Reads the password hash for a user.
-#
-# + username - Username
-# + return - Password hash read from userstore, or nil if not found
-function readPassword(string username) returns string {
-    // first read the user id from user->id mapping
-    // read the hashed password from the user-store file, using the user id
-    return config:getAsString(CONFIG_USER_SECTION + "." + username + "." + PASSWORD, "");
-}
@@ -20,6 +20,8 @@ import ballerina/http;
 
 boolean jwtGeneratorClassLoaded = loadJWTGeneratorImpl();
 boolean claimRetrieverClassLoaded = loadClaimRetrieverImpl();
+// Cache keys of the backend JWTs which are being regenerated ahead of their expiry
+map<boolean> jwtRefreshesInProgress = {};
 
 # Setting backend JWT header when there is no JWT Token is present.
 #
@@ -42,29 +44,104 @@ function setGeneratedTokenAsHeader(http:Request req,
         printDebug(JWT_GEN_UTIL, "Token: " + generatedToken.toString());
 
         if (enabledCaching) {
-            error? err = jwtGeneratorCache.put(<@untainted>cacheKey, <@untainted>generatedToken.toString());
-            if (err is error) {
-                printError(JWT_GEN_UTIL, "Error while adding entry to jwt generator cache", err);
-            }
-            printDebug(JWT_GEN_UTIL, "Added to jwt generator token cache.");
+            cacheGeneratedToken(cacheKey, generatedToken.toString());
         }
         req.setHeader(jwtheaderName, generatedToken.toString());
         return true;
     }
 }
 
+# Add a generated backend JWT to the jwt generator cache, replacing the expiry time of the previous token.
+#
+# + cacheKey - key for the jwt generator cache
+# + generatedToken - generated Backend JWT
+function cacheGeneratedToken(string cacheKey, string generatedToken) {
+    error? err = jwtGeneratorCache.put(<@untainted>cacheKey, <@untainted>generatedToken);
+    if (err is error) {
+        printError(JWT_GEN_UTIL, "Error while adding entry to jwt generator cache", err);
+        return;
+    }
+    // The expiry time is read from the new token when it is next served from the cache
+    if (jwtGeneratorExpTimeCache.hasKey(cacheKey)) {
+        err = jwtGeneratorExpTimeCache.invalidate(cacheKey);
+        if (err is error) {
+            printError(JWT_GEN_UTIL, "Error while removing the expiry time of the replaced token", err);
+        }
+    }
+    printDebug(JWT_GEN_UTIL, "Added to jwt generator token cache.");
+}
+
+# Regenerate a cached backend JWT in the background, unless it is already being regenerated.
+#
+# + tokenContextDTO - BackendJWTGenUserContextDTO record which contains payload, issuer and whether claim retrieval enabled.
+# + apiDetails - extracted api details for the current api
+# + cacheKey - key for the jwt generator cache
+function refreshCachedToken(BackendJWTGenUserContextDTO tokenContextDTO, map<string> apiDetails, string cacheKey) {
+    // Only the principal and the authentication context are read on the request strand. The claims, which may be
+    // retrieved from the key manager, are populated in the background.
+    runtime:InvocationContext invocationContext = runtime:getInvocationContext();
+    AuthenticationContext authContext = <AuthenticationContext>invocationContext.attributes[AUTHENTICATION_CONTEXT];
+    runtime:Principal? principal = invocationContext?.principal;
+    boolean refreshStarted = false;
+    lock {
+        if (!jwtRefreshesInProgress.hasKey(cacheKey)) {
+            jwtRefreshesInProgress[<@untainted>cacheKey] = true;
+            refreshStarted = true;
+        }
+    }
+    if (refreshStarted) {
+        printDebug(JWT_GEN_UTIL, "JWT is regenerated ahead of its expiry");
+        future<()> refresh = start regenerateCachedToken(tokenContextDTO, principal, authContext, apiDetails,
+            cacheKey);
+    }
+}
+
+# Generate a backend JWT and replace the cached token of the cache key. The cache key is released for the next
+# refresh whether or not the token is regenerated.
+#
+# + tokenContextDTO - BackendJWTGenUserContextDTO record which contains payload, issuer and whether claim retrieval enabled.
+# + principal - principal of the request
+# + authContext - authentication context of the request
+# + apiDetails - extracted api details for the current api
+# + cacheKey - key for the jwt generator cache
+function regenerateCachedToken(BackendJWTGenUserContextDTO tokenContextDTO, runtime:Principal? principal,
+                                AuthenticationContext authContext, map<string> apiDetails, string cacheKey) {
+    error? result = trap regenerateToken(tokenContextDTO, principal, authContext, apiDetails, cacheKey);
+    if (result is error) {
+        printError(JWT_GEN_UTIL, "Token not regenerated due to error", result);
+    }
+    lock {
+        _ = jwtRefreshesInProgress.remove(<@untainted>cacheKey);
+    }
+}
+
+function regenerateToken(BackendJWTGenUserContextDTO tokenContextDTO, runtime:Principal? principal,
+                        AuthenticationContext authContext, map<string> apiDetails, string cacheKey) returns error? {
+    ClaimsMapDTO claimsMapDTO = createClaimsMapDTO(tokenContextDTO, principal, authContext);
+    handle generatedToken = check generateJWTTokenFromUserClaimsMap(claimsMapDTO, apiDetails);
+    cacheGeneratedToken(cacheKey, generatedToken.toString());
+}
+
 # populate and return ClaimsMapDTO object which is required to the further processing of Jwt generator implementation.
 # + tokenContextDTO - BackendJWTGenUserContextDTO record which contains payload, issuer and whether claim retrieval enabled.
 # + return - ClaimsMapDTO
 function createMapFromRetrievedUserClaimsListDTO(BackendJWTGenUserContextDTO tokenContextDTO)
                                                     returns @tainted ClaimsMapDTO {
-    ClaimsMapDTO claimsMapDTO = {};
-    CustomClaimsMapDTO customClaimsMapDTO = {};
-
     runtime:InvocationContext invocationContext = runtime:getInvocationContext();
     AuthenticationContext authContext = <AuthenticationContext>invocationContext.attributes[AUTHENTICATION_CONTEXT];
+    return createClaimsMapDTO(tokenContextDTO, invocationContext?.principal, authContext);
+}
+
+# populate and return ClaimsMapDTO object from the principal and the authentication context of a request.
+# + tokenContextDTO - BackendJWTGenUserContextDTO record which contains payload, issuer and whether claim retrieval enabled.
+# + principal - principal of the request
+# + authContext - authentication context of the request
+# + return - ClaimsMapDTO
+function createClaimsMapDTO(BackendJWTGenUserContextDTO tokenContextDTO, runtime:Principal? principal,
+                            AuthenticationContext authContext) returns @tainted ClaimsMapDTO {
+    ClaimsMapDTO claimsMapDTO = {};
+    CustomClaimsMapDTO customClaimsMapDTO = {};
 
-    runtime:Principal? principal = invocationContext?.principal;
     if (principal is runtime:Principal) {
         map<any>? customClaims = principal?.claims;
         if (customClaims is map<any>) {
@@ -256,6 +333,9 @@ function setJWTTokenWithCacheCheck(http:Request req,
                 } else {
                     req.setHeader(jwtheaderName, cachedToken);
                     status = true;
+                    if (difference < jwtGeneratorRefreshAheadTime) {
+                        refreshCachedToken(tokenContextDTO, apiDetails, cacheKey);
+                    }
                 }
             } else {
                 printDebug(JWT_GEN_UTIL, "Failed to read exp from cached token");
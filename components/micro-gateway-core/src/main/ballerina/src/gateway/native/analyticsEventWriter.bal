@@ -0,0 +1,109 @@
+// Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+//
+// WSO2 Inc. licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+import ballerina/http;
+import ballerina/java;
+
+# Initialize the writer which writes the analytics events to the usage data file from a single thread.
+#
+# + filePath - Path of the usage data file
+# + fileFormat - Format of the usage data file, which is either `text` or `binary`
+# + queueSize - Maximum number of events waiting to be written
+# + bufferSize - Size of the write buffer in bytes
+# + flushInterval - Maximum time in milliseconds the events are kept in the buffer
+# + return - An error if the file could not be opened
+public function initAnalyticsEventWriter(string filePath, string fileFormat, int queueSize, int bufferSize,
+        int flushInterval) returns error? {
+    return jInitAnalyticsEventWriter(java:fromString(filePath), java:fromString(fileFormat), queueSize, bufferSize,
+        flushInterval);
+}
+
+# Queue an analytics event to be written to the usage data file.
+#
+# + streamId - Stream ID of the event
+# + timeStamp - Time of the event in milliseconds
+# + metaData - Meta data of the event
+# + payloadData - Payload data of the event
+# + return - `false` if the writer is not initialized or its queue is full
+public function writeAnalyticsEvent(string streamId, int timeStamp, string metaData, string payloadData)
+        returns boolean {
+    return jWriteAnalyticsEvent(java:fromString(streamId), timeStamp, java:fromString(metaData),
+        java:fromString(payloadData));
+}
+
+# Upload a usage data file to the analytics server, streaming the file in chunks.
+#
+# + url - URL of the upload service
+# + filePath - Path of the file
+# + fileName - Name of the file sent to the server
+# + username - Username of the analytics server
+# + password - Password of the analytics server
+# + trustStorePath - Path of the trust store used to verify the server
+# + trustStorePassword - Password of the trust store
+# + verifyHostname - Whether the hostname of the server should be verified
+# + proxy - Proxy to the analytics server, or nil if the server is connected directly
+# + return - Status code of the response, or an error if the file could not be uploaded
+public function uploadAnalyticsFile(string url, string filePath, string fileName, string username, string password,
+        string trustStorePath, string trustStorePassword, boolean verifyHostname, http:ProxyConfig? proxy)
+        returns int | error {
+    string proxyHost = "";
+    int proxyPort = 0;
+    string proxyUsername = "";
+    string proxyPassword = "";
+    if (proxy is http:ProxyConfig) {
+        proxyHost = proxy.host;
+        proxyPort = proxy.port;
+        proxyUsername = proxy.userName;
+        proxyPassword = proxy.password;
+    }
+    return jUploadAnalyticsFile(java:fromString(url), java:fromString(filePath), java:fromString(fileName),
+        java:fromString(username), java:fromString(password), java:fromString(trustStorePath),
+        java:fromString(trustStorePassword), verifyHostname, java:fromString(proxyHost), proxyPort,
+        java:fromString(proxyUsername), java:fromString(proxyPassword));
+}
+
+# Rotate the usage data file, after the events queued so far are written to it.
+#
+# + filePath - Path of the usage data file
+# + rotatedFilePath - Path of the rotated file
+# + return - `true` if the file is rotated, `false` if there are no events to be rotated, or an error
+public function rotateAnalyticsEventFile(string filePath, string rotatedFilePath) returns boolean | error {
+    return jRotateAnalyticsEventFile(java:fromString(filePath), java:fromString(rotatedFilePath));
+}
+
+function jInitAnalyticsEventWriter(handle filePath, handle fileFormat, int queueSize, int bufferSize,
+        int flushInterval) returns error? = @java:Method {
+    name: "initWriter",
+    class: "org.wso2.micro.gateway.core.analytics.AnalyticsEventWriter"
+} external;
+
+function jWriteAnalyticsEvent(handle streamId, int timeStamp, handle metaData, handle payloadData)
+        returns boolean = @java:Method {
+    name: "writeEvent",
+    class: "org.wso2.micro.gateway.core.analytics.AnalyticsEventWriter"
+} external;
+
+function jRotateAnalyticsEventFile(handle filePath, handle rotatedFilePath) returns boolean | error = @java:Method {
+    name: "rotateFile",
+    class: "org.wso2.micro.gateway.core.analytics.AnalyticsEventWriter"
+} external;
+
+function jUploadAnalyticsFile(handle url, handle filePath, handle fileName, handle username, handle password,
+        handle trustStorePath, handle trustStorePassword, boolean verifyHostname, handle proxyHost, int proxyPort,
+        handle proxyUsername, handle proxyPassword) returns int | error = @java:Method {
+    name: "uploadFile",
+    class: "org.wso2.micro.gateway.core.analytics.AnalyticsFileUploader"
+} external;
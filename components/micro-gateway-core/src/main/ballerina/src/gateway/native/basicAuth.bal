@@ -0,0 +1,60 @@
+// Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+//
+// WSO2 Inc. licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+import ballerina/java;
+
+boolean isBasicAuthUserStoreLoaded = false;
+
+# Load the basic auth users to the in memory user store, unless they are loaded already. The user store is shared by
+# the basic auth providers of all the APIs, hence the users are parsed once rather than once per provider.
+function initBasicAuthUserStore() {
+    lock {
+        if (!isBasicAuthUserStoreLoaded) {
+            loadBasicAuthUsers();
+            isBasicAuthUserStoreLoaded = true;
+        }
+    }
+}
+
+# Load the basic auth users from the configuration to the in memory user store. The users loaded earlier are
+# replaced at once, hence this can be called again to reload the users once the configuration is updated.
+public function loadBasicAuthUsers() {
+    int cacheExpiry = getConfigIntValue(CACHING_ID, BASIC_AUTH_CACHE_EXPIRY, DEFAULT_BASIC_AUTH_CACHE_EXPIRY);
+    int cacheCapacity = getConfigIntValue(CACHING_ID, BASIC_AUTH_CACHE_CAPACITY, DEFAULT_BASIC_AUTH_CACHE_CAPACITY);
+    jLoadBasicAuthUsers(getConfigMapValue(CONFIG_USER_SECTION), cacheExpiry, cacheCapacity);
+}
+
+# Authenticate the user of a basic auth credential against the in memory user store.
+#
+# + credential - Base64 encoded credential of the authorization header
+# + userName - User name decoded from the credential
+# + password - Password decoded from the credential
+# + return - Comma separated scopes of the user if the user is authenticated, else nil
+function authenticateBasicAuthUser(string credential, string userName, string password) returns string? {
+    handle scopes = jAuthenticateBasicAuthUser(java:fromString(credential), java:fromString(userName),
+        java:fromString(password));
+    return java:toString(scopes);
+}
+
+function jLoadBasicAuthUsers(map<any> userSection, int cacheExpiry, int cacheCapacity) = @java:Method {
+    name: "loadUsers",
+    class: "org.wso2.micro.gateway.core.basicauth.BasicAuthUserStore"
+} external;
+
+function jAuthenticateBasicAuthUser(handle credential, handle userName, handle password) returns handle = @java:Method {
+    name: "authenticateUser",
+    class: "org.wso2.micro.gateway.core.basicauth.BasicAuthUserStore"
+} external;
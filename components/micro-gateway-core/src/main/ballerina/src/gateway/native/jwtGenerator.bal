@@ -108,6 +108,13 @@ public function generateJWTTokenFromUserClaimsMap(ClaimsMapDTO jwtInfo, map<stri
     return jGenerateJWTTokenFromUserClaimsMap(jwtInfo, apiDetails);
 }
 
+# Reload the signing keys of the JWT generator, once the keystore is updated with a rotated key
+#
+# + return - Returns `true` if the keys are reloaded, or `false` if unsuccessful.
+public function reloadJWTGeneratorSigningKeys() returns boolean {
+    return jReloadJWTGeneratorSigningKeys();
+}
+
 # Interop function to create instance of JWTGenerator
 #
 # + className - className for the jwtgenerator implementation
@@ -176,7 +183,16 @@ function jLoadClaimRetrieverClass (handle className, handle trustStorePath, hand
     class: "org.wso2.micro.gateway.core.jwt.generator.MGWJWTGeneratorInvoker"
 } external;
 
+# Interop function to retrieve the user claims, which yields the strand until the claims are retrieved
+#
+# + userInfo - Authentication context of the user
+# + return - Returns the retrieved claims, or `()` if there are no claims.
 function jRetrieveClaims (UserClaimRetrieverContextDTO userInfo) returns RetrievedUserClaimsListDTO? = @java:Method {
-    name:"getRetrievedClaims",
+    name:"getRetrievedClaimsAsync",
+    class: "org.wso2.micro.gateway.core.jwt.generator.MGWJWTGeneratorInvoker"
+} external;
+
+function jReloadJWTGeneratorSigningKeys() returns boolean = @java:Method {
+    name: "reloadSigningKeys",
     class: "org.wso2.micro.gateway.core.jwt.generator.MGWJWTGeneratorInvoker"
 } external;
@@ -0,0 +1,70 @@
+// Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+//
+// WSO2 Inc. licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+import ballerina/java;
+
+# Initialize the probabilistic filter in front of the revoked token map.
+#
+# + expectedRevokedTokens - Expected number of revoked tokens at a time
+# + falsePositiveProbability - Desired false positive probability
+public function initRevokedTokenFilter(int expectedRevokedTokens, float falsePositiveProbability) {
+    jInitRevokedTokenFilter(expectedRevokedTokens, falsePositiveProbability);
+}
+
+public function addToRevokedTokenFilter(string token) {
+    jAddToRevokedTokenFilter(java:fromString(token));
+}
+
+public function removeFromRevokedTokenFilter(string token) {
+    jRemoveFromRevokedTokenFilter(java:fromString(token));
+}
+
+# Check the revoked token filter for a token.
+#
+# + token - Token or the token signature
+# + return - `false` if the token is definitely not revoked, `true` if the revoked token map should be checked
+public function mightBeRevoked(string token) returns boolean {
+    return jMightBeRevoked(java:fromString(token));
+}
+
+public function recordRevokedTokenFilterFalsePositive() {
+    jRecordRevokedTokenFilterFalsePositive();
+}
+
+function jInitRevokedTokenFilter(int expectedRevokedTokens, float falsePositiveProbability) = @java:Method {
+    name: "initFilter",
+    class: "org.wso2.micro.gateway.core.revocation.RevokedTokenFilter"
+} external;
+
+function jAddToRevokedTokenFilter(handle token) = @java:Method {
+    name: "addRevokedToken",
+    class: "org.wso2.micro.gateway.core.revocation.RevokedTokenFilter"
+} external;
+
+function jRemoveFromRevokedTokenFilter(handle token) = @java:Method {
+    name: "removeRevokedToken",
+    class: "org.wso2.micro.gateway.core.revocation.RevokedTokenFilter"
+} external;
+
+function jMightBeRevoked(handle token) returns boolean = @java:Method {
+    name: "mightBeRevoked",
+    class: "org.wso2.micro.gateway.core.revocation.RevokedTokenFilter"
+} external;
+
+function jRecordRevokedTokenFilterFalsePositive() = @java:Method {
+    name: "recordFalsePositive",
+    class: "org.wso2.micro.gateway.core.revocation.RevokedTokenFilter"
+} external;
@@ -21,8 +21,16 @@ public function initThrottleDataPublisher() {
     int processThreadPoolMaximumSize = getConfigIntValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, PROCESS_THREAD_POOL_MAXIMUM_SIZE, DEFAULT_PROCESS_THREAD_POOL_MAXIMUM_SIZE);
     int processThreadPoolKeepAliveTime = getConfigIntValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, PROCESS_THREAD_POOL_KEEP_ALIVE_TIME, DEFAULT_PROCESS_THREAD_POOL_KEEP_ALIVE_TIME);
     int cleanUpFrequency = getConfigIntValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, THROTTLE_CLEANUP_FREQUENCY, DEFAULT_THROTTLE_CLEANUP_FREQUENCY);
+    string algorithm = getConfigValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, LOCAL_THROTTLE_ALGORITHM, DEFAULT_LOCAL_THROTTLE_ALGORITHM);
+    string processingMode = getConfigValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, LOCAL_THROTTLE_PROCESSING_MODE, DEFAULT_LOCAL_THROTTLE_PROCESSING_MODE);
+    int processQueueSize = getConfigIntValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, PROCESS_QUEUE_SIZE, DEFAULT_PROCESS_QUEUE_SIZE);
+    string queueFullPolicy = getConfigValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, PROCESS_QUEUE_FULL_POLICY, DEFAULT_PROCESS_QUEUE_FULL_POLICY);
+    string counterStore = getConfigValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, LOCAL_THROTTLE_COUNTER_STORE, DEFAULT_LOCAL_THROTTLE_COUNTER_STORE);
+    int compactCounterStoreSize = getConfigIntValue(LOCAL_THROTTLE_CONF_INSTANCE_ID, COMPACT_COUNTER_STORE_SIZE, DEFAULT_COMPACT_COUNTER_STORE_SIZE);
     jInitThrottleDataPublisher (processThreadPoolCoreSize,
-        processThreadPoolMaximumSize, processThreadPoolKeepAliveTime, cleanUpFrequency);
+        processThreadPoolMaximumSize, processThreadPoolKeepAliveTime, cleanUpFrequency, java:fromString(algorithm),
+        java:fromString(processingMode), processQueueSize, java:fromString(queueFullPolicy),
+        java:fromString(counterStore), compactCounterStoreSize);
 }
 
 public function publishNonThrottledEvent(RequestStreamDTO throttleEvent) {
@@ -96,7 +104,8 @@ public function jIsApiLevelThrottled(handle apiKey) returns boolean = @java:Meth
 } external;
 
 public function jInitThrottleDataPublisher(int processThreadPoolCoreSize, int processThreadPoolMaximumSize,
-    int processThreadPoolKeepAliveTime, int cleanUpFrequency) = @java:Method {
+    int processThreadPoolKeepAliveTime, int cleanUpFrequency, handle algorithm, handle processingMode,
+    int processQueueSize, handle queueFullPolicy, handle counterStore, int compactCounterStoreSize) = @java:Method {
     name: "initThrottleDataReceiver",
     class: "org.wso2.micro.gateway.core.throttle.ThrottleDataReceiver"
 } external;
@@ -50,6 +50,38 @@ public function responseValidate(string reqPath, string requestMethod, string re
      return jResponseValidate(requestPath, reqMethod, resCode, responsePayload, servName);
 }
 
+# Validate the raw request payload without converting it to a string.
+#
+# + reqPath - request resource path
+# + requestMethod - request method
+# + payload - raw request payload
+# + serviceName - serviceName
+# + return - status of the validation
+public function requestValidateStream(string reqPath, string requestMethod, byte[] payload, string serviceName)
+    returns handle | error {
+     handle requestPath = java:fromString(reqPath);
+     handle reqMethod = java:fromString(requestMethod);
+     handle servName = java:fromString(serviceName);
+     return jRequestValidateStream(requestPath, reqMethod, payload, servName);
+}
+
+# Validate the raw response payload without converting it to a string.
+#
+# + reqPath - request resource path
+# + requestMethod - request method
+# + responseCode - response status code
+# + response - raw response payload
+# + serviceName - serviceName
+# + return - status of the validation
+public function responseValidateStream(string reqPath, string requestMethod, string responseCode, byte[] response,
+                                                                           string serviceName) returns handle | error {
+     handle requestPath = java:fromString(reqPath);
+     handle reqMethod = java:fromString(requestMethod);
+     handle resCode = java:fromString(responseCode);
+     handle servName = java:fromString(serviceName);
+     return jResponseValidateStream(requestPath, reqMethod, resCode, response, servName);
+}
+
 # Extract Resource artifcats.
 #
 # + projectName - project Name
@@ -76,3 +108,15 @@ function jResponseValidate(handle resourcePath, handle reqMethod, handle resCode
      name: "validateResponse",
      class: "org.wso2.micro.gateway.core.validation.Validate"
 } external;
+
+function jRequestValidateStream(handle resourcePath, handle reqMethod, byte[] requestPayload, handle serviceName)
+                                                                            returns handle | error = @java:Method {
+     name: "validateRequestStream",
+     class: "org.wso2.micro.gateway.core.validation.Validate"
+} external;
+
+function jResponseValidateStream(handle resourcePath, handle reqMethod, handle resCode, byte[] res, handle serName)
+                        returns handle | error = @java:Method {
+     name: "validateResponseStream",
+     class: "org.wso2.micro.gateway.core.validation.Validate"
+} external;
@@ -13,32 +13,135 @@
 // KIND, either express or implied.  See the License for the
 // specific language governing permissions and limitations
 // under the License.
+import ballerina/lang.'int;
 import ballerina/stringutils;
+import ballerina/time;
 
 map<string> revokedTokenMap = {};
+// Expiry time of each revoked token in epoch milliseconds. Tokens without a known expiry time are not included.
+map<int> revokedTokenExpiryMap = {};
+int lastRevokedTokenCleanupTime = 0;
+boolean revokedTokenFilterEnabled = initRevokedTokenFilterFromConfig();
 
+# Provide a read only snapshot of the revoked tokens. Tokens should only be revoked with `addToRevokedTokenMap`, so that
+# the revoked token filter is updated along with the map.
+#
+# + return - Read only copy of the revoked token map
 public function getRevokedTokenMap() returns map<string> {
-    return revokedTokenMap;
+    lock {
+        return revokedTokenMap.cloneReadOnly();
+    }
 }
 
 public function addToRevokedTokenMap(map<string> revokedTokens) returns (boolean | ()) {
-    foreach var [revokedTokenKey, revokedTokenValue] in revokedTokens.entries() {
-        string tokenKey = <string>revokedTokenKey;
-        // Support for APIM 3.1.0 jwt revocation scenario.
-        string[] jwtComponents = stringutils:split(tokenKey, "\\.");
-        if (jwtComponents.length() == 3) {
-            tokenKey = jwtComponents[2];
+    int currentTime = time:currentTime().time;
+    lock {
+        foreach var [revokedTokenKey, revokedTokenValue] in revokedTokens.entries() {
+            string tokenKey = <string>revokedTokenKey;
+            // Support for APIM 3.1.0 jwt revocation scenario.
+            string[] jwtComponents = stringutils:split(tokenKey, "\\.");
+            if (jwtComponents.length() == 3) {
+                tokenKey = jwtComponents[2];
+            }
+            if (revokedTokenFilterEnabled && !revokedTokenMap.hasKey(tokenKey)) {
+                addToRevokedTokenFilter(tokenKey);
+            }
+            revokedTokenMap[tokenKey] = <@untainted>revokedTokenValue;
+            int? expiryTime = getRevokedTokenExpiryTime(revokedTokenValue, currentTime);
+            if (expiryTime is int) {
+                revokedTokenExpiryMap[tokenKey] = expiryTime;
+            } else if (revokedTokenExpiryMap.hasKey(tokenKey)) {
+                _ = revokedTokenExpiryMap.remove(tokenKey);
+            }
+        }
+        if (currentTime - lastRevokedTokenCleanupTime > REVOKED_TOKEN_CLEANUP_INTERVAL) {
+            removeExpiredRevokedTokens(currentTime);
+            lastRevokedTokenCleanupTime = currentTime;
         }
-        revokedTokenMap[tokenKey] = <@untainted>revokedTokenValue;
     }
     return true;
 }
 
 public function retrieveFromRevokedTokenMap(string token) returns (boolean | ()) {
-    foreach var [revokedTokenKey, revokedTokenValue] in revokedTokenMap.entries() {
-        if (token == revokedTokenKey) {
-            return true;
+    // The filter does not give false negatives, hence the revoked token map is not required to be checked
+    if (revokedTokenFilterEnabled && !mightBeRevoked(token)) {
+        return false;
+    }
+    if (!revokedTokenMap.hasKey(token)) {
+        if (revokedTokenFilterEnabled) {
+            recordRevokedTokenFilterFalsePositive();
+        }
+        return false;
+    }
+    int? expiryTime = revokedTokenExpiryMap[token];
+    if (expiryTime is int && expiryTime < time:currentTime().time) {
+        // An expired token is rejected by the token validation itself, hence it is not required to be kept in the map.
+        lock {
+            removeRevokedToken(token);
+        }
+        return false;
+    }
+    return true;
+}
+
+# Remove the revoked tokens which are already expired. Should be called within a lock.
+#
+# + currentTime - Current time in epoch milliseconds
+function removeExpiredRevokedTokens(int currentTime) {
+    string[] expiredTokens = [];
+    foreach var [tokenKey, expiryTime] in revokedTokenExpiryMap.entries() {
+        if (expiryTime < currentTime) {
+            expiredTokens.push(tokenKey);
+        }
+    }
+    foreach string tokenKey in expiredTokens {
+        removeRevokedToken(tokenKey);
+    }
+    if (expiredTokens.length() > 0) {
+        printDebug(KEY_TOKEN_REVOCATION_MAP, expiredTokens.length().toString() +
+            " expired tokens are removed from the revoked token map");
+    }
+}
+
+function removeRevokedToken(string tokenKey) {
+    if (revokedTokenMap.hasKey(tokenKey)) {
+        _ = revokedTokenMap.remove(tokenKey);
+        if (revokedTokenFilterEnabled) {
+            removeFromRevokedTokenFilter(tokenKey);
+        }
+    }
+    if (revokedTokenExpiryMap.hasKey(tokenKey)) {
+        _ = revokedTokenExpiryMap.remove(tokenKey);
+    }
+}
+
+# Derive the expiry time of a revoked token from the value received with the revocation event. Depending on the
+# source of the event, the value is either the expiry time in epoch milliseconds or seconds, or the remaining time
+# to live in seconds.
+#
+# + value - Value received with the revoked token
+# + currentTime - Current time in epoch milliseconds
+# + return - Expiry time in epoch milliseconds or `()` if the value is not a valid time
+function getRevokedTokenExpiryTime(string value, int currentTime) returns int? {
+    int | error expiry = 'int:fromString(value);
+    if (expiry is int && expiry > 0) {
+        if (expiry >= EPOCH_MILLIS_THRESHOLD) {
+            return expiry;
+        } else if (expiry >= EPOCH_SECONDS_THRESHOLD) {
+            return expiry * 1000;
         }
+        return currentTime + expiry * 1000;
+    }
+    return ();
+}
+
+function initRevokedTokenFilterFromConfig() returns boolean {
+    boolean enabled = getConfigBooleanValue(REVOKED_TOKEN_FILTER_INSTANCE_ID, REVOKED_TOKEN_FILTER_ENABLED,
+        DEFAULT_REVOKED_TOKEN_FILTER_ENABLED);
+    if (enabled) {
+        initRevokedTokenFilter(getConfigIntValue(REVOKED_TOKEN_FILTER_INSTANCE_ID, REVOKED_TOKEN_FILTER_EXPECTED_TOKENS,
+            DEFAULT_REVOKED_TOKEN_FILTER_EXPECTED_TOKENS), getConfigFloatValue(REVOKED_TOKEN_FILTER_INSTANCE_ID,
+            REVOKED_TOKEN_FILTER_FALSE_POSITIVE_PROBABILITY, DEFAULT_REVOKED_TOKEN_FILTER_FALSE_POSITIVE_PROBABILITY));
     }
-    return false;
+    return enabled;
 }
@@ -25,7 +25,7 @@ DEFAULT_JMS_CONNECTION_PROVIDER_URL);
 string jmsConnectionPassword = getConfigValue(THROTTLE_CONF_INSTANCE_ID, JMS_CONNECTION_PASSWORD, DEFAULT_JMS_CONNECTION_PASSWORD);
 string jmsConnectionUsername = getConfigValue(THROTTLE_CONF_INSTANCE_ID, JMS_CONNECTION_USERNAME, DEFAULT_JMS_CONNECTION_USERNAME);
 
-map<string> keyTemplateMap = {};
+map<KeyTemplateDTO> keyTemplateMap = {};
 map<string> blockConditionsMap = {};
 table<IPRangeDTO> IpBlockConditionsMap = table {
     {},
@@ -164,12 +164,12 @@ function handleKeyTemplateMessage(jms:MapMessage message, string keyTemplateValu
     if (keyTemplateState is string) {
         printDebug(KEY_THROTTLE_EVENT_LISTENER, "Key template state : " + keyTemplateState.toString());
         if (stringutils:equalsIgnoreCase(KEY_TEMPLATE_ADD, keyTemplateState)) {
-            keyTemplateMap[keyTemplateValue] = <@untainted>keyTemplateValue;
+            keyTemplateMap[keyTemplateValue] = <@untainted>compileKeyTemplate(keyTemplateValue);
             printDebug(KEY_THROTTLE_EVENT_LISTENER, "Key template key : " + keyTemplateValue.toString() + " added to the map");
         } else {
-            string removedValue = keyTemplateMap.remove(keyTemplateValue);
-            printDebug(KEY_THROTTLE_EVENT_LISTENER, "Key template key : " + keyTemplateValue.toString() + " with value : " +
-            removedValue + " removed from the map");
+            KeyTemplateDTO removedValue = keyTemplateMap.remove(keyTemplateValue);
+            printDebug(KEY_THROTTLE_EVENT_LISTENER, "Key template key : " + keyTemplateValue.toString() +
+            " removed from the map");
         }
     }
 }
@@ -75,10 +75,10 @@ service keyTemplateRetrievalService = service {
                 if (keyTemplates is json[]) {
                     foreach var key in keyTemplates {
                         string keyTempalteValue = key.toString();
-                        keyTemplateMap[keyTempalteValue] = <@untainted>keyTempalteValue;
+                        keyTemplateMap[keyTempalteValue] = <@untainted>compileKeyTemplate(keyTempalteValue);
                     }
                 }
-                printDebug(KEY_TEMPLATE_RETIEVAL_TASK, "Key template map : " + keyTemplateMap.toString());
+                printDebug(KEY_TEMPLATE_RETIEVAL_TASK, "Key template map : " + keyTemplateMap.keys().toString());
                 stopKeyTemplateTask(true);
             } else {
                 printDebug(KEY_TEMPLATE_RETIEVAL_TASK, "Key templates are not found.");
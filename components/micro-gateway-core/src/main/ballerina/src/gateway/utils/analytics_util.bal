@@ -199,6 +199,7 @@ function initializeAnalytics() {
         getAnalyticsEnableConfig();
         if (isAnalyticsEnabled) {
             printDebug(KEY_ANALYTICS_FILTER, "Analytics is enabled");
+            initAnalyticsFileWriter();
             future<()> uploadTask = start timerTask();            // file uploading task
             future<()> rotateTask = start rotatingTask();        // file rotating task
         } else {
@@ -26,6 +26,10 @@ map<any> throttleDataMap = {};
 map<map<ConditionDto[]>> conditionDataMap = {};
 boolean isStreamsInitialized = false;
 
+// Variables of the custom throttle key templates, in the order of the KEY_TEMPLATE_* variable indexes
+final string[] keyTemplateVariables = ["$resourceKey", "$userId", "$apiContext", "$apiVersion", "$appTenant",
+    "$apiTenant", "$appId", "$clientIp"];
+
 boolean blockConditionExist = false;
 boolean enabledGlobalTMEventPublishing = getConfigBooleanValue(THROTTLE_CONF_INSTANCE_ID,
 GLOBAL_TM_EVENT_PUBLISH_ENABLED, false);
@@ -37,6 +41,82 @@ public function isAnyBlockConditionExist() returns (boolean) {
     return blockConditionExist;
 }
 
+# Parse a custom throttle key template into literal and variable tokens, so that the throttle keys of the requests
+# can be built without scanning the template.
+#
+# + keyTemplate - Key template received from the traffic manager
+# + return - Parsed key template
+public function compileKeyTemplate(string keyTemplate) returns KeyTemplateDTO {
+    KeyTemplateDTO compiledTemplate = {};
+    int literalStart = 0;
+    int index = 0;
+    int templateLength = keyTemplate.length();
+    while (index < templateLength) {
+        int? variableStart = keyTemplate.indexOf("$", index);
+        if (variableStart is ()) {
+            break;
+        }
+        int variable = getKeyTemplateVariable(keyTemplate, variableStart);
+        if (variable == KEY_TEMPLATE_LITERAL) {
+            index = variableStart + 1;
+            continue;
+        }
+        if (variableStart > literalStart) {
+            addKeyTemplateToken(compiledTemplate, keyTemplate.substring(literalStart, variableStart),
+                KEY_TEMPLATE_LITERAL);
+        }
+        addKeyTemplateToken(compiledTemplate, "", variable);
+        if (variable == KEY_TEMPLATE_API_VERSION) {
+            compiledTemplate.usesApiVersion = true;
+        }
+        index = variableStart + keyTemplateVariables[variable].length();
+        literalStart = index;
+    }
+    if (literalStart < templateLength) {
+        addKeyTemplateToken(compiledTemplate, keyTemplate.substring(literalStart, templateLength),
+            KEY_TEMPLATE_LITERAL);
+    }
+    return compiledTemplate;
+}
+
+# Build the throttle key of a request from a parsed key template.
+#
+# + keyTemplate - Parsed key template
+# + variableValues - Values of the key template variables, in the order of the KEY_TEMPLATE_* variable indexes
+# + return - Throttle key
+public function buildThrottleKey(KeyTemplateDTO keyTemplate, string[] variableValues) returns string {
+    int tokenCount = keyTemplate.tokens.length();
+    if (tokenCount == 1 && keyTemplate.variables[0] == KEY_TEMPLATE_LITERAL) {
+        return keyTemplate.tokens[0];
+    }
+    string[] keyParts = [];
+    int index = 0;
+    while (index < tokenCount) {
+        int variable = keyTemplate.variables[index];
+        keyParts[index] = variable == KEY_TEMPLATE_LITERAL ? keyTemplate.tokens[index] : variableValues[variable];
+        index += 1;
+    }
+    return strings:concat(...keyParts);
+}
+
+function getKeyTemplateVariable(string keyTemplate, int index) returns int {
+    int variable = 0;
+    while (variable < keyTemplateVariables.length()) {
+        string variableName = keyTemplateVariables[variable];
+        int variableEnd = index + variableName.length();
+        if (variableEnd <= keyTemplate.length() && keyTemplate.substring(index, variableEnd) == variableName) {
+            return variable;
+        }
+        variable += 1;
+    }
+    return KEY_TEMPLATE_LITERAL;
+}
+
+function addKeyTemplateToken(KeyTemplateDTO keyTemplate, string token, int variable) {
+    keyTemplate.tokens.push(token);
+    keyTemplate.variables.push(variable);
+}
+
 //check whether throttle event is in the local map(request is throttled or not)
 public function isRequestThrottled(string key) returns [boolean, boolean] {
     printDebug(KEY_THROTTLE_UTIL, "throttle data map : " + throttleDataMap.toString());
@@ -259,6 +339,15 @@ public function getPolicyDetails(map<json> deployedPolicies, string policyName,
     return <map<json>>deployedPolicies.get(prefix + policyName);
 }
 
+# Provide the local throttle algorithm given in a throttle policy.
+#
+# + policyDetails - Details of the deployed throttle policy
+# + return - Algorithm name or an empty string if the policy uses the configured default algorithm
+function getPolicyAlgorithm(map<json> policyDetails) returns string {
+    json algorithm = policyDetails[POLICY_ALGORITHM];
+    return algorithm is string ? algorithm : "";
+}
+
 public function getIsStreamsInitialized() returns boolean {
     return isStreamsInitialized;
 }
@@ -464,16 +464,34 @@ public function rotateFile(string filePath) returns string | error {
     //the data loss.
     string eventFilePath = filePath.substring(0, filePathLength - 4) ;
     int rotatingTimeStamp = getCurrentTime();
-    var renameFileResult = file:rename(filePath, eventFilePath);
+    string fileNameWithoutExtension = fileLocation + API_USAGE_FILE + "." + rotatingTimeStamp.toString() + "." +
+        uuid;
+    if (stringutils:equalsIgnoreCase(ANALYTICS_BINARY_FILE_FORMAT, analyticsFileFormat)) {
+        //The blocks of a binary file are already compressed, hence the file is moved to its final name, which is
+        //picked by the uploading task, without compressing it again.
+        string binaryFileName = fileNameWithoutExtension + BINARY_EVENT_FILE_EXTENSION;
+        var rotateResult = rotateAnalyticsEventFile(filePath, binaryFileName);
+        if (rotateResult is error) {
+            printError(KEY_UTILS, "Failed to rotate file", rotateResult);
+            return rotateResult;
+        } else if (!rotateResult) {
+            error er = error("No files present to rotate.");
+            return er;
+        }
+        return binaryFileName;
+    }
+    //The file is renamed by the analytics event writer, once the events queued so far are written to it.
+    var renameFileResult = rotateAnalyticsEventFile(filePath, eventFilePath);
     if (renameFileResult is error) {
         printError(KEY_UTILS, "Failed to rename file", renameFileResult);
+    } else if (!renameFileResult) {
+        error er = error("No files present to rotate.");
+        return er;
     }
     //Until the compression happens, the file will have the name <fileNameWithoutExtension> with '.tmp' extension.
     //After the compression is completed successfully, the file will be renamed to <zipName>. Only the files
     //with .zip extension will be uploaded. Hence the partially compressed files will not be uploaded to the analytics
     //node.
-    string fileNameWithoutExtension = fileLocation + API_USAGE_FILE + "." + rotatingTimeStamp.toString() + "." +
-        uuid;
     string tempZipName = fileNameWithoutExtension + TMP_EXTENSION;
     string zipName = fileNameWithoutExtension + ZIP_EXTENSION;
     var compressResult = compress(eventFilePath, tempZipName);
@@ -19,7 +19,9 @@ import ballerina/http;
 boolean enableRequestValidation = getConfigBooleanValue(VALIDATION_CONFIG_INSTANCE_ID, REQUEST_VALIDATION_ENABLED,
     DEFAULT_REQUEST_VALIDATION_ENABLED);
 boolean enableResponseValidation = getConfigBooleanValue(VALIDATION_CONFIG_INSTANCE_ID, RESPONSE_VALIDATION_ENABLED,
-    DEFAULT_RESPONSE_VALIDATION_ENABLED);  
+    DEFAULT_RESPONSE_VALIDATION_ENABLED);
+boolean enableStreamingValidation = getConfigBooleanValue(VALIDATION_CONFIG_INSTANCE_ID,
+    STREAMING_VALIDATION_ENABLED, DEFAULT_STREAMING_VALIDATION_ENABLED);  
 
 function getRequestPathFromFilterContext(http:FilterContext filterContext) returns string {
     any path = filterContext.attributes[REQUEST_PATH];
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.micro.gateway.core.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Format of the usage data file written by the {@link AnalyticsEventWriter}. The events are encoded into the write
+ * buffer of the writer, and each full buffer is written to the file as a block.
+ */
+interface AnalyticsEventFormat {
+
+    String TEXT = "text";
+    String BINARY = "binary";
+
+    /**
+     * Provide the format of a name, which is the text format unless the binary format is named.
+     *
+     * @param name Name of the format
+     * @return Format
+     */
+    static AnalyticsEventFormat of(String name) {
+        return BINARY.equalsIgnoreCase(name) ? new BinaryAnalyticsEventFormat() : new TextAnalyticsEventFormat();
+    }
+
+    /**
+     * @return Upper bound of the number of bytes an event is encoded into
+     */
+    int getMaxEncodedLength(String streamId, String metaData, String payloadData);
+
+    /**
+     * Encode an event into a buffer with at least the maximum encoded length of the event remaining.
+     */
+    void encode(String streamId, long timestamp, String metaData, String payloadData, ByteBuffer buffer);
+
+    /**
+     * @return Size of the header written at the start of each file
+     */
+    int getHeaderSize();
+
+    void writeHeader(FileChannel channel) throws IOException;
+
+    /**
+     * Write a block of encoded events to the file.
+     *
+     * @param events     Encoded events, from the position to the limit
+     * @param eventCount Number of events in the block
+     * @param channel    Channel of the file
+     * @throws IOException if the block could not be written
+     */
+    void writeBlock(ByteBuffer events, int eventCount, FileChannel channel) throws IOException;
+}
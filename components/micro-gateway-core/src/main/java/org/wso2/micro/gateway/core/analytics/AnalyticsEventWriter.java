@@ -0,0 +1,398 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.analytics;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.TimeoutHandler;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.wso2.micro.gateway.core.utils.ErrorUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the analytics events to the usage data file from a single thread. The request threads only put the events
+ * into a bounded queue, and the writer keeps the file open and writes the events in groups, once its buffer is full
+ * or the flush interval elapses. The file is rotated by the writer as well, in the order of the queued events, hence
+ * no event is written to a file which is already rotated. The events are encoded in the text format accepted by the
+ * analytics server, or in the compressed binary format, where each full buffer is compressed as a block.
+ * <p>
+ * An event which could not be written is logged and skipped, and the writer continues with the next event. If the
+ * file could not be opened again after a rotation, it is opened by the next write.
+ */
+public final class AnalyticsEventWriter {
+    private static final Logger log = LogManager.getLogger(AnalyticsEventWriter.class);
+
+    private static final long DROPPED_EVENT_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final long ROTATION_TIMEOUT_SECONDS = 30;
+
+    private static volatile AnalyticsEventWriter instance;
+
+    private final Path filePath;
+    private final AnalyticsEventFormat format;
+    private final long flushIntervalNanos;
+    private final ByteBuffer buffer;
+    private final ExecutorService executor;
+    private final Disruptor<QueuedEvent> disruptor;
+    private final RingBuffer<QueuedEvent> ringBuffer;
+    private final AtomicLong droppedEventCount = new AtomicLong();
+    private volatile long lastDroppedEventLogTime;
+    // Accessed only by the writer thread, null until the file is opened again after a failed rotation
+    private FileChannel channel;
+    private long firstBufferedEventTime;
+    private int bufferedEventCount;
+
+    /**
+     * Create a writer and open the file.
+     *
+     * @param filePath            Path of the file
+     * @param format              Format of the file
+     * @param queueSize           Maximum number of events waiting to be written, rounded up to a power of two
+     * @param bufferSize          Size of the write buffer in bytes
+     * @param flushIntervalMillis Maximum time in milliseconds the events are kept in the buffer. 0 writes the events
+     *                            whenever the queue is drained
+     * @throws IOException if the file could not be opened
+     */
+    AnalyticsEventWriter(Path filePath, AnalyticsEventFormat format, int queueSize, int bufferSize,
+            long flushIntervalMillis) throws IOException {
+        this.filePath = filePath;
+        this.format = format;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        Files.createDirectories(filePath.toAbsolutePath().getParent());
+        this.channel = open(filePath);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AnalyticsEventWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The writer is woken up once the flush interval elapses, so that an idle gateway writes its last events
+        WaitStrategy waitStrategy = flushIntervalMillis > 0 ?
+                new TimeoutBlockingWaitStrategy(flushIntervalMillis, TimeUnit.MILLISECONDS) :
+                new BlockingWaitStrategy();
+        this.disruptor = new Disruptor<>(QueuedEvent::new, roundUpToPowerOfTwo(queueSize), executor,
+                ProducerType.MULTI, waitStrategy);
+        this.disruptor.handleEventsWith(new Writer());
+        this.ringBuffer = disruptor.start();
+    }
+
+    /**
+     * Initialize the writer of the usage data file. This is called once analytics is enabled.
+     *
+     * @param filePath            Path of the usage data file
+     * @param format              Format of the usage data file, which is either text or binary
+     * @param queueSize           Maximum number of events waiting to be written
+     * @param bufferSize          Size of the write buffer in bytes
+     * @param flushIntervalMillis Maximum time in milliseconds the events are kept in the buffer
+     * @return error if the file could not be opened
+     */
+    public static synchronized Object initWriter(String filePath, String format, long queueSize, long bufferSize,
+            long flushIntervalMillis) {
+        if (instance != null) {
+            return null;
+        }
+        try {
+            instance = new AnalyticsEventWriter(Paths.get(filePath), AnalyticsEventFormat.of(format),
+                    Math.toIntExact(queueSize), Math.toIntExact(bufferSize), flushIntervalMillis);
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "AnalyticsEventWriterShutdown"));
+            return null;
+        } catch (IOException | ArithmeticException e) {
+            return ErrorUtils.getBallerinaError("Error while opening the analytics event file " + filePath, e);
+        }
+    }
+
+    /**
+     * Queue an event to be written to the usage data file.
+     *
+     * @param streamId    Stream ID of the event
+     * @param timestamp   Time of the event in milliseconds
+     * @param metaData    Meta data of the event
+     * @param payloadData Payload data of the event
+     * @return false if the writer is not initialized or the queue is full, in which case the event is dropped
+     */
+    public static boolean writeEvent(String streamId, long timestamp, String metaData, String payloadData) {
+        AnalyticsEventWriter writer = instance;
+        return writer != null && writer.write(streamId, timestamp, metaData, payloadData);
+    }
+
+    /**
+     * Rotate the usage data file by moving the events written so far to another file. If the writer is not
+     * initialized, the file is simply moved.
+     *
+     * @param filePath        Path of the usage data file
+     * @param rotatedFilePath Path of the rotated file
+     * @return true if the file is rotated, false if there are no events to be rotated, or error if the file could not
+     * be rotated
+     */
+    public static Object rotateFile(String filePath, String rotatedFilePath) {
+        AnalyticsEventWriter writer = instance;
+        try {
+            if (writer != null && writer.filePath.equals(Paths.get(filePath))) {
+                return writer.rotate(Paths.get(rotatedFilePath));
+            }
+            return move(Paths.get(filePath), Paths.get(rotatedFilePath));
+        } catch (IOException e) {
+            return ErrorUtils.getBallerinaError("Error while rotating the analytics event file " + filePath, e);
+        }
+    }
+
+    boolean write(String streamId, long timestamp, String metaData, String payloadData) {
+        long sequence;
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            onEventDropped(streamId, payloadData);
+            return false;
+        }
+        QueuedEvent queuedEvent = ringBuffer.get(sequence);
+        queuedEvent.streamId = streamId;
+        queuedEvent.timestamp = timestamp;
+        queuedEvent.metaData = metaData;
+        queuedEvent.payloadData = payloadData;
+        ringBuffer.publish(sequence);
+        return true;
+    }
+
+    /**
+     * Move the events written so far to another file, and continue writing to a new file.
+     *
+     * @param rotatedFilePath Path of the rotated file
+     * @return false if there are no events to be rotated
+     * @throws IOException if the file could not be rotated
+     */
+    boolean rotate(Path rotatedFilePath) throws IOException {
+        CompletableFuture<Boolean> rotation = new CompletableFuture<>();
+        // Waits for a slot instead of failing, as the rotation should not be dropped when the queue is full
+        long sequence = ringBuffer.next();
+        QueuedEvent queuedEvent = ringBuffer.get(sequence);
+        queuedEvent.rotatedFilePath = rotatedFilePath;
+        queuedEvent.rotation = rotation;
+        ringBuffer.publish(sequence);
+        try {
+            return rotation.get(ROTATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rotating " + filePath, e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out while rotating " + filePath, e);
+        }
+    }
+
+    /**
+     * Write the queued events and close the file.
+     */
+    void close() {
+        disruptor.shutdown();
+        executor.shutdown();
+        try {
+            flush();
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.error("Error while closing the analytics event file " + filePath, e);
+        }
+    }
+
+    long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    private void append(QueuedEvent event) throws IOException {
+        int maxLength = format.getMaxEncodedLength(event.streamId, event.metaData, event.payloadData);
+        if (maxLength > buffer.remaining()) {
+            flush();
+        }
+        if (maxLength > buffer.capacity()) {
+            // An event larger than the buffer is written as a block of its own
+            ByteBuffer data = ByteBuffer.allocate(maxLength);
+            format.encode(event.streamId, event.timestamp, event.metaData, event.payloadData, data);
+            data.flip();
+            format.writeBlock(data, 1, getChannel());
+            return;
+        }
+        int position = buffer.position();
+        try {
+            format.encode(event.streamId, event.timestamp, event.metaData, event.payloadData, buffer);
+        } catch (RuntimeException e) {
+            // The partly encoded event is discarded, so that the buffered events are still written
+            buffer.position(position);
+            throw e;
+        }
+        if (bufferedEventCount == 0) {
+            firstBufferedEventTime = System.nanoTime();
+        }
+        bufferedEventCount++;
+    }
+
+    private void flushIfDue() throws IOException {
+        if (bufferedEventCount > 0 && System.nanoTime() - firstBufferedEventTime >= flushIntervalNanos) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (bufferedEventCount == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            format.writeBlock(buffer, bufferedEventCount, getChannel());
+        } finally {
+            buffer.clear();
+            bufferedEventCount = 0;
+        }
+    }
+
+    private boolean rotateFile(Path rotatedFilePath) throws IOException {
+        flush();
+        FileChannel rotatedChannel = getChannel();
+        if (rotatedChannel.size() <= format.getHeaderSize()) {
+            return false;
+        }
+        channel = null;
+        rotatedChannel.close();
+        try {
+            return move(filePath, rotatedFilePath);
+        } finally {
+            channel = open(filePath);
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = open(filePath);
+        }
+        return channel;
+    }
+
+    private void onEventDropped(String streamId, String payloadData) {
+        long count = droppedEventCount.incrementAndGet();
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - lastDroppedEventLogTime > DROPPED_EVENT_LOG_INTERVAL) {
+            lastDroppedEventLogTime = currentTime;
+            log.warn("Analytics event queue is full, " + count + " events dropped so far.");
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Dropped analytics event of " + streamId + ": " + payloadData);
+        }
+    }
+
+    private static boolean move(Path filePath, Path rotatedFilePath) throws IOException {
+        if (!Files.exists(filePath)) {
+            return false;
+        }
+        Files.move(filePath, rotatedFilePath, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private FileChannel open(Path filePath) throws IOException {
+        FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        try {
+            if (fileChannel.size() == 0) {
+                format.writeHeader(fileChannel);
+            }
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+        return fileChannel;
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Event or rotation request queued for the writer.
+     */
+    private static final class QueuedEvent {
+        private String streamId;
+        private long timestamp;
+        private String metaData;
+        private String payloadData;
+        private Path rotatedFilePath;
+        private CompletableFuture<Boolean> rotation;
+    }
+
+    /**
+     * Writes the queued events, and flushes the buffer at the end of each batch once the flush interval elapses.
+     */
+    private final class Writer implements EventHandler<QueuedEvent>, TimeoutHandler {
+
+        @Override
+        public void onEvent(QueuedEvent queuedEvent, long sequence, boolean endOfBatch) {
+            try {
+                if (queuedEvent.rotation != null) {
+                    CompletableFuture<Boolean> rotation = queuedEvent.rotation;
+                    try {
+                        rotation.complete(rotateFile(queuedEvent.rotatedFilePath));
+                    } catch (IOException | RuntimeException e) {
+                        rotation.completeExceptionally(e);
+                    }
+                } else {
+                    append(queuedEvent);
+                }
+                if (endOfBatch) {
+                    flushIfDue();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Thrown exceptions would stop the writer thread, hence the event is skipped instead
+                log.error("Error while writing the analytics events to " + filePath, e);
+            } finally {
+                queuedEvent.streamId = null;
+                queuedEvent.metaData = null;
+                queuedEvent.payloadData = null;
+                queuedEvent.rotatedFilePath = null;
+                queuedEvent.rotation = null;
+            }
+        }
+
+        @Override
+        public void onTimeout(long sequence) {
+            try {
+                flushIfDue();
+            } catch (IOException | RuntimeException e) {
+                log.error("Error while writing the analytics events to " + filePath, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.analytics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.wso2.micro.gateway.core.mutualssl.LoadKeyStore;
+import org.wso2.micro.gateway.core.utils.ErrorUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Uploads the usage data files to the analytics server as multipart form data. The file is streamed to the server in
+ * chunks through a fixed transfer buffer, hence the memory used by an upload does not grow with the size of the file.
+ * <p>
+ * The credentials of a plain HTTP proxy are sent with the request, as the request is sent to the proxy itself. The
+ * credentials of a proxy which tunnels an HTTPS connection are given by a default {@link Authenticator} when the proxy
+ * asks for them on the CONNECT request, so that they are never sent to the server inside the tunnel. The JDK disables
+ * Basic authentication of tunnels by default, hence the {@code jdk.http.auth.tunneling.disabledSchemes} system property
+ * should be set to a value which does not include Basic, such as {@code ""}, when the proxy requires authentication.
+ */
+public final class AnalyticsFileUploader {
+    private static final Logger log = LogManager.getLogger(AnalyticsFileUploader.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+    private static final String LINE_BREAK = "\r\n";
+    private static final String TUNNELING_DISABLED_SCHEMES = "jdk.http.auth.tunneling.disabledSchemes";
+
+    private static volatile SSLSocketFactory socketFactory;
+    private static volatile String socketFactoryTrustStore;
+
+    private AnalyticsFileUploader() {
+    }
+
+    /**
+     * Upload a usage data file.
+     *
+     * @param url                URL of the upload service
+     * @param filePath           Path of the file
+     * @param fileName           Name of the file sent to the server
+     * @param username           Username of the server
+     * @param password           Password of the server
+     * @param trustStorePath     Path of the trust store used to verify the server
+     * @param trustStorePassword Password of the trust store
+     * @param verifyHostname     Whether the hostname of the server should be verified
+     * @param proxyHost          Host of the proxy to the server, or empty if the server is connected directly
+     * @param proxyPort          Port of the proxy
+     * @param proxyUsername      Username of the proxy, or empty if the proxy does not require authentication
+     * @param proxyPassword      Password of the proxy
+     * @return Status code of the response, or error if the file could not be uploaded
+     */
+    public static Object uploadFile(String url, String filePath, String fileName, String username, String password,
+            String trustStorePath, String trustStorePassword, boolean verifyHostname, String proxyHost,
+            long proxyPort, String proxyUsername, String proxyPassword) {
+        HttpURLConnection connection = null;
+        try {
+            if (proxyHost.isEmpty()) {
+                connection = (HttpURLConnection) new URL(url).openConnection();
+            } else {
+                Proxy proxy = new Proxy(Proxy.Type.HTTP,
+                        InetSocketAddress.createUnresolved(proxyHost, (int) proxyPort));
+                connection = (HttpURLConnection) new URL(url).openConnection(proxy);
+                if (!proxyUsername.isEmpty()) {
+                    ProxyAuthenticator.register(proxyHost, (int) proxyPort, proxyUsername, proxyPassword);
+                    if (!(connection instanceof HttpsURLConnection)) {
+                        connection.setRequestProperty("Proxy-Authorization",
+                                "Basic " + encodeCredentials(proxyUsername, proxyPassword));
+                    }
+                }
+            }
+            if (connection instanceof HttpsURLConnection) {
+                HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
+                httpsConnection.setSSLSocketFactory(getSocketFactory(trustStorePath, trustStorePassword));
+                if (!verifyHostname) {
+                    httpsConnection.setHostnameVerifier((hostname, session) -> true);
+                }
+            }
+            long statusCode = upload(connection, Paths.get(filePath), fileName, username, password);
+            if (log.isDebugEnabled()) {
+                log.debug("Uploaded the analytics file " + fileName + " with the response " + statusCode);
+            }
+            return statusCode;
+        } catch (IOException | GeneralSecurityException e) {
+            return ErrorUtils.getBallerinaError("Error while uploading the analytics file " + fileName, e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static long upload(HttpURLConnection connection, Path filePath, String fileName, String username,
+            String password) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        String credentials = encodeCredentials(username, password);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setRequestProperty("Authorization", "Basic " + credentials);
+        connection.setRequestProperty("FileName", fileName);
+        connection.setRequestProperty("Accept", "application/json");
+
+        String partHeader = "--" + boundary + LINE_BREAK +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"" + LINE_BREAK +
+                "Content-Type: application/octet-stream" + LINE_BREAK + LINE_BREAK;
+        String partFooter = LINE_BREAK + "--" + boundary + "--" + LINE_BREAK;
+        byte[] transferBuffer = new byte[CHUNK_SIZE];
+        try (OutputStream outputStream = connection.getOutputStream();
+                InputStream inputStream = Files.newInputStream(filePath)) {
+            outputStream.write(partHeader.getBytes(StandardCharsets.UTF_8));
+            int length;
+            while ((length = inputStream.read(transferBuffer)) != -1) {
+                outputStream.write(transferBuffer, 0, length);
+            }
+            outputStream.write(partFooter.getBytes(StandardCharsets.UTF_8));
+        }
+        int statusCode = connection.getResponseCode();
+        // The response is consumed so that the connection can be reused
+        InputStream responseStream = statusCode < HttpURLConnection.HTTP_BAD_REQUEST ?
+                connection.getInputStream() : connection.getErrorStream();
+        if (responseStream != null) {
+            try (InputStream inputStream = responseStream) {
+                while (inputStream.read(transferBuffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return statusCode;
+    }
+
+    private static String encodeCredentials(String username, String password) {
+        return Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isBasicTunnelingDisabled() {
+        // The JDK disables Basic authentication of tunnels when the property is not set
+        String disabledSchemes = System.getProperty(TUNNELING_DISABLED_SCHEMES);
+        if (disabledSchemes == null) {
+            return true;
+        }
+        for (String scheme : disabledSchemes.split(",")) {
+            if (scheme.trim().equalsIgnoreCase("Basic")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SSLSocketFactory getSocketFactory(String trustStorePath, String trustStorePassword)
+            throws IOException, GeneralSecurityException {
+        String trustStore = trustStorePath + ":" + trustStorePassword;
+        if (socketFactory == null || !trustStore.equals(socketFactoryTrustStore)) {
+            synchronized (AnalyticsFileUploader.class) {
+                if (socketFactory == null || !trustStore.equals(socketFactoryTrustStore)) {
+                    socketFactory = createSocketFactory(trustStorePath, trustStorePassword);
+                    socketFactoryTrustStore = trustStore;
+                }
+            }
+        }
+        return socketFactory;
+    }
+
+    private static SSLSocketFactory createSocketFactory(String trustStorePath, String trustStorePassword)
+            throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        String path = trustStorePath.contains("${") ? LoadKeyStore.getKeyStorePath(trustStorePath) : trustStorePath;
+        try (InputStream inputStream = Files.newInputStream(Paths.get(path))) {
+            keyStore.load(inputStream, trustStorePassword.toCharArray());
+        }
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+        return sslContext.getSocketFactory();
+    }
+
+    /**
+     * Authenticator which gives the credentials of the configured proxies, and only to the proxies. It is installed
+     * as the default authenticator once a proxy with credentials is used.
+     */
+    private static final class ProxyAuthenticator extends Authenticator {
+        private static final ProxyAuthenticator INSTANCE = new ProxyAuthenticator();
+
+        private final Map<String, PasswordAuthentication> credentials = new ConcurrentHashMap<>();
+        private volatile boolean installed;
+
+        static void register(String host, int port, String username, String password) {
+            INSTANCE.credentials.put(getProxyKey(host, port),
+                    new PasswordAuthentication(username, password.toCharArray()));
+            if (!INSTANCE.installed) {
+                synchronized (INSTANCE) {
+                    if (!INSTANCE.installed) {
+                        Authenticator.setDefault(INSTANCE);
+                        INSTANCE.installed = true;
+                        if (isBasicTunnelingDisabled()) {
+                            log.warn("Basic authentication of the proxy " + host + ":" + port + " is disabled "
+                                    + "for the HTTPS uploads of analytics files. Set the system property "
+                                    + TUNNELING_DISABLED_SCHEMES + " to \"\" to enable it.");
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected PasswordAuthentication getPasswordAuthentication() {
+            if (getRequestorType() != RequestorType.PROXY) {
+                return null;
+            }
+            return credentials.get(getProxyKey(getRequestingHost(), getRequestingPort()));
+        }
+
+        private static String getProxyKey(String host, int port) {
+            return host.toLowerCase(Locale.ENGLISH) + ":" + port;
+        }
+    }
+}
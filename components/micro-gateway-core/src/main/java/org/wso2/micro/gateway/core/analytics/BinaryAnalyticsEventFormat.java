@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.micro.gateway.core.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compact binary format, where the events are encoded as length prefixed fields and each block of events is
+ * compressed on its own, so that a file can be read block by block.
+ * <p>
+ * A file starts with the magic bytes "MGWA" and the format version, followed by the blocks. Each block is written as
+ * the event count, the uncompressed length, the compressed length and the CRC32 of the uncompressed events, followed
+ * by the events compressed with raw deflate. Each event is written as the stream ID, the timestamp, the metadata and
+ * the payload data, where the strings are written as their UTF-8 byte length and bytes, and the lengths and the
+ * timestamp are written as unsigned variable length integers.
+ */
+final class BinaryAnalyticsEventFormat implements AnalyticsEventFormat {
+    static final byte[] MAGIC = {'M', 'G', 'W', 'A'};
+    static final byte VERSION = 1;
+    static final int BLOCK_HEADER_SIZE = 16;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer block = ByteBuffer.allocate(0);
+
+    @Override
+    public int getMaxEncodedLength(String streamId, String metaData, String payloadData) {
+        return 4 * MAX_VARINT_LENGTH +
+                MAX_BYTES_PER_CHAR * (streamId.length() + metaData.length() + payloadData.length());
+    }
+
+    @Override
+    public void encode(String streamId, long timestamp, String metaData, String payloadData, ByteBuffer buffer) {
+        putString(streamId, buffer);
+        putVarLong(timestamp, buffer);
+        putString(metaData, buffer);
+        putString(payloadData, buffer);
+    }
+
+    @Override
+    public int getHeaderSize() {
+        return MAGIC.length + 1;
+    }
+
+    @Override
+    public void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(getHeaderSize());
+        header.put(MAGIC).put(VERSION).flip();
+        write(header, channel);
+    }
+
+    @Override
+    public void writeBlock(ByteBuffer events, int eventCount, FileChannel channel) throws IOException {
+        int length = events.remaining();
+        crc.reset();
+        crc.update(events.array(), events.arrayOffset() + events.position(), length);
+        deflater.reset();
+        deflater.setInput(events.array(), events.arrayOffset() + events.position(), length);
+        deflater.finish();
+        // Incompressible data grows by a few bytes per deflate block
+        int maxCompressedLength = length + length / 1000 + 64;
+        if (block.capacity() < BLOCK_HEADER_SIZE + maxCompressedLength) {
+            block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + maxCompressedLength);
+        }
+        block.clear();
+        block.position(BLOCK_HEADER_SIZE);
+        while (!deflater.finished()) {
+            int compressedLength = deflater.deflate(block.array(), block.position(), block.remaining());
+            block.position(block.position() + compressedLength);
+            if (!block.hasRemaining() && !deflater.finished()) {
+                ByteBuffer expanded = ByteBuffer.allocate(block.capacity() * 2);
+                block.flip();
+                expanded.put(block);
+                block = expanded;
+            }
+        }
+        block.putInt(0, eventCount);
+        block.putInt(4, length);
+        block.putInt(8, block.position() - BLOCK_HEADER_SIZE);
+        block.putInt(12, (int) crc.getValue());
+        block.flip();
+        write(block, channel);
+        events.position(events.limit());
+    }
+
+    private static void putString(String value, ByteBuffer buffer) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length, buffer);
+        buffer.put(bytes);
+    }
+
+    static void putVarLong(long value, ByteBuffer buffer) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void write(ByteBuffer data, FileChannel channel) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.micro.gateway.core.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line based text format accepted by the analytics server, where each event is written as its fields separated by
+ * the key and the event separators.
+ */
+final class TextAnalyticsEventFormat implements AnalyticsEventFormat {
+    private static final String KVT = "-KS-";
+    private static final String EVS = "-ES-";
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    // Field names, separators, the timestamp and the line break
+    private static final int MAX_FIXED_LENGTH = 128;
+
+    @Override
+    public int getMaxEncodedLength(String streamId, String metaData, String payloadData) {
+        return MAX_FIXED_LENGTH + MAX_BYTES_PER_CHAR * (streamId.length() + metaData.length() + payloadData.length());
+    }
+
+    @Override
+    public void encode(String streamId, long timestamp, String metaData, String payloadData, ByteBuffer buffer) {
+        String event = "streamId" + KVT + streamId + EVS + "timestamp" + KVT + timestamp + EVS + "metadata" + KVT +
+                metaData + EVS + "correlationData" + KVT + "null" + EVS + "payLoadData" + KVT + payloadData + "\n";
+        buffer.put(event.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int getHeaderSize() {
+        return 0;
+    }
+
+    @Override
+    public void writeHeader(FileChannel channel) {
+    }
+
+    @Override
+    public void writeBlock(ByteBuffer events, int eventCount, FileChannel channel) throws IOException {
+        while (events.hasRemaining()) {
+            channel.write(events);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.basicauth;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ballerinalang.jvm.values.api.BMap;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory user store of the basic auth users in the configuration. The users are parsed once when the store is
+ * loaded, and the store is replaced as a whole when it is reloaded, hence the requests never see a partially loaded
+ * store. Successful authentications of the users with a slow password hash, such as PBKDF2, are cached for a short
+ * time, keyed by a salted hash of the credential, so that the password hash is computed once per credential rather
+ * than once per request.
+ * <p>
+ * The password of an unknown user is verified as well, so that the response time does not reveal whether a user
+ * exists. When PBKDF2 users are configured, it is verified against a decoy PBKDF2 hash with the highest iteration
+ * count of the configured users.
+ */
+public class BasicAuthUserStore {
+    private static final Logger log = LogManager.getLogger(BasicAuthUserStore.class);
+    private static final String PASSWORD = "password";
+    private static final String SCOPES = "scopes";
+    private static final int CACHE_KEY_SALT_LENGTH = 16;
+    // Verified for unknown users when no user has a slow password hash, so that they take the same time as the users
+    // with a SHA-1 password
+    private static final PasswordVerifier UNKNOWN_USER =
+            PasswordVerifier.parse("da39a3ee5e6b4b0d3255bfef95601890afd80709");
+
+    private static final ThreadLocal<MessageDigest> CACHE_KEY_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in every java platform
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static volatile BasicAuthUserStore userStore =
+            new BasicAuthUserStore(Collections.emptyMap(), 0, 0);
+
+    private final Map<String, User> users;
+    private final PasswordVerifier unknownUserVerifier;
+    private final long cacheExpiry;
+    private final int cacheCapacity;
+    private final byte[] cacheKeySalt = new byte[CACHE_KEY_SALT_LENGTH];
+    private final Map<String, CachedAuthentication> authenticationCache = new ConcurrentHashMap<>();
+
+    BasicAuthUserStore(Map<String, User> users, long cacheExpiry, int cacheCapacity) {
+        this.users = Collections.unmodifiableMap(new HashMap<>(users));
+        this.unknownUserVerifier = createUnknownUserVerifier(users.values());
+        this.cacheExpiry = cacheExpiry;
+        this.cacheCapacity = cacheCapacity;
+        new SecureRandom().nextBytes(cacheKeySalt);
+    }
+
+    /**
+     * Load the users of the basic auth user store, replacing the users loaded earlier along with the cached
+     * authentications.
+     *
+     * @param userSection   Users section of the configuration, with the password and the scopes of each user
+     * @param cacheExpiry   Time in milliseconds for which a successful authentication is cached
+     * @param cacheCapacity Maximum number of cached authentications
+     */
+    public static void loadUsers(BMap<String, Object> userSection, long cacheExpiry, long cacheCapacity) {
+        Map<String, Map<String, Object>> userConfigs = new HashMap<>();
+        for (String userName : userSection.getKeys()) {
+            Object userConfig = userSection.get(userName);
+            if (userConfig instanceof BMap) {
+                BMap<String, Object> userConfigMap = (BMap<String, Object>) userConfig;
+                Map<String, Object> properties = new HashMap<>();
+                properties.put(PASSWORD, userConfigMap.get(PASSWORD));
+                properties.put(SCOPES, userConfigMap.get(SCOPES));
+                userConfigs.put(userName, properties);
+            }
+        }
+        userStore = new BasicAuthUserStore(createUsers(userConfigs), cacheExpiry,
+                (int) Math.min(cacheCapacity, Integer.MAX_VALUE));
+        log.debug("Loaded " + userConfigs.size() + " users to the basic auth user store.");
+    }
+
+    /**
+     * Authenticate the user of a basic auth credential.
+     *
+     * @param credential Base64 encoded credential of the authorization header
+     * @param userName   User name decoded from the credential
+     * @param password   Password decoded from the credential
+     * @return Comma separated scopes of the user if the user is authenticated, else null
+     */
+    public static String authenticateUser(String credential, String userName, String password) {
+        return userStore.authenticate(credential, userName, password);
+    }
+
+    String authenticate(String credential, String userName, String password) {
+        User user = users.get(userName);
+        if (user == null) {
+            unknownUserVerifier.verify(password);
+            return null;
+        }
+        // Hashing the credential for the cache key costs more than verifying a password hashed with a digest
+        if (!user.passwordVerifier.isSlow() || !cacheEnabled()) {
+            return user.passwordVerifier.verify(password) ? user.scopes : null;
+        }
+        String cacheKey = createCacheKey(credential);
+        CachedAuthentication cachedAuthentication = authenticationCache.get(cacheKey);
+        if (cachedAuthentication != null) {
+            if (cachedAuthentication.expiryTime > System.currentTimeMillis() && cachedAuthentication.user == user) {
+                return user.scopes;
+            }
+            authenticationCache.remove(cacheKey, cachedAuthentication);
+        }
+        if (!user.passwordVerifier.verify(password)) {
+            return null;
+        }
+        cacheAuthentication(cacheKey, user);
+        return user.scopes;
+    }
+
+    private static PasswordVerifier createUnknownUserVerifier(Collection<User> users) {
+        PasswordVerifier slowestVerifier = null;
+        for (User user : users) {
+            PasswordVerifier passwordVerifier = user.passwordVerifier;
+            if (passwordVerifier.isSlow() && (slowestVerifier == null
+                    || passwordVerifier.getIterations() > slowestVerifier.getIterations())) {
+                slowestVerifier = passwordVerifier;
+            }
+        }
+        return slowestVerifier != null ? slowestVerifier.createDecoy() : UNKNOWN_USER;
+    }
+
+    private boolean cacheEnabled() {
+        return cacheExpiry > 0 && cacheCapacity > 0;
+    }
+
+    private void cacheAuthentication(String cacheKey, User user) {
+        long currentTime = System.currentTimeMillis();
+        if (authenticationCache.size() >= cacheCapacity) {
+            authenticationCache.values().removeIf(cachedAuthentication ->
+                    cachedAuthentication.expiryTime <= currentTime);
+            if (authenticationCache.size() >= cacheCapacity) {
+                // the credential is verified again until the cached authentications expire
+                return;
+            }
+        }
+        authenticationCache.put(cacheKey, new CachedAuthentication(user, currentTime + cacheExpiry));
+    }
+
+    private String createCacheKey(String credential) {
+        MessageDigest digest = CACHE_KEY_DIGEST.get();
+        digest.update(cacheKeySalt);
+        return Base64.getEncoder().encodeToString(digest.digest(credential.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    int getCachedAuthenticationCount() {
+        return authenticationCache.size();
+    }
+
+    PasswordVerifier getUnknownUserVerifier() {
+        return unknownUserVerifier;
+    }
+
+    static Map<String, User> createUsers(Map<String, Map<String, Object>> userConfigs) {
+        Map<String, User> users = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> userConfig : userConfigs.entrySet()) {
+            String userName = userConfig.getKey();
+            Object password = userConfig.getValue().get(PASSWORD);
+            PasswordVerifier passwordVerifier;
+            try {
+                passwordVerifier = PasswordVerifier.parse(password instanceof String ? (String) password : null);
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid password is configured for the basic auth user: " + userName + ". "
+                        + e.getMessage());
+                passwordVerifier = PasswordVerifier.INVALID;
+            }
+            Object scopes = userConfig.getValue().get(SCOPES);
+            users.put(userName, new User(userName, passwordVerifier,
+                    normalizeScopes(scopes instanceof String ? (String) scopes : "")));
+        }
+        return users;
+    }
+
+    private static String normalizeScopes(String scopes) {
+        StringBuilder normalizedScopes = new StringBuilder();
+        for (String scope : scopes.split(",")) {
+            String trimmedScope = scope.trim();
+            if (!trimmedScope.isEmpty()) {
+                if (normalizedScopes.length() > 0) {
+                    normalizedScopes.append(',');
+                }
+                normalizedScopes.append(trimmedScope);
+            }
+        }
+        return normalizedScopes.toString();
+    }
+
+    /**
+     * User of the basic auth user store.
+     */
+    static final class User {
+        final String name;
+        final PasswordVerifier passwordVerifier;
+        final String scopes;
+
+        User(String name, PasswordVerifier passwordVerifier, String scopes) {
+            this.name = name;
+            this.passwordVerifier = passwordVerifier;
+            this.scopes = scopes;
+        }
+    }
+
+    private static final class CachedAuthentication {
+        final User user;
+        final long expiryTime;
+
+        CachedAuthentication(User user, long expiryTime) {
+            this.user = user;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
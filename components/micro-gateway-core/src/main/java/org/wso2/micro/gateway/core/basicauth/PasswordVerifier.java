@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.basicauth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Verifies a password against the password configured for a user. The configured password is parsed once, and the
+ * computed hash is compared with the configured hash in constant time. The supported formats are,
+ * <ul>
+ * <li>SHA-1 hex of the password, which is the default format</li>
+ * <li>{@code @sha256:{hex}}, {@code @sha384:{hex}} and {@code @sha512:{hex}}</li>
+ * <li>{@code @pbkdf2-sha256:{iterations:base64 salt:base64 hash}} and {@code @pbkdf2-sha512:{...}}</li>
+ * </ul>
+ */
+abstract class PasswordVerifier {
+    static final String PBKDF2_PREFIX = "@pbkdf2-";
+
+    /**
+     * Verifier of a password which could not be parsed, hence no password matches it.
+     */
+    static final PasswordVerifier INVALID = new PasswordVerifier() {
+        @Override
+        boolean verify(String password) {
+            return false;
+        }
+    };
+
+    /**
+     * Check whether the given password matches the configured password.
+     *
+     * @param password Password received with the request
+     * @return true if the password matches
+     */
+    abstract boolean verify(String password);
+
+    /**
+     * @return true if the verification is expensive enough for its result to be cached
+     */
+    boolean isSlow() {
+        return false;
+    }
+
+    /**
+     * @return Number of hash iterations of a verification, which is 1 for a password hashed with a digest
+     */
+    int getIterations() {
+        return 1;
+    }
+
+    /**
+     * Create a verifier which takes as long as this verifier, and which no password is expected to match. It is
+     * verified for the unknown users, so that they take as long as the users with a slow password hash.
+     *
+     * @return Decoy verifier, or null if the verification is not slow
+     */
+    PasswordVerifier createDecoy() {
+        return null;
+    }
+
+    /**
+     * Parse a configured password.
+     *
+     * @param configuredPassword Password of the user in the configuration
+     * @return Verifier of the password
+     * @throws IllegalArgumentException if the password is not in a supported format
+     */
+    static PasswordVerifier parse(String configuredPassword) {
+        if (configuredPassword == null || configuredPassword.isEmpty()) {
+            throw new IllegalArgumentException("Password is not configured");
+        }
+        if (!configuredPassword.startsWith("@")) {
+            // this is to support backward compatibility with 3.0.x where only sha1 was supported for hashing.
+            return new DigestVerifier("SHA-1", decodeHex(configuredPassword));
+        }
+        int separator = configuredPassword.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Password hash is not configured after the algorithm prefix");
+        }
+        String prefix = configuredPassword.substring(0, separator).toLowerCase(Locale.ENGLISH);
+        String hash = extractHash(configuredPassword.substring(separator + 1));
+        switch (prefix) {
+            case "@sha256":
+                return new DigestVerifier("SHA-256", decodeHex(hash));
+            case "@sha384":
+                return new DigestVerifier("SHA-384", decodeHex(hash));
+            case "@sha512":
+                return new DigestVerifier("SHA-512", decodeHex(hash));
+            case PBKDF2_PREFIX + "sha256":
+                return PBKDF2Verifier.create("PBKDF2WithHmacSHA256", hash);
+            case PBKDF2_PREFIX + "sha512":
+                return PBKDF2Verifier.create("PBKDF2WithHmacSHA512", hash);
+            default:
+                throw new IllegalArgumentException("Unsupported password hashing algorithm: " + prefix);
+        }
+    }
+
+    private static String extractHash(String value) {
+        if (value.startsWith("{") && value.endsWith("}")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if (hex.length() == 0 || hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Password hash is not a hex string");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Password hash is not a hex string");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Verifier of a password hashed with a message digest.
+     */
+    private static final class DigestVerifier extends PasswordVerifier {
+        private final String algorithm;
+        private final byte[] hash;
+
+        private DigestVerifier(String algorithm, byte[] hash) {
+            try {
+                if (MessageDigest.getInstance(algorithm).getDigestLength() != hash.length) {
+                    throw new IllegalArgumentException("Password hash is not a " + algorithm + " hash");
+                }
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm, e);
+            }
+            this.algorithm = algorithm;
+            this.hash = hash;
+        }
+
+        @Override
+        boolean verify(String password) {
+            try {
+                byte[] computedHash = MessageDigest.getInstance(algorithm)
+                        .digest(password.getBytes(StandardCharsets.UTF_8));
+                return MessageDigest.isEqual(computedHash, hash);
+            } catch (NoSuchAlgorithmException e) {
+                // availability of the algorithm is checked when the verifier is created
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Verifier of a password hashed with PBKDF2. The iteration count makes each verification expensive, which is
+     * paid once per credential as the successful verifications are cached by the user store.
+     */
+    private static final class PBKDF2Verifier extends PasswordVerifier {
+        private final String algorithm;
+        private final int iterations;
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private PBKDF2Verifier(String algorithm, int iterations, byte[] salt, byte[] hash) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        static PBKDF2Verifier create(String algorithm, String value) {
+            String[] parts = value.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("PBKDF2 password should be in the format iterations:salt:hash");
+            }
+            int iterations;
+            try {
+                iterations = Integer.parseInt(parts[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid PBKDF2 iteration count: " + parts[0], e);
+            }
+            if (iterations <= 0) {
+                throw new IllegalArgumentException("Invalid PBKDF2 iteration count: " + parts[0]);
+            }
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] hash = Base64.getDecoder().decode(parts[2]);
+            if (salt.length == 0 || hash.length == 0) {
+                throw new IllegalArgumentException("PBKDF2 salt and hash should not be empty");
+            }
+            try {
+                SecretKeyFactory.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm, e);
+            }
+            return new PBKDF2Verifier(algorithm, iterations, salt, hash);
+        }
+
+        @Override
+        boolean isSlow() {
+            return true;
+        }
+
+        @Override
+        int getIterations() {
+            return iterations;
+        }
+
+        @Override
+        PasswordVerifier createDecoy() {
+            SecureRandom random = new SecureRandom();
+            byte[] decoySalt = new byte[salt.length];
+            byte[] decoyHash = new byte[hash.length];
+            random.nextBytes(decoySalt);
+            random.nextBytes(decoyHash);
+            return new PBKDF2Verifier(algorithm, iterations, decoySalt, decoyHash);
+        }
+
+        @Override
+        boolean verify(String password) {
+            char[] passwordChars = password.toCharArray();
+            PBEKeySpec keySpec = new PBEKeySpec(passwordChars, salt, iterations, hash.length * 8);
+            try {
+                byte[] computedHash = SecretKeyFactory.getInstance(algorithm).generateSecret(keySpec).getEncoded();
+                return MessageDigest.isEqual(computedHash, hash);
+            } catch (GeneralSecurityException e) {
+                return false;
+            } finally {
+                keySpec.clearPassword();
+                Arrays.fill(passwordChars, '\0');
+            }
+        }
+    }
+}
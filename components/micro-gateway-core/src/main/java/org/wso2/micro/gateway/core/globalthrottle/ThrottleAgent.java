@@ -30,6 +30,7 @@ import org.wso2.micro.gateway.core.globalthrottle.databridge.publisher.ThrottleD
 public class ThrottleAgent {
 
     private static ThrottleDataPublisher throttleDataPublisher = null;
+    private static ThrottleEventAggregator throttleEventAggregator = null;
 
     public static void setTMBinaryAgentConfiguration(BMap<String, Object> publisherConfiguration) {
         AgentConfiguration.getInstance().setConfiguration(publisherConfiguration);
@@ -41,9 +42,21 @@ public class ThrottleAgent {
 
     public static void startThrottlePublisherPool() {
         throttleDataPublisher = new ThrottleDataPublisher();
+        PublisherConfiguration publisherConfiguration = PublisherConfiguration.getInstance();
+        if (publisherConfiguration.getAggregationInterval() > 0) {
+            throttleEventAggregator = new ThrottleEventAggregator(publisherConfiguration.getAggregationMaxKeys());
+            throttleEventAggregator.start(publisherConfiguration.getAggregationInterval());
+            // The requests counted since the last flush are published before the gateway exits
+            Runtime.getRuntime().addShutdownHook(new Thread(throttleEventAggregator::shutdown,
+                    "ThrottleEventAggregatorShutdown"));
+        }
     }
 
     public static void publishNonThrottledEvent(BMap<String, String> throttleEvent) {
+        if (throttleEventAggregator != null) {
+            throttleEventAggregator.add(throttleEvent);
+            return;
+        }
         throttleDataPublisher.publishNonThrottledEvent(throttleEvent);
     }
 }
@@ -0,0 +1,315 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ballerinalang.jvm.values.api.BMap;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.DataPublisher;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.publisher.DataProcessAndPublishingAgent;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.publisher.ThrottleDataPublisher;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.publisher.ThrottleEventPayloadWriter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Aggregates the throttle events of the requests which share the same throttle keys and attributes over a short
+ * interval, and publishes a single event per key for each interval. The number of requests represented by an
+ * aggregated event is added to its properties as {@value #REQUEST_COUNT}, hence the traffic manager should sum this
+ * property instead of counting the events. The events are delayed by at most one aggregation interval.
+ * <p>
+ * A request of a key which is already aggregated only increments the counter of the key. Its attributes are read
+ * into a buffer of the request thread to look up the key, and the payload of an event is built once per flush.
+ */
+public class ThrottleEventAggregator {
+    private static final Logger log = LogManager.getLogger(ThrottleEventAggregator.class);
+
+    static final String REQUEST_COUNT = "requestCount";
+    // Count of an aggregate which was removed from the map, and no longer accepts requests
+    private static final long REMOVED = -1;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private static final ThreadLocal<Object[]> PAYLOAD_BUFFER = ThreadLocal.withInitial(
+            () -> new Object[ThrottleEventPayloadWriter.INSTANCE.getPayloadLength()]);
+    private static final ThreadLocal<AggregationKey> LOOKUP_KEY = ThreadLocal.withInitial(AggregationKey::new);
+
+    private final Map<AggregationKey, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final Consumer<Event> publisher;
+    private ScheduledExecutorService flushService;
+
+    /**
+     * Create an aggregator which publishes the aggregated events using the throttle data publisher.
+     *
+     * @param maxKeys Maximum number of keys aggregated at a time. Events of further keys are published right away
+     */
+    public ThrottleEventAggregator(int maxKeys) {
+        this(maxKeys, event -> {
+            DataPublisher dataPublisher = ThrottleDataPublisher.getDataPublisher();
+            if (dataPublisher != null) {
+                dataPublisher.tryPublish(event);
+            }
+        });
+    }
+
+    ThrottleEventAggregator(int maxKeys, Consumer<Event> publisher) {
+        this.maxKeys = maxKeys;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Start publishing the aggregated events periodically.
+     *
+     * @param flushInterval Aggregation interval in milliseconds
+     */
+    public synchronized void start(long flushInterval) {
+        if (flushService != null) {
+            return;
+        }
+        flushService = Executors.newSingleThreadScheduledExecutor(
+                new DataBridgeThreadFactory("ThrottleEventAggregator"));
+        flushService.scheduleWithFixedDelay(() -> {
+            try {
+                flush(System.currentTimeMillis());
+            } catch (Throwable t) {
+                log.error("Error while publishing the aggregated throttle events", t);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count a non throttled request.
+     *
+     * @param throttleEvent Throttle event of the request
+     */
+    public void add(BMap<String, String> throttleEvent) {
+        Object[] payloadData = PAYLOAD_BUFFER.get();
+        try {
+            ThrottleEventPayloadWriter.INSTANCE.writePayload(throttleEvent, payloadData);
+            add(payloadData, System.currentTimeMillis());
+        } finally {
+            Arrays.fill(payloadData, null);
+        }
+    }
+
+    /**
+     * Count a request, given its payload. The payload is copied if it is retained, hence the caller may reuse it.
+     */
+    void add(Object[] payloadData, long timestamp) {
+        AggregationKey lookupKey = LOOKUP_KEY.get();
+        lookupKey.set(payloadData);
+        try {
+            while (true) {
+                Aggregate aggregate = aggregates.get(lookupKey);
+                if (aggregate == null) {
+                    Object[] retainedPayload = Arrays.copyOf(payloadData, payloadData.length);
+                    if (aggregates.size() >= maxKeys) {
+                        publisher.accept(new Event(DataProcessAndPublishingAgent.STREAM_ID, timestamp, null, null,
+                                retainedPayload));
+                        return;
+                    }
+                    aggregate = new Aggregate(retainedPayload);
+                    AggregationKey key = new AggregationKey();
+                    key.set(retainedPayload);
+                    Aggregate existing = aggregates.putIfAbsent(key, aggregate);
+                    if (existing != null) {
+                        aggregate = existing;
+                    }
+                }
+                if (aggregate.increment()) {
+                    return;
+                }
+                // The aggregate was removed by a flush after it was read, hence a new aggregate is created
+            }
+        } finally {
+            lookupKey.clear();
+        }
+    }
+
+    /**
+     * Publish an event for each key which received requests since the previous flush. Keys which received no
+     * requests are removed.
+     *
+     * @param timestamp Current time in milliseconds
+     * @return Number of published events
+     */
+    int flush(long timestamp) {
+        int publishedCount = 0;
+        for (Map.Entry<AggregationKey, Aggregate> entry : aggregates.entrySet()) {
+            Aggregate aggregate = entry.getValue();
+            long count = aggregate.reset();
+            if (count > 0) {
+                publisher.accept(aggregate.toEvent(count, timestamp));
+                publishedCount++;
+            } else if (aggregate.remove()) {
+                aggregates.remove(entry.getKey(), aggregate);
+            }
+        }
+        return publishedCount;
+    }
+
+    /**
+     * @return Number of keys being aggregated
+     */
+    int size() {
+        return aggregates.size();
+    }
+
+    /**
+     * Publish the pending events and stop the aggregation.
+     */
+    public synchronized void shutdown() {
+        if (flushService != null) {
+            flushService.shutdown();
+            try {
+                // A flush in progress is completed, so that its events are not published twice
+                flushService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushService = null;
+        }
+        flush(System.currentTimeMillis());
+    }
+
+    /**
+     * Add the request count of an aggregated event to its JSON properties.
+     */
+    static String addRequestCount(Object properties, long count) {
+        String requestCount = "\"" + REQUEST_COUNT + "\":" + count;
+        if (!(properties instanceof String)) {
+            return "{" + requestCount + "}";
+        }
+        String json = ((String) properties).trim();
+        if (!json.startsWith("{")) {
+            return "{" + requestCount + "}";
+        }
+        String body = json.substring(1).trim();
+        return "{" + requestCount + (body.startsWith("}") ? "" : ",") + body;
+    }
+
+    /**
+     * Key of the aggregated events, which consists of all the payload attributes except the message ID. The keys in
+     * the map are never changed, while the lookup key of each thread is set to the payload of each request.
+     */
+    private static final class AggregationKey {
+        private Object[] payloadData;
+        private int hash;
+
+        void set(Object[] payloadData) {
+            this.payloadData = payloadData;
+            int result = 1;
+            for (int i = 0; i < payloadData.length; i++) {
+                if (i != ThrottleEventPayloadWriter.MESSAGE_ID_INDEX) {
+                    Object attribute = payloadData[i];
+                    result = 31 * result + (attribute == null ? 0 : attribute.hashCode());
+                }
+            }
+            this.hash = result;
+        }
+
+        void clear() {
+            payloadData = null;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AggregationKey)) {
+                return false;
+            }
+            AggregationKey other = (AggregationKey) o;
+            if (hash != other.hash || payloadData.length != other.payloadData.length) {
+                return false;
+            }
+            for (int i = 0; i < payloadData.length; i++) {
+                if (i != ThrottleEventPayloadWriter.MESSAGE_ID_INDEX) {
+                    Object attribute = payloadData[i];
+                    if (attribute == null ? other.payloadData[i] != null : !attribute.equals(other.payloadData[i])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Number of requests of a key since the previous flush, along with the payload of the first request.
+     */
+    private static final class Aggregate {
+        private final Object[] payloadData;
+        private final AtomicLong count = new AtomicLong();
+
+        Aggregate(Object[] payloadData) {
+            this.payloadData = payloadData;
+        }
+
+        boolean increment() {
+            long current;
+            do {
+                current = count.get();
+                if (current == REMOVED) {
+                    return false;
+                }
+            } while (!count.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        long reset() {
+            long current;
+            do {
+                current = count.get();
+                if (current <= 0) {
+                    return current;
+                }
+            } while (!count.compareAndSet(current, 0));
+            return current;
+        }
+
+        boolean remove() {
+            return count.compareAndSet(0, REMOVED);
+        }
+
+        Event toEvent(long requestCount, long timestamp) {
+            Object[] eventPayload = Arrays.copyOf(payloadData, payloadData.length);
+            if (requestCount > 1) {
+                eventPayload[ThrottleEventPayloadWriter.PROPERTIES_INDEX] = addRequestCount(
+                        payloadData[ThrottleEventPayloadWriter.PROPERTIES_INDEX], requestCount);
+            }
+            return new Event(DataProcessAndPublishingAgent.STREAM_ID, timestamp, null, null, eventPayload);
+        }
+    }
+}
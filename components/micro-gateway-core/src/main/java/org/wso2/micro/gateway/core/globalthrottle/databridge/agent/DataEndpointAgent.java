@@ -19,24 +19,35 @@
 package org.wso2.micro.gateway.core.globalthrottle.databridge.agent;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.client.AbstractClientPoolFactory;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.client.AbstractSecureClientPoolFactory;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.client.ClientPool;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.AgentConfiguration;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.DataEndpoint;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.DataEndpointMetrics;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary.BinaryClientPoolFactory;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary.BinaryDataEndpoint;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary.BinarySecureClientPoolFactory;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary.NioDataEndpoint;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary.NioEventLoop;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointException;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 /**
  * One agent is created for a specific data endpoint type,and this has the resources such as transport pool, etc
  * which are shared by all the data publishers created for the endpoint type.
  */
 
 public class DataEndpointAgent {
+    private static final Logger log = LogManager.getLogger(DataEndpointAgent.class);
 
     private ArrayList<DataPublisher> dataPublishers = new ArrayList<>();
 
@@ -46,6 +57,8 @@ public class DataEndpointAgent {
 
     private AgentConfiguration agentConfiguration;
 
+    private NioEventLoop eventLoop;
+
     public DataEndpointAgent(AgentConfiguration agentConfiguration) {
         this.agentConfiguration = agentConfiguration;
         initialize();
@@ -71,6 +84,13 @@ public class DataEndpointAgent {
                 true,
                 agentConfiguration.getSecureEvictionTimePeriod(),
                 agentConfiguration.getSecureMinIdleTimeInPool());
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(DataEndpointMetrics.getInstance(),
+                    new ObjectName(DataEndpointMetrics.MBEAN_NAME));
+        } catch (JMException e) {
+            log.error("Error while registering the throttle data publisher metrics", e);
+        }
     }
 
     public void addDataPublisher(DataPublisher dataPublisher) {
@@ -93,10 +113,25 @@ public class DataEndpointAgent {
         dataPublishers.remove(dataPublisher);
     }
 
-    public DataEndpoint getNewDataEndpoint() {
+    public DataEndpoint getNewDataEndpoint() throws DataEndpointException {
+        if (agentConfiguration.isNioTransport()) {
+            return new NioDataEndpoint(getEventLoop(), agentConfiguration.getConnectionsPerReceiver(),
+                    agentConfiguration.getMaxPipelinedBatches(), agentConfiguration.getSocketTimeoutMS());
+        }
         return new BinaryDataEndpoint();
     }
 
+    private synchronized NioEventLoop getEventLoop() throws DataEndpointException {
+        if (eventLoop == null) {
+            try {
+                eventLoop = new NioEventLoop();
+            } catch (IOException e) {
+                throw new DataEndpointException("Error while opening the event loop of the data publisher", e);
+            }
+        }
+        return eventLoop;
+    }
+
     public synchronized void shutDown() throws DataEndpointException {
         for (DataPublisher dataPublisher : dataPublishers) {
             dataPublisher.shutdown();
@@ -104,6 +139,9 @@ public class DataEndpointAgent {
         try {
             transportPool.close();
             securedTransportPool.close();
+            if (eventLoop != null) {
+                eventLoop.shutdown();
+            }
         } catch (Exception e) {
             throw new DataEndpointException("Error while closing the transport pool", e);
         }
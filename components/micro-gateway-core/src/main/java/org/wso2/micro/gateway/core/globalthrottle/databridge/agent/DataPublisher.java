@@ -24,6 +24,7 @@ import org.wso2.carbon.databridge.commons.exception.TransportException;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.DataEndpointConfiguration;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.DataEndpoint;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.DataEndpointGroup;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.EventPayloadWriter;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointAuthenticationException;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointConfigurationException;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointException;
@@ -142,6 +143,7 @@ public class DataPublisher {
                                 (String) authGroup[j], username, password, dataEndpointAgent.getTransportPool(),
                                 dataEndpointAgent.getSecuredTransportPool(), dataEndpointAgent.
                                 getAgentConfiguration().getBatchSize(),
+                                dataEndpointAgent.getAgentConfiguration().getMaxBatchDelayMS(),
                                 dataEndpointAgent.getAgentConfiguration().getCorePoolSize(),
                                 dataEndpointAgent.getAgentConfiguration().getMaxPoolSize(),
                                 dataEndpointAgent.getAgentConfiguration().getKeepAliveTimeInPool());
@@ -256,7 +258,7 @@ public class DataPublisher {
                 payloadDataArray, arbitraryDataMap));
     }
 
-    private void onEventQueueFull(DataEndpointGroup endpointGroup, Event event) {
+    private void onEventQueueFull(DataEndpointGroup endpointGroup, Object event) {
         this.failedEventCount++;
         long currentTime = System.currentTimeMillis();
         if (currentTime - this.lastFailedEventTime > FAILED_EVENT_LOG_INTERVAL) {
@@ -274,7 +276,8 @@ public class DataPublisher {
      * Publish an event based on the event properties that are passed
      * for all receiver groups which has been specified in the DataPublisher.
      * This is a non-blocking invocation and if the queue if full
-     * then it will simply drop the event.
+     * then the event is spilled to the local disk if a spill directory
+     * is configured, else it will simply drop the event.
      *
      * @param event The event which needs to be published to the receiver groups
      * @return the success/failure of the event that has been published/dropped.
@@ -293,6 +296,33 @@ public class DataPublisher {
         return sent;
     }
 
+    /**
+     * Publish an event for all receiver groups by writing its payload straight into the internal queues of the
+     * groups, without creating an {@link Event} in the publishing thread. This is a non-blocking invocation and if
+     * the queue is full then the event is spilled to the local disk if a spill directory is configured, else it will
+     * simply drop the event.
+     *
+     * @param streamId  StreamId for which the event belongs to.
+     * @param timeStamp Timestamp of the event.
+     * @param writer    Writer which writes the payload of the event from the source.
+     * @param source    Source which holds the payload of the event.
+     * @param <T>       Type of the source.
+     * @return the success/failure of the event that has been published/dropped.
+     */
+    public <T> boolean tryPublish(String streamId, long timeStamp, EventPayloadWriter<T> writer, T source) {
+        boolean sent = true;
+        for (DataEndpointGroup endpointGroup : endpointGroups) {
+            try {
+                endpointGroup.tryPublish(streamId, timeStamp, writer, source);
+                sent = true;
+            } catch (EventQueueFullException e) {
+                this.onEventQueueFull(endpointGroup, streamId);
+                sent = false;
+            }
+        }
+        return sent;
+    }
+
     /**
      * Graceful shutdown of all the operations of the data publisher.
      * It will flush all the events to the relevant endpoint, and closes all the
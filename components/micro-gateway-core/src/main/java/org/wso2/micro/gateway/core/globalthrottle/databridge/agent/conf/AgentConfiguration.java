@@ -42,6 +42,7 @@ public class AgentConfiguration {
     private char[] trustStorePassword;
     private int queueSize;
     private int batchSize;
+    private int maxBatchDelayMS;
     private int corePoolSize;
     private int socketTimeoutMS;
     private int maxPoolSize;
@@ -57,6 +58,12 @@ public class AgentConfiguration {
     private int secureMinIdleTimeInPool;
     private String sslEnabledProtocols;
     private String ciphers;
+    private String transport;
+    private int connectionsPerReceiver;
+    private int maxPipelinedBatches;
+    private String spillDirectory;
+    private int spillMaxDiskSizeMB;
+    private int spillReplayRate;
 
     public String getTrustStorePath() {
         return trustStorePath;
@@ -74,6 +81,10 @@ public class AgentConfiguration {
         return batchSize;
     }
 
+    public int getMaxBatchDelayMS() {
+        return maxBatchDelayMS;
+    }
+
     public int getCorePoolSize() {
         return corePoolSize;
     }
@@ -134,6 +145,44 @@ public class AgentConfiguration {
         return ciphers;
     }
 
+    public String getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return true if the events are published over non-blocking connections
+     */
+    public boolean isNioTransport() {
+        return DataAgentConstants.TRANSPORT_NIO.equalsIgnoreCase(transport);
+    }
+
+    public int getConnectionsPerReceiver() {
+        return connectionsPerReceiver;
+    }
+
+    public int getMaxPipelinedBatches() {
+        return maxPipelinedBatches;
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return true if the events which could not be queued or sent are spilled to the local disk
+     */
+    public boolean isSpillEnabled() {
+        return spillDirectory != null && !spillDirectory.isEmpty();
+    }
+
+    public int getSpillMaxDiskSizeMB() {
+        return spillMaxDiskSizeMB;
+    }
+
+    public int getSpillReplayRate() {
+        return spillReplayRate;
+    }
+
     public String getPublishingStrategy() {
         return publishingStrategy;
     }
@@ -145,6 +194,7 @@ public class AgentConfiguration {
                 "TrustSorePassword" + trustStorePassword +
                 "QueueSize" + queueSize +
                 "BatchSize" + batchSize +
+                "MaxBatchDelayMS" + maxBatchDelayMS +
                 "CorePoolSize" + corePoolSize +
                 "SocketTimeoutMS" + socketTimeoutMS +
                 "MaxPoolSize" + maxPoolSize +
@@ -159,7 +209,13 @@ public class AgentConfiguration {
                 "SecureEvictionTimePeriod" + secureEvictionTimePeriod +
                 "SecureMinIdleTimeInPool" + secureMinIdleTimeInPool +
                 "SSLEnabledProtocols" + sslEnabledProtocols +
-                "Ciphers" + ciphers;
+                "Ciphers" + ciphers +
+                "Transport" + transport +
+                "ConnectionsPerReceiver" + connectionsPerReceiver +
+                "MaxPipelinedBatches" + maxPipelinedBatches +
+                "SpillDirectory" + spillDirectory +
+                "SpillMaxDiskSizeMB" + spillMaxDiskSizeMB +
+                "SpillReplayRate" + spillReplayRate;
     }
 
     private static class InnerAgentConfiguration {
@@ -173,15 +229,18 @@ public class AgentConfiguration {
     public void setConfiguration(BMap<String, Object> configuration) {
         String trustStorePath = String.valueOf(configuration.get(DataAgentConstants.TRUST_STORE_PATH));
         //TrustStore path provided from the microgateway configuration needs to be preprocessed.
-        this.trustStorePath = preProcessTrustStorePath(trustStorePath);
+        this.trustStorePath = preProcessPath(trustStorePath);
         this.trustStorePassword = String.valueOf(configuration.get(DataAgentConstants.TRUST_STORE_PASSWORD))
                 .toCharArray();
         this.sslEnabledProtocols = String.valueOf(configuration.get(DataAgentConstants.SSL_ENABLED_PROTOCOLS));
         this.ciphers = String.valueOf(configuration.get(DataAgentConstants.CIPHERS));
+        this.transport = String.valueOf(configuration.get(DataAgentConstants.TRANSPORT));
+        this.spillDirectory = preProcessPath(String.valueOf(configuration.get(DataAgentConstants.SPILL_DIRECTORY)));
 
         try {
             this.queueSize = Math.toIntExact((long) configuration.get(DataAgentConstants.QUEUE_SIZE));
             this.batchSize = Math.toIntExact((long) configuration.get(DataAgentConstants.BATCH_SIZE));
+            this.maxBatchDelayMS = Math.toIntExact((long) configuration.get(DataAgentConstants.MAX_BATCH_DELAY_MS));
             this.corePoolSize = Math.toIntExact((long) configuration.get(DataAgentConstants.CORE_POOL_SIZE));
             this.socketTimeoutMS = Math.toIntExact((long) configuration.get(DataAgentConstants.SOCKET_TIMEOUT_MS));
             this.maxPoolSize = Math.toIntExact((long) configuration.get(DataAgentConstants.MAX_POOL_SIZE));
@@ -205,20 +264,27 @@ public class AgentConfiguration {
                     .get(DataAgentConstants.SECURE_EVICTION_TIME_PERIOD));
             this.secureMinIdleTimeInPool = Math.toIntExact((long) configuration
                     .get(DataAgentConstants.SECURE_MIN_IDLE_TIME_IN_POOL));
+            this.connectionsPerReceiver = Math.toIntExact((long) configuration
+                    .get(DataAgentConstants.CONNECTIONS_PER_RECEIVER));
+            this.maxPipelinedBatches = Math.toIntExact((long) configuration
+                    .get(DataAgentConstants.MAX_PIPELINED_BATCHES));
+            this.spillMaxDiskSizeMB = Math.toIntExact((long) configuration
+                    .get(DataAgentConstants.SPILL_MAX_DISK_SIZE_MB));
+            this.spillReplayRate = Math.toIntExact((long) configuration.get(DataAgentConstants.SPILL_REPLAY_RATE));
         } catch (ArithmeticException e) {
             log.error("Error while processing the publisher configuration.", e);
         }
     }
 
     /**
-     * The Truststore path provided from the ballerina implementation could be associated with a system property.
-     * It needs to substituted with relevant system property.
+     * The Truststore and spill directory paths provided from the ballerina implementation could be associated with a
+     * system property. It needs to substituted with relevant system property.
      * e.g. ${mgw-runtime.home}/runtime/bre/security/ballerinaTruststore.p12
      *
-     * @param mgwTrustStorePath trustStorePath as provided by the microgateway configuration
-     * @return resolved trustStorePath
+     * @param mgwTrustStorePath path as provided by the microgateway configuration
+     * @return resolved path
      */
-    private static String preProcessTrustStorePath(String mgwTrustStorePath) {
+    private static String preProcessPath(String mgwTrustStorePath) {
         String placeHolderRegex = "\\$\\{.*\\}";
         Pattern placeHolderPattern = Pattern.compile(placeHolderRegex);
         Matcher placeHolderMatcher = placeHolderPattern.matcher(mgwTrustStorePath);
@@ -34,6 +34,7 @@ public class DataEndpointConfiguration {
     private final GenericKeyedObjectPool transportPool;
     private final GenericKeyedObjectPool securedTransportPool;
     private final int batchSize;
+    private final int maxBatchDelayMS;
     private final String publisherKey;
     private final String authKey;
     private String sessionId;
@@ -56,7 +57,8 @@ public class DataEndpointConfiguration {
     public DataEndpointConfiguration(String receiverURL, String authURL, String username, String password,
                                      GenericKeyedObjectPool transportPool,
                                      GenericKeyedObjectPool securedTransportPool,
-                                     int batchSize, int corePoolSize, int maxPoolSize, int keepAliveTimeInPool) {
+                                     int batchSize, int maxBatchDelayMS, int corePoolSize, int maxPoolSize,
+                                     int keepAliveTimeInPool) {
         this.receiverURL = receiverURL;
         this.authURL = authURL;
         this.username = username;
@@ -66,6 +68,7 @@ public class DataEndpointConfiguration {
         this.publisherKey = this.receiverURL + DataEndpointConstants.SEPARATOR + username;
         this.authKey = this.authURL + DataEndpointConstants.SEPARATOR + username;
         this.batchSize = batchSize;
+        this.maxBatchDelayMS = maxBatchDelayMS;
         this.corePoolSize = corePoolSize;
         this.maxPoolSize = maxPoolSize;
         this.keepAliveTimeInPool = keepAliveTimeInPool;
@@ -132,4 +135,8 @@ public class DataEndpointConfiguration {
     public int getBatchSize() {
         return batchSize;
     }
+
+    public int getMaxBatchDelayMS() {
+        return maxBatchDelayMS;
+    }
 }
@@ -54,6 +54,13 @@ public abstract class DataEndpoint {
 
     private int batchSize;
 
+    // Batch size at which the collected events are sent once the event queue is drained, which adapts to the load
+    private int targetBatchSize = 1;
+
+    private long maxBatchDelayNanos;
+
+    private long batchStartTime;
+
     private EventPublisherThreadPoolExecutor threadPoolExecutor;
 
     private DataEndpointFailureCallback dataEndpointFailureCallback;
@@ -82,20 +89,59 @@ public abstract class DataEndpoint {
     }
 
     void collectAndSend(Event event) {
+        if (events.isEmpty()) {
+            batchStartTime = System.nanoTime();
+        }
         events.add(event);
         if (events.size() >= batchSize) {
-            threadPoolExecutor.submitJobAndSetState(new EventPublisher(events), this);
-            events = new ArrayList<>();
+            targetBatchSize = batchSize;
+            sendBatch(System.nanoTime(), false);
         }
     }
 
     void flushEvents() {
         if (events.size() != 0) {
-            threadPoolExecutor.submitJobAndSetState(new EventPublisher(events), this);
-            events = new ArrayList<>();
+            sendBatch(System.nanoTime(), false);
+        }
+    }
+
+    /**
+     * Send the collected events if they reached the target batch size, or if the oldest of them reached the maximum
+     * batch delay. This is called whenever the event queue has no more events at hand. The target batch size grows
+     * while the batches fill up before they are due, and shrinks when a batch is sent due to the delay, hence the
+     * batches are larger under load while a single event is sent right away when the load is low. Without a maximum
+     * batch delay, the events are always sent.
+     */
+    void flushDueEvents() {
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (events.size() >= targetBatchSize || maxBatchDelayNanos == 0) {
+            targetBatchSize = Math.min(batchSize, targetBatchSize * 2);
+            sendBatch(now, false);
+        } else if (now - batchStartTime >= maxBatchDelayNanos) {
+            targetBatchSize = Math.max(1, targetBatchSize / 2);
+            sendBatch(now, true);
         }
     }
 
+    private void sendBatch(long now, boolean deadlineFlush) {
+        DataEndpointMetrics.getInstance().recordBatch(events.size(), now - batchStartTime, deadlineFlush);
+        dispatch(events);
+        events = new ArrayList<>();
+    }
+
+    /**
+     * Hand over a batch of events to be sent to the endpoint. By default, the batch is sent by a thread of the event
+     * publisher thread pool, which blocks until the endpoint responds.
+     *
+     * @param events Batch of events
+     */
+    protected void dispatch(List<Event> events) {
+        threadPoolExecutor.submitJobAndSetState(new EventPublisher(events), this);
+    }
+
     void syncSend(Event event) {
         List<Event> events = new ArrayList<>(1);
         events.add(event);
@@ -132,7 +178,7 @@ public abstract class DataEndpoint {
         }
     }
 
-    void setState(State state) {
+    protected void setState(State state) {
         if (!this.state.equals(state)) {
             this.state = state;
         }
@@ -142,7 +188,7 @@ public abstract class DataEndpoint {
             throws TransportException,
             DataEndpointAuthenticationException, DataEndpointException {
         if (connectionWorker != null) {
-            connectionService.submit(connectionWorker);
+            connectionService.submit(connectionWorker::connectAndReplay);
         } else {
             throw new DataEndpointException("Data Endpoint is not initialized");
         }
@@ -163,6 +209,7 @@ public abstract class DataEndpoint {
             TransportException {
         this.transportPool = dataEndpointConfiguration.getTransportPool();
         this.batchSize = dataEndpointConfiguration.getBatchSize();
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(dataEndpointConfiguration.getMaxBatchDelayMS());
         this.connectionWorker = new DataEndpointConnectionWorker();
         this.connectionWorker.initialize(this, dataEndpointConfiguration);
         this.threadPoolExecutor = new EventPublisherThreadPoolExecutor(dataEndpointConfiguration.getCorePoolSize(),
@@ -262,6 +309,21 @@ public abstract class DataEndpoint {
         dataEndpointFailureCallback = callback;
     }
 
+    /**
+     * Replay the spilled events of the group through the connection service of the endpoint.
+     */
+    void replaySpilledEvents() {
+        if (connectionWorker != null) {
+            connectionService.submit(connectionWorker::replaySpilledEvents);
+        }
+    }
+
+    void resendSpilledEvents() {
+        if (dataEndpointFailureCallback != null) {
+            dataEndpointFailureCallback.resendSpilledEvents(this);
+        }
+    }
+
     /**
      * Event Publisher worker thread to actually sends the events to the endpoint.
      */
@@ -344,7 +406,7 @@ public abstract class DataEndpoint {
         }
     }
 
-    private void handleFailedEvents(List<Event> events) {
+    protected void handleFailedEvents(List<Event> events) {
         deactivate();
         dataEndpointFailureCallback.tryResendEvents(events, this);
     }
@@ -57,6 +57,21 @@ public class DataEndpointConnectionWorker implements Runnable {
         }
     }
 
+    /**
+     * Connect to the endpoint, and replay the events spilled while the endpoints were not available. As the replay
+     * is rate limited, this is only run by the connection service of the endpoint and never by a publisher.
+     */
+    void connectAndReplay() {
+        run();
+        replaySpilledEvents();
+    }
+
+    void replaySpilledEvents() {
+        if (isInitialized() && dataEndpoint.isConnected()) {
+            dataEndpoint.resendSpilledEvents();
+        }
+    }
+
     DataEndpointConfiguration getDataEndpointConfiguration() {
         return dataEndpointConfiguration;
     }
@@ -34,4 +34,12 @@ public interface DataEndpointFailureCallback {
      */
     public void tryResendEvents(List<Event> events, DataEndpoint failedEP);
 
+    /**
+     * Notifies that an endpoint is connected, so that the events spilled while the endpoints were not available are
+     * sent again. This returns once the spilled events are sent, or the endpoint is disconnected.
+     *
+     * @param connectedEP Connected endpoint
+     */
+    public void resendSpilledEvents(DataEndpoint connectedEP);
+
 }
@@ -18,9 +18,13 @@
 package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
 
 import com.lmax.disruptor.BlockingWaitStrategy;
-import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceReportingEventHandler;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.TimeoutHandler;
+import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.logging.log4j.LogManager;
@@ -28,6 +32,7 @@ import org.apache.logging.log4j.Logger;
 import org.wso2.carbon.databridge.commons.Event;
 import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.DataEndpointAgent;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.AgentConfiguration;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointConfigurationException;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.EventQueueFullException;
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.util.DataEndpointConstants;
@@ -36,18 +41,29 @@ import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.util.DataPubl
 import java.io.IOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class holds the endpoints associated within a group. Also it has a queue
  * to hold the list of events that needs to be processed by the endpoints with
  * provided the load balancing, or failover configuration.
+ * <p>
+ * The events which could not be queued are handed over to a dedicated spill thread, which writes them to the spill
+ * log. Hence a producer never waits on the disk, and the events are dropped once the spill thread falls behind by
+ * more than the queue size.
  */
 public class DataEndpointGroup implements DataEndpointFailureCallback {
     private static final Logger log = LogManager.getLogger(DataEndpointGroup.class);
@@ -72,6 +88,29 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
 
     private boolean isShutdown = false;
 
+    private String spillDirectory;
+
+    private long spillMaxDiskSize;
+
+    private int spillReplayRate;
+
+    private int spillReplayBatchSize;
+
+    // Opened once the first endpoint connects or the first event is spilled, as the log is kept per receiver group
+    private volatile EventSpillLog spillLog;
+
+    private final ReentrantLock spillReplayLock = new ReentrantLock();
+
+    private ExecutorService spillService;
+
+    private final Queue<Event> pendingSpillEvents = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingSpillEventCount = new AtomicInteger();
+
+    private int maxPendingSpillEventCount;
+
+    private final AtomicBoolean isSpillScheduled = new AtomicBoolean();
+
     /**
      * HA Type.
      */
@@ -86,8 +125,18 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                 new DataBridgeThreadFactory("ReconnectionService"));
         this.reconnectionInterval = agent.getAgentConfiguration().getReconnectionInterval();
         this.publishingStrategy = agent.getAgentConfiguration().getPublishingStrategy();
+        AgentConfiguration agentConfiguration = agent.getAgentConfiguration();
+        if (agentConfiguration.isSpillEnabled()) {
+            this.spillDirectory = agentConfiguration.getSpillDirectory();
+            this.spillMaxDiskSize = agentConfiguration.getSpillMaxDiskSizeMB() * 1024L * 1024L;
+            this.spillReplayRate = Math.max(1, agentConfiguration.getSpillReplayRate());
+            this.spillReplayBatchSize = Math.max(1, Math.min(agentConfiguration.getBatchSize(), spillReplayRate));
+            this.maxPendingSpillEventCount = Math.max(1, agentConfiguration.getQueueSize());
+            this.spillService = Executors.newSingleThreadExecutor(new DataBridgeThreadFactory("EventSpill"));
+        }
         if (!publishingStrategy.equalsIgnoreCase(DataEndpointConstants.SYNC_STRATEGY)) {
-            this.eventQueue = new EventQueue(agent.getAgentConfiguration().getQueueSize());
+            this.eventQueue = new EventQueue(agent.getAgentConfiguration().getQueueSize(),
+                    agent.getAgentConfiguration().getMaxBatchDelayMS());
         }
         this.reconnectionService.scheduleAtFixedRate(new ReconnectionTask(), reconnectionInterval,
                 reconnectionInterval, TimeUnit.SECONDS);
@@ -102,12 +151,52 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
 
     public void tryPublish(Event event) throws EventQueueFullException {
         if (eventQueue != null) {
-            eventQueue.tryPut(event);
+            try {
+                eventQueue.tryPut(event);
+            } catch (EventQueueFullException e) {
+                if (!spill(event)) {
+                    throw e;
+                }
+            }
         } else if (!isShutdown) {
             trySyncPublish(event);
         }
     }
 
+    /**
+     * Publish an event by writing its payload straight into the event queue. If the group publishes synchronously,
+     * the event is created and sent right away. If the event queue is full, the event is spilled to the local disk
+     * when a spill directory is configured.
+     *
+     * @param streamId  Stream ID of the event
+     * @param timeStamp Timestamp of the event
+     * @param writer    Writer of the payload
+     * @param source    Source which holds the payload
+     * @param <T>       Type of the source
+     * @throws EventQueueFullException if the event queue is full
+     */
+    public <T> void tryPublish(String streamId, long timeStamp, EventPayloadWriter<T> writer, T source)
+            throws EventQueueFullException {
+        if (eventQueue != null) {
+            try {
+                eventQueue.tryPut(streamId, timeStamp, writer, source);
+            } catch (EventQueueFullException e) {
+                if (spillDirectory == null) {
+                    throw e;
+                }
+                Object[] payloadData = new Object[writer.getPayloadLength()];
+                writer.writePayload(source, payloadData);
+                if (!spill(new Event(streamId, timeStamp, null, null, payloadData))) {
+                    throw e;
+                }
+            }
+        } else if (!isShutdown) {
+            Object[] payloadData = new Object[writer.getPayloadLength()];
+            writer.writePayload(source, payloadData);
+            trySyncPublish(new Event(streamId, timeStamp, null, null, payloadData));
+        }
+    }
+
     public void publish(Event event) {
         if (eventQueue != null) {
             eventQueue.put(event);
@@ -151,16 +240,26 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
      * Event Queue Class.
      */
     class EventQueue {
+        // Upper bound of the time a producer waits for capacity before checking whether any endpoint is available
+        private static final long CAPACITY_WAIT_TIMEOUT_MS = 100;
+
         private RingBuffer<WrappedEventFactory.WrappedEvent> ringBuffer = null;
         private Disruptor<WrappedEventFactory.WrappedEvent> eventQueueDisruptor = null;
         private ExecutorService eventQueuePool = null;
+        private final ReentrantLock capacityLock = new ReentrantLock();
+        private final Condition capacityAvailable = capacityLock.newCondition();
+        private final AtomicInteger waitingProducerCount = new AtomicInteger();
 
-        EventQueue(int queueSize) {
+        EventQueue(int queueSize, int maxBatchDelayMS) {
             eventQueuePool = Executors.newCachedThreadPool(
                     new DataBridgeThreadFactory("EventQueue"));
+            // The worker is woken up once the batch delay elapses, so that the collected events are sent on time
+            WaitStrategy waitStrategy = maxBatchDelayMS > 0 ?
+                    new TimeoutBlockingWaitStrategy(maxBatchDelayMS, TimeUnit.MILLISECONDS) :
+                    new BlockingWaitStrategy();
             eventQueueDisruptor = new Disruptor<>(new WrappedEventFactory(), queueSize, eventQueuePool,
-                    ProducerType.MULTI, new BlockingWaitStrategy());
-            eventQueueDisruptor.handleEventsWith(new EventQueueWorker());
+                    ProducerType.MULTI, waitStrategy);
+            eventQueueDisruptor.handleEventsWith(new EventQueueWorker(this));
             this.ringBuffer = eventQueueDisruptor.start();
         }
 
@@ -177,6 +276,23 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
             }
         }
 
+        private <T> void tryPut(String streamId, long timeStamp, EventPayloadWriter<T> writer, T source)
+                throws EventQueueFullException {
+            long sequence;
+            try {
+                sequence = this.ringBuffer.tryNext(1);
+            } catch (InsufficientCapacityException e) {
+                throw new EventQueueFullException("Cannot send events because the event queue is full", e);
+            }
+            try {
+                this.ringBuffer.get(sequence).writeEvent(streamId, timeStamp, writer, source);
+            } finally {
+                // A claimed sequence should always be published, else the queue stalls. If the writer fails, the
+                // slot is left invalid and skipped by the worker, while the exception is thrown to the caller.
+                this.ringBuffer.publish(sequence);
+            }
+        }
+
         //Endless wait if at-least once endpoint is available.
         private void put(Event event) {
             do {
@@ -187,14 +303,41 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                     this.ringBuffer.publish(sequence);
                     return;
                 } catch (InsufficientCapacityException ex) {
-                    try {
-                        Thread.sleep(2);
-                    } catch (InterruptedException ignored) {
-                    }
+                    awaitCapacity();
                 }
             } while (isActiveDataEndpointExists());
         }
 
+        private void awaitCapacity() {
+            waitingProducerCount.incrementAndGet();
+            capacityLock.lock();
+            try {
+                // Checked after registering as a waiting producer, hence a signal of the worker is never missed
+                if (!ringBuffer.hasAvailableCapacity(1)) {
+                    capacityAvailable.await(CAPACITY_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException ignored) {
+            } finally {
+                capacityLock.unlock();
+                waitingProducerCount.decrementAndGet();
+            }
+        }
+
+        /**
+         * Wake up the producers waiting for capacity. This is called by the worker once it releases the slots of the
+         * processed events.
+         */
+        private void signalCapacity() {
+            if (waitingProducerCount.get() > 0) {
+                capacityLock.lock();
+                try {
+                    capacityAvailable.signalAll();
+                } finally {
+                    capacityLock.unlock();
+                }
+            }
+        }
+
         private void shutdown() {
             eventQueuePool.shutdown();
             eventQueueDisruptor.shutdown();
@@ -204,19 +347,47 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
     /**
      * Event Queue Worker.
      */
-    class EventQueueWorker implements EventHandler<WrappedEventFactory.WrappedEvent> {
+    class EventQueueWorker implements SequenceReportingEventHandler<WrappedEventFactory.WrappedEvent>,
+            TimeoutHandler {
 
+        private final EventQueue eventQueue;
+        private Sequence sequenceCallback;
         boolean isLastEventDropped = false;
 
+        EventQueueWorker(EventQueue eventQueue) {
+            this.eventQueue = eventQueue;
+        }
+
+        @Override
+        public void setSequenceCallback(Sequence sequenceCallback) {
+            this.sequenceCallback = sequenceCallback;
+        }
+
+        @Override
+        public void onTimeout(long sequence) {
+            flushDueDataEndpoints();
+        }
+
         @Override
         public void onEvent(WrappedEventFactory.WrappedEvent wrappedEvent, long sequence, boolean endOfBatch) {
+            if (!wrappedEvent.isValid()) {
+                // The payload writer of the event failed, hence the slot does not hold a complete event
+                if (endOfBatch) {
+                    releaseSlots(sequence);
+                    flushDueDataEndpoints();
+                }
+                return;
+            }
             DataEndpoint endpoint = getDataEndpoint(true);
-            Event event = wrappedEvent.getEvent();
+            Event event = wrappedEvent.toEvent();
+            if (endOfBatch) {
+                releaseSlots(sequence);
+            }
             if (endpoint != null) {
                 isLastEventDropped = false;
                 endpoint.collectAndSend(event);
                 if (endOfBatch) {
-                    flushAllDataEndpoints();
+                    flushDueDataEndpoints();
                 }
             } else {
                 if (!isLastEventDropped) {
@@ -228,6 +399,20 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                 isLastEventDropped = true;
             }
         }
+
+        private void releaseSlots(long sequence) {
+            // The slots are released right away instead of after the batch, as the producers may be waiting
+            sequenceCallback.set(sequence);
+            eventQueue.signalCapacity();
+        }
+    }
+
+    private void flushDueDataEndpoints() {
+        for (DataEndpoint dataEndpoint : dataEndpoints) {
+            if (dataEndpoint.getState().equals(DataEndpoint.State.ACTIVE)) {
+                dataEndpoint.flushDueEvents();
+            }
+        }
     }
 
     private void flushAllDataEndpoints() {
@@ -324,12 +509,9 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         return false;
     }
 
-    private synchronized int getDataPublisherIndex() {
-        int index = currentDataPublisherIndex.getAndIncrement();
-        if (index == maximumDataPublisherIndex.get() - 1) {
-            currentDataPublisherIndex.set(startIndex);
-        }
-        return index;
+    private int getDataPublisherIndex() {
+        // The counter is never reset, hence the index stays in range even after the counter overflows
+        return Math.floorMod(currentDataPublisherIndex.getAndIncrement(), maximumDataPublisherIndex.get());
     }
 
     public void tryResendEvents(List<Event> events, DataEndpoint dataEndpoint) {
@@ -342,11 +524,158 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                     trySyncPublish(event);
                 }
             } catch (EventQueueFullException e) {
-                log.error("Unable to put the event :" + event, e);
+                if (!spill(event)) {
+                    log.error("Unable to put the event :" + event, e);
+                }
             }
         }
     }
 
+    /**
+     * Put the spilled events back into the event queue while the connected endpoint stays connected. The events are
+     * put at the configured replay rate, so that a backlog of an outage does not flood the receivers, and are only
+     * removed from the spill log once they are queued. Only one endpoint of the group replays at a time.
+     *
+     * @param connectedEP Connected endpoint
+     */
+    @Override
+    public void resendSpilledEvents(DataEndpoint connectedEP) {
+        EventSpillLog spillLog = getSpillLog();
+        if (spillLog == null || eventQueue == null || !spillReplayLock.tryLock()) {
+            return;
+        }
+        try {
+            long batchIntervalNanos = TimeUnit.SECONDS.toNanos(1) * spillReplayBatchSize / spillReplayRate;
+            while (!isShutdown && connectedEP.isConnected()) {
+                long startTime = System.nanoTime();
+                List<Event> events = spillLog.read(spillReplayBatchSize);
+                if (events.isEmpty()) {
+                    return;
+                }
+                int replayedEventCount = 0;
+                try {
+                    for (Event event : events) {
+                        eventQueue.tryPut(event);
+                        replayedEventCount++;
+                    }
+                } catch (EventQueueFullException e) {
+                    // The rest of the batch is retried after the interval
+                }
+                spillLog.commit(replayedEventCount);
+                DataEndpointMetrics.getInstance().recordReplayedEvents(replayedEventCount);
+                long remainingNanos = batchIntervalNanos - (System.nanoTime() - startTime);
+                if (remainingNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(remainingNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            spillReplayLock.unlock();
+        }
+    }
+
+    /**
+     * Hand an event over to the spill thread of the group, without waiting for it to be written.
+     *
+     * @param event Event which could not be queued or sent
+     * @return false if spilling is disabled, or the spill thread is too far behind to take the event
+     */
+    private boolean spill(Event event) {
+        if (spillService == null || spillDirectory == null || isShutdown) {
+            return false;
+        }
+        if (pendingSpillEventCount.incrementAndGet() > maxPendingSpillEventCount) {
+            pendingSpillEventCount.decrementAndGet();
+            DataEndpointMetrics.getInstance().recordSpillDroppedEvents(1);
+            return false;
+        }
+        pendingSpillEvents.offer(event);
+        if (isSpillScheduled.compareAndSet(false, true)) {
+            try {
+                spillService.execute(this::writePendingSpillEvents);
+            } catch (RejectedExecutionException e) {
+                // The group is shutting down, the pending events are written by the shutdown
+                isSpillScheduled.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the events handed over by the producers to the spill log. Runs on the spill thread only, and keeps
+     * running until no event is pending.
+     */
+    private void writePendingSpillEvents() {
+        do {
+            Event event;
+            while ((event = pendingSpillEvents.poll()) != null) {
+                pendingSpillEventCount.decrementAndGet();
+                writeToSpillLog(event);
+            }
+            isSpillScheduled.set(false);
+            // An event offered after the queue was drained, but before the flag was reset, is written here
+        } while (!pendingSpillEvents.isEmpty() && isSpillScheduled.compareAndSet(false, true));
+    }
+
+    private void writeToSpillLog(Event event) {
+        EventSpillLog spillLog = getSpillLog();
+        if (spillLog == null) {
+            DataEndpointMetrics.getInstance().recordSpillDroppedEvents(1);
+            return;
+        }
+        try {
+            long previousDroppedEventCount = spillLog.getDroppedEventCount();
+            if (spillLog.append(event)) {
+                DataEndpointMetrics.getInstance().recordSpilledEvent();
+            } else {
+                log.error("Dropping the event as it is too large to be spilled: " + event);
+            }
+            long droppedEventCount = spillLog.getDroppedEventCount() - previousDroppedEventCount;
+            if (droppedEventCount > 0) {
+                DataEndpointMetrics.getInstance().recordSpillDroppedEvents(droppedEventCount);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error while spilling the event: " + event, e);
+            DataEndpointMetrics.getInstance().recordSpillDroppedEvents(1);
+        }
+    }
+
+    private boolean hasSpilledEvents() {
+        EventSpillLog spillLog = this.spillLog;
+        return spillLog != null && spillLog.size() > 0;
+    }
+
+    private EventSpillLog getSpillLog() {
+        if (spillLog == null && spillDirectory != null) {
+            synchronized (this) {
+                if (spillLog == null && spillDirectory != null) {
+                    try {
+                        spillLog = new EventSpillLog(Paths.get(spillDirectory, getSpillLogName()),
+                                spillMaxDiskSize);
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Error while opening the spill log in " + spillDirectory + " for the endpoint group "
+                                + this + ", events will be dropped when the event queue is full.", e);
+                        spillDirectory = null;
+                    }
+                }
+            }
+        }
+        return spillLog;
+    }
+
+    private String getSpillLogName() {
+        StringBuilder name = new StringBuilder();
+        for (DataEndpoint dataEndpoint : dataEndpoints) {
+            if (name.length() > 0) {
+                name.append('_');
+            }
+            name.append(dataEndpoint.getDataEndpointConfiguration().getReceiverURL().replaceAll("[^A-Za-z0-9.-]",
+                    "_"));
+        }
+        return name.toString();
+    }
+
     private List<Event> trySendActiveEndpoints(List<Event> events, DataEndpoint failedEP) {
         ArrayList<Event> unsuccessfulEvents = new ArrayList<>();
         for (Event event : events) {
@@ -393,6 +722,16 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
                             ? dataEndpoint.getDataEndpointConfiguration().getReceiverURL() : "Null") + ",";
                 }
             }
+            if (isOneReceiverConnected && hasSpilledEvents() && !spillReplayLock.isLocked()) {
+                // Events spilled while the endpoints stayed connected are not replayed by a reconnection
+                for (int i = startIndex; i < maximumDataPublisherIndex.get(); i++) {
+                    DataEndpoint dataEndpoint = dataEndpoints.get(i);
+                    if (dataEndpoint.isConnected()) {
+                        dataEndpoint.replaySpilledEvents();
+                        break;
+                    }
+                }
+            }
             if (!isOneReceiverConnected) {
                 log.warn("Receiver is not reachable at reconnection for the endpoints: " + failedDataEndpoints +
                         ", will try to reconnect every " + reconnectionInterval + " sec");
@@ -444,5 +783,27 @@ public class DataEndpointGroup implements DataEndpointFailureCallback {
         for (DataEndpoint dataEndpoint : dataEndpoints) {
             dataEndpoint.shutdown();
         }
+        if (spillService != null) {
+            spillService.shutdown();
+            try {
+                if (!spillService.awaitTermination(reconnectionInterval, TimeUnit.SECONDS)) {
+                    log.warn("Events are still being spilled by the endpoint group " + this
+                            + " at the shutdown, hence the spill log is left open.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!spillService.isTerminated()) {
+                return;
+            }
+            writePendingSpillEvents();
+        }
+        if (spillLog != null) {
+            try {
+                spillLog.close();
+            } catch (IOException e) {
+                log.warn("Error while closing the spill log of the endpoint group " + this, e);
+            }
+        }
     }
 }
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the batches sent by all the data endpoints of the agent, which are exposed over JMX. Bucket upper bounds
+ * are reported for the percentiles.
+ */
+public class DataEndpointMetrics implements DataEndpointMetricsMBean {
+    public static final String MBEAN_NAME = "org.wso2.micro.gateway:type=ThrottleDataPublisher";
+
+    private static final DataEndpointMetrics instance = new DataEndpointMetrics();
+
+    private final PowerOfTwoHistogram batchSizes = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram flushLatencies = new PowerOfTwoHistogram();
+    private final LongAdder deadlineFlushCount = new LongAdder();
+    private final LongAdder spilledEventCount = new LongAdder();
+    private final LongAdder replayedEventCount = new LongAdder();
+    private final LongAdder spillDroppedEventCount = new LongAdder();
+
+    private DataEndpointMetrics() {
+    }
+
+    public static DataEndpointMetrics getInstance() {
+        return instance;
+    }
+
+    void recordBatch(int batchSize, long flushLatencyNanos, boolean deadlineFlush) {
+        batchSizes.record(batchSize);
+        flushLatencies.record(TimeUnit.NANOSECONDS.toMicros(flushLatencyNanos));
+        if (deadlineFlush) {
+            deadlineFlushCount.increment();
+        }
+    }
+
+    void recordSpilledEvent() {
+        spilledEventCount.increment();
+    }
+
+    void recordReplayedEvents(int eventCount) {
+        replayedEventCount.add(eventCount);
+    }
+
+    void recordSpillDroppedEvents(long eventCount) {
+        spillDroppedEventCount.add(eventCount);
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchSizes.getCount();
+    }
+
+    @Override
+    public long getDeadlineFlushCount() {
+        return deadlineFlushCount.sum();
+    }
+
+    @Override
+    public long[] getBatchSizeHistogram() {
+        return batchSizes.getBuckets();
+    }
+
+    @Override
+    public long getBatchSizeMedian() {
+        return batchSizes.getPercentile(50);
+    }
+
+    @Override
+    public long getBatchSize99thPercentile() {
+        return batchSizes.getPercentile(99);
+    }
+
+    @Override
+    public long[] getFlushLatencyHistogram() {
+        return flushLatencies.getBuckets();
+    }
+
+    @Override
+    public long getFlushLatencyMedianMicros() {
+        return flushLatencies.getPercentile(50);
+    }
+
+    @Override
+    public long getFlushLatency99thPercentileMicros() {
+        return flushLatencies.getPercentile(99);
+    }
+
+    @Override
+    public long getSpilledEventCount() {
+        return spilledEventCount.sum();
+    }
+
+    @Override
+    public long getReplayedEventCount() {
+        return replayedEventCount.sum();
+    }
+
+    @Override
+    public long getSpillDroppedEventCount() {
+        return spillDroppedEventCount.sum();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+/**
+ * JMX view of the batches sent by the data endpoints and of the events spilled to the local disk. The histograms hold
+ * the counts of power of two buckets, where bucket 0 counts the zeros and bucket i counts the values from 2^(i-1) to
+ * 2^i - 1.
+ */
+public interface DataEndpointMetricsMBean {
+
+    long getBatchCount();
+
+    /**
+     * @return Number of batches sent since their oldest event reached the maximum batch delay
+     */
+    long getDeadlineFlushCount();
+
+    long[] getBatchSizeHistogram();
+
+    long getBatchSizeMedian();
+
+    long getBatchSize99thPercentile();
+
+    /**
+     * @return Histogram of the time in microseconds from the collection of the first event of a batch to its dispatch
+     */
+    long[] getFlushLatencyHistogram();
+
+    long getFlushLatencyMedianMicros();
+
+    long getFlushLatency99thPercentileMicros();
+
+    /**
+     * @return Number of events written to the spill log, as they could not be queued or sent
+     */
+    long getSpilledEventCount();
+
+    /**
+     * @return Number of spilled events which are put back into the event queue
+     */
+    long getReplayedEventCount();
+
+    /**
+     * @return Number of events which could not be spilled, or were removed from the spill log due to its disk cap
+     */
+    long getSpillDroppedEventCount();
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+/**
+ * Writes the payload of an event straight into a preallocated event of the event queue, so that the publishing
+ * thread does not create any intermediate objects for the event.
+ *
+ * @param <T> Type of the source which holds the payload of the event
+ */
+public interface EventPayloadWriter<T> {
+
+    /**
+     * @return Number of payload attributes of the events written by this writer
+     */
+    int getPayloadLength();
+
+    /**
+     * Write the payload attributes of an event in the order of the stream definition.
+     *
+     * @param source      Source which holds the payload of the event
+     * @param payloadData Reusable array of {@link #getPayloadLength()} elements to write the attributes into
+     */
+    void writePayload(T source, Object[] payloadData);
+}
@@ -0,0 +1,537 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent log of the events which could not be queued or sent, kept in memory mapped segment files on the local
+ * disk. Events are appended to the last segment, and a new segment is started once it is full. Once the disk cap is
+ * reached, the oldest segment is dropped, as the oldest events are the least relevant to the current throttle
+ * windows. The read position is kept in a checkpoint file, hence the events which are not replayed survive a restart.
+ * <p>
+ * Each record is written as its length, the CRC32 of its content and the content, which holds the stream ID, the
+ * timestamp and the type tagged attributes of the event. A record with a zero length or a wrong checksum marks the
+ * end of a segment.
+ * <p>
+ * The mapping of a segment file is released explicitly when the segment is dropped, as the disk space of a deleted
+ * file is held until its mapping is released. The mapping is released through the cleaner of the buffer, which is an
+ * internal API of the JDK. Where it is not accessible, the mapping is released only once the buffer is garbage
+ * collected, hence the disk space used by the dropped segments could exceed the disk cap until then.
+ */
+final class EventSpillLog implements Closeable {
+    private static final Logger log = LogManager.getLogger(EventSpillLog.class);
+
+    static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final int MIN_SEGMENT_COUNT = 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    // Segment ID and the read offset within the segment
+    private static final int CHECKPOINT_SIZE = 12;
+    // Length and checksum of a record
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int END_OF_SEGMENT = -1;
+
+    private static final byte NULL_TAG = 0;
+    private static final byte STRING_TAG = 1;
+    private static final byte INTEGER_TAG = 2;
+    private static final byte LONG_TAG = 3;
+    private static final byte FLOAT_TAG = 4;
+    private static final byte DOUBLE_TAG = 5;
+    private static final byte BOOLEAN_TAG = 6;
+
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegmentCount;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+    // Read position within the oldest segment
+    private int readOffset;
+    private int readRecordCount;
+    // End offsets of the records returned by the last read, used to commit the replayed records
+    private final List<Integer> readRecordOffsets = new ArrayList<>();
+    private long droppedEventCount;
+
+    /**
+     * Open the spill log in a directory, recovering the events spilled before.
+     *
+     * @param directory   Directory of the segment files
+     * @param maxDiskSize Maximum size of the segment files in bytes
+     * @throws IOException if the segment files could not be opened
+     */
+    EventSpillLog(Path directory, long maxDiskSize) throws IOException {
+        if (maxDiskSize < (long) MIN_SEGMENT_COUNT * MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Disk cap of the spill log should be at least "
+                    + MIN_SEGMENT_COUNT * MIN_SEGMENT_SIZE + " bytes: " + maxDiskSize);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, maxDiskSize / MIN_SEGMENT_COUNT);
+        this.maxSegmentCount = (int) (maxDiskSize / segmentSize);
+        Files.createDirectories(directory);
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_SIZE);
+        recover();
+    }
+
+    /**
+     * Append an event to the log.
+     *
+     * @param event Event
+     * @return false if the event is too large to be spilled
+     */
+    synchronized boolean append(Event event) {
+        int length = encode(event);
+        int recordSize = RECORD_HEADER_SIZE + length;
+        // Space is always left for the end of segment marker
+        if (recordSize + 4 > segmentSize) {
+            droppedEventCount++;
+            return false;
+        }
+        Segment segment = segments.peekLast();
+        if (segment.writeOffset + recordSize + 4 > segmentSize) {
+            segment.buffer.putInt(segment.writeOffset, END_OF_SEGMENT);
+            segment = rotate();
+        }
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, length);
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(segment.writeOffset + RECORD_HEADER_SIZE);
+        target.put(recordBuffer.array(), 0, length);
+        segment.buffer.putInt(segment.writeOffset + 4, (int) crc.getValue());
+        segment.buffer.putInt(segment.writeOffset, length);
+        segment.writeOffset += recordSize;
+        segment.recordCount++;
+        return true;
+    }
+
+    /**
+     * Read the oldest events of the log, without removing them. The events are removed once they are committed.
+     *
+     * @param maxEvents Maximum number of events to be read
+     * @return Events, or an empty list if the log is empty
+     */
+    synchronized List<Event> read(int maxEvents) {
+        readRecordOffsets.clear();
+        Segment segment = segments.peekFirst();
+        if (readOffset >= segment.writeOffset && segments.size() > 1) {
+            deleteOldestSegment();
+            segment = segments.peekFirst();
+            writeCheckpoint();
+        }
+        List<Event> events = new ArrayList<>();
+        int offset = readOffset;
+        while (events.size() < maxEvents && offset < segment.writeOffset) {
+            int length = segment.buffer.getInt(offset);
+            ByteBuffer record = segment.buffer.duplicate();
+            record.position(offset + RECORD_HEADER_SIZE);
+            record.limit(offset + RECORD_HEADER_SIZE + length);
+            events.add(decode(record));
+            offset += RECORD_HEADER_SIZE + length;
+            readRecordOffsets.add(offset);
+        }
+        return events;
+    }
+
+    /**
+     * Remove the oldest events returned by the last read.
+     *
+     * @param eventCount Number of events to be removed
+     */
+    synchronized void commit(int eventCount) {
+        if (eventCount <= 0 || eventCount > readRecordOffsets.size()) {
+            return;
+        }
+        readOffset = readRecordOffsets.get(eventCount - 1);
+        readRecordCount += eventCount;
+        readRecordOffsets.clear();
+        writeCheckpoint();
+    }
+
+    /**
+     * @return Number of events which are spilled and not yet removed
+     */
+    synchronized long size() {
+        long size = -readRecordCount;
+        for (Segment segment : segments) {
+            size += segment.recordCount;
+        }
+        return size;
+    }
+
+    /**
+     * @return Number of events which were dropped due to the disk cap
+     */
+    synchronized long getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        checkpoint.force();
+        checkpointChannel.close();
+    }
+
+    private void recover() throws IOException {
+        Map<Long, Path> segmentFiles = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                try {
+                    segmentFiles.put(Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                            fileName.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring the unknown file " + file + " in the spill log directory");
+                }
+            }
+        }
+        long checkpointSegmentId = checkpoint.getLong(0);
+        int checkpointOffset = checkpoint.getInt(8);
+        Map<Long, Integer> recordOffsets = new HashMap<>();
+        for (Map.Entry<Long, Path> segmentFile : segmentFiles.entrySet()) {
+            if (segmentFile.getKey() < checkpointSegmentId) {
+                // Segments before the checkpoint are already replayed
+                Files.deleteIfExists(segmentFile.getValue());
+                continue;
+            }
+            Segment segment = openSegment(segmentFile.getKey(), segmentFile.getValue());
+            if (segment.id == checkpointSegmentId) {
+                recordOffsets.put(segment.id, checkpointOffset);
+            }
+            segments.add(segment);
+            while (segments.size() > maxSegmentCount) {
+                deleteOldestSegment();
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(createSegment(checkpointSegmentId));
+        }
+        Segment oldestSegment = segments.peekFirst();
+        Integer offset = recordOffsets.get(oldestSegment.id);
+        readOffset = offset == null ? 0 : Math.min(offset, oldestSegment.writeOffset);
+        readRecordCount = countRecords(oldestSegment, readOffset);
+        writeCheckpoint();
+        if (size() > 0) {
+            log.info("Recovered " + size() + " spilled throttle events from " + directory);
+        }
+    }
+
+    private Segment openSegment(long id, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        // The segment ends at the first record which is not completely written
+        int offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= segmentSize) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            crc.reset();
+            for (int i = offset + RECORD_HEADER_SIZE; i < offset + RECORD_HEADER_SIZE + length; i++) {
+                crc.update(segment.buffer.get(i));
+            }
+            if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) {
+                log.warn("Ignoring the incomplete records of the spill log segment " + file + " after offset "
+                        + offset);
+                break;
+            }
+            offset += RECORD_HEADER_SIZE + length;
+            segment.recordCount++;
+        }
+        segment.writeOffset = offset;
+        return segment;
+    }
+
+    private Segment createSegment(long id) throws IOException {
+        Path file = directory.resolve(SEGMENT_PREFIX + String.format("%020d", id) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Segment(id, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private Segment rotate() {
+        if (segments.size() >= maxSegmentCount) {
+            droppedEventCount += segments.peekFirst().recordCount - readRecordCount;
+            deleteOldestSegment();
+            writeCheckpoint();
+        }
+        try {
+            Segment segment = createSegment(segments.peekLast().id + 1);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while creating a segment of the spill log in " + directory, e);
+        }
+    }
+
+    private void deleteOldestSegment() {
+        Segment segment = segments.poll();
+        readOffset = 0;
+        readRecordCount = 0;
+        readRecordOffsets.clear();
+        try {
+            segment.channel.close();
+            unmap(segment.buffer);
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("Error while deleting the spill log segment " + segment.file, e);
+        }
+    }
+
+    /**
+     * Release the mapping of a dropped segment. The buffer should not be accessed afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Error while releasing the mapping of a spill log segment", e);
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            Object unsafe = unsafeField.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8, where the cleaner is exposed by the buffer
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Mappings of the dropped spill log segments are released only once they are garbage "
+                    + "collected, hence the disk cap could be exceeded until then", e);
+            return null;
+        }
+    }
+
+    private void writeCheckpoint() {
+        checkpoint.putLong(0, segments.peekFirst().id);
+        checkpoint.putInt(8, readOffset);
+    }
+
+    private int countRecords(Segment segment, int endOffset) {
+        int count = 0;
+        int offset = 0;
+        while (offset < endOffset) {
+            offset += RECORD_HEADER_SIZE + segment.buffer.getInt(offset);
+            count++;
+        }
+        return count;
+    }
+
+    private int encode(Event event) {
+        recordBuffer.clear();
+        putString(event.getStreamId());
+        ensureCapacity(8);
+        recordBuffer.putLong(event.getTimeStamp());
+        putAttributes(event.getMetaData());
+        putAttributes(event.getCorrelationData());
+        putAttributes(event.getPayloadData());
+        Map<String, String> arbitraryDataMap = event.getArbitraryDataMap();
+        ensureCapacity(4);
+        if (arbitraryDataMap == null) {
+            recordBuffer.putInt(-1);
+        } else {
+            recordBuffer.putInt(arbitraryDataMap.size());
+            for (Map.Entry<String, String> arbitraryData : arbitraryDataMap.entrySet()) {
+                putString(arbitraryData.getKey());
+                putString(arbitraryData.getValue());
+            }
+        }
+        return recordBuffer.position();
+    }
+
+    private void putAttributes(Object[] attributes) {
+        ensureCapacity(4);
+        if (attributes == null) {
+            recordBuffer.putInt(-1);
+            return;
+        }
+        recordBuffer.putInt(attributes.length);
+        for (Object attribute : attributes) {
+            ensureCapacity(9);
+            if (attribute instanceof String) {
+                recordBuffer.put(STRING_TAG);
+                putString((String) attribute);
+            } else if (attribute instanceof Integer) {
+                recordBuffer.put(INTEGER_TAG).putInt((Integer) attribute);
+            } else if (attribute instanceof Long) {
+                recordBuffer.put(LONG_TAG).putLong((Long) attribute);
+            } else if (attribute instanceof Float) {
+                recordBuffer.put(FLOAT_TAG).putFloat((Float) attribute);
+            } else if (attribute instanceof Double) {
+                recordBuffer.put(DOUBLE_TAG).putDouble((Double) attribute);
+            } else if (attribute instanceof Boolean) {
+                recordBuffer.put(BOOLEAN_TAG).put((byte) ((Boolean) attribute ? 1 : 0));
+            } else {
+                recordBuffer.put(NULL_TAG);
+            }
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + bytes.length);
+        recordBuffer.putInt(bytes.length);
+        recordBuffer.put(bytes);
+    }
+
+    private void ensureCapacity(int required) {
+        if (recordBuffer.remaining() < required) {
+            ByteBuffer expanded = ByteBuffer.allocate(Math.max(recordBuffer.capacity() * 2,
+                    recordBuffer.position() + required));
+            recordBuffer.flip();
+            expanded.put(recordBuffer);
+            recordBuffer = expanded;
+        }
+    }
+
+    private static Event decode(ByteBuffer record) {
+        String streamId = getString(record);
+        long timeStamp = record.getLong();
+        Object[] metaData = getAttributes(record);
+        Object[] correlationData = getAttributes(record);
+        Object[] payloadData = getAttributes(record);
+        int arbitraryDataSize = record.getInt();
+        Map<String, String> arbitraryDataMap = null;
+        if (arbitraryDataSize >= 0) {
+            arbitraryDataMap = new HashMap<>();
+            for (int i = 0; i < arbitraryDataSize; i++) {
+                arbitraryDataMap.put(getString(record), getString(record));
+            }
+        }
+        return new Event(streamId, timeStamp, metaData, correlationData, payloadData, arbitraryDataMap);
+    }
+
+    private static Object[] getAttributes(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        Object[] attributes = new Object[length];
+        for (int i = 0; i < length; i++) {
+            byte tag = record.get();
+            switch (tag) {
+                case STRING_TAG:
+                    attributes[i] = getString(record);
+                    break;
+                case INTEGER_TAG:
+                    attributes[i] = record.getInt();
+                    break;
+                case LONG_TAG:
+                    attributes[i] = record.getLong();
+                    break;
+                case FLOAT_TAG:
+                    attributes[i] = record.getFloat();
+                    break;
+                case DOUBLE_TAG:
+                    attributes[i] = record.getDouble();
+                    break;
+                case BOOLEAN_TAG:
+                    attributes[i] = record.get() != 0;
+                    break;
+                default:
+                    attributes[i] = null;
+                    break;
+            }
+        }
+        return attributes;
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Releases the mapping of a memory mapped buffer.
+     */
+    private interface Unmapper {
+        void unmap(MappedByteBuffer buffer) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Memory mapped segment file of the log.
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+        private int recordCount;
+
+        private Segment(long id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
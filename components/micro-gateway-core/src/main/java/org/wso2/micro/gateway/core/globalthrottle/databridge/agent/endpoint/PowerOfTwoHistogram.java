@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram with buckets of powers of two. Bucket 0 counts the zeros, while bucket i counts the values from
+ * 2^(i-1) to 2^i - 1.
+ */
+final class PowerOfTwoHistogram {
+    private static final int BUCKET_COUNT = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long value) {
+        buckets.incrementAndGet(value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value));
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Provide the upper bound of the bucket which holds a percentile of the recorded values.
+     *
+     * @param percentile Percentile, from 0 to 100
+     * @return Upper bound of the bucket, or 0 if no value is recorded
+     */
+    long getPercentile(double percentile) {
+        long[] counts = getBuckets();
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulativeCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= rank) {
+                return getUpperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Counts of the buckets, up to the last bucket which holds a value
+     */
+    long[] getBuckets() {
+        long[] counts = new long[BUCKET_COUNT];
+        int length = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            if (counts[i] != 0) {
+                length = i + 1;
+            }
+        }
+        return Arrays.copyOf(counts, length);
+    }
+
+    static long getUpperBound(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -36,6 +36,12 @@ public class WrappedEventFactory implements EventFactory<WrappedEventFactory.Wra
     public static class WrappedEvent {
 
         private Event event;
+        // Payload written in place by the publishing thread, which is reused by the following events of the slot
+        private String streamId;
+        private long timeStamp;
+        private Object[] payloadData;
+        // Cleared while an event is written in place, hence a slot whose payload writer failed is not sent
+        private boolean valid;
 
         public Event getEvent() {
             return event;
@@ -43,12 +49,55 @@ public class WrappedEventFactory implements EventFactory<WrappedEventFactory.Wra
 
         public void setEvent(Event event) {
             this.event = event;
+            this.valid = true;
+        }
+
+        /**
+         * Write the payload of an event into this preallocated event.
+         *
+         * @param streamId  Stream ID of the event
+         * @param timeStamp Timestamp of the event
+         * @param writer    Writer of the payload
+         * @param source    Source which holds the payload
+         * @param <T>       Type of the source
+         * @throws RuntimeException thrown by the writer, in which case the slot is left invalid
+         */
+        <T> void writeEvent(String streamId, long timeStamp, EventPayloadWriter<T> writer, T source) {
+            this.valid = false;
+            this.event = null;
+            if (payloadData == null || payloadData.length != writer.getPayloadLength()) {
+                payloadData = new Object[writer.getPayloadLength()];
+            }
+            writer.writePayload(source, payloadData);
+            this.streamId = streamId;
+            this.timeStamp = timeStamp;
+            this.valid = true;
+        }
+
+        /**
+         * @return true if the slot holds a complete event, false if the payload writer of the event failed
+         */
+        boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * Provide the event held by this slot. An event written in place is copied out of the slot, since the
+         * endpoints keep the events in their batches after the slot is reused.
+         *
+         * @return Event held by this slot
+         */
+        Event toEvent() {
+            if (event != null) {
+                return event;
+            }
+            return new Event(streamId, timeStamp, null, null, payloadData.clone());
         }
 
         @Override
         public String toString() {
             return "WrappedEvent{" +
-                    "event=" + event +
+                    "event=" + (event != null ? event : streamId) +
                     "}";
         }
     }
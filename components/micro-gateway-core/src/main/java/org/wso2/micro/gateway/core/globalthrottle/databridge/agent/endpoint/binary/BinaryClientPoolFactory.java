@@ -25,7 +25,9 @@ import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.DataEndp
 import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointException;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
 /**
  * This class implements AbstractClientPoolFactory to handle the Binary transport related connections.
@@ -39,7 +41,8 @@ public class BinaryClientPoolFactory extends AbstractClientPoolFactory {
             int timeout = AgentHolder.getInstance().getDataEndpointAgent().getAgentConfiguration()
                     .getSocketTimeoutMS();
             try {
-                Socket socket = new Socket(hostName, port);
+                // Sockets backed by a channel let the publish messages be sent with gathering writes
+                Socket socket = SocketChannel.open(new InetSocketAddress(hostName, port)).socket();
                 socket.setSoTimeout(timeout);
                 return socket;
             } catch (IOException e) {
@@ -0,0 +1,275 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Encodes a batch of events into a binary publish message. The message is written into pooled direct buffers, one
+ * for the message header and one for the events, which are sent with a single gathering write when the socket has a
+ * channel. Strings are encoded as UTF-8 in place, hence their lengths are the exact number of encoded bytes and no
+ * objects are created per event.
+ */
+public final class BinaryEventEncoder {
+    static final byte PUBLISH_MESSAGE = 2;
+    static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    // Larger buffers are not kept in the pool, so that a single large batch does not hold the memory
+    private static final int MAX_POOLED_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_POOLED_ENCODERS = 32;
+    private static final int TRANSFER_BUFFER_SIZE = 8 * 1024;
+    // Each UTF-16 char is encoded into at most 3 bytes, while a surrogate pair of 2 chars takes 4 bytes
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    private static final Queue<BinaryEventEncoder> POOL = new ConcurrentLinkedQueue<>();
+
+    private ByteBuffer header = ByteBuffer.allocateDirect(256);
+    private ByteBuffer body = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    private final ByteBuffer[] buffers = new ByteBuffer[2];
+    private byte[] transferBuffer;
+
+    private BinaryEventEncoder() {
+    }
+
+    /**
+     * Borrow an encoder from the pool. The encoder should be released once the message is written.
+     *
+     * @return Encoder
+     */
+    public static BinaryEventEncoder acquire() {
+        BinaryEventEncoder encoder = POOL.poll();
+        return encoder != null ? encoder : new BinaryEventEncoder();
+    }
+
+    /**
+     * Return the encoder to the pool.
+     */
+    public void release() {
+        if (body.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            body = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        }
+        header.clear();
+        body.clear();
+        if (POOL.size() < MAX_POOLED_ENCODERS) {
+            POOL.offer(this);
+        }
+    }
+
+    /**
+     * Encode a publish message of a batch of events.
+     *
+     * @param events    Events of the batch
+     * @param sessionId Session ID of the publisher
+     */
+    public void encodePublishMessage(List<Event> events, String sessionId) {
+        body.clear();
+        for (Event event : events) {
+            encodeEvent(event);
+        }
+        body.flip();
+
+        header.clear();
+        header = ensureCapacity(header, 13 + MAX_BYTES_PER_CHAR * sessionId.length());
+        header.put(PUBLISH_MESSAGE);
+        int messageSizePosition = header.position();
+        header.putInt(0);
+        int sessionIdSize = putString(header, sessionId);
+        header.putInt(events.size());
+        // Session ID with its length, event count and the events
+        header.putInt(messageSizePosition, sessionIdSize + 4 + body.limit());
+        header.flip();
+
+        buffers[0] = header;
+        buffers[1] = body;
+    }
+
+    /**
+     * Write the encoded message to a socket. A gathering write is used if the socket has a channel in blocking mode,
+     * else the message is written to the output stream of the socket.
+     *
+     * @param socket Socket connected to the receiver
+     * @throws IOException if the message could not be written
+     */
+    public void writeTo(Socket socket) throws IOException {
+        SocketChannel channel = socket.getChannel();
+        if (channel != null && channel.isBlocking()) {
+            writeTo(channel);
+        } else {
+            OutputStream outputStream = socket.getOutputStream();
+            writeTo(outputStream);
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Write the encoded message to a channel in blocking mode.
+     *
+     * @param channel Channel connected to the receiver
+     * @throws IOException if the message could not be written
+     */
+    public void writeTo(SocketChannel channel) throws IOException {
+        while (header.hasRemaining() || body.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    /**
+     * Write as much of the encoded message as a channel in non-blocking mode accepts.
+     *
+     * @param channel Channel connected to the receiver
+     * @return true if the whole message is written
+     * @throws IOException if the message could not be written
+     */
+    public boolean tryWriteTo(SocketChannel channel) throws IOException {
+        channel.write(buffers);
+        return !header.hasRemaining() && !body.hasRemaining();
+    }
+
+    /**
+     * Write the encoded message to an output stream.
+     *
+     * @param outputStream Output stream
+     * @throws IOException if the message could not be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (transferBuffer == null) {
+            transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+        }
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                int length = Math.min(buffer.remaining(), transferBuffer.length);
+                buffer.get(transferBuffer, 0, length);
+                outputStream.write(transferBuffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * @return Header and the body of the encoded message, positioned at the bytes which are not yet written
+     */
+    ByteBuffer[] getBuffers() {
+        return buffers;
+    }
+
+    private void encodeEvent(Event event) {
+        body = ensureCapacity(body, 16);
+        int eventSizePosition = body.position();
+        body.putInt(0);
+        body.putLong(event.getTimeStamp());
+        putBodyData(event.getStreamId());
+        putBodyData(event.getMetaData());
+        putBodyData(event.getCorrelationData());
+        putBodyData(event.getPayloadData());
+        Map<String, String> arbitraryDataMap = event.getArbitraryDataMap();
+        if (arbitraryDataMap != null) {
+            for (Map.Entry<String, String> arbitraryData : arbitraryDataMap.entrySet()) {
+                putBodyData(arbitraryData.getKey());
+                putBodyData(arbitraryData.getValue());
+            }
+        }
+        body.putInt(eventSizePosition, body.position() - eventSizePosition - 4);
+    }
+
+    private void putBodyData(Object[] data) {
+        if (data != null) {
+            for (Object attribute : data) {
+                putBodyData(attribute);
+            }
+        }
+    }
+
+    private void putBodyData(Object data) {
+        if (data instanceof String) {
+            body = ensureCapacity(body, 4 + MAX_BYTES_PER_CHAR * ((String) data).length());
+            putString(body, (String) data);
+            return;
+        }
+        body = ensureCapacity(body, 8);
+        if (data instanceof Integer) {
+            body.putInt((Integer) data);
+        } else if (data instanceof Long) {
+            body.putLong((Long) data);
+        } else if (data instanceof Float) {
+            body.putFloat((Float) data);
+        } else if (data instanceof Double) {
+            body.putDouble((Double) data);
+        } else if (data instanceof Boolean) {
+            body.put((byte) (((Boolean) data) ? 1 : 0));
+        } else {
+            body.putInt(0);
+        }
+    }
+
+    /**
+     * Write a string as its UTF-8 byte length followed by the UTF-8 bytes. The buffer should have enough space for
+     * the worst case encoding of the string.
+     *
+     * @return Number of bytes written, including the length
+     */
+    static int putString(ByteBuffer buffer, String value) {
+        int lengthPosition = buffer.position();
+        buffer.position(lengthPosition + 4);
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xf0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced as done by String#getBytes
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xe0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        int byteLength = buffer.position() - lengthPosition - 4;
+        buffer.putInt(lengthPosition, byteLength);
+        return byteLength + 4;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int required) {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+        ByteBuffer expanded = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        expanded.put(buffer);
+        return expanded;
+    }
+}
@@ -27,12 +27,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil.assignData;
-import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil.getSize;
 import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUtil.loadData;
 
 
@@ -41,13 +37,15 @@ import static org.wso2.carbon.databridge.commons.binary.BinaryMessageConverterUt
  */
 public class BinaryEventSender {
     public static void sendBinaryLoginMessage(Socket socket, String userName, String password) throws IOException {
-        ByteBuffer buf = ByteBuffer.allocate(13 + userName.length() + password.length());
+        byte[] userNameBytes = userName.getBytes(BinaryMessageConstants.DEFAULT_CHARSET);
+        byte[] passwordBytes = password.getBytes(BinaryMessageConstants.DEFAULT_CHARSET);
+        ByteBuffer buf = ByteBuffer.allocate(13 + userNameBytes.length + passwordBytes.length);
         buf.put((byte) 0);
-        buf.putInt(8 + userName.length() + password.length());
-        buf.putInt(userName.length());
-        buf.putInt(password.length());
-        buf.put(userName.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-        buf.put(password.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
+        buf.putInt(8 + userNameBytes.length + passwordBytes.length);
+        buf.putInt(userNameBytes.length);
+        buf.putInt(passwordBytes.length);
+        buf.put(userNameBytes);
+        buf.put(passwordBytes);
 
         OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
         outputStream.write(buf.array());
@@ -55,11 +53,12 @@ public class BinaryEventSender {
     }
 
     public static void sendBinaryLogoutMessage(Socket socket, String sessionId) throws IOException {
-        ByteBuffer buf = ByteBuffer.allocate(9 + sessionId.length());
+        byte[] sessionIdBytes = sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET);
+        ByteBuffer buf = ByteBuffer.allocate(9 + sessionIdBytes.length);
         buf.put((byte) 1);
-        buf.putInt(4 + sessionId.length());
-        buf.putInt(sessionId.length());
-        buf.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
+        buf.putInt(4 + sessionIdBytes.length);
+        buf.putInt(sessionIdBytes.length);
+        buf.put(sessionIdBytes);
 
         OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
         outputStream.write(buf.array());
@@ -68,84 +67,13 @@ public class BinaryEventSender {
 
     public static void sendBinaryPublishMessage(Socket socket, List<Event> events, String sessionId)
             throws IOException {
-        int messageSize = 8 + sessionId.length();
-        List<byte[]> bytes = new ArrayList<>();
-
-        for (Event event : events) {
-
-            int eventSize = getEventSize(event);
-            messageSize += eventSize + 4;
-            ByteBuffer eventDataBuffer = ByteBuffer.allocate(4 + eventSize);
-            eventDataBuffer.putInt(eventSize);
-            eventDataBuffer.putLong(event.getTimeStamp());
-            eventDataBuffer.putInt(event.getStreamId().length());
-            eventDataBuffer.put(event.getStreamId().getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-
-            if (event.getMetaData() != null && event.getMetaData().length != 0) {
-                for (Object aMetaData : event.getMetaData()) {
-                    assignData(aMetaData, eventDataBuffer);
-                }
-            }
-            if (event.getCorrelationData() != null && event.getCorrelationData().length != 0) {
-                for (Object aCorrelationData : event.getCorrelationData()) {
-                    assignData(aCorrelationData, eventDataBuffer);
-                }
-            }
-            if (event.getPayloadData() != null && event.getPayloadData().length != 0) {
-                for (Object aPayloadData : event.getPayloadData()) {
-                    assignData(aPayloadData, eventDataBuffer);
-                }
-            }
-            if (event.getArbitraryDataMap() != null && event.getArbitraryDataMap().size() != 0) {
-                for (Map.Entry<String, String> aArbitraryData : event.getArbitraryDataMap().entrySet()) {
-                    assignData(aArbitraryData.getKey(), eventDataBuffer);
-                    assignData(aArbitraryData.getValue(), eventDataBuffer);
-                }
-            }
-            bytes.add(eventDataBuffer.array());
-        }
-
-        ByteBuffer buf = ByteBuffer.allocate(sessionId.length() + 13);
-        buf.put((byte) 2);  //1
-        buf.putInt(messageSize); //4
-        buf.putInt(sessionId.length()); //4
-        buf.put(sessionId.getBytes(BinaryMessageConstants.DEFAULT_CHARSET));
-        buf.putInt(events.size()); //4
-
-        OutputStream outputstream = new BufferedOutputStream(socket.getOutputStream());
-        outputstream.write(buf.array());
-        for (byte[] byteArray : bytes) {
-            outputstream.write(byteArray);
-        }
-        outputstream.flush();
-    }
-
-    private static int getEventSize(Event event) {
-        int eventSize = 4 + event.getStreamId().length() + 8;
-        Object[] data = event.getMetaData();
-        if (data != null) {
-            for (Object aData : data) {
-                eventSize += getSize(aData);
-            }
-        }
-        data = event.getCorrelationData();
-        if (data != null) {
-            for (Object aData : data) {
-                eventSize += getSize(aData);
-            }
-        }
-        data = event.getPayloadData();
-        if (data != null) {
-            for (Object aData : data) {
-                eventSize += getSize(aData);
-            }
-        }
-        if (event.getArbitraryDataMap() != null && event.getArbitraryDataMap().size() != 0) {
-            for (Map.Entry<String, String> aArbitraryData : event.getArbitraryDataMap().entrySet()) {
-                eventSize += 8 + aArbitraryData.getKey().length() + aArbitraryData.getValue().length();
-            }
+        BinaryEventEncoder encoder = BinaryEventEncoder.acquire();
+        try {
+            encoder.encodePublishMessage(events, sessionId);
+            encoder.writeTo(socket);
+        } finally {
+            encoder.release();
         }
-        return eventSize;
     }
 
     public static String processResponse(Socket socket) throws Exception {
@@ -0,0 +1,292 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent non-blocking connection to a data receiver. Batches are written one after the other without waiting
+ * for the response of the previous batch, and the responses, which the receiver sends in the order of the batches,
+ * are matched against the batches awaiting acknowledgement. Apart from {@link #send(Batch)}, the connection is only
+ * accessed by the event loop thread.
+ */
+final class NioConnection {
+    private static final byte OK_RESPONSE = 0;
+    private static final byte ERROR_RESPONSE = 1;
+    private static final int ERROR_RESPONSE_HEADER_SIZE = 9;
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    /**
+     * Listener notified in the event loop thread once the result of a batch is known.
+     */
+    interface Listener {
+        void onPublished(Batch batch);
+
+        void onRejected(Batch batch, String errorClassName, String errorMessage);
+
+        void onFailed(Batch batch, Exception cause);
+    }
+
+    /**
+     * Batch of events with its encoded publish message.
+     */
+    static final class Batch {
+        private final List<Event> events;
+        private final long dispatchTime = System.nanoTime();
+        private BinaryEventEncoder encoder;
+
+        Batch(List<Event> events, BinaryEventEncoder encoder) {
+            this.events = events;
+            this.encoder = encoder;
+        }
+
+        List<Event> getEvents() {
+            return events;
+        }
+
+        private void releaseEncoder() {
+            if (encoder != null) {
+                encoder.release();
+                encoder = null;
+            }
+        }
+    }
+
+    private final NioEventLoop eventLoop;
+    private final String hostName;
+    private final int port;
+    private final long timeoutNanos;
+    private final Listener listener;
+    private final AtomicInteger pendingBatchCount = new AtomicInteger();
+    private final ArrayDeque<Batch> writeQueue = new ArrayDeque<>();
+    private final ArrayDeque<Batch> ackQueue = new ArrayDeque<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private SocketChannel channel;
+    private SelectionKey key;
+
+    NioConnection(NioEventLoop eventLoop, String hostName, int port, long timeoutMS, Listener listener) {
+        this.eventLoop = eventLoop;
+        this.hostName = hostName;
+        this.port = port;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMS);
+        this.listener = listener;
+        eventLoop.register(this);
+    }
+
+    /**
+     * Queue a batch to be written to the receiver. The connection is opened if it is not open yet.
+     *
+     * @param batch Batch
+     */
+    void send(Batch batch) {
+        pendingBatchCount.incrementAndGet();
+        eventLoop.execute(() -> enqueue(batch));
+    }
+
+    /**
+     * @return Number of batches which are either queued or awaiting acknowledgement
+     */
+    int getPendingBatchCount() {
+        return pendingBatchCount.get();
+    }
+
+    /**
+     * Close the connection. Batches which are not acknowledged by then are failed.
+     */
+    void close() {
+        eventLoop.deregister(this);
+    }
+
+    void handle(SelectionKey selectionKey) {
+        try {
+            if (selectionKey.isConnectable()) {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                flush();
+            }
+            if (selectionKey.isValid() && selectionKey.isReadable()) {
+                read();
+            }
+            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    void checkTimeout(long now) {
+        Batch oldestBatch = ackQueue.isEmpty() ? writeQueue.peek() : ackQueue.peek();
+        if (oldestBatch != null && now - oldestBatch.dispatchTime > timeoutNanos) {
+            fail(new SocketTimeoutException("Receiver " + hostName + ":" + port + " did not acknowledge a batch within "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms"));
+        }
+    }
+
+    void closeNow() {
+        fail(new IOException("Connection to " + hostName + ":" + port + " is closed"));
+    }
+
+    private void enqueue(Batch batch) {
+        writeQueue.add(batch);
+        try {
+            if (channel == null) {
+                open();
+            } else if (channel.isConnected()) {
+                flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void open() throws IOException {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        if (channel.connect(new InetSocketAddress(hostName, port))) {
+            key = channel.register(eventLoop.getSelector(), SelectionKey.OP_READ, this);
+            flush();
+        } else {
+            key = channel.register(eventLoop.getSelector(), SelectionKey.OP_CONNECT, this);
+        }
+    }
+
+    private void flush() throws IOException {
+        while (!writeQueue.isEmpty()) {
+            Batch batch = writeQueue.peek();
+            if (!batch.encoder.tryWriteTo(channel)) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            writeQueue.poll();
+            batch.releaseEncoder();
+            ackQueue.add(batch);
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("Connection closed by the receiver " + hostName + ":" + port);
+        }
+        readBuffer.flip();
+        while (readResponse()) {
+            // Handle all the complete responses in the buffer
+        }
+        readBuffer.compact();
+        if (!readBuffer.hasRemaining()) {
+            // A single error response is larger than the buffer
+            ByteBuffer expanded = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            expanded.put(readBuffer);
+            readBuffer = expanded;
+        }
+    }
+
+    private boolean readResponse() throws IOException {
+        int start = readBuffer.position();
+        int available = readBuffer.remaining();
+        if (available < 1) {
+            return false;
+        }
+        byte responseType = readBuffer.get(start);
+        if (responseType == OK_RESPONSE) {
+            readBuffer.position(start + 1);
+            complete(null, null);
+            return true;
+        } else if (responseType == ERROR_RESPONSE) {
+            if (available < ERROR_RESPONSE_HEADER_SIZE) {
+                return false;
+            }
+            int errorClassNameLength = readBuffer.getInt(start + 1);
+            int errorMessageLength = readBuffer.getInt(start + 5);
+            if (available < ERROR_RESPONSE_HEADER_SIZE + errorClassNameLength + errorMessageLength) {
+                return false;
+            }
+            int errorClassNameStart = start + ERROR_RESPONSE_HEADER_SIZE;
+            String errorClassName = new String(readBuffer.array(), readBuffer.arrayOffset() + errorClassNameStart,
+                    errorClassNameLength, StandardCharsets.UTF_8);
+            String errorMessage = new String(readBuffer.array(),
+                    readBuffer.arrayOffset() + errorClassNameStart + errorClassNameLength, errorMessageLength,
+                    StandardCharsets.UTF_8);
+            readBuffer.position(errorClassNameStart + errorClassNameLength + errorMessageLength);
+            complete(errorClassName, errorMessage);
+            return true;
+        }
+        throw new IOException("Unexpected response type " + responseType + " from " + hostName + ":" + port);
+    }
+
+    private void complete(String errorClassName, String errorMessage) throws IOException {
+        Batch batch = ackQueue.poll();
+        if (batch == null) {
+            throw new IOException("Unexpected response from " + hostName + ":" + port);
+        }
+        pendingBatchCount.decrementAndGet();
+        if (errorClassName == null) {
+            listener.onPublished(batch);
+        } else {
+            listener.onRejected(batch, errorClassName, errorMessage);
+        }
+    }
+
+    /**
+     * Close the channel and fail all the batches which are not acknowledged. The connection is opened again when the
+     * next batch is sent.
+     */
+    private void fail(Exception cause) {
+        if (channel != null) {
+            if (key != null) {
+                key.cancel();
+                key = null;
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+        readBuffer.clear();
+        failAll(ackQueue, cause);
+        failAll(writeQueue, cause);
+    }
+
+    private void failAll(ArrayDeque<Batch> batches, Exception cause) {
+        Batch batch;
+        while ((batch = batches.poll()) != null) {
+            batch.releaseEncoder();
+            pendingBatchCount.decrementAndGet();
+            listener.onFailed(batch, cause);
+        }
+    }
+}
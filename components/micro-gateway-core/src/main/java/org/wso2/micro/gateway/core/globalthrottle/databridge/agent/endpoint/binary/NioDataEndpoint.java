@@ -0,0 +1,193 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.carbon.databridge.commons.exception.SessionTimeoutException;
+import org.wso2.carbon.databridge.commons.exception.TransportException;
+import org.wso2.carbon.databridge.commons.exception.UndefinedEventTypeException;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.DataEndpointConfiguration;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointAuthenticationException;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointConfigurationException;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.exception.DataEndpointException;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.util.DataPublisherUtil;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary transport implementation for the Data Endpoint, which publishes the events over a few persistent
+ * non-blocking connections served by a shared {@link NioEventLoop}. Batches are pipelined on the connections and
+ * acknowledged asynchronously, hence no publisher thread waits for the receiver. Authentication is done the same way
+ * as the {@link BinaryDataEndpoint}.
+ * <p>
+ * Once every pipeline slot is taken, a dispatch waits for a free slot for at most the socket timeout, after which the
+ * batch is failed over as the receiver is considered unresponsive. Batches rejected due to a session timeout are sent
+ * through the blocking path, which logs in again, by a separate thread of the endpoint so that neither the publishing
+ * worker nor the callback thread of the event loop waits for the login.
+ */
+public class NioDataEndpoint extends BinaryDataEndpoint implements NioConnection.Listener {
+    private static final Logger log = LogManager.getLogger(NioDataEndpoint.class);
+
+    private final NioEventLoop eventLoop;
+    private final int connectionCount;
+    private final int maxPipelinedBatches;
+    private final int socketTimeoutMS;
+    private NioConnection[] connections;
+    private Semaphore pipelinePermits;
+    private ExecutorService sessionRecoveryExecutor;
+
+    public NioDataEndpoint(NioEventLoop eventLoop, int connectionCount, int maxPipelinedBatches, int socketTimeoutMS) {
+        this.eventLoop = eventLoop;
+        this.connectionCount = Math.max(1, connectionCount);
+        this.maxPipelinedBatches = Math.max(1, maxPipelinedBatches);
+        this.socketTimeoutMS = socketTimeoutMS;
+    }
+
+    @Override
+    public void initialize(DataEndpointConfiguration dataEndpointConfiguration)
+            throws DataEndpointException, DataEndpointAuthenticationException, TransportException {
+        String[] urlElements;
+        try {
+            urlElements = DataPublisherUtil.getProtocolHostPort(dataEndpointConfiguration.getReceiverURL());
+        } catch (DataEndpointConfigurationException e) {
+            throw new DataEndpointException(e.getErrorMessage(), e);
+        }
+        if (!urlElements[0].equalsIgnoreCase(DataEndpointConfiguration.Protocol.TCP.toString())) {
+            throw new DataEndpointException("Unsupported protocol: " + urlElements[0] + ". Currently only " +
+                    DataEndpointConfiguration.Protocol.TCP.toString() + " supported.");
+        }
+        openConnections(urlElements[1], Integer.parseInt(urlElements[2]));
+        this.sessionRecoveryExecutor = Executors.newSingleThreadExecutor(new DataBridgeThreadFactory(
+                "NioSessionRecovery-" + dataEndpointConfiguration.getReceiverURL()));
+        super.initialize(dataEndpointConfiguration);
+    }
+
+    void openConnections(String host, int port) {
+        this.connections = new NioConnection[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            connections[i] = new NioConnection(eventLoop, host, port, socketTimeoutMS, this);
+        }
+        this.pipelinePermits = new Semaphore(connectionCount * maxPipelinedBatches);
+    }
+
+    @Override
+    protected void dispatch(List<Event> events) {
+        if (pipelinePermits.availablePermits() <= 1) {
+            setState(State.BUSY);
+        }
+        boolean acquired;
+        try {
+            acquired = pipelinePermits.tryAcquire(socketTimeoutMS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.error("No batch is acknowledged by the endpoint within " + socketTimeoutMS + " ms. Failing over "
+                    + events.size() + " events.");
+            eventLoop.executeCallback(() -> handleFailedEvents(events));
+            return;
+        }
+        BinaryEventEncoder encoder = BinaryEventEncoder.acquire();
+        try {
+            encoder.encodePublishMessage(events, getDataEndpointConfiguration().getSessionId());
+        } catch (RuntimeException e) {
+            encoder.release();
+            completeBatch();
+            throw e;
+        }
+        getLeastLoadedConnection().send(new NioConnection.Batch(events, encoder));
+    }
+
+    @Override
+    public void onPublished(NioConnection.Batch batch) {
+        completeBatch();
+    }
+
+    @Override
+    public void onRejected(NioConnection.Batch batch, String errorClassName, String errorMessage) {
+        if (SessionTimeoutException.class.getName().equals(errorClassName)) {
+            // The blocking path logs in again and resends the batch
+            completeBatch();
+            sessionRecoveryExecutor.execute(() -> dispatchBlocking(batch.getEvents()));
+        } else if (UndefinedEventTypeException.class.getName().equals(errorClassName)) {
+            log.error("Unable to process this event. " + errorMessage);
+            completeBatch();
+        } else {
+            onFailed(batch, new DataEndpointException(errorClassName + ": " + errorMessage));
+        }
+    }
+
+    @Override
+    public void onFailed(NioConnection.Batch batch, Exception cause) {
+        log.error("Unable to send events to the endpoint. ", cause);
+        // The failed events are resent through the other endpoints, which deactivates this endpoint
+        completeBatch();
+        eventLoop.executeCallback(() -> handleFailedEvents(batch.getEvents()));
+    }
+
+    @Override
+    public void shutdown() {
+        int totalPermits = connectionCount * maxPipelinedBatches;
+        long deadline = System.currentTimeMillis() + socketTimeoutMS;
+        while (pipelinePermits.availablePermits() < totalPermits && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        for (NioConnection connection : connections) {
+            connection.close();
+        }
+        sessionRecoveryExecutor.shutdown();
+        try {
+            sessionRecoveryExecutor.awaitTermination(socketTimeoutMS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        super.shutdown();
+    }
+
+    private void completeBatch() {
+        pipelinePermits.release();
+        if (getState() == State.BUSY) {
+            setState(State.ACTIVE);
+        }
+    }
+
+    private void dispatchBlocking(List<Event> events) {
+        super.dispatch(events);
+    }
+
+    private NioConnection getLeastLoadedConnection() {
+        NioConnection selected = connections[0];
+        for (int i = 1; i < connections.length; i++) {
+            if (connections[i].getPendingBatchCount() < selected.getPendingBatchCount()) {
+                selected = connections[i];
+            }
+        }
+        return selected;
+    }
+}
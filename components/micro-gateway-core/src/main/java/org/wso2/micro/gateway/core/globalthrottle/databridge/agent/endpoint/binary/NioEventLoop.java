@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.wso2.carbon.databridge.commons.utils.DataBridgeThreadFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded event loop which serves the non-blocking connections of all the NIO data endpoints of an agent.
+ * The connections are only accessed from the event loop thread. Tasks which may block, such as resending failed
+ * events, are run by a separate callback thread so that they never stall the event loop.
+ */
+public final class NioEventLoop implements Runnable {
+    private static final Logger log = LogManager.getLogger(NioEventLoop.class);
+    // Upper bound of the time between two checks of the acknowledgement timeouts
+    private static final long SELECT_TIMEOUT_MS = 100;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ExecutorService callbackExecutor;
+    private final Thread thread;
+    // Accessed only by the event loop thread
+    private final List<NioConnection> connections = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public NioEventLoop() throws IOException {
+        this.selector = Selector.open();
+        this.callbackExecutor = Executors.newSingleThreadExecutor(new DataBridgeThreadFactory("NioCallback"));
+        this.thread = new DataBridgeThreadFactory("NioEventLoop").newThread(this);
+        this.thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+                runTasks();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    ((NioConnection) key.attachment()).handle(key);
+                }
+                long now = System.nanoTime();
+                for (NioConnection connection : connections) {
+                    connection.checkTimeout(now);
+                }
+            } catch (IOException e) {
+                log.error("Error while selecting the ready connections.", e);
+            } catch (Throwable t) {
+                log.error("Unexpected error in the event loop of the data publisher.", t);
+            }
+        }
+        runTasks();
+        for (NioConnection connection : connections) {
+            connection.closeNow();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Error while closing the selector of the data publisher.", e);
+        }
+    }
+
+    /**
+     * Run a task in the event loop thread.
+     *
+     * @param task Task
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Run a task which may block in the callback thread.
+     *
+     * @param task Task
+     */
+    void executeCallback(Runnable task) {
+        callbackExecutor.execute(task);
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    void register(NioConnection connection) {
+        execute(() -> connections.add(connection));
+    }
+
+    void deregister(NioConnection connection) {
+        execute(() -> {
+            connections.remove(connection);
+            connection.closeNow();
+        });
+    }
+
+    /**
+     * Stop the event loop and close all the connections.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+        callbackExecutor.shutdown();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            callbackExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Unexpected error while running a task of the data publisher event loop.", t);
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ public class DataAgentConstants {
     public static final String TRUST_STORE_PASSWORD = "trustStorePassword";
     public static final String QUEUE_SIZE = "queueSize";
     public static final String BATCH_SIZE = "batchSize";
+    public static final String MAX_BATCH_DELAY_MS = "maxBatchDelayMS";
     public static final String CORE_POOL_SIZE = "corePoolSize";
     public static final String SOCKET_TIMEOUT_MS = "socketTimeoutMS";
     public static final String MAX_POOL_SIZE = "maxPoolSize";
@@ -45,4 +46,12 @@ public class DataAgentConstants {
     public static final String SECURE_MIN_IDLE_TIME_IN_POOL = "secureMinIdleTimeInPool";
     public static final String SSL_ENABLED_PROTOCOLS = "sslEnabledProtocols";
     public static final String CIPHERS = "ciphers";
+    public static final String TRANSPORT = "transport";
+    public static final String CONNECTIONS_PER_RECEIVER = "connectionsPerReceiver";
+    public static final String MAX_PIPELINED_BATCHES = "maxPipelinedBatches";
+    public static final String SPILL_DIRECTORY = "spillDirectory";
+    public static final String SPILL_MAX_DISK_SIZE_MB = "spillMaxDiskSizeMB";
+    public static final String SPILL_REPLAY_RATE = "spillReplayRate";
+
+    public static final String TRANSPORT_NIO = "nio";
 }
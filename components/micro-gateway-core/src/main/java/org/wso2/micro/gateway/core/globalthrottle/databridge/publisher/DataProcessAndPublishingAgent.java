@@ -33,7 +33,7 @@ import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.util.Throttle
 public class DataProcessAndPublishingAgent implements Runnable {
     private static final Logger log = LogManager.getLogger(DataProcessAndPublishingAgent.class);
 
-    private static String streamID = "org.wso2.throttle.request.stream:1.0.0";
+    public static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
     private DataPublisher dataPublisher;
 
     String messageId;
@@ -113,7 +113,7 @@ public class DataProcessAndPublishingAgent implements Runnable {
                 this.resourceLevelThrottleKey, this.resourceLevelTier,
                 this.authorizedUser, this.apiContext, this.apiVersion,
                 this.appTenant, this.apiTenant, this.appId, this.apiName, properties};
-        org.wso2.carbon.databridge.commons.Event event = new org.wso2.carbon.databridge.commons.Event(streamID,
+        org.wso2.carbon.databridge.commons.Event event = new org.wso2.carbon.databridge.commons.Event(STREAM_ID,
                 System.currentTimeMillis(), null, null, objects);
         dataPublisher.tryPublish(event);
     }
@@ -35,4 +35,8 @@ public class DataPublisherConstants {
     public static final String CORE_POOL_SIZE = "corePoolSize";
     public static final String MAX_POOL_SIZE = "maxPoolSize";
     public static final String KEEP_ALIVE_TIME = "keepAliveTime";
+    public static final String PUBLISHING_MODE = "publishingMode";
+    public static final String PUBLISHING_MODE_DIRECT = "direct";
+    public static final String AGGREGATION_INTERVAL = "aggregationInterval";
+    public static final String AGGREGATION_MAX_KEYS = "aggregationMaxKeys";
 }
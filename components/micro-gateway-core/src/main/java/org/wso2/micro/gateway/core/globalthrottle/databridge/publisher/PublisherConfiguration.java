@@ -35,6 +35,10 @@ public class PublisherConfiguration {
     private int publisherThreadPoolMaximumSize;
     private int publisherThreadPoolKeepAliveTime;
 
+    private boolean directPublishing;
+    private int aggregationInterval;
+    private int aggregationMaxKeys;
+
     private String receiverUrlGroup;
     private String authUrlGroup;
     private String userName;
@@ -63,6 +67,18 @@ public class PublisherConfiguration {
         return publisherThreadPoolKeepAliveTime;
     }
 
+    public boolean isDirectPublishing() {
+        return directPublishing;
+    }
+
+    public int getAggregationInterval() {
+        return aggregationInterval;
+    }
+
+    public int getAggregationMaxKeys() {
+        return aggregationMaxKeys;
+    }
+
     public String getReceiverUrlGroup() {
         return receiverUrlGroup;
     }
@@ -92,6 +108,8 @@ public class PublisherConfiguration {
         this.authUrlGroup = String.valueOf(publisherConfiguration.get(DataPublisherConstants.AUTH_URL_GROUP));
         this.userName = String.valueOf(publisherConfiguration.get(DataPublisherConstants.USERNAME));
         this.password = String.valueOf(publisherConfiguration.get(DataPublisherConstants.PASSWORD)).toCharArray();
+        this.directPublishing = DataPublisherConstants.PUBLISHING_MODE_DIRECT.equalsIgnoreCase(
+                String.valueOf(publisherConfiguration.get(DataPublisherConstants.PUBLISHING_MODE)));
         try {
             this.maxIdleDataPublishingAgents =
                     Math.toIntExact((long) publisherConfiguration.get(DataPublisherConstants.MAX_IDLE));
@@ -103,6 +121,10 @@ public class PublisherConfiguration {
                     (Math.toIntExact((long) publisherConfiguration.get(DataPublisherConstants.MAX_POOL_SIZE)));
             this.publisherThreadPoolKeepAliveTime = Math.toIntExact((long) publisherConfiguration
                     .get(DataPublisherConstants.KEEP_ALIVE_TIME));
+            this.aggregationInterval = Math.toIntExact((long) publisherConfiguration
+                    .get(DataPublisherConstants.AGGREGATION_INTERVAL));
+            this.aggregationMaxKeys = Math.toIntExact((long) publisherConfiguration
+                    .get(DataPublisherConstants.AGGREGATION_MAX_KEYS));
         } catch (ArithmeticException e) {
             log.error("Error while processing the publisher configuration.", e);
         }
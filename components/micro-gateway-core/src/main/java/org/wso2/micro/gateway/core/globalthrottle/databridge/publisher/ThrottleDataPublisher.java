@@ -53,22 +53,28 @@ public class ThrottleDataPublisher {
 
     Executor executor;
 
+    private final boolean directPublishing;
+
     /**
      * This method will initialize throttle data publisher. Inside this we will start executor and initialize data
-     * publisher which we used to publish throttle data.
+     * publisher which we used to publish throttle data. In the direct publishing mode the events are written
+     * straight into the event queue of the data publisher, hence neither the executor nor the agent pool is used.
      */
     public ThrottleDataPublisher() {
-        dataPublisherPool = ThrottleDataPublisherPool.getInstance();
         PublisherConfiguration publisherConfiguration = PublisherConfiguration.getInstance();
+        directPublishing = publisherConfiguration.isDirectPublishing();
 
         try {
-            executor = new DataPublisherThreadPoolExecutor(
-                    publisherConfiguration.getPublisherThreadPoolCoreSize(),
-                    publisherConfiguration.getPublisherThreadPoolMaximumSize(),
-                    publisherConfiguration.getPublisherThreadPoolKeepAliveTime(),
-                    TimeUnit.SECONDS,
-                    new LinkedBlockingDeque<Runnable>() {
-                    });
+            if (!directPublishing) {
+                dataPublisherPool = ThrottleDataPublisherPool.getInstance();
+                executor = new DataPublisherThreadPoolExecutor(
+                        publisherConfiguration.getPublisherThreadPoolCoreSize(),
+                        publisherConfiguration.getPublisherThreadPoolMaximumSize(),
+                        publisherConfiguration.getPublisherThreadPoolKeepAliveTime(),
+                        TimeUnit.SECONDS,
+                        new LinkedBlockingDeque<Runnable>() {
+                        });
+            }
             dataPublisher = new DataPublisher(publisherConfiguration.getReceiverUrlGroup(),
                     publisherConfiguration.getAuthUrlGroup(), publisherConfiguration.getUserName(),
                     publisherConfiguration.getPassword());
@@ -94,6 +100,10 @@ public class ThrottleDataPublisher {
      * This method used to pass message context and let it run within separate thread.
      */
     public void publishNonThrottledEvent(BMap<String, String> throttleEvent) {
+        if (directPublishing) {
+            publishDirectly(throttleEvent);
+            return;
+        }
         try {
             if (dataPublisherPool != null) {
                 DataProcessAndPublishingAgent agent = dataPublisherPool.get();
@@ -125,6 +135,23 @@ public class ThrottleDataPublisher {
         }
     }
 
+    /**
+     * Write the throttle event straight into the event queue of the data publisher within the request thread.
+     */
+    private void publishDirectly(BMap<String, String> throttleEvent) {
+        DataPublisher publisher = dataPublisher;
+        if (publisher == null) {
+            LOG.debug("Throttle data publisher is not initialized.");
+            return;
+        }
+        try {
+            publisher.tryPublish(DataProcessAndPublishingAgent.STREAM_ID, System.currentTimeMillis(),
+                    ThrottleEventPayloadWriter.INSTANCE, throttleEvent);
+        } catch (Exception e) {
+            LOG.error("Error while publishing throttling events to global policy server", e);
+        }
+    }
+
     /**
      * This class will act as thread pool executor and after executing each thread it will return runnable
      * object back to pool. This implementation specifically used to minimize number of objectes created during
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.gateway.core.globalthrottle.databridge.publisher;
+
+import org.ballerinalang.jvm.values.api.BMap;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.EventPayloadWriter;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.util.ThrottleEventConstants;
+
+/**
+ * Writes the attributes of a throttle event straight into the event queue of the data publisher, in the order of the
+ * throttle request stream definition.
+ */
+public final class ThrottleEventPayloadWriter implements EventPayloadWriter<BMap<String, String>> {
+
+    public static final ThrottleEventPayloadWriter INSTANCE = new ThrottleEventPayloadWriter();
+
+    /**
+     * Index of the message ID within the payload.
+     */
+    public static final int MESSAGE_ID_INDEX = 0;
+
+    /**
+     * Index of the additional properties within the payload.
+     */
+    public static final int PROPERTIES_INDEX = 16;
+
+    private static final String[] PAYLOAD_KEYS = new String[]{ThrottleEventConstants.MESSAGE_ID,
+            ThrottleEventConstants.APP_KEY, ThrottleEventConstants.APP_TIER,
+            ThrottleEventConstants.API_KEY, ThrottleEventConstants.API_TIER,
+            ThrottleEventConstants.SUBSCRIPTION_KEY, ThrottleEventConstants.SUBSCRIPTION_TIER,
+            ThrottleEventConstants.RESOURCE_KEY, ThrottleEventConstants.RESOURCE_TIER,
+            ThrottleEventConstants.USER_ID, ThrottleEventConstants.API_CONTEXT, ThrottleEventConstants.API_VERSION,
+            ThrottleEventConstants.APP_TENANT, ThrottleEventConstants.API_TENANT, ThrottleEventConstants.APP_ID,
+            ThrottleEventConstants.API_NAME, ThrottleEventConstants.PROPERTIES};
+
+    private ThrottleEventPayloadWriter() {
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return PAYLOAD_KEYS.length;
+    }
+
+    @Override
+    public void writePayload(BMap<String, String> throttleEvent, Object[] payloadData) {
+        for (int i = 0; i < PAYLOAD_KEYS.length; i++) {
+            payloadData[i] = throttleEvent.get(PAYLOAD_KEYS[i]);
+        }
+    }
+}
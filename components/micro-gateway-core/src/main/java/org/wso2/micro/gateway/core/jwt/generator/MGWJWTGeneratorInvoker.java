@@ -18,16 +18,19 @@ package org.wso2.micro.gateway.core.jwt.generator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.ballerinalang.jvm.scheduling.Scheduler;
 import org.ballerinalang.jvm.types.BPackage;
 import org.ballerinalang.jvm.values.ArrayValue;
 import org.ballerinalang.jvm.values.MapValue;
 import org.ballerinalang.jvm.values.api.BArray;
 import org.ballerinalang.jvm.values.api.BMap;
 import org.ballerinalang.jvm.values.api.BValueCreator;
+import org.ballerinalang.jvm.values.connector.NonBlockingCallback;
 import org.wso2.micro.gateway.core.Constants;
 import org.wso2.micro.gateway.jwt.generator.AbstractMGWClaimRetriever;
 import org.wso2.micro.gateway.jwt.generator.AbstractMGWJWTGenerator;
 import org.wso2.micro.gateway.jwt.generator.ClaimDTO;
+import org.wso2.micro.gateway.jwt.generator.JWTSigners;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -35,6 +38,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 
 /**
@@ -58,6 +62,11 @@ public class MGWJWTGeneratorInvoker {
                                                 int cacheExpiry,
                                                 String tokenIssuer,
                                                 ArrayValue tokenAudience) {
+        String unsupportedReason = JWTSigners.getUnsupportedReason(signatureAlgorithm);
+        if (unsupportedReason != null) {
+            log.error("Error while loading the jwt generator class: " + className + ". " + unsupportedReason);
+            return false;
+        }
         try {
             Class jwtGeneratorClass = MGWJWTGeneratorInvoker.class.getClassLoader().loadClass(className);
             Constructor classConstructor = jwtGeneratorClass
@@ -103,18 +112,40 @@ public class MGWJWTGeneratorInvoker {
     public static BMap<String, Object> getRetrievedClaims(BMap<String, Object> authContext) {
         try {
             List<ClaimDTO> claimList = abstractMGWClaimRetriever.retrieveClaims(convertBMapToMap(authContext));
-            if (claimList == null) {
-                return null;
-            }
-            BPackage packageId = new BPackage("wso2", "gateway", "3.2.0");
-            BMap<String, Object> bMap = BValueCreator.createRecordValue(packageId, "RetrievedUserClaimsListDTO");
-            bMap.put("count", claimList.size());
-            BArray bArray = (BArray) bMap.get("list");
-            for (Object claimDTO : claimList) {
-                bArray.append(BValueCreator.createRecordValue(packageId, "ClaimDTO",
-                        (Map<String, Object>) claimDTO));
-            }
-            return bMap;
+            return createClaimsListDTO(claimList);
+            //Not to break the flow if an exception occured during claim retrieval
+        } catch (Exception e) {
+            log.error("Error while retrieving user claims from remote url.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieve the user claims without blocking the thread of the strand. The claims are returned at once if they are
+     * available, else the strand is resumed with the claims once they are retrieved.
+     */
+    public static Object getRetrievedClaimsAsync(BMap<String, Object> authContext) {
+        CompletableFuture<List<ClaimDTO>> retrieval;
+        try {
+            retrieval = abstractMGWClaimRetriever.retrieveClaimsAsync(convertBMapToMap(authContext));
+        } catch (Exception e) {
+            log.error("Error while retrieving user claims from remote url.", e);
+            return null;
+        }
+        if (retrieval.isDone()) {
+            return createClaimsListDTO(retrieval);
+        }
+        NonBlockingCallback callback = new NonBlockingCallback(Scheduler.getStrand());
+        retrieval.whenComplete((claimList, e) -> {
+            callback.setReturnValues(createClaimsListDTO(retrieval));
+            callback.notifySuccess();
+        });
+        return null;
+    }
+
+    private static BMap<String, Object> createClaimsListDTO(CompletableFuture<List<ClaimDTO>> retrieval) {
+        try {
+            return createClaimsListDTO(retrieval.join());
             //Not to break the flow if an exception occured during claim retrieval
         } catch (Exception e) {
             log.error("Error while retrieving user claims from remote url.", e);
@@ -122,14 +153,41 @@ public class MGWJWTGeneratorInvoker {
         }
     }
 
+    private static BMap<String, Object> createClaimsListDTO(List<ClaimDTO> claimList) {
+        if (claimList == null) {
+            return null;
+        }
+        BPackage packageId = new BPackage("wso2", "gateway", "3.2.0");
+        BMap<String, Object> bMap = BValueCreator.createRecordValue(packageId, "RetrievedUserClaimsListDTO");
+        bMap.put("count", claimList.size());
+        BArray bArray = (BArray) bMap.get("list");
+        for (Object claimDTO : claimList) {
+            bArray.append(BValueCreator.createRecordValue(packageId, "ClaimDTO",
+                    (Map<String, Object>) claimDTO));
+        }
+        return bMap;
+    }
+
     /**
-     * Invoke token generation method.
+     * Invoke token generation method. The API details are passed to the generator with the request, as the generator
+     * is shared by the requests of all the APIs.
      */
     public static String invokeGenerateToken(MapValue jwtInfo, MapValue apiDetails) throws Exception {
         Map<String, Object> jwtInfoMap = convertMapValueToMap(jwtInfo);
-        Map<String, Object> apiDetailsMap = convertMapValueToMap(apiDetails);
-        abstractMGWJWTGenerator.setApiDetails(apiDetailsMap);
-        return abstractMGWJWTGenerator.generateToken(jwtInfoMap);
+        return abstractMGWJWTGenerator.generateToken(jwtInfoMap, convertStringMapValueToMap(apiDetails));
+    }
+
+    /**
+     * Reload the signing keys of the jwt generator, once the keystore is updated with a rotated key.
+     */
+    public static boolean reloadSigningKeys() {
+        try {
+            abstractMGWJWTGenerator.reloadSigningKeys();
+            return true;
+        } catch (Exception e) {
+            log.error("Error while reloading the signing keys of the jwt generator.", e);
+            return false;
+        }
     }
 
     public static String invokeGetKeystorePath(String fullPath) {
@@ -174,6 +232,17 @@ public class MGWJWTGeneratorInvoker {
         return map;
     }
 
+    /**
+     * Convert a MapValue of string values to Map, without checking the values for nested maps and arrays.
+     */
+    private static Map<String, Object> convertStringMapValueToMap(MapValue mapValue) {
+        Map<String, Object> map = new HashMap<>();
+        for (Object key : mapValue.getKeys()) {
+            map.put(key.toString(), mapValue.get(key.toString()));
+        }
+        return map;
+    }
+
     public static Map<String, Object> convertBMapToMap(BMap<String, Object> bMap) {
         Map<String, Object> map = new HashMap<>();
         for (String key : bMap.getKeys()) {
@@ -0,0 +1,168 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.revocation;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe counting bloom filter with 4 bit counters, which supports removing the added items. Counters which
+ * reach the maximum value are never decremented, hence a removal can never introduce a false negative.
+ */
+public class CountingBloomFilter {
+    private static final int BITS_PER_COUNTER = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / BITS_PER_COUNTER;
+    private static final long MAX_COUNTER_VALUE = (1L << BITS_PER_COUNTER) - 1;
+
+    private final AtomicLongArray counters;
+    private final long counterCount;
+    private final int hashFunctionCount;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Create a counting bloom filter sized for the expected number of items.
+     *
+     * @param expectedItems            Expected number of items in the filter at a time
+     * @param falsePositiveProbability Desired false positive probability when the filter holds the expected items
+     */
+    public CountingBloomFilter(long expectedItems, double falsePositiveProbability) {
+        if (expectedItems <= 0) {
+            throw new IllegalArgumentException("Expected items should be a positive value: " + expectedItems);
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability should be between 0 and 1: "
+                    + falsePositiveProbability);
+        }
+        long optimalCounterCount = (long) Math.ceil(-expectedItems * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE,
+                (optimalCounterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        this.counters = new AtomicLongArray(wordCount);
+        this.counterCount = (long) wordCount * COUNTERS_PER_WORD;
+        this.hashFunctionCount = Math.max(1, (int) Math.round((double) counterCount / expectedItems * Math.log(2)));
+    }
+
+    /**
+     * Add an item to the filter.
+     *
+     * @param item Item to be added
+     */
+    public void add(String item) {
+        long[] hash = hash(item);
+        for (int i = 0; i < hashFunctionCount; i++) {
+            increment(index(hash, i));
+        }
+        size.incrementAndGet();
+    }
+
+    /**
+     * Remove an item from the filter. Only the items which were added earlier should be removed.
+     *
+     * @param item Item to be removed
+     */
+    public void remove(String item) {
+        long[] hash = hash(item);
+        if (!mightContain(hash)) {
+            return;
+        }
+        for (int i = 0; i < hashFunctionCount; i++) {
+            decrement(index(hash, i));
+        }
+        size.decrementAndGet();
+    }
+
+    /**
+     * Check whether an item might be in the filter.
+     *
+     * @param item Item to be checked
+     * @return false if the item is definitely not in the filter, true if it might be in the filter
+     */
+    public boolean mightContain(String item) {
+        return mightContain(hash(item));
+    }
+
+    /**
+     * Provide the false positive probability of the filter, estimated from the number of items it holds.
+     *
+     * @return Estimated false positive probability
+     */
+    public double getExpectedFalsePositiveProbability() {
+        return Math.pow(1 - Math.exp(-hashFunctionCount * (double) size.get() / counterCount), hashFunctionCount);
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    private boolean mightContain(long[] hash) {
+        for (int i = 0; i < hashFunctionCount; i++) {
+            if (getCounter(index(hash, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long getCounter(long index) {
+        long word = counters.get((int) (index / COUNTERS_PER_WORD));
+        return (word >>> shift(index)) & MAX_COUNTER_VALUE;
+    }
+
+    private void increment(long index) {
+        int wordIndex = (int) (index / COUNTERS_PER_WORD);
+        int shift = shift(index);
+        long word;
+        do {
+            word = counters.get(wordIndex);
+            if (((word >>> shift) & MAX_COUNTER_VALUE) == MAX_COUNTER_VALUE) {
+                return;
+            }
+        } while (!counters.compareAndSet(wordIndex, word, word + (1L << shift)));
+    }
+
+    private void decrement(long index) {
+        int wordIndex = (int) (index / COUNTERS_PER_WORD);
+        int shift = shift(index);
+        long word;
+        do {
+            word = counters.get(wordIndex);
+            long counter = (word >>> shift) & MAX_COUNTER_VALUE;
+            if (counter == 0 || counter == MAX_COUNTER_VALUE) {
+                return;
+            }
+        } while (!counters.compareAndSet(wordIndex, word, word - (1L << shift)));
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+    }
+
+    private long index(long[] hash, int i) {
+        return ((hash[0] + i * hash[1]) & Long.MAX_VALUE) % counterCount;
+    }
+
+    private static long[] hash(String item) {
+        ByteBuffer buffer = ByteBuffer.wrap(Hashing.murmur3_128().hashString(item, StandardCharsets.UTF_8).asBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{buffer.getLong(), buffer.getLong()};
+    }
+}
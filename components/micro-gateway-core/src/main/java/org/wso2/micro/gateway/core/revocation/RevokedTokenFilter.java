@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.revocation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Probabilistic prefilter in front of the revoked token map. Most of the tokens are not revoked, hence the filter
+ * answers those lookups without looking at the revoked token map.
+ */
+public class RevokedTokenFilter implements RevokedTokenFilterMBean {
+    private static final Logger log = LogManager.getLogger(RevokedTokenFilter.class);
+    private static final String MBEAN_NAME = "org.wso2.micro.gateway:type=RevokedTokenFilter";
+
+    private static volatile RevokedTokenFilter instance;
+
+    private final CountingBloomFilter bloomFilter;
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder negativeCount = new LongAdder();
+    private final LongAdder falsePositiveCount = new LongAdder();
+
+    private RevokedTokenFilter(long expectedRevokedTokens, double falsePositiveProbability) {
+        this.bloomFilter = new CountingBloomFilter(expectedRevokedTokens, falsePositiveProbability);
+    }
+
+    /**
+     * Initialize the revoked token filter.
+     *
+     * @param expectedRevokedTokens    Expected number of revoked tokens at a time
+     * @param falsePositiveProbability Desired false positive probability
+     */
+    public static synchronized void initFilter(long expectedRevokedTokens, double falsePositiveProbability) {
+        if (instance != null) {
+            return;
+        }
+        instance = new RevokedTokenFilter(expectedRevokedTokens, falsePositiveProbability);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(MBEAN_NAME));
+        } catch (JMException e) {
+            log.error("Error while registering the revoked token filter metrics", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Revoked token filter is initialized for " + expectedRevokedTokens + " tokens with the false "
+                    + "positive probability " + falsePositiveProbability);
+        }
+    }
+
+    public static void addRevokedToken(String token) {
+        instance.bloomFilter.add(token);
+    }
+
+    public static void removeRevokedToken(String token) {
+        instance.bloomFilter.remove(token);
+    }
+
+    /**
+     * Check whether a token might be revoked.
+     *
+     * @param token Token or the token signature
+     * @return false if the token is definitely not revoked, true if the revoked token map should be checked
+     */
+    public static boolean mightBeRevoked(String token) {
+        RevokedTokenFilter filter = instance;
+        filter.lookupCount.increment();
+        boolean mightBeRevoked = filter.bloomFilter.mightContain(token);
+        if (!mightBeRevoked) {
+            filter.negativeCount.increment();
+        }
+        return mightBeRevoked;
+    }
+
+    /**
+     * Record a lookup which the filter reported as revoked, but was not found in the revoked token map.
+     */
+    public static void recordFalsePositive() {
+        instance.falsePositiveCount.increment();
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        long falsePositives = falsePositiveCount.sum();
+        long nonRevokedLookups = negativeCount.sum() + falsePositives;
+        return nonRevokedLookups == 0 ? 0 : (double) falsePositives / nonRevokedLookups;
+    }
+
+    @Override
+    public double getExpectedFalsePositiveRate() {
+        return bloomFilter.getExpectedFalsePositiveProbability();
+    }
+
+    @Override
+    public long getRevokedTokenCount() {
+        return bloomFilter.getSize();
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    @Override
+    public long getFalsePositiveCount() {
+        return falsePositiveCount.sum();
+    }
+}
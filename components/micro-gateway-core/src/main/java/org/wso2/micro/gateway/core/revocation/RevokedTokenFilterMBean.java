@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.revocation;
+
+/**
+ * JMX view of the revoked token filter metrics.
+ */
+public interface RevokedTokenFilterMBean {
+
+    /**
+     * @return Ratio of the lookups for non revoked tokens which the filter could not answer by itself
+     */
+    double getFalsePositiveRate();
+
+    /**
+     * @return False positive probability estimated from the number of revoked tokens in the filter
+     */
+    double getExpectedFalsePositiveRate();
+
+    long getRevokedTokenCount();
+
+    long getLookupCount();
+
+    long getFalsePositiveCount();
+}
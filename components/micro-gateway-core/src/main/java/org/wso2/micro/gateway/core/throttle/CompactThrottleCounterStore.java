@@ -0,0 +1,347 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttle counter store which keeps the throttle state of all the keys in a single preallocated long array, instead
+ * of an object per key. A key is identified by a 64 bit fingerprint of its throttle type and throttle key, and can be
+ * placed in any slot of a small bucket selected by the fingerprint. When all the slots of a bucket are in use, an
+ * expired slot is reused or else a slot is evicted with the clock algorithm, hence the memory used by the store stays
+ * within the given budget regardless of the number of keys.
+ * <p>
+ * Windows of all the keys are aligned to the epoch instead of the first request of the key, and the sliding window
+ * log policies are counted with the sliding window counter algorithm. An update which races with the eviction of
+ * its key may be lost.
+ */
+final class CompactThrottleCounterStore {
+    static final int SLOT_BYTES = 4 * Long.BYTES;
+    private static final int SLOT_LENGTH = 4;
+    private static final int FINGERPRINT = 0;
+    private static final int STATE = 1;
+    private static final int PREVIOUS_WINDOW = 2;
+    private static final int META = 3;
+    private static final int BUCKET_SLOTS = 8;
+    private static final long EMPTY = 0;
+    private static final long CLAIMED = Long.MIN_VALUE;
+    private static final long REFERENCED = 1L << 32;
+    private static final long POLICY_MASK = REFERENCED - 1;
+    private static final int MAX_CLAIM_ATTEMPTS = 4;
+    private static final int MAX_CLAIM_LOCKS = 256;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray table;
+    private final int bucketMask;
+    private final LongAdder evictionCount = new LongAdder();
+    // Striped by the bucket index, as a slot is claimed only on the first hit of a key or once its key is evicted
+    private final Object[] claimLocks;
+    private volatile Policy[] policies = new Policy[0];
+
+    /**
+     * Create a counter store.
+     *
+     * @param memoryBudget Maximum memory used by the store in bytes
+     */
+    CompactThrottleCounterStore(long memoryBudget) {
+        long bucketCount = Math.min(memoryBudget / ((long) SLOT_BYTES * BUCKET_SLOTS),
+                Integer.MAX_VALUE / (SLOT_LENGTH * BUCKET_SLOTS));
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("Memory budget of the throttle counter store is too small: "
+                    + memoryBudget);
+        }
+        int buckets = Integer.highestOneBit((int) bucketCount);
+        this.table = new AtomicLongArray(buckets * BUCKET_SLOTS * SLOT_LENGTH);
+        this.bucketMask = buckets - 1;
+        this.claimLocks = new Object[Math.min(buckets, MAX_CLAIM_LOCKS)];
+        for (int i = 0; i < claimLocks.length; i++) {
+            claimLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Count a request against a throttle key.
+     *
+     * @param throttleType Level of the throttle policy
+     * @param throttleKey  Throttle key
+     * @param algorithm    Algorithm of the throttle policy
+     * @param limit        Number of requests allowed within the unit time
+     * @param unitTime     Unit time of the policy in milliseconds
+     * @param timestamp    Time of the request in milliseconds
+     */
+    void hit(ThrottleData.ThrottleType throttleType, String throttleKey, ThrottleAlgorithm algorithm, long limit,
+            long unitTime, long timestamp) {
+        if (limit <= 0) {
+            return;
+        }
+        int policyIndex = getPolicyIndex(algorithm, limit, unitTime);
+        Policy policy = policies[policyIndex];
+        long fingerprint = fingerprint(throttleType, throttleKey);
+        int slot = findSlot(fingerprint);
+        if (slot < 0) {
+            slot = claimSlot(fingerprint, policyIndex, getInitialState(policy, timestamp), timestamp);
+            if (slot < 0) {
+                return;
+            }
+        } else {
+            long meta = table.get(slot + META);
+            if ((meta & POLICY_MASK) != policyIndex) {
+                // The state of the previous policy is not meaningful to the new policy, hence the key starts afresh
+                if (table.compareAndSet(slot + META, meta, policyIndex | REFERENCED)) {
+                    table.set(slot + STATE, getInitialState(policy, timestamp));
+                    table.set(slot + PREVIOUS_WINDOW, 0);
+                }
+            } else if (meta != (policyIndex | REFERENCED)) {
+                // The slot is not referenced since the last sweep of the clock
+                table.set(slot + META, policyIndex | REFERENCED);
+            }
+        }
+        if (policy.algorithm == ThrottleAlgorithm.TOKEN_BUCKET) {
+            long arrivalTime;
+            do {
+                arrivalTime = table.get(slot + STATE);
+            } while (!table.compareAndSet(slot + STATE, arrivalTime,
+                    ThrottleStates.getNextArrivalTime(arrivalTime, timestamp, unitTime, limit)));
+            return;
+        }
+        long window = ThrottleStates.getWindowIndex(timestamp, unitTime);
+        long current;
+        long next;
+        do {
+            current = table.get(slot + STATE);
+            next = ThrottleStates.incrementWindow(current, window);
+        } while (!table.compareAndSet(slot + STATE, current, next));
+        if (policy.algorithm == ThrottleAlgorithm.SLIDING_WINDOW_COUNTER
+                && ThrottleStates.isWindowRolledOver(current, next)) {
+            table.set(slot + PREVIOUS_WINDOW, ThrottleStates.getPreviousWindow(current, window));
+        }
+    }
+
+    /**
+     * Check whether the requests of a throttle key should be throttled at a given time.
+     *
+     * @param throttleType Level of the throttle policy
+     * @param throttleKey  Throttle key
+     * @param timestamp    Time in milliseconds
+     * @return true if the limit of the policy is reached
+     */
+    boolean isThrottled(ThrottleData.ThrottleType throttleType, String throttleKey, long timestamp) {
+        int slot = findSlot(fingerprint(throttleType, throttleKey));
+        if (slot < 0) {
+            return false;
+        }
+        Policy[] currentPolicies = policies;
+        int policyIndex = (int) (table.get(slot + META) & POLICY_MASK);
+        if (policyIndex >= currentPolicies.length) {
+            return false;
+        }
+        Policy policy = currentPolicies[policyIndex];
+        long state = table.get(slot + STATE);
+        switch (policy.algorithm) {
+            case TOKEN_BUCKET:
+                return ThrottleStates.isBucketEmpty(state, timestamp, policy.unitTime, policy.limit);
+            case SLIDING_WINDOW_COUNTER:
+                return ThrottleStates.getSlidingWindowCount(state, table.get(slot + PREVIOUS_WINDOW), timestamp,
+                        policy.unitTime) >= policy.limit;
+            default:
+                return ThrottleStates.isWindowLimitReached(state,
+                        ThrottleStates.getWindowIndex(timestamp, policy.unitTime), policy.limit);
+        }
+    }
+
+    /**
+     * @return Number of keys which were evicted before they expired
+     */
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return Number of keys the store can hold
+     */
+    int getCapacity() {
+        return table.length() / SLOT_LENGTH;
+    }
+
+    private int findSlot(long fingerprint) {
+        int bucketStart = getBucketStart(fingerprint);
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            int slot = bucketStart + i * SLOT_LENGTH;
+            if (table.get(slot + FINGERPRINT) == fingerprint) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Claim a slot of the bucket for a new key. Empty and expired slots are used first, else the clock hand sweeps
+     * the bucket, giving a second chance to the slots which were referenced since the last sweep.
+     * <p>
+     * The claims of a bucket are serialized, and the bucket is searched for the key again once the claim lock is
+     * held. Hence concurrent first hits of a key do not claim two slots, of which only the first would be found.
+     */
+    private int claimSlot(long fingerprint, int policyIndex, long initialState, long timestamp) {
+        synchronized (claimLocks[getBucket(fingerprint) & (claimLocks.length - 1)]) {
+            int slot = findSlot(fingerprint);
+            if (slot >= 0) {
+                return slot;
+            }
+            return claimEmptyOrVictimSlot(fingerprint, policyIndex, initialState, timestamp);
+        }
+    }
+
+    private int claimEmptyOrVictimSlot(long fingerprint, int policyIndex, long initialState, long timestamp) {
+        int bucketStart = getBucketStart(fingerprint);
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            int victim = -1;
+            boolean expired = false;
+            for (int i = 0; i < BUCKET_SLOTS && !expired; i++) {
+                int slot = bucketStart + i * SLOT_LENGTH;
+                long slotFingerprint = table.get(slot + FINGERPRINT);
+                if (slotFingerprint == EMPTY || (slotFingerprint != CLAIMED && isExpired(slot, timestamp))) {
+                    victim = slot;
+                    expired = true;
+                }
+            }
+            for (int i = 0; victim < 0 && i < 2 * BUCKET_SLOTS; i++) {
+                int slot = bucketStart + (int) ((timestamp + i) % BUCKET_SLOTS) * SLOT_LENGTH;
+                long meta = table.get(slot + META);
+                if (table.get(slot + FINGERPRINT) == CLAIMED) {
+                    continue;
+                }
+                if ((meta & REFERENCED) != 0) {
+                    table.compareAndSet(slot + META, meta, meta & ~REFERENCED);
+                } else {
+                    victim = slot;
+                }
+            }
+            if (victim < 0) {
+                continue;
+            }
+            long victimFingerprint = table.get(victim + FINGERPRINT);
+            if (victimFingerprint == CLAIMED
+                    || !table.compareAndSet(victim + FINGERPRINT, victimFingerprint, CLAIMED)) {
+                continue;
+            }
+            table.set(victim + STATE, initialState);
+            table.set(victim + PREVIOUS_WINDOW, 0);
+            table.set(victim + META, policyIndex | REFERENCED);
+            table.set(victim + FINGERPRINT, fingerprint);
+            if (!expired) {
+                evictionCount.increment();
+            }
+            return victim;
+        }
+        return -1;
+    }
+
+    private static long getInitialState(Policy policy, long timestamp) {
+        return policy.algorithm == ThrottleAlgorithm.TOKEN_BUCKET ? ThrottleStates.getFullBucket(timestamp) :
+                ThrottleStates.getEmptyWindow(ThrottleStates.getWindowIndex(timestamp, policy.unitTime));
+    }
+
+    private boolean isExpired(int slot, long timestamp) {
+        Policy[] currentPolicies = policies;
+        int policyIndex = (int) (table.get(slot + META) & POLICY_MASK);
+        if (policyIndex >= currentPolicies.length) {
+            return true;
+        }
+        Policy policy = currentPolicies[policyIndex];
+        long state = table.get(slot + STATE);
+        switch (policy.algorithm) {
+            case TOKEN_BUCKET:
+                return ThrottleStates.getBucketExpiryTime(state) < timestamp;
+            case SLIDING_WINDOW_COUNTER:
+                return ThrottleStates.getWindowExpiryTime(state, policy.unitTime, 2) < timestamp;
+            default:
+                return ThrottleStates.getWindowExpiryTime(state, policy.unitTime, 1) < timestamp;
+        }
+    }
+
+    private int getPolicyIndex(ThrottleAlgorithm algorithm, long limit, long unitTime) {
+        ThrottleAlgorithm storeAlgorithm = algorithm == ThrottleAlgorithm.SLIDING_WINDOW_LOG ?
+                ThrottleAlgorithm.SLIDING_WINDOW_COUNTER : algorithm;
+        Policy[] currentPolicies = policies;
+        for (int i = 0; i < currentPolicies.length; i++) {
+            if (currentPolicies[i].matches(storeAlgorithm, limit, unitTime)) {
+                return i;
+            }
+        }
+        return addPolicy(new Policy(storeAlgorithm, limit, unitTime));
+    }
+
+    private synchronized int addPolicy(Policy policy) {
+        Policy[] currentPolicies = policies;
+        for (int i = 0; i < currentPolicies.length; i++) {
+            if (currentPolicies[i].matches(policy.algorithm, policy.limit, policy.unitTime)) {
+                return i;
+            }
+        }
+        Policy[] newPolicies = new Policy[currentPolicies.length + 1];
+        System.arraycopy(currentPolicies, 0, newPolicies, 0, currentPolicies.length);
+        newPolicies[currentPolicies.length] = policy;
+        policies = newPolicies;
+        return currentPolicies.length;
+    }
+
+    private int getBucket(long fingerprint) {
+        return (int) fingerprint & bucketMask;
+    }
+
+    private int getBucketStart(long fingerprint) {
+        return getBucket(fingerprint) * BUCKET_SLOTS * SLOT_LENGTH;
+    }
+
+    /**
+     * Hash the throttle type and the key into a 64 bit fingerprint, without creating any objects.
+     */
+    static long fingerprint(ThrottleData.ThrottleType throttleType, String throttleKey) {
+        long hash = (FNV_OFFSET_BASIS ^ throttleType.ordinal()) * FNV_PRIME;
+        for (int i = 0; i < throttleKey.length(); i++) {
+            hash = (hash ^ throttleKey.charAt(i)) * FNV_PRIME;
+        }
+        // Murmur3 finalizer to spread the bits used for the bucket index
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY || hash == CLAIMED ? 1 : hash;
+    }
+
+    /**
+     * Throttle policy shared by the keys of the store.
+     */
+    private static final class Policy {
+        private final ThrottleAlgorithm algorithm;
+        private final long limit;
+        private final long unitTime;
+
+        private Policy(ThrottleAlgorithm algorithm, long limit, long unitTime) {
+            this.algorithm = algorithm;
+            this.limit = limit;
+            this.unitTime = unitTime;
+        }
+
+        private boolean matches(ThrottleAlgorithm algorithm, long limit, long unitTime) {
+            return this.algorithm == algorithm && this.limit == limit && this.unitTime == unitTime;
+        }
+    }
+}
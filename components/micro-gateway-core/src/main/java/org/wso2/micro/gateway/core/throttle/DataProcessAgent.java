@@ -32,16 +32,20 @@ public class DataProcessAgent implements Runnable {
     private long appTierCount;
     private long appTierUnitTime;
     private String appTierTimeUnit;
+    private String appTierAlgorithm;
     private long apiTierCount;
     private long apiTierUnitTime;
     private String apiTierTimeUnit;
+    private String apiTierAlgorithm;
     private long subscriptionTierCount;
     private long subscriptionTierUnitTime;
     private String subscriptionTierTimeUnit;
+    private String subscriptionTierAlgorithm;
     private String resourceKey;
     private long resourceTierCount;
     private long resourceTierUnitTime;
     private String resourceTierTimeUnit;
+    private String resourceTierAlgorithm;
     private long timestamp;
 
 
@@ -58,27 +62,55 @@ public class DataProcessAgent implements Runnable {
         this.appTierCount = throttleData.getIntValue("appTierCount");
         this.appTierUnitTime = throttleData.getIntValue("appTierUnitTime");
         this.appTierTimeUnit = throttleData.getStringValue("appTierTimeUnit");
+        this.appTierAlgorithm = throttleData.getStringValue("appTierAlgorithm");
         this.apiKey = throttleData.getStringValue("apiKey");
         this.apiTierCount = throttleData.getIntValue("apiTierCount");
         this.apiTierUnitTime = throttleData.getIntValue("apiTierUnitTime");
         this.apiTierTimeUnit = throttleData.getStringValue("apiTierTimeUnit");
+        this.apiTierAlgorithm = throttleData.getStringValue("apiTierAlgorithm");
         this.subscriptionKey = throttleData.getStringValue("subscriptionKey");
         this.subscriptionTierCount = throttleData.getIntValue("subscriptionTierCount");
         this.subscriptionTierUnitTime = throttleData.getIntValue("subscriptionTierUnitTime");
         this.subscriptionTierTimeUnit = throttleData.getStringValue("subscriptionTierTimeUnit");
+        this.subscriptionTierAlgorithm = throttleData.getStringValue("subscriptionTierAlgorithm");
         this.resourceKey = throttleData.getStringValue("resourceKey");
         this.resourceTierCount = throttleData.getIntValue("resourceTierCount");
         this.resourceTierUnitTime = throttleData.getIntValue("resourceTierUnitTime");
         this.resourceTierTimeUnit = throttleData.getStringValue("resourceTierTimeUnit");
+        this.resourceTierAlgorithm = throttleData.getStringValue("resourceTierAlgorithm");
         this.stopOnQuota = throttleData.getBooleanValue("stopOnQuota");
         this.timestamp = System.currentTimeMillis();
     }
 
     public void run() {
         throttleCounter.updateCounters(apiKey, appKey, stopOnQuota, subscriptionKey, appTierCount, appTierUnitTime,
-                appTierTimeUnit, apiTierCount, apiTierUnitTime, apiTierTimeUnit, subscriptionTierCount,
-                subscriptionTierUnitTime, subscriptionTierTimeUnit, resourceKey, resourceTierCount,
-                resourceTierUnitTime, resourceTierTimeUnit, timestamp);
+                appTierTimeUnit, appTierAlgorithm, apiTierCount, apiTierUnitTime, apiTierTimeUnit, apiTierAlgorithm,
+                subscriptionTierCount, subscriptionTierUnitTime, subscriptionTierTimeUnit, subscriptionTierAlgorithm,
+                resourceKey, resourceTierCount, resourceTierUnitTime, resourceTierTimeUnit, resourceTierAlgorithm,
+                timestamp);
+        ThrottleDataReceiver.getMetrics().recordProcessedEvent();
+    }
+
+    /**
+     * Update the throttle counters for an event on the calling thread, reading the values directly from the event.
+     *
+     * @param throttleCounter Throttle counter to be updated
+     * @param throttleData    Throttle event
+     * @param timestamp       Time of the request
+     */
+    static void updateCounters(ThrottleCounter throttleCounter, MapValue throttleData, long timestamp) {
+        throttleCounter.updateCounters(throttleData.getStringValue("apiKey"), throttleData.getStringValue("appKey"),
+                throttleData.getBooleanValue("stopOnQuota"), throttleData.getStringValue("subscriptionKey"),
+                throttleData.getIntValue("appTierCount"), throttleData.getIntValue("appTierUnitTime"),
+                throttleData.getStringValue("appTierTimeUnit"), throttleData.getStringValue("appTierAlgorithm"),
+                throttleData.getIntValue("apiTierCount"), throttleData.getIntValue("apiTierUnitTime"),
+                throttleData.getStringValue("apiTierTimeUnit"), throttleData.getStringValue("apiTierAlgorithm"),
+                throttleData.getIntValue("subscriptionTierCount"), throttleData.getIntValue("subscriptionTierUnitTime"),
+                throttleData.getStringValue("subscriptionTierTimeUnit"),
+                throttleData.getStringValue("subscriptionTierAlgorithm"), throttleData.getStringValue("resourceKey"),
+                throttleData.getIntValue("resourceTierCount"), throttleData.getIntValue("resourceTierUnitTime"),
+                throttleData.getStringValue("resourceTierTimeUnit"),
+                throttleData.getStringValue("resourceTierAlgorithm"), timestamp);
     }
 
     private ThrottleCounter getDataPublisher() {
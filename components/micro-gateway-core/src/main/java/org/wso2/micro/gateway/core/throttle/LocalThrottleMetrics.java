@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the local throttle event processing, which are exposed over JMX.
+ */
+public class LocalThrottleMetrics implements LocalThrottleMetricsMBean {
+    static final String MBEAN_NAME = "org.wso2.micro.gateway:type=LocalThrottle";
+
+    private final ThrottleProcessingMode processingMode;
+    private final ThreadPoolExecutor executor;
+    private final CompactThrottleCounterStore counterStore;
+    private final LongAdder processedEventCount = new LongAdder();
+    private final LongAdder droppedEventCount = new LongAdder();
+    private final LongAdder callerRunEventCount = new LongAdder();
+
+    /**
+     * Create the metrics of the local throttle event processing.
+     *
+     * @param processingMode Processing mode of the throttle events
+     * @param executor       Executor which processes the events, or null if the events are processed inline
+     * @param counterStore   Compact counter store, or null if the counters are kept in the heap store
+     */
+    LocalThrottleMetrics(ThrottleProcessingMode processingMode, ThreadPoolExecutor executor,
+            CompactThrottleCounterStore counterStore) {
+        this.processingMode = processingMode;
+        this.executor = executor;
+        this.counterStore = counterStore;
+    }
+
+    void recordProcessedEvent() {
+        processedEventCount.increment();
+    }
+
+    void recordDroppedEvent() {
+        droppedEventCount.increment();
+    }
+
+    void recordCallerRunEvent() {
+        callerRunEventCount.increment();
+    }
+
+    @Override
+    public String getProcessingMode() {
+        return processingMode.getConfigValue();
+    }
+
+    @Override
+    public long getProcessedEventCount() {
+        return processedEventCount.sum();
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return droppedEventCount.sum();
+    }
+
+    @Override
+    public long getCallerRunEventCount() {
+        return callerRunEventCount.sum();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    @Override
+    public int getQueueRemainingCapacity() {
+        if (executor == null || processingMode != ThrottleProcessingMode.BOUNDED_QUEUE) {
+            return -1;
+        }
+        return executor.getQueue().remainingCapacity();
+    }
+
+    @Override
+    public int getActiveThreadCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    @Override
+    public int getCounterStoreCapacity() {
+        return counterStore == null ? -1 : counterStore.getCapacity();
+    }
+
+    @Override
+    public long getEvictedKeyCount() {
+        return counterStore == null ? 0 : counterStore.getEvictionCount();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+/**
+ * JMX view of the local throttle event processing metrics.
+ */
+public interface LocalThrottleMetricsMBean {
+
+    String getProcessingMode();
+
+    long getProcessedEventCount();
+
+    /**
+     * @return Number of events which were not counted since the processing queue was full
+     */
+    long getDroppedEventCount();
+
+    /**
+     * @return Number of events which were counted by the request thread since the processing queue was full
+     */
+    long getCallerRunEventCount();
+
+    int getQueueSize();
+
+    /**
+     * @return Remaining capacity of the processing queue, or -1 if the events are not queued
+     */
+    int getQueueRemainingCapacity();
+
+    int getActiveThreadCount();
+
+    /**
+     * @return Number of throttle keys the compact counter store can hold, or -1 if the heap store is used
+     */
+    int getCounterStoreCapacity();
+
+    /**
+     * @return Number of throttle keys evicted from the compact counter store before they expired
+     */
+    long getEvictedKeyCount();
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+/**
+ * Algorithms supported by the local throttle engine. The algorithm of a throttle policy is given by the
+ * <code>algorithm</code> property of the policy definition.
+ */
+public enum ThrottleAlgorithm {
+    /**
+     * Counts the requests within fixed windows aligned to the time unit of the policy.
+     */
+    FIXED_WINDOW("fixedWindow"),
+    /**
+     * Keeps the timestamps of the last allowed requests and throttles when the limit is reached within the unit
+     * time preceding the request.
+     */
+    SLIDING_WINDOW_LOG("slidingWindowLog"),
+    /**
+     * Approximates a sliding window by weighting the count of the previous fixed window with its overlap with the
+     * sliding window.
+     */
+    SLIDING_WINDOW_COUNTER("slidingWindowCounter"),
+    /**
+     * Refills the limit of the policy evenly over the unit time, allowing bursts up to the limit.
+     */
+    TOKEN_BUCKET("tokenBucket");
+
+    private final String policyValue;
+
+    ThrottleAlgorithm(String policyValue) {
+        this.policyValue = policyValue;
+    }
+
+    public String getPolicyValue() {
+        return policyValue;
+    }
+
+    /**
+     * Resolve the algorithm from the value given in the throttle policy.
+     *
+     * @param policyValue      Algorithm name given in the policy
+     * @param defaultAlgorithm Algorithm used when the policy does not specify one
+     * @return Matching algorithm
+     */
+    public static ThrottleAlgorithm fromPolicyValue(String policyValue, ThrottleAlgorithm defaultAlgorithm) {
+        if (policyValue == null || policyValue.isEmpty()) {
+            return defaultAlgorithm;
+        }
+        for (ThrottleAlgorithm algorithm : values()) {
+            if (algorithm.policyValue.equalsIgnoreCase(policyValue)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported throttle algorithm provided: " + policyValue);
+    }
+}
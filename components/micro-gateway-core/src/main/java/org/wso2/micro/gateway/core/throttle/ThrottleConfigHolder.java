@@ -23,6 +23,12 @@ public class ThrottleConfigHolder {
 
     private int processThreadPoolCoreSize = 200, processThreadPoolMaximumSize = 1000,
             processThreadPoolKeepAliveTime = 200, throttleFrequency = 3600;
+    private ThrottleAlgorithm defaultAlgorithm = ThrottleAlgorithm.FIXED_WINDOW;
+    private ThrottleProcessingMode processingMode = ThrottleProcessingMode.EXECUTOR;
+    private int processQueueSize = 10000;
+    private boolean dropOnQueueFull = false;
+    private boolean compactCounterStore = false;
+    private long counterStoreMemoryBudget = 64L * 1024 * 1024;
 
     private static class InnerConfigHolder {
         private static final ThrottleConfigHolder instance = new ThrottleConfigHolder();
@@ -43,6 +49,22 @@ public class ThrottleConfigHolder {
         this.throttleFrequency = throttleFrequency;
     }
 
+    public void setDefaultAlgorithm(ThrottleAlgorithm defaultAlgorithm) {
+        this.defaultAlgorithm = defaultAlgorithm;
+    }
+
+    public void setProcessingData(ThrottleProcessingMode processingMode, int processQueueSize,
+            boolean dropOnQueueFull) {
+        this.processingMode = processingMode;
+        this.processQueueSize = processQueueSize;
+        this.dropOnQueueFull = dropOnQueueFull;
+    }
+
+    public void setCounterStoreData(boolean compactCounterStore, long counterStoreMemoryBudget) {
+        this.compactCounterStore = compactCounterStore;
+        this.counterStoreMemoryBudget = counterStoreMemoryBudget;
+    }
+
     public int getProcessThreadPoolCoreSize() {
         return processThreadPoolCoreSize;
     }
@@ -58,4 +80,28 @@ public class ThrottleConfigHolder {
     public int getThrottleFrequency() {
         return throttleFrequency;
     }
+
+    public ThrottleAlgorithm getDefaultAlgorithm() {
+        return defaultAlgorithm;
+    }
+
+    public ThrottleProcessingMode getProcessingMode() {
+        return processingMode;
+    }
+
+    public int getProcessQueueSize() {
+        return processQueueSize;
+    }
+
+    public boolean isDropOnQueueFull() {
+        return dropOnQueueFull;
+    }
+
+    public boolean isCompactCounterStore() {
+        return compactCounterStore;
+    }
+
+    public long getCounterStoreMemoryBudget() {
+        return counterStoreMemoryBudget;
+    }
 }
@@ -33,117 +33,121 @@ public class ThrottleCounter {
     private static final Map<String, ThrottleData> resourceLevelCounter = new ConcurrentHashMap<>();
     private static final Map<String, ThrottleData> applicationLevelCounter = new ConcurrentHashMap<>();
     private static final Map<String, ThrottleData> subscriptionLevelCounter = new ConcurrentHashMap<>();
+    // When set, the counters are kept in the compact store instead of the above maps
+    private static volatile CompactThrottleCounterStore compactCounterStore;
+
+    private final ThrottleAlgorithm defaultAlgorithm;
+
+    public ThrottleCounter(ThrottleAlgorithm defaultAlgorithm) {
+        this.defaultAlgorithm = defaultAlgorithm;
+    }
+
+    /**
+     * Keep the throttle counters in a compact store of fixed size instead of an object per throttle key.
+     *
+     * @param memoryBudget Maximum memory used by the store in bytes
+     */
+    static void initCompactCounterStore(long memoryBudget) {
+        compactCounterStore = new CompactThrottleCounterStore(memoryBudget);
+        if (log.isDebugEnabled()) {
+            log.debug("Compact throttle counter store is initialized for " + compactCounterStore.getCapacity()
+                    + " throttle keys");
+        }
+    }
+
+    static CompactThrottleCounterStore getCompactCounterStore() {
+        return compactCounterStore;
+    }
 
     public void updateCounters(String apiKey, String appKey, boolean stopOnQuota, String subscriptionKey,
-            long appTierCount, long appTierUnitTime, String appTierTimeUnit, long apiTierCount, long apiTierUnitTime,
-            String apiTierTimeUnit, long subscriptionTierCount, long subscriptionTierUnitTime,
-            String subscriptionTierTimeUnit, String resourceKey, long resourceTierCount, long resourceTierUnitTime,
-            String resourceTierTimeUnit, long timestamp) {
+            long appTierCount, long appTierUnitTime, String appTierTimeUnit, String appTierAlgorithm,
+            long apiTierCount, long apiTierUnitTime, String apiTierTimeUnit, String apiTierAlgorithm,
+            long subscriptionTierCount, long subscriptionTierUnitTime, String subscriptionTierTimeUnit,
+            String subscriptionTierAlgorithm, String resourceKey, long resourceTierCount, long resourceTierUnitTime,
+            String resourceTierTimeUnit, String resourceTierAlgorithm, long timestamp) {
         updateMapCounters(apiLevelCounter, apiKey, stopOnQuota, apiTierCount, apiTierUnitTime, apiTierTimeUnit,
-                timestamp, ThrottleData.ThrottleType.API);
+                apiTierAlgorithm, timestamp, ThrottleData.ThrottleType.API);
         updateMapCounters(resourceLevelCounter, resourceKey, stopOnQuota, resourceTierCount, resourceTierUnitTime,
-                resourceTierTimeUnit, timestamp, ThrottleData.ThrottleType.RESOURCE);
+                resourceTierTimeUnit, resourceTierAlgorithm, timestamp, ThrottleData.ThrottleType.RESOURCE);
         updateMapCounters(applicationLevelCounter, appKey, stopOnQuota, appTierCount, appTierUnitTime, appTierTimeUnit,
-                timestamp, ThrottleData.ThrottleType.APP);
+                appTierAlgorithm, timestamp, ThrottleData.ThrottleType.APP);
         updateMapCounters(subscriptionLevelCounter, subscriptionKey, stopOnQuota, subscriptionTierCount,
-                subscriptionTierUnitTime, subscriptionTierTimeUnit, timestamp, ThrottleData.ThrottleType.SUBSCRIPTION);
+                subscriptionTierUnitTime, subscriptionTierTimeUnit, subscriptionTierAlgorithm, timestamp,
+                ThrottleData.ThrottleType.SUBSCRIPTION);
     }
 
     private void updateMapCounters(Map<String, ThrottleData> counterMap, String throttleKey, boolean stopOnQuota,
-            long limit, long unitTime, String timeUnit, long timestamp, ThrottleData.ThrottleType throttleType) {
-        ThrottleData existingThrottleData = counterMap.computeIfPresent(throttleKey, (key, throttleData) -> {
-            if (limit > 0 && throttleData.getCount().incrementAndGet() >= limit) {
-                throttleData.setThrottled(true);
-            } else {
-                throttleData.setThrottled(false);
-            }
-            if (timestamp > throttleData.getWindowStartTime() + throttleData.getUnitTime()) {
-                throttleData.getCount().set(1);
-                long startTime = timestamp - (timestamp % getTimeInMilliSeconds(1, timeUnit));
-                throttleData.setWindowStartTime(startTime);
-                throttleData.setThrottled(false);
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("Throttle count for the key '" + throttleKey + "' is " + throttleData.getCount());
-            }
-            return throttleData;
-        });
-        if (existingThrottleData == null) {
-            counterMap.computeIfAbsent(throttleKey, key -> {
-                ThrottleData throttleData = new ThrottleData();
-                long startTime = timestamp - (timestamp % getTimeInMilliSeconds(1, timeUnit));
-                throttleData.setWindowStartTime(startTime);
-                throttleData.setStopOnQuota(stopOnQuota);
-                throttleData.setUnitTime(getTimeInMilliSeconds(unitTime, timeUnit));
-                throttleData.setThrottleType(throttleType);
-                throttleData.getCount().set(0);
-                throttleData.setThrottleKey(key);
+            long limit, long unitTime, String timeUnit, String algorithm, long timestamp,
+            ThrottleData.ThrottleType throttleType) {
+        // Unlimited policies are never throttled, hence there is nothing to count
+        if (limit <= 0) {
+            return;
+        }
+        CompactThrottleCounterStore counterStore = compactCounterStore;
+        if (counterStore != null) {
+            counterStore.hit(throttleType, throttleKey, ThrottleAlgorithm.fromPolicyValue(algorithm, defaultAlgorithm),
+                    limit, getTimeInMilliSeconds(unitTime, timeUnit), timestamp);
+            return;
+        }
+        ThrottleData throttleData = counterMap.get(throttleKey);
+        if (throttleData == null) {
+            long startTime = timestamp - (timestamp % getTimeInMilliSeconds(1, timeUnit));
+            ThrottleData newThrottleData = new ThrottleData(throttleKey, throttleType,
+                    ThrottleAlgorithm.fromPolicyValue(algorithm, defaultAlgorithm), limit,
+                    getTimeInMilliSeconds(unitTime, timeUnit), startTime, stopOnQuota);
+            throttleData = counterMap.putIfAbsent(throttleKey, newThrottleData);
+            if (throttleData == null) {
+                throttleData = newThrottleData;
                 ThrottleDataReceiver.getThrottleDataCleanUpTask().addThrottleData(throttleData);
                 if (log.isDebugEnabled()) {
-                    log.debug("Throttle key inserted " + throttleKey);
+                    log.debug("Throttle key inserted " + throttleKey + " with the algorithm "
+                            + throttleData.getAlgorithm());
                 }
-                return throttleData;
-            });
-            //There can be scenarios where the two threads stops at computeIfAbsent and one thread adds it to the map
-            //and the second thread will go without incrementing the count. This additional computation is done to avoid
-            // that scenario
-            counterMap.computeIfPresent(throttleKey, (key, throttleData) -> {
-                throttleData.getCount().incrementAndGet();
-                return throttleData;
-            });
+            }
         }
+        throttleData.hit(timestamp);
     }
 
     static boolean isResourceThrottled(String resourceKey) {
-        return isRequestThrottled(resourceLevelCounter, resourceKey);
+        return isRequestThrottled(resourceLevelCounter, ThrottleData.ThrottleType.RESOURCE, resourceKey);
     }
 
     static boolean isAppLevelThrottled(String appKey) {
-        return isRequestThrottled(applicationLevelCounter, appKey);
+        return isRequestThrottled(applicationLevelCounter, ThrottleData.ThrottleType.APP, appKey);
     }
 
     static boolean isSubscriptionLevelThrottled(String subscriptionKey) {
-        return isRequestThrottled(subscriptionLevelCounter, subscriptionKey);
+        return isRequestThrottled(subscriptionLevelCounter, ThrottleData.ThrottleType.SUBSCRIPTION, subscriptionKey);
     }
 
     static boolean isApiLevelThrottled(String apiKey) {
-        return isRequestThrottled(apiLevelCounter, apiKey);
+        return isRequestThrottled(apiLevelCounter, ThrottleData.ThrottleType.API, apiKey);
     }
 
-    static void removeFromResourceCounterMap(String key) {
-        resourceLevelCounter.remove(key);
+    static void removeFromResourceCounterMap(ThrottleData throttleData) {
+        resourceLevelCounter.remove(throttleData.getThrottleKey(), throttleData);
     }
 
-    static void removeFromApplicationCounterMap(String key) {
-        applicationLevelCounter.remove(key);
+    static void removeFromApplicationCounterMap(ThrottleData throttleData) {
+        applicationLevelCounter.remove(throttleData.getThrottleKey(), throttleData);
     }
 
-    static void removeFromApiCounterMap(String key) {
-        apiLevelCounter.remove(key);
+    static void removeFromApiCounterMap(ThrottleData throttleData) {
+        apiLevelCounter.remove(throttleData.getThrottleKey(), throttleData);
     }
 
-    static void removeFromSubscriptionCounterMap(String key) {
-        subscriptionLevelCounter.remove(key);
+    static void removeFromSubscriptionCounterMap(ThrottleData throttleData) {
+        subscriptionLevelCounter.remove(throttleData.getThrottleKey(), throttleData);
     }
 
-    private static boolean isRequestThrottled(Map<String, ThrottleData> counterMap, String throttleKey) {
-        if (counterMap.containsKey(throttleKey)) {
-            long currentTime = System.currentTimeMillis();
-            ThrottleData throttleData = counterMap.get(throttleKey);
-            if (currentTime > throttleData.getWindowStartTime() + throttleData.getUnitTime()) {
-                counterMap.computeIfPresent(throttleKey, (key, throttleData1) -> {
-                    throttleData1.setThrottled(false);
-                    return throttleData1;
-                });
-                if (log.isDebugEnabled()) {
-                    log.debug("Throttle window has expired. CurrentTime : " + currentTime + "\n Window start time : "
-                            + throttleData.getWindowStartTime() + "\n Unit time : " + throttleData.getUnitTime());
-                }
-                return false;
-            }
-            return throttleData.isThrottled();
+    private static boolean isRequestThrottled(Map<String, ThrottleData> counterMap,
+            ThrottleData.ThrottleType throttleType, String throttleKey) {
+        CompactThrottleCounterStore counterStore = compactCounterStore;
+        if (counterStore != null) {
+            return counterStore.isThrottled(throttleType, throttleKey, System.currentTimeMillis());
         }
-        return false;
+        ThrottleData throttleData = counterMap.get(throttleKey);
+        return throttleData != null && throttleData.isThrottled(System.currentTimeMillis());
     }
 
     private long getTimeInMilliSeconds(long unitTime, String timeUnit) {
@@ -17,9 +17,12 @@
 package org.wso2.micro.gateway.core.throttle;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * Class to hold throttle counter data against a specific key.
+ * Class to hold throttle counter data against a specific key. The state of all the algorithms is kept in atomic
+ * fields owned by the key and is only updated with compare and set operations, hence no lock is shared between
+ * the keys and a hot key never blocks the others.
  */
 public class ThrottleData {
 
@@ -30,92 +33,170 @@ public class ThrottleData {
         APP, SUBSCRIPTION, RESOURCE, API
     }
 
-    private long windowStartTime = 0;
-    private long unitTime;
-    private AtomicLong count = new AtomicLong();
-    private long remainingQuota;
-    private boolean stopOnQuota = true;
-    private boolean throttled = false;
-    private String throttleKey;
-    private ThrottleType throttleType;
-
-    public long getWindowStartTime() {
-        return windowStartTime;
-    }
+    /**
+     * Maximum number of timestamps kept by the sliding window log of a key, which bounds the log to 1 KB per key.
+     * Policies with a larger limit use the sliding window counter instead, whose error is small for such limits.
+     */
+    static final int MAX_LOG_SIZE = 128;
+
+    private final String throttleKey;
+    private final ThrottleType throttleType;
+    private final ThrottleAlgorithm algorithm;
+    private final long limit;
+    private final long unitTime;
+    private final long baseTime;
+    private final boolean stopOnQuota;
+    // Window state for the window based algorithms, or the token bucket state, as defined in ThrottleStates
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicLong previousWindow;
+    private final AtomicLongArray requestLog;
+    private final AtomicLong logSequence;
 
-    public void setWindowStartTime(long windowStartTime) {
-        this.windowStartTime = windowStartTime;
+    /**
+     * Create the throttle data of a key.
+     *
+     * @param throttleKey  Throttle key
+     * @param throttleType Level of the throttle policy
+     * @param algorithm    Algorithm of the throttle policy
+     * @param limit        Number of requests allowed within the unit time
+     * @param unitTime     Unit time of the policy in milliseconds
+     * @param baseTime     Time in milliseconds where the first window starts
+     * @param stopOnQuota  Whether the requests should be stopped once the quota is reached
+     */
+    public ThrottleData(String throttleKey, ThrottleType throttleType, ThrottleAlgorithm algorithm, long limit,
+            long unitTime, long baseTime, boolean stopOnQuota) {
+        this.throttleKey = throttleKey;
+        this.throttleType = throttleType;
+        this.algorithm = algorithm == ThrottleAlgorithm.SLIDING_WINDOW_LOG && limit > MAX_LOG_SIZE ?
+                ThrottleAlgorithm.SLIDING_WINDOW_COUNTER : algorithm;
+        this.limit = limit;
+        this.unitTime = unitTime;
+        this.baseTime = baseTime;
+        this.stopOnQuota = stopOnQuota;
+        this.previousWindow = this.algorithm == ThrottleAlgorithm.SLIDING_WINDOW_COUNTER ? new AtomicLong() : null;
+        if (this.algorithm == ThrottleAlgorithm.SLIDING_WINDOW_LOG) {
+            this.requestLog = new AtomicLongArray((int) limit);
+            this.logSequence = new AtomicLong();
+        } else {
+            this.requestLog = null;
+            this.logSequence = null;
+        }
     }
 
-    public long getUnitTime() {
-        return unitTime;
+    /**
+     * Count a request against the key.
+     *
+     * @param timestamp Time of the request in milliseconds
+     */
+    public void hit(long timestamp) {
+        if (limit <= 0) {
+            return;
+        }
+        switch (algorithm) {
+            case SLIDING_WINDOW_LOG:
+                long sequence = logSequence.getAndIncrement();
+                requestLog.set((int) (sequence % limit), timestamp);
+                break;
+            case TOKEN_BUCKET:
+                long time = timestamp - baseTime;
+                long arrivalTime;
+                do {
+                    arrivalTime = state.get();
+                } while (!state.compareAndSet(arrivalTime,
+                        ThrottleStates.getNextArrivalTime(arrivalTime, time, unitTime, limit)));
+                break;
+            default:
+                incrementWindow(ThrottleStates.getWindowIndex(timestamp - baseTime, unitTime));
+                break;
+        }
     }
 
-    public void setUnitTime(long unitTime) {
-        this.unitTime = unitTime;
+    /**
+     * Check whether the requests of the key should be throttled at a given time.
+     *
+     * @param timestamp Time in milliseconds
+     * @return true if the limit of the policy is reached
+     */
+    public boolean isThrottled(long timestamp) {
+        if (limit <= 0) {
+            return false;
+        }
+        switch (algorithm) {
+            case SLIDING_WINDOW_LOG:
+                long sequence = logSequence.get();
+                return sequence >= limit && timestamp - requestLog.get((int) (sequence % limit)) < unitTime;
+            case SLIDING_WINDOW_COUNTER:
+                return ThrottleStates.getSlidingWindowCount(state.get(), previousWindow.get(), timestamp - baseTime,
+                        unitTime) >= limit;
+            case TOKEN_BUCKET:
+                return ThrottleStates.isBucketEmpty(state.get(), timestamp - baseTime, unitTime, limit);
+            default:
+                return ThrottleStates.isWindowLimitReached(state.get(),
+                        ThrottleStates.getWindowIndex(timestamp - baseTime, unitTime), limit);
+        }
     }
 
-    public AtomicLong getCount() {
-        return count;
+    /**
+     * Provide the time after which the data of the key no longer affects the throttle decisions.
+     *
+     * @return Expiry time in milliseconds
+     */
+    public long getExpiryTime() {
+        switch (algorithm) {
+            case SLIDING_WINDOW_LOG:
+                long sequence = logSequence.get();
+                long lastRequestTime = sequence == 0 ? baseTime : requestLog.get((int) ((sequence - 1) % limit));
+                return lastRequestTime + unitTime;
+            case SLIDING_WINDOW_COUNTER:
+                return baseTime + ThrottleStates.getWindowExpiryTime(state.get(), unitTime, 2);
+            case TOKEN_BUCKET:
+                return baseTime + ThrottleStates.getBucketExpiryTime(state.get());
+            default:
+                return baseTime + ThrottleStates.getWindowExpiryTime(state.get(), unitTime, 1);
+        }
     }
 
-    public void setCount(AtomicLong count) {
-        this.count = count;
+    public long getUnitTime() {
+        return unitTime;
     }
 
-    public long getRemainingQuota() {
-        return remainingQuota;
+    public long getLimit() {
+        return limit;
     }
 
-    public void setRemainingQuota(long remainingQuota) {
-        this.remainingQuota = remainingQuota;
+    public ThrottleAlgorithm getAlgorithm() {
+        return algorithm;
     }
 
     public boolean isStopOnQuota() {
         return stopOnQuota;
     }
 
-    public void setStopOnQuota(boolean stopOnQuota) {
-        this.stopOnQuota = stopOnQuota;
-    }
-
-    public boolean isThrottled() {
-        return throttled;
-    }
-
-    public void setThrottled(boolean throttled) {
-        this.throttled = throttled;
-    }
-
     public ThrottleType getThrottleType() {
         return throttleType;
     }
 
-    public void setThrottleType(ThrottleType throttleType) {
-        this.throttleType = throttleType;
-    }
-
-    public void setThrottleKey(String throttleKey) {
-        this.throttleKey = throttleKey;
+    public String getThrottleKey() {
+        return throttleKey;
     }
 
     public boolean cleanThrottleData(long timeStamp) {
-        if (this.windowStartTime + this.unitTime < timeStamp) {
+        if (getExpiryTime() < timeStamp) {
             switch (getThrottleType()) {
                 case APP: {
-                    ThrottleCounter.removeFromApplicationCounterMap(this.throttleKey);
+                    ThrottleCounter.removeFromApplicationCounterMap(this);
                     break;
                 }
                 case API: {
-                    ThrottleCounter.removeFromApiCounterMap(this.throttleKey);
+                    ThrottleCounter.removeFromApiCounterMap(this);
                     break;
                 }
                 case RESOURCE: {
-                    ThrottleCounter.removeFromResourceCounterMap(this.throttleKey);
+                    ThrottleCounter.removeFromResourceCounterMap(this);
                     break;
                 }
                 case SUBSCRIPTION: {
-                    ThrottleCounter.removeFromSubscriptionCounterMap(this.throttleKey);
+                    ThrottleCounter.removeFromSubscriptionCounterMap(this);
                     break;
                 }
             }
@@ -123,4 +204,16 @@ public class ThrottleData {
         }
         return false;
     }
+
+    private void incrementWindow(long window) {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = ThrottleStates.incrementWindow(current, window);
+        } while (!state.compareAndSet(current, next));
+        if (previousWindow != null && ThrottleStates.isWindowRolledOver(current, next)) {
+            previousWindow.set(ThrottleStates.getPreviousWindow(current, window));
+        }
+    }
 }
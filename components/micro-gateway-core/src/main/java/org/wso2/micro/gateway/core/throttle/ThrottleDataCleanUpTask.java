@@ -19,8 +19,6 @@ package org.wso2.micro.gateway.core.throttle;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -33,7 +31,8 @@ import java.util.concurrent.TimeUnit;
 public class ThrottleDataCleanUpTask {
 
     private static final Logger log = LogManager.getLogger(ThrottleDataCleanUpTask.class);
-    private List<ThrottleData> throttleDataList = new ArrayList<>();
+    private static final int TICKS_PER_WHEEL = 512;
+    private final ThrottleExpiryWheel expiryWheel;
 
     public ThrottleDataCleanUpTask() {
 
@@ -47,6 +46,8 @@ public class ThrottleDataCleanUpTask {
         });
 
         int throttleFrequency = ThrottleConfigHolder.getInstance().getThrottleFrequency();
+        expiryWheel = new ThrottleExpiryWheel(TimeUnit.SECONDS.toMillis(throttleFrequency), TICKS_PER_WHEEL,
+                System.currentTimeMillis());
 
         if (log.isDebugEnabled()) {
             log.debug("Throttling Cleanup Task Frequency set to " + throttleFrequency);
@@ -57,17 +58,25 @@ public class ThrottleDataCleanUpTask {
     }
 
     /**
-     * Add the throttle data instances to be cleaned into the cleanup array list, which is iterated by the cleanup task
-     * which runs periodically.
+     * Add the throttle data instances to be cleaned into the expiry wheel, whose elapsed ticks are visited by the
+     * cleanup task which runs periodically.
      */
     public void addThrottleData(ThrottleData throttleData) {
-        throttleDataList.add(throttleData);
+        expiryWheel.add(throttleData);
     }
 
     private class CleanupTask implements Runnable {
         public void run() {
-            long currentTimeStamp = System.currentTimeMillis();
-            throttleDataList.removeIf(throttleData -> throttleData.cleanThrottleData(currentTimeStamp));
+            try {
+                int expiredCount = expiryWheel.expire(System.currentTimeMillis());
+                if (log.isDebugEnabled()) {
+                    log.debug("Throttle cleanup task removed " + expiredCount + " expired throttle keys. "
+                            + expiryWheel.size() + " throttle keys remain.");
+                }
+            } catch (RuntimeException e) {
+                // An exception would stop the subsequent executions of the task
+                log.error("Error while cleaning up the expired throttle data", e);
+            }
         }
     }
 
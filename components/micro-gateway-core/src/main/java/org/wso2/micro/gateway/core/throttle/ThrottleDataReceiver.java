@@ -20,19 +20,27 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ballerinalang.jvm.values.MapValue;
 
-import java.util.concurrent.ExecutorService;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 /**
- * Throttle data receiver class accepts all the request events and submit the throttle data to a thread pool to
- * calculate throttle counters against each unique throttle key.
+ * Throttle data receiver class accepts all the request events and update the throttle counters against each unique
+ * throttle key, either within the calling thread or by submitting the throttle data to a thread pool.
  */
 public class ThrottleDataReceiver {
     private static ThrottleDataCleanUpTask throttleDataCleanUpTask;
 
     private static final Logger log = LogManager.getLogger(ThrottleDataReceiver.class);
+    private static final String QUEUE_FULL_POLICY_DROP = "drop";
+    private static final String COMPACT_COUNTER_STORE = "compact";
 
     public static ThrottleCounter getThrottleCounter() {
         return throttleCounter;
@@ -40,36 +48,96 @@ public class ThrottleDataReceiver {
 
     private static volatile ThrottleCounter throttleCounter = null;
 
-    private static ExecutorService executor;
+    private static ThreadPoolExecutor executor;
+
+    private static ThrottleProcessingMode processingMode = ThrottleProcessingMode.EXECUTOR;
+
+    private static LocalThrottleMetrics metrics;
 
     /**
      * This method will initialize throttle data counters. Inside this we will start executor and initialize data
      * counter which we used to maintain throttle count against each unique keys.
      */
     public static void initThrottleDataReceiver(int processThreadPoolCoreSize, int processThreadPoolMaximumSize,
-            int processThreadPoolKeepAliveTime, int throttleFrequency) {
-        ThrottleConfigHolder.getInstance()
-                .setData(processThreadPoolCoreSize, processThreadPoolMaximumSize, processThreadPoolKeepAliveTime,
-                        throttleFrequency);
+            int processThreadPoolKeepAliveTime, int throttleFrequency, String throttleAlgorithm,
+            String throttleProcessingMode, int processQueueSize, String queueFullPolicy, String counterStore,
+            int counterStoreSize) {
+        ThrottleConfigHolder throttleConfigHolder = ThrottleConfigHolder.getInstance();
+        throttleConfigHolder.setData(processThreadPoolCoreSize, processThreadPoolMaximumSize,
+                processThreadPoolKeepAliveTime, throttleFrequency);
+        try {
+            throttleConfigHolder.setDefaultAlgorithm(
+                    ThrottleAlgorithm.fromPolicyValue(throttleAlgorithm, ThrottleAlgorithm.FIXED_WINDOW));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid local throttle algorithm is configured. Hence using the "
+                    + ThrottleAlgorithm.FIXED_WINDOW.getPolicyValue() + " algorithm", e);
+        }
+        ThrottleProcessingMode mode = ThrottleProcessingMode.EXECUTOR;
+        try {
+            mode = ThrottleProcessingMode.fromConfigValue(throttleProcessingMode);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid local throttle processing mode is configured. Hence using the "
+                    + ThrottleProcessingMode.EXECUTOR.getConfigValue() + " mode", e);
+        }
+        if (mode == ThrottleProcessingMode.BOUNDED_QUEUE && processQueueSize <= 0) {
+            log.error("Local throttle process queue size should be a positive value. Hence using the "
+                    + ThrottleProcessingMode.EXECUTOR.getConfigValue() + " mode");
+            mode = ThrottleProcessingMode.EXECUTOR;
+        }
+        throttleConfigHolder.setProcessingData(mode, processQueueSize,
+                QUEUE_FULL_POLICY_DROP.equalsIgnoreCase(queueFullPolicy));
+        throttleConfigHolder.setCounterStoreData(COMPACT_COUNTER_STORE.equalsIgnoreCase(counterStore),
+                counterStoreSize * 1024L * 1024L);
         initThrottleExecutors();
         throttleDataCleanUpTask = new ThrottleDataCleanUpTask();
     }
 
     private static void initThrottleExecutors() {
         ThrottleConfigHolder throttleConfigHolder = ThrottleConfigHolder.getInstance();
-        executor = new ThreadPoolExecutor(throttleConfigHolder.getProcessThreadPoolCoreSize(),
-                throttleConfigHolder.getProcessThreadPoolMaximumSize(),
-                throttleConfigHolder.getProcessThreadPoolKeepAliveTime(), TimeUnit.SECONDS,
-                new LinkedBlockingDeque<Runnable>() {
-                });
-        throttleCounter = new ThrottleCounter();
+        processingMode = throttleConfigHolder.getProcessingMode();
+        if (processingMode != ThrottleProcessingMode.INLINE) {
+            BlockingQueue<Runnable> queue;
+            if (processingMode == ThrottleProcessingMode.BOUNDED_QUEUE) {
+                queue = new ArrayBlockingQueue<>(throttleConfigHolder.getProcessQueueSize());
+            } else {
+                queue = new LinkedBlockingDeque<>();
+            }
+            executor = new ThreadPoolExecutor(throttleConfigHolder.getProcessThreadPoolCoreSize(),
+                    throttleConfigHolder.getProcessThreadPoolMaximumSize(),
+                    throttleConfigHolder.getProcessThreadPoolKeepAliveTime(), TimeUnit.SECONDS, queue,
+                    new QueueFullHandler(throttleConfigHolder.isDropOnQueueFull()));
+        }
+        if (throttleConfigHolder.isCompactCounterStore()) {
+            try {
+                ThrottleCounter.initCompactCounterStore(throttleConfigHolder.getCounterStoreMemoryBudget());
+            } catch (IllegalArgumentException e) {
+                log.error("Error while initializing the compact throttle counter store. Hence the throttle counters "
+                        + "are kept in the heap store", e);
+            }
+        }
+        metrics = new LocalThrottleMetrics(processingMode, executor, ThrottleCounter.getCompactCounterStore());
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    new ObjectName(LocalThrottleMetrics.MBEAN_NAME));
+        } catch (JMException e) {
+            log.error("Error while registering the local throttle metrics", e);
+        }
+        throttleCounter = new ThrottleCounter(throttleConfigHolder.getDefaultAlgorithm());
+        if (log.isDebugEnabled()) {
+            log.debug("Local throttle events are processed in the " + processingMode.getConfigValue() + " mode");
+        }
     }
 
     /**
-     * This method used to pass throttle data and let it run within separate thread.
+     * This method used to pass throttle data and update the counters either inline or within a separate thread.
      */
     public static void processNonThrottledEvent(MapValue throttleEvent) {
         try {
+            if (processingMode == ThrottleProcessingMode.INLINE) {
+                DataProcessAgent.updateCounters(throttleCounter, throttleEvent, System.currentTimeMillis());
+                metrics.recordProcessedEvent();
+                return;
+            }
             DataProcessAgent agent = new DataProcessAgent();
             agent.setDataReference(throttleEvent);
             executor.execute(agent);
@@ -97,5 +165,36 @@ public class ThrottleDataReceiver {
     public static ThrottleDataCleanUpTask getThrottleDataCleanUpTask() {
         return throttleDataCleanUpTask;
     }
-}
 
+    static LocalThrottleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Handles the events which do not fit in the bounded processing queue, either by dropping them or by applying
+     * back pressure to the request thread, which then updates the counters by itself.
+     */
+    private static class QueueFullHandler implements RejectedExecutionHandler {
+        private final boolean dropOnQueueFull;
+
+        private QueueFullHandler(boolean dropOnQueueFull) {
+            this.dropOnQueueFull = dropOnQueueFull;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            if (dropOnQueueFull) {
+                metrics.recordDroppedEvent();
+                if (log.isDebugEnabled()) {
+                    log.debug("Throttle event is dropped since the local throttle process queue is full");
+                }
+            } else {
+                metrics.recordCallerRunEvent();
+                runnable.run();
+            }
+        }
+    }
+}
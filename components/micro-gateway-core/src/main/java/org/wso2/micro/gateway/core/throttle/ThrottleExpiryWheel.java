@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel which indexes the throttle data by their expiry time. Throttle data can be added from any
+ * thread, while {@link #expire(long)} is called by a single cleanup thread, which only visits the buckets of the
+ * elapsed ticks. Throttle data which are still in use when their bucket is visited are moved to the bucket of their
+ * new expiry time, hence the cost of a cleanup is proportional to the expired and the extended entries only.
+ */
+final class ThrottleExpiryWheel {
+    private final Queue<ThrottleData> pendingData = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<ThrottleData>[] buckets;
+    private final int mask;
+    private final long tickDuration;
+    private final AtomicLong size = new AtomicLong();
+    // Accessed only by the cleanup thread
+    private long currentTick;
+
+    /**
+     * Create a timing wheel.
+     *
+     * @param tickDuration  Duration of a tick in milliseconds
+     * @param ticksPerWheel Number of buckets in the wheel, which is rounded up to a power of two
+     * @param startTime     Time in milliseconds where the wheel starts
+     */
+    @SuppressWarnings("unchecked")
+    ThrottleExpiryWheel(long tickDuration, int ticksPerWheel, long startTime) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration should be a positive value: " + tickDuration);
+        }
+        int bucketCount = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.buckets = new ArrayDeque[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = bucketCount - 1;
+        this.tickDuration = tickDuration;
+        this.currentTick = startTime / tickDuration;
+    }
+
+    /**
+     * Add throttle data to be expired. This method can be called from any thread.
+     *
+     * @param throttleData Throttle data
+     */
+    void add(ThrottleData throttleData) {
+        size.incrementAndGet();
+        pendingData.add(throttleData);
+    }
+
+    /**
+     * Remove the throttle data which have expired by the given time. This method should only be called by a single
+     * thread at a time.
+     *
+     * @param timestamp Current time in milliseconds
+     * @return Number of expired throttle data
+     */
+    int expire(long timestamp) {
+        long nowTick = timestamp / tickDuration;
+        ThrottleData throttleData;
+        while ((throttleData = pendingData.poll()) != null) {
+            schedule(throttleData, currentTick);
+        }
+        int expiredCount = 0;
+        // A single revolution visits all the buckets, even if the cleanup has not run for a longer time
+        long lastTick = Math.min(nowTick, currentTick + mask);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            ArrayDeque<ThrottleData> bucket = buckets[(int) (tick & mask)];
+            for (int i = bucket.size(); i > 0; i--) {
+                throttleData = bucket.poll();
+                if (throttleData.cleanThrottleData(timestamp)) {
+                    expiredCount++;
+                } else {
+                    schedule(throttleData, nowTick + 1);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick + 1);
+        size.addAndGet(-expiredCount);
+        return expiredCount;
+    }
+
+    /**
+     * @return Number of throttle data waiting to be expired
+     */
+    long size() {
+        return size.get();
+    }
+
+    private void schedule(ThrottleData throttleData, long minimumTick) {
+        long tick = Math.max(throttleData.getExpiryTime() / tickDuration, minimumTick);
+        buckets[(int) (tick & mask)].add(throttleData);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+/**
+ * Modes in which the local throttle counters are updated for the non throttled requests.
+ */
+public enum ThrottleProcessingMode {
+    /**
+     * Counters are updated by a thread pool with an unbounded queue.
+     */
+    EXECUTOR("executor"),
+    /**
+     * Counters are updated by a thread pool with a bounded queue. The events which do not fit in the queue are
+     * either dropped or counted by the calling thread.
+     */
+    BOUNDED_QUEUE("boundedQueue"),
+    /**
+     * Counters are updated by the calling thread before the request proceeds.
+     */
+    INLINE("inline");
+
+    private final String configValue;
+
+    ThrottleProcessingMode(String configValue) {
+        this.configValue = configValue;
+    }
+
+    public String getConfigValue() {
+        return configValue;
+    }
+
+    /**
+     * Resolve the processing mode from its configured value.
+     *
+     * @param configValue Configured processing mode
+     * @return Matching processing mode
+     */
+    public static ThrottleProcessingMode fromConfigValue(String configValue) {
+        for (ThrottleProcessingMode mode : values()) {
+            if (mode.configValue.equalsIgnoreCase(configValue)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported local throttle processing mode provided: " + configValue);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+/**
+ * Operations on the primitive throttle states shared by the throttle counter stores. A window state packs the
+ * window index in the upper 32 bits and the request count of the window in the lower 32 bits. A token bucket state
+ * is the theoretical arrival time of the next request in nanoseconds. All the times are relative to the base time of
+ * the throttle key.
+ */
+final class ThrottleStates {
+    private static final int COUNT_BITS = 32;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private ThrottleStates() {
+    }
+
+    static long getWindowIndex(long time, long unitTime) {
+        return Math.max(0, time) / unitTime;
+    }
+
+    /**
+     * Count a request in a window state. Requests which arrive late for an older window are counted in the current
+     * window.
+     *
+     * @param current Current window state
+     * @param window  Window index of the request
+     * @return New window state
+     */
+    static long incrementWindow(long current, long window) {
+        if (windowIndex(current) >= window) {
+            return windowCount(current) == COUNT_MASK ? current : current + 1;
+        }
+        return (window << COUNT_BITS) | 1;
+    }
+
+    static long getEmptyWindow(long window) {
+        return window << COUNT_BITS;
+    }
+
+    static boolean isWindowRolledOver(long current, long next) {
+        return windowIndex(current) != windowIndex(next);
+    }
+
+    /**
+     * Provide the state of the window preceding a given window, once the window state has rolled over.
+     *
+     * @param rolledOver Window state before the roll over
+     * @param window     Window index after the roll over
+     * @return Previous window state
+     */
+    static long getPreviousWindow(long rolledOver, long window) {
+        return windowIndex(rolledOver) == window - 1 ? rolledOver : (window - 1) << COUNT_BITS;
+    }
+
+    static boolean isWindowLimitReached(long current, long window, long limit) {
+        return windowIndex(current) == window && windowCount(current) >= limit;
+    }
+
+    /**
+     * Estimate the number of requests within the unit time preceding the given time, assuming that the requests of
+     * the previous window were evenly distributed.
+     */
+    static double getSlidingWindowCount(long current, long previous, long time, long unitTime) {
+        long window = getWindowIndex(time, unitTime);
+        long currentWindow = windowIndex(current);
+        long currentCount;
+        long previousCount;
+        if (currentWindow == window) {
+            currentCount = windowCount(current);
+            previousCount = windowIndex(previous) == window - 1 ? windowCount(previous) : 0;
+        } else if (currentWindow == window - 1) {
+            currentCount = 0;
+            previousCount = windowCount(current);
+        } else {
+            return 0;
+        }
+        double elapsed = (double) (Math.max(0, time) % unitTime) / unitTime;
+        return previousCount * (1 - elapsed) + currentCount;
+    }
+
+    static long getWindowExpiryTime(long current, long unitTime, int windowCount) {
+        return (windowIndex(current) + windowCount) * unitTime;
+    }
+
+    static long getNextArrivalTime(long arrivalTime, long time, long unitTime, long limit) {
+        return Math.max(arrivalTime, time * NANOS_PER_MILLI) + getEmissionInterval(unitTime, limit);
+    }
+
+    /**
+     * Check whether a token bucket is empty. The bucket holds the limit of the policy and is refilled at the rate of
+     * the policy, hence it is empty if the next request arrives earlier than one unit time before its theoretical
+     * arrival time.
+     */
+    static boolean isBucketEmpty(long arrivalTime, long time, long unitTime, long limit) {
+        return arrivalTime - time * NANOS_PER_MILLI > unitTime * NANOS_PER_MILLI - getEmissionInterval(unitTime, limit);
+    }
+
+    static long getFullBucket(long time) {
+        return time * NANOS_PER_MILLI;
+    }
+
+    static long getBucketExpiryTime(long arrivalTime) {
+        return arrivalTime / NANOS_PER_MILLI;
+    }
+
+    private static long getEmissionInterval(long unitTime, long limit) {
+        return unitTime * NANOS_PER_MILLI / limit;
+    }
+
+    private static long windowIndex(long packedWindow) {
+        return packedWindow >>> COUNT_BITS;
+    }
+
+    private static long windowCount(long packedWindow) {
+        return packedWindow & COUNT_MASK;
+    }
+}
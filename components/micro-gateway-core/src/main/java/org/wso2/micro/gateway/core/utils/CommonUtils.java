@@ -16,6 +16,7 @@
 package org.wso2.micro.gateway.core.utils;
 
 import org.wso2.micro.gateway.core.Constants;
+import org.wso2.micro.gateway.core.validation.SchemaCache;
 import org.wso2.micro.gateway.core.validation.Validate;
 
 import java.io.BufferedReader;
@@ -93,6 +94,7 @@ public class CommonUtils {
                         stringBuffer.append(line).append("\n");
                     }
                     openAPIMap.put(serviceName, stringBuffer.toString());
+                    SchemaCache.loadSchemas(serviceName, stringBuffer.toString());
                 }
             }
         }
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.wso2.micro.gateway.core.validation;
+
+import org.ballerinalang.jvm.values.ArrayValue;
+
+import java.io.InputStream;
+
+/**
+ * Reads the bytes of a Ballerina byte array in place. {@link ArrayValue#getBytes()} returns a copy of the array,
+ * which would keep a second copy of the payload while it is parsed.
+ */
+final class ArrayValueInputStream extends InputStream {
+    private final ArrayValue bytes;
+    private final long size;
+    private long position;
+
+    ArrayValueInputStream(ArrayValue bytes) {
+        this.bytes = bytes;
+        this.size = bytes.size();
+    }
+
+    @Override
+    public int read() {
+        return position < size ? bytes.getByte(position++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(length, size - position);
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = bytes.getByte(position++);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, size - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(size - position, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.validation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a json payload from its raw bytes with the streaming parser and builds the json object or array used by
+ * the schema validator directly, without creating an intermediate string of the payload.
+ */
+final class JsonPayloadReader {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    static final int MAX_NESTING_DEPTH = 1000;
+
+    private JsonPayloadReader() {
+    }
+
+    /**
+     * Read a json payload.
+     *
+     * @param payload Raw payload
+     * @return {@link JSONObject} or {@link JSONArray} for json objects and arrays, else the scalar value
+     * @throws IOException If the payload is not a valid json
+     */
+    static Object read(InputStream payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "No content to read due to end-of-input");
+            }
+            Object value = readValue(parser, token, 0);
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the end of the json value");
+            }
+            return value;
+        }
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token, int depth) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                checkDepth(parser, depth);
+                JSONObject object = new JSONObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    // Rejected as done by the org.json parser, instead of keeping the last value of the key
+                    if (object.has(name)) {
+                        throw new JsonParseException(parser, "Duplicate key \"" + name + "\"");
+                    }
+                    object.put(name, readValue(parser, parser.nextToken(), depth + 1));
+                }
+                return object;
+            case START_ARRAY:
+                checkDepth(parser, depth);
+                JSONArray array = new JSONArray();
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    array.put(readValue(parser, element, depth + 1));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return JSONObject.NULL;
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + token);
+        }
+    }
+
+    private static void checkDepth(JsonParser parser, int depth) throws JsonParseException {
+        if (depth >= MAX_NESTING_DEPTH) {
+            throw new JsonParseException(parser, "Json payload exceeds the maximum nesting depth of "
+                    + MAX_NESTING_DEPTH);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ReadContext;
+
+import java.io.IOException;
+
+/**
+ * Immutable view of an open API definition used to resolve the $ref references of its schemas. A single
+ * instance is shared by all the validations of an API, hence none of the methods modify the parsed definition.
+ */
+final class ResolutionContext {
+    private final ReadContext document;
+    private final JsonNode rootNode;
+
+    ResolutionContext(String openAPI) throws IOException {
+        this.document = JsonPath.parse(openAPI);
+        this.rootNode = new ObjectMapper().readTree(openAPI);
+    }
+
+    /**
+     * Evaluate a json path against the open API definition.
+     *
+     * @param jsonPath Json path to be evaluated
+     * @return Result of the evaluation
+     */
+    Object read(String jsonPath) {
+        return document.read(jsonPath);
+    }
+
+    /**
+     * Provide a copy of the node referred by a json pointer, which can be modified by the caller.
+     *
+     * @param jsonPointer Json pointer of the node
+     * @return Copy of the referred node
+     */
+    JsonNode at(String jsonPointer) {
+        return rootNode.at(jsonPointer).deepCopy();
+    }
+
+    JsonNode getPaths() {
+        return rootNode.get("paths");
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.wso2.micro.gateway.core.Constants;
+import org.wso2.micro.gateway.core.utils.CommonUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the compiled request/response schemas of each service, so that the schemas are resolved and
+ * loaded only once instead of for every validated message.
+ */
+public class SchemaCache {
+    private static final Logger logger = LogManager.getLogger(SchemaCache.class);
+    private static final Set<String> HTTP_METHODS = new HashSet<>(Arrays.asList("get", "put", "post", "delete",
+            "options", "head", "patch"));
+    private static final String REQUEST_KEY = "request";
+    private static final char KEY_SEPARATOR = ':';
+
+    private static final Map<String, ServiceSchemas> schemaMap = new ConcurrentHashMap<>();
+
+    /**
+     * Resolve and compile the request and response schemas of all the resources in the open API definition.
+     * Schemas which cannot be resolved at this point are resolved again when the first message is validated.
+     *
+     * @param serviceName Qualified service name of the API
+     * @param openAPI     Open API definition of the API as a json string
+     */
+    public static void loadSchemas(String serviceName, String openAPI) {
+        ServiceSchemas serviceSchemas;
+        try {
+            serviceSchemas = new ServiceSchemas(new ResolutionContext(openAPI));
+        } catch (IOException e) {
+            logger.error("Error occurred while reading the open API definition of " + serviceName, e);
+            return;
+        }
+        schemaMap.put(serviceName, serviceSchemas);
+        ResolutionContext context = serviceSchemas.context;
+        JsonNode paths = context.getPaths();
+        if (paths == null) {
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> pathIterator = paths.fields();
+        while (pathIterator.hasNext()) {
+            Map.Entry<String, JsonNode> path = pathIterator.next();
+            Iterator<Map.Entry<String, JsonNode>> operations = path.getValue().fields();
+            while (operations.hasNext()) {
+                Map.Entry<String, JsonNode> operation = operations.next();
+                String method = operation.getKey().toLowerCase();
+                if (!HTTP_METHODS.contains(method)) {
+                    continue;
+                }
+                if (!"get".equals(method)) {
+                    try {
+                        serviceSchemas.schemas.put(getKey(path.getKey(), method, REQUEST_KEY),
+                                compile(Validate.extractSchemaFromRequest(path.getKey(), method, context)));
+                    } catch (Exception e) {
+                        logger.debug("Request schema of " + method + " " + path.getKey() + " is not preloaded", e);
+                    }
+                }
+                JsonNode responses = operation.getValue().get("responses");
+                if (responses == null) {
+                    continue;
+                }
+                Iterator<String> responseCodes = responses.fieldNames();
+                while (responseCodes.hasNext()) {
+                    String responseCode = responseCodes.next();
+                    try {
+                        serviceSchemas.schemas.put(getKey(path.getKey(), method, responseCode),
+                                compile(Validate.extractResponse(path.getKey(), method, responseCode, context)));
+                    } catch (Exception e) {
+                        logger.debug("Response schema of " + method + " " + path.getKey() + " for the code "
+                                + responseCode + " is not preloaded", e);
+                    }
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(serviceSchemas.schemas.size() + " schemas are preloaded for the service " + serviceName);
+        }
+    }
+
+    /**
+     * Provide the compiled request schema of a resource.
+     *
+     * @param serviceName  Qualified service name of the API
+     * @param resourcePath API request resource path
+     * @param reqMethod    API request method
+     * @return Compiled schema or null if the resource does not define a request schema
+     */
+    static Schema getRequestSchema(String serviceName, String resourcePath, String reqMethod) throws IOException {
+        String method = reqMethod.toLowerCase();
+        ServiceSchemas serviceSchemas = getServiceSchemas(serviceName);
+        String key = getKey(resourcePath, method, REQUEST_KEY);
+        CompiledSchema compiledSchema = serviceSchemas.schemas.get(key);
+        if (compiledSchema == null) {
+            compiledSchema = compile(Validate.extractSchemaFromRequest(resourcePath, method, serviceSchemas.context));
+            serviceSchemas.schemas.putIfAbsent(key, compiledSchema);
+        }
+        return compiledSchema.schema;
+    }
+
+    /**
+     * Provide the compiled response schema of a resource for a given response code.
+     *
+     * @param serviceName  Qualified service name of the API
+     * @param resourcePath API request resource path
+     * @param reqMethod    API request method
+     * @param responseCode Response status code
+     * @return Compiled schema or null if the resource does not define a response schema for the code
+     */
+    static Schema getResponseSchema(String serviceName, String resourcePath, String reqMethod, String responseCode)
+            throws IOException {
+        String method = reqMethod.toLowerCase();
+        ServiceSchemas serviceSchemas = getServiceSchemas(serviceName);
+        String key = getKey(resourcePath, method, responseCode);
+        CompiledSchema compiledSchema = serviceSchemas.schemas.get(key);
+        if (compiledSchema == null) {
+            compiledSchema = compile(Validate.extractResponse(resourcePath, method, responseCode,
+                    serviceSchemas.context));
+            serviceSchemas.schemas.putIfAbsent(key, compiledSchema);
+        }
+        return compiledSchema.schema;
+    }
+
+    private static ServiceSchemas getServiceSchemas(String serviceName) throws IOException {
+        ServiceSchemas serviceSchemas = schemaMap.get(serviceName);
+        if (serviceSchemas == null) {
+            String openAPI = CommonUtils.getOpenAPIMap().get(serviceName);
+            serviceSchemas = new ServiceSchemas(new ResolutionContext(openAPI));
+            ServiceSchemas existing = schemaMap.putIfAbsent(serviceName, serviceSchemas);
+            if (existing != null) {
+                serviceSchemas = existing;
+            }
+        }
+        return serviceSchemas;
+    }
+
+    private static CompiledSchema compile(String schemaString) {
+        if (schemaString == null || Constants.EMPTY_ARRAY.equals(schemaString)) {
+            return CompiledSchema.NO_SCHEMA;
+        }
+        return new CompiledSchema(SchemaLoader.load(new JSONObject(schemaString)));
+    }
+
+    private static String getKey(String resourcePath, String method, String status) {
+        return resourcePath + KEY_SEPARATOR + method + KEY_SEPARATOR + status;
+    }
+
+    /**
+     * Resolution context and the compiled schemas of a single service.
+     */
+    private static class ServiceSchemas {
+        private final ResolutionContext context;
+        private final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+
+        private ServiceSchemas(ResolutionContext context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * Holder for a compiled schema, which also allows to cache the resources that do not have a schema.
+     */
+    private static class CompiledSchema {
+        private static final CompiledSchema NO_SCHEMA = new CompiledSchema(null);
+        private final Schema schema;
+
+        private CompiledSchema(Schema schema) {
+            this.schema = schema;
+        }
+    }
+}
@@ -21,20 +21,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
 import com.google.common.collect.Lists;
-import com.jayway.jsonpath.JsonPath;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.ballerinalang.jvm.values.ArrayValue;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.ValidationException;
-import org.everit.json.schema.loader.SchemaLoader;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.wso2.micro.gateway.core.Constants;
-import org.wso2.micro.gateway.core.utils.CommonUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -45,8 +44,6 @@ import java.util.Map;
  */
 public class Validate {
     private static final Logger logger = LogManager.getLogger(Validate.class);
-    private static JsonNode rootNode;
-    private static String swaggerObject;
 
     /**
      * Validate request message.
@@ -58,12 +55,11 @@ public class Validate {
      */
     public static String validateRequest(String requestPath, String reqMethod, String payload, String serviceName)
             throws IOException {
-        String swagger = CommonUtils.getOpenAPIMap().get(serviceName);
         if ("get".equals(reqMethod) || "GET".equals(reqMethod)) {
             return Constants.VALIDATED_STATUS;
         }
-        String schema = extractSchemaFromRequest(requestPath, reqMethod, swagger);
-        if (schema != null && !Constants.EMPTY_ARRAY.equals(schema)) {
+        Schema schema = SchemaCache.getRequestSchema(serviceName, requestPath, reqMethod);
+        if (schema != null) {
             return validateContent(payload, schema);
         } else  {
             return Constants.VALIDATED_STATUS;
@@ -79,25 +75,65 @@ public class Validate {
      * @return Status of the validation result
      */
     public static String validateResponse(String resourcePath, String reqMethod, String responseCode, String response,
-                                          String serviceName) {
-        String swagger = CommonUtils.getOpenAPIMap().get(serviceName);
-        String responseSchema = extractResponse(resourcePath, reqMethod, responseCode, swagger);
-        if (responseSchema != null && !Constants.EMPTY_ARRAY.equals(responseSchema)) {
+                                          String serviceName) throws IOException {
+        Schema responseSchema = SchemaCache.getResponseSchema(serviceName, resourcePath, reqMethod, responseCode);
+        if (responseSchema != null) {
             return validateContent(response, responseSchema);
         } else {
             return Constants.VALIDATED_STATUS;
         }
     }
 
+    /**
+     * Validate request message from the raw payload. Json arrays are validated as well in this mode.
+     *
+     * @param requestPath API request resource path
+     * @param reqMethod   API request method
+     * @param payload     Raw request payload
+     * @param serviceName Qualified service name of the API
+     * @return Status of the validation
+     */
+    public static String validateRequestStream(String requestPath, String reqMethod, ArrayValue payload,
+                                               String serviceName) throws IOException {
+        if ("get".equals(reqMethod) || "GET".equals(reqMethod)) {
+            return Constants.VALIDATED_STATUS;
+        }
+        Schema schema = SchemaCache.getRequestSchema(serviceName, requestPath, reqMethod);
+        if (schema != null) {
+            return validateContent(new ArrayValueInputStream(payload), schema);
+        } else {
+            return Constants.VALIDATED_STATUS;
+        }
+    }
 
+    /**
+     * Validate response message from the raw payload. Json arrays are validated as well in this mode.
+     *
+     * @param resourcePath request resource path
+     * @param reqMethod    request method
+     * @param responseCode response message code
+     * @param response     Raw response payload
+     * @param serviceName  Qualified service name of the API
+     * @return Status of the validation result
+     */
+    public static String validateResponseStream(String resourcePath, String reqMethod, String responseCode,
+                                                ArrayValue response, String serviceName) throws IOException {
+        Schema responseSchema = SchemaCache.getResponseSchema(serviceName, resourcePath, reqMethod, responseCode);
+        if (responseSchema != null) {
+            return validateContent(new ArrayValueInputStream(response), responseSchema);
+        } else {
+            return Constants.VALIDATED_STATUS;
+        }
+    }
 
-    private static String extractSchemaFromRequest(String resourcePath, String requestMethod, String swagger)
-            throws IOException {
+    /**
+     * Extract the request schema from swagger.
+     *
+     * @return request schema
+     */
+    static String extractSchemaFromRequest(String resourcePath, String requestMethod, ResolutionContext context) {
         String schema;
-        ObjectMapper objectMapper = new ObjectMapper();
-        rootNode = objectMapper.readTree(swagger.getBytes());
-        swaggerObject = swagger;
-        String value = JsonPath.read(swagger, Constants.JSON_PATH +
+        String value = context.read(Constants.JSON_PATH +
                 Constants.OPEN_API).toString();
         if (value != null && !value.equals(Constants.EMPTY_ARRAY)) {
             //refer schema
@@ -106,23 +142,23 @@ public class Validate {
                     .append(resourcePath).append(Constants.JSONPATH_SEPARATE)
                     .append(requestMethod.toLowerCase())
                     .append(Constants.BODY_CONTENT);
-            schema = JsonPath.read(swagger, jsonPath.toString()).toString();
+            schema = context.read(jsonPath.toString()).toString();
             if (schema == null || Constants.EMPTY_ARRAY.equals(schema)) {
                 // refer request bodies
                 StringBuilder requestBodyPath = new StringBuilder();
                 requestBodyPath.append(Constants.PATHS).append(resourcePath).
                         append(Constants.JSONPATH_SEPARATE).
                         append(requestMethod.toLowerCase()).append(Constants.REQUEST_BODY);
-                schema = JsonPath.read(swagger, requestBodyPath.toString()).toString();
+                schema = context.read(requestBodyPath.toString()).toString();
             }
         } else {
             StringBuilder schemaPath = new StringBuilder();
             schemaPath.append(Constants.PATHS).append(resourcePath).
                     append(Constants.JSONPATH_SEPARATE)
                     .append(requestMethod.toLowerCase()).append(Constants.PARAM_SCHEMA);
-            schema = JsonPath.read(swagger, schemaPath.toString()).toString();
+            schema = context.read(schemaPath.toString()).toString();
         }
-        return extractReference(schema);
+        return extractReference(schema, context);
     }
 
     /**
@@ -131,7 +167,7 @@ public class Validate {
      * @param schemaNode Schema node to be extracted
      * @return extracted schema
      */
-    private static String extractReference(String schemaNode) {
+    private static String extractReference(String schemaNode, ResolutionContext context) {
         String schemaContent = null;
         String[] val = schemaNode.split("" + Constants.HASH);
         String path = val[1].replaceAll("\"|}|]|\\\\", "");
@@ -143,7 +179,7 @@ public class Validate {
 
         String nodeVal = path.replaceAll("" + Constants.FORWARD_SLASH, ".");
         String name = null;
-        Object object = JsonPath.read(swaggerObject, Constants.JSON_PATH + nodeVal);
+        Object object = context.read(Constants.JSON_PATH + nodeVal);
         String value;
         ObjectMapper mapper = new ObjectMapper();
 
@@ -159,7 +195,7 @@ public class Validate {
                 StringBuilder extractRefPath = new StringBuilder();
                 extractRefPath.append(Constants.JSON_PATH).append(Constants.REQUESTBODY_SCHEMA).
                         append(searchLastIndex).append(Constants.JSON_SCHEMA);
-                String res = JsonPath.read(swaggerObject, extractRefPath.toString()).toString();
+                String res = context.read(extractRefPath.toString()).toString();
                 if (res.contains(Constants.ITEMS)) {
                     StringBuilder requestSchemaPath = new StringBuilder();
                     requestSchemaPath.append(Constants.JSON_PATH).
@@ -167,20 +203,19 @@ public class Validate {
                             searchLastIndex).append(Constants.JSON_SCHEMA).
                             append(Constants.JSONPATH_SEPARATE).append(Constants.ITEMS).
                             append(Constants.JSONPATH_SEPARATE).append(Constants.SCHEMA_REFERENCE);
-                    name = JsonPath.read(swaggerObject, requestSchemaPath.toString()).toString();
-                    extractReference(name);
+                    name = context.read(requestSchemaPath.toString()).toString();
+                    extractReference(name, context);
                 } else {
                     StringBuilder jsonSchemaRef = new StringBuilder();
                     jsonSchemaRef.append(Constants.JSON_PATH).append(
                             Constants.REQUESTBODY_SCHEMA).append(searchLastIndex).append(
                             Constants.CONTENT).append(Constants.JSON_CONTENT);
-                    name = JsonPath.read(swaggerObject, jsonSchemaRef.toString()).toString();
+                    name = context.read(jsonSchemaRef.toString()).toString();
                     if (name.contains(Constants.COMPONENT_SCHEMA)) {
-                        Object componentSchema = JsonPath.read(swaggerObject,
-                                Constants.JSONPATH_SCHEMAS + searchLastIndex);
+                        Object componentSchema = context.read(Constants.JSONPATH_SCHEMAS + searchLastIndex);
                         mapper = new ObjectMapper();
                         JsonNode jsonNode = mapper.convertValue(componentSchema, JsonNode.class);
-                        generateSchema(jsonNode);
+                        generateSchema(jsonNode, context);
                         if (jsonNode.get(0) != null) {
                             name = jsonNode.get(0).toString();
                         } else {
@@ -188,15 +223,14 @@ public class Validate {
                         }
                         schemaContent = name;
                     } else {
-                        extractReference(name);
+                        extractReference(name, context);
                     }
                 }
             } else if (nodeVal.contains(Constants.SCHEMA)) {
-                Object componentSchema = JsonPath.read(swaggerObject,
-                        Constants.JSONPATH_SCHEMAS + searchLastIndex);
+                Object componentSchema = context.read(Constants.JSONPATH_SCHEMAS + searchLastIndex);
                 mapper = new ObjectMapper();
                 JsonNode jsonNode = mapper.convertValue(componentSchema, JsonNode.class);
-                generateSchema(jsonNode);
+                generateSchema(jsonNode, context);
                 if (jsonNode.get(0) != null) {
                     name = jsonNode.get(0).toString();
                 } else {
@@ -209,10 +243,10 @@ public class Validate {
             requestSchemaPath.append(Constants.JSON_PATH).
                     append(Constants.DEFINITIONS).append(Constants.JSONPATH_SEPARATE
             ).append(searchLastIndex);
-            Object nameObj = JsonPath.read(swaggerObject, requestSchemaPath.toString());
+            Object nameObj = context.read(requestSchemaPath.toString());
             mapper = new ObjectMapper();
             JsonNode jsonNode = mapper.convertValue(nameObj, JsonNode.class);
-            generateSchema(jsonNode);
+            generateSchema(jsonNode, context);
             if (jsonNode.get(0) != null) {
                 name = jsonNode.get(0).toString();
             } else {
@@ -231,7 +265,7 @@ public class Validate {
      *
      * @param parent Swagger definition parent Node
      */
-    private static void generateSchema(JsonNode parent) {
+    private static void generateSchema(JsonNode parent, ResolutionContext context) {
         JsonNode schemaProperty;
         Iterator<Map.Entry<String, JsonNode>> schemaNode;
         if (parent.get(0) != null) {
@@ -247,7 +281,7 @@ public class Validate {
                 while (refItems.hasNext()) {
                     Map.Entry<String, JsonNode> entryRef = refItems.next();
                     if (entryRef.getKey().equals(Constants.SCHEMA_REFERENCE)) {
-                        JsonNode schemaObject = extractSchemaObject(entryRef.getValue());
+                        JsonNode schemaObject = extractSchemaObject(entryRef.getValue(), context);
                         if (schemaObject != null) {
                             entry.setValue(schemaObject);
                         }
@@ -256,10 +290,10 @@ public class Validate {
             }
             schemaProperty = entry.getValue();
             if (JsonNodeType.OBJECT == schemaProperty.getNodeType()) {
-                generateSchema(schemaProperty);
+                generateSchema(schemaProperty, context);
             }
             if (JsonNodeType.ARRAY == schemaProperty.getNodeType()) {
-                generateArraySchemas(entry);
+                generateArraySchemas(entry, context);
             }
         }
     }
@@ -270,12 +304,12 @@ public class Validate {
      * @param refNode JSON node to be extracted
      * @return Extracted schema
      */
-    private static JsonNode extractSchemaObject(JsonNode refNode) {
+    private static JsonNode extractSchemaObject(JsonNode refNode, ResolutionContext context) {
         String[] val = refNode.toString().split("" + Constants.HASH);
         String path = val[1].replace("\\{^\"|\"}", Constants.EMPTY).replace
                 ("\"", Constants.EMPTY).replace("}", Constants.EMPTY)
                 .replaceAll(Constants.BACKWARD_SLASH, Constants.EMPTY);
-        return rootNode.at(path);
+        return context.at(path);
     }
 
     /**
@@ -283,7 +317,7 @@ public class Validate {
      *
      * @param entry Array reference to be replaced from actual value.
      */
-    private static void generateArraySchemas(Map.Entry<String, JsonNode> entry) {
+    private static void generateArraySchemas(Map.Entry<String, JsonNode> entry, ResolutionContext context) {
         JsonNode entryRef;
         JsonNode ref;
         JsonNode schemaProperty;
@@ -297,7 +331,7 @@ public class Validate {
             for (int i = 0; i < nodeList.size(); i++) {
                 entryRef = nodeList.get(i);
                 if (entryRef.has(Constants.SCHEMA_REFERENCE)) {
-                    ref = extractSchemaObject(entryRef);
+                    ref = extractSchemaObject(entryRef, context);
                     nodeList.remove(i);
                     nodeList.add(ref);
                 }
@@ -311,15 +345,13 @@ public class Validate {
     /**
      * Validate the Request/response content.
      *
-     * @param payload      Request/response payload
-     * @param schemaString Schema which uses to validate request/response messages
+     * @param payload Request/response payload
+     * @param schema  Compiled schema which uses to validate request/response messages
      * @return Returns "validated" or everit error logs
      */
-    private static String validateContent(String payload, String schemaString) {
+    private static String validateContent(String payload, Schema schema) {
 
         StringBuilder finalMessage = new StringBuilder();
-        List<String> errorMessages;
-        JSONObject jsonSchema = new JSONObject(schemaString);
         JSONObject payloadObject = null;
 
         //if payload is not a valid json string
@@ -336,16 +368,33 @@ public class Validate {
             }
         }
 
-        Schema schema = SchemaLoader.load(jsonSchema);
-        if (schema == null) {
-            return null;
+        return validatePayload(payloadObject, schema);
+    }
+
+    /**
+     * Validate the raw Request/response content.
+     *
+     * @param payload Raw request/response payload
+     * @param schema  Compiled schema which uses to validate request/response messages
+     * @return Returns "validated" or everit error logs
+     */
+    private static String validateContent(InputStream payload, Schema schema) {
+        Object payloadObject;
+        try {
+            payloadObject = JsonPayloadReader.read(payload);
+        } catch (IOException e) {
+            return "Provided payload is not a valid json. " + e.getMessage();
         }
+        return validatePayload(payloadObject, schema);
+    }
+
+    private static String validatePayload(Object payloadObject, Schema schema) {
         try {
             schema.validate(payloadObject);
             return Constants.VALIDATED_STATUS;
         } catch (ValidationException e) {
-            errorMessages = e.getAllMessages();
-            for (String message : errorMessages) {
+            StringBuilder finalMessage = new StringBuilder();
+            for (String message : e.getAllMessages()) {
                 finalMessage.append(message).append(", ");
             }
             return finalMessage.toString();
@@ -357,7 +406,8 @@ public class Validate {
      *
      * @return response schema
      */
-    private static String extractResponse(String reqPath, String reqMethod, String responseCode, String swagger) {
+    static String extractResponse(String reqPath, String reqMethod, String responseCode,
+                                  ResolutionContext context) {
         Object resourceSchema;
         Object resource;
         Object content = null;
@@ -371,24 +421,18 @@ public class Validate {
         responseSchemaPath.append(Constants.PATHS).append(reqPath).
                 append(Constants.JSONPATH_SEPARATE).append(reqMethod.toLowerCase()).
                 append(Constants.JSON_RESPONSES).append(responseCode);
-        resource = JsonPath.read(swagger, responseSchemaPath.toString());
-        swaggerObject = swagger;
-        try {
-            rootNode = mapper.readTree(swagger.getBytes());
-        } catch (IOException e) {
-            logger.error("Error occurred while reading the swagger.", e);
-        }
+        resource = context.read(responseSchemaPath.toString());
         if (resource != null) {
             responseSchemaPath.append(Constants.CONTENT);
-            content = JsonPath.read(swagger, responseSchemaPath.toString());
+            content = context.read(responseSchemaPath.toString());
         }
         if (content != null) {
             responseSchemaPath.append(Constants.JSON_CONTENT);
-            schemaCon = JsonPath.read(swagger, responseSchemaPath.toString());
+            schemaCon = context.read(responseSchemaPath.toString());
         }
         if (schemaCon != null) {
             if (!schemaCon.toString().equals(Constants.EMPTY_ARRAY)) {
-                return extractReference(schemaCon.toString());
+                return extractReference(schemaCon.toString(), context);
             } else {
                 StringBuilder pathBuilder = new StringBuilder();
                 pathBuilder.append(Constants.PATHS).append(reqPath).
@@ -396,7 +440,7 @@ public class Validate {
                         append(Constants.JSON_RESPONSES).
                         append(responseCode).append(Constants.JSON_SCHEMA);
 
-                schema = JsonPath.read(swagger, pathBuilder.toString()).toString();
+                schema = context.read(pathBuilder.toString()).toString();
                 JsonNode jsonNode = mapper.convertValue(schema, JsonNode.class);
                 if (jsonNode.get(0) != null) {
                     value = jsonNode.get(0).toString();
@@ -410,11 +454,11 @@ public class Validate {
                             append(Constants.JSON_RESPONSES).append(responseCode).
                             append(Constants.JSON_SCHEMA).append(
                             Constants.JSONPATH_SEPARATE).append(Constants.ITEMS);
-                    name = JsonPath.read(swagger, requestSchemaPath.toString()).toString();
+                    name = context.read(requestSchemaPath.toString()).toString();
                     if (name.contains(Constants.SCHEMA_REFERENCE)) {
                         requestSchemaPath.append(Constants.JSONPATH_SEPARATE).
                                 append(Constants.SCHEMA_REFERENCE);
-                        return extractReference(name);
+                        return extractReference(name, context);
                     }
                     return value;
                 }
@@ -425,7 +469,7 @@ public class Validate {
                 Constants.JSONPATH_SEPARATE).append(reqMethod.toLowerCase()).
                 append(Constants.JSON_RESPONSES).append(responseCode).append
                 (Constants.SCHEMA);
-        resource = JsonPath.read(swagger, resPath.toString());
+        resource = context.read(resPath.toString());
         JsonNode json = mapper.convertValue(resource, JsonNode.class);
         if (json.get(0) != null && !Constants.EMPTY_ARRAY.equals(json.get(0))) {
             value = json.get(0).toString();
@@ -441,7 +485,7 @@ public class Validate {
                             Constants.SCHEMA_REFERENCE).elements();
                     JsonNode nodeNext = schemaNode.next();
                     if (nodeNext != null) {
-                        return extractReference(nodeNext.toString());
+                        return extractReference(nodeNext.toString(), context);
                     }
                 } catch (IOException e) {
                     logger.error("Error occurred while converting bytes from json node");
@@ -454,7 +498,7 @@ public class Validate {
             responseDefaultPath.append(Constants.PATHS).append(reqPath).
                     append(Constants.JSONPATH_SEPARATE).append(reqMethod.toLowerCase()).
                     append(Constants.JSON_RESPONSES).append(Constants.DEFAULT);
-            resourceSchema = JsonPath.read(swagger, responseDefaultPath.toString());
+            resourceSchema = context.read(responseDefaultPath.toString());
             JsonNode jnode = mapper.convertValue(resourceSchema, JsonNode.class);
             if (jnode.get(0) != null && !Constants.EMPTY_ARRAY.equals(jnode)) {
                 value = jnode.get(0).toString();
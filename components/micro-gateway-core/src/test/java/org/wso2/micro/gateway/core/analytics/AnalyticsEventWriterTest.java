@@ -0,0 +1,263 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.analytics;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Verifies that the analytics events written concurrently are neither lost nor duplicated across file rotations, and
+ * that the binary files can be read back block by block.
+ */
+public class AnalyticsEventWriterTest {
+    private static final String FILE_NAME = "api-usage-data.dat.tmp";
+    private static final String STREAM_ID = "org.wso2.apimgt.statistics.request:3.1.0";
+    private static final String META_DATA = "{\"keyType\":\"PRODUCTION\"}";
+    private static final long TIMESTAMP = 1577836800000L;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("analytics");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testConcurrentWritesWithRotation() throws Exception {
+        int threadCount = 8;
+        int eventsPerThread = 20000;
+        AnalyticsEventWriter writer = new AnalyticsEventWriter(directory.resolve(FILE_NAME),
+                new TextAnalyticsEventFormat(), 1 << 18, 64 * 1024, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        int rotationCount = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        Assert.assertTrue(writer.write(STREAM_ID, TIMESTAMP, META_DATA, "event-" + thread + "-" + j));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                while (!future.isDone()) {
+                    if (writer.rotate(directory.resolve("rotated-" + rotationCount))) {
+                        rotationCount++;
+                    }
+                }
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+            writer.close();
+        }
+        Assert.assertTrue(rotationCount > 0);
+        Set<String> events = new HashSet<>();
+        int eventCount = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                for (String event : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    events.add(event);
+                    eventCount++;
+                }
+            }
+        }
+        Assert.assertEquals(threadCount * eventsPerThread, eventCount);
+        Assert.assertEquals(threadCount * eventsPerThread, events.size());
+        Assert.assertEquals(0, writer.getDroppedEventCount());
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+        Path filePath = directory.resolve(FILE_NAME);
+        AnalyticsEventWriter writer = new AnalyticsEventWriter(filePath, new TextAnalyticsEventFormat(), 1024,
+                64 * 1024, 50);
+        try {
+            writer.write(STREAM_ID, TIMESTAMP, META_DATA, "event");
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (Files.size(filePath) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            String expected = "streamId-KS-" + STREAM_ID + "-ES-timestamp-KS-" + TIMESTAMP + "-ES-metadata-KS-" +
+                    META_DATA + "-ES-correlationData-KS-null-ES-payLoadData-KS-event\n";
+            Assert.assertEquals(expected, new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testFailedEventDoesNotStopWriter() throws Exception {
+        Path filePath = directory.resolve(FILE_NAME);
+        AnalyticsEventWriter writer = new AnalyticsEventWriter(filePath, new TextAnalyticsEventFormat(), 1024,
+                64 * 1024, 0);
+        try {
+            // The event without a payload fails to be encoded on the writer thread
+            Assert.assertTrue(writer.write(STREAM_ID, TIMESTAMP, META_DATA, null));
+            writer.write(STREAM_ID, TIMESTAMP, META_DATA, "event");
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (Files.size(filePath) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            String expected = "streamId-KS-" + STREAM_ID + "-ES-timestamp-KS-" + TIMESTAMP + "-ES-metadata-KS-" +
+                    META_DATA + "-ES-correlationData-KS-null-ES-payLoadData-KS-event\n";
+            Assert.assertEquals(expected, new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testRotationWithoutEvents() throws Exception {
+        AnalyticsEventWriter writer = new AnalyticsEventWriter(directory.resolve(FILE_NAME),
+                new TextAnalyticsEventFormat(), 1024, 64 * 1024, 1000);
+        try {
+            Assert.assertFalse(writer.rotate(directory.resolve("rotated")));
+            Assert.assertFalse(Files.exists(directory.resolve("rotated")));
+        } finally {
+            writer.close();
+        }
+        // A binary file with only its header has no events either
+        writer = new AnalyticsEventWriter(directory.resolve(FILE_NAME), new BinaryAnalyticsEventFormat(), 1024,
+                64 * 1024, 1000);
+        try {
+            Assert.assertFalse(writer.rotate(directory.resolve("rotated")));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testBinaryFormat() throws Exception {
+        int eventCount = 50000;
+        int bufferSize = 16 * 1024;
+        StringBuilder largePayload = new StringBuilder();
+        while (largePayload.length() < bufferSize) {
+            largePayload.append("large-\u00e9\u4e2d-");
+        }
+        AnalyticsEventWriter writer = new AnalyticsEventWriter(directory.resolve(FILE_NAME),
+                new BinaryAnalyticsEventFormat(), 1 << 16, bufferSize, 1000);
+        int rotationCount = 0;
+        try {
+            for (int i = 0; i < eventCount; i++) {
+                Assert.assertTrue(writer.write(STREAM_ID, TIMESTAMP + i, META_DATA, "event-\u00e9-" + i));
+                if (i % 10000 == 0) {
+                    Assert.assertTrue(writer.write(STREAM_ID, TIMESTAMP, META_DATA, largePayload.toString()));
+                    Assert.assertTrue(writer.rotate(directory.resolve("rotated-" + rotationCount++)));
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        List<String> payloads = new ArrayList<>();
+        long compressedSize = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                compressedSize += Files.size(file);
+                readBinaryFile(file, payloads);
+            }
+        }
+        Assert.assertEquals(eventCount + rotationCount, payloads.size());
+        Set<String> events = new HashSet<>(payloads);
+        for (int i = 0; i < eventCount; i++) {
+            Assert.assertTrue(events.contains("event-\u00e9-" + i));
+        }
+        Assert.assertTrue(events.contains(largePayload.toString()));
+        // The repeated stream ID and meta data compress well
+        Assert.assertTrue(compressedSize < (long) eventCount * (STREAM_ID.length() + META_DATA.length()) / 4);
+    }
+
+    private static void readBinaryFile(Path file, List<String> payloads) throws IOException, DataFormatException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        byte[] magic = new byte[BinaryAnalyticsEventFormat.MAGIC.length];
+        data.get(magic);
+        Assert.assertArrayEquals(BinaryAnalyticsEventFormat.MAGIC, magic);
+        Assert.assertEquals(BinaryAnalyticsEventFormat.VERSION, data.get());
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        while (data.hasRemaining()) {
+            int eventCount = data.getInt();
+            byte[] events = new byte[data.getInt()];
+            byte[] compressed = new byte[data.getInt()];
+            int checksum = data.getInt();
+            data.get(compressed);
+            inflater.reset();
+            inflater.setInput(compressed);
+            Assert.assertEquals(events.length, inflater.inflate(events));
+            crc.reset();
+            crc.update(events);
+            Assert.assertEquals(checksum, (int) crc.getValue());
+            ByteBuffer block = ByteBuffer.wrap(events);
+            for (int i = 0; i < eventCount; i++) {
+                Assert.assertEquals(STREAM_ID, getString(block));
+                Assert.assertTrue(getVarLong(block) >= TIMESTAMP);
+                Assert.assertEquals(META_DATA, getString(block));
+                payloads.add(getString(block));
+            }
+            Assert.assertFalse(block.hasRemaining());
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) getVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.basicauth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Verifies the password formats and the authentication cache of the basic auth user store.
+ */
+public class BasicAuthUserStoreTest {
+    private static final long CACHE_EXPIRY = TimeUnit.MINUTES.toMillis(1);
+    private static final int CACHE_CAPACITY = 100;
+    // SHA-1 and SHA-256 hashes of "admin"
+    private static final String SHA1_ADMIN = "d033e22ae348aeb5660fc2140aec35850c4da997";
+    private static final String SHA256_ADMIN = "8c6976e5b5410415bde908bd4dee15dfb167a9c873fc4bb8a81f6f2ab448a918";
+
+    @Test
+    public void testPasswordFormats() throws Exception {
+        Map<String, Map<String, Object>> userConfigs = new HashMap<>();
+        addUser(userConfigs, "sha1", SHA1_ADMIN, null);
+        addUser(userConfigs, "sha256", "@sha256:{" + SHA256_ADMIN.toUpperCase() + "}", "observability");
+        addUser(userConfigs, "pbkdf2", createPBKDF2Password("admin", 1000), " scope1, scope2 ,");
+        BasicAuthUserStore userStore = new BasicAuthUserStore(BasicAuthUserStore.createUsers(userConfigs),
+                CACHE_EXPIRY, CACHE_CAPACITY);
+
+        Assert.assertEquals("", authenticate(userStore, "sha1", "admin"));
+        Assert.assertEquals("observability", authenticate(userStore, "sha256", "admin"));
+        Assert.assertEquals("scope1,scope2", authenticate(userStore, "pbkdf2", "admin"));
+        Assert.assertNull(authenticate(userStore, "sha1", "wrong"));
+        Assert.assertNull(authenticate(userStore, "sha256", "wrong"));
+        Assert.assertNull(authenticate(userStore, "pbkdf2", "wrong"));
+        Assert.assertNull(authenticate(userStore, "unknown", "admin"));
+        // The configured hash is not accepted as the password
+        Assert.assertNull(authenticate(userStore, "sha1", SHA1_ADMIN));
+    }
+
+    @Test
+    public void testInvalidPasswords() {
+        Map<String, Map<String, Object>> userConfigs = new HashMap<>();
+        addUser(userConfigs, "plainText", "admin", null);
+        addUser(userConfigs, "unsupported", "@md5:{21232f297a57a5a743894a0e4a801fc3}", null);
+        addUser(userConfigs, "truncated", "@sha256:{" + SHA256_ADMIN.substring(2) + "}", null);
+        addUser(userConfigs, "noPassword", null, null);
+        BasicAuthUserStore userStore = new BasicAuthUserStore(BasicAuthUserStore.createUsers(userConfigs),
+                CACHE_EXPIRY, CACHE_CAPACITY);
+        for (String userName : userConfigs.keySet()) {
+            Assert.assertNull(authenticate(userStore, userName, "admin"));
+            Assert.assertNull(authenticate(userStore, userName, ""));
+        }
+    }
+
+    @Test
+    public void testAuthenticationCache() throws Exception {
+        Map<String, Map<String, Object>> userConfigs = new HashMap<>();
+        addUser(userConfigs, "pbkdf2", createPBKDF2Password("admin", 1000), null);
+        BasicAuthUserStore userStore = new BasicAuthUserStore(BasicAuthUserStore.createUsers(userConfigs),
+                CACHE_EXPIRY, 1);
+
+        Assert.assertNull(authenticate(userStore, "pbkdf2", "wrong"));
+        Assert.assertEquals("Failed authentications should not be cached", 0,
+                userStore.getCachedAuthenticationCount());
+        Assert.assertNotNull(authenticate(userStore, "pbkdf2", "admin"));
+        Assert.assertNotNull(authenticate(userStore, "pbkdf2", "admin"));
+        Assert.assertEquals(1, userStore.getCachedAuthenticationCount());
+        // A credential which differs from the cached credential is verified again
+        Assert.assertNull(authenticate(userStore, "pbkdf2", "admin2"));
+
+        BasicAuthUserStore uncachedUserStore = new BasicAuthUserStore(
+                BasicAuthUserStore.createUsers(userConfigs), 0, CACHE_CAPACITY);
+        Assert.assertNotNull(authenticate(uncachedUserStore, "pbkdf2", "admin"));
+        Assert.assertEquals(0, uncachedUserStore.getCachedAuthenticationCount());
+    }
+
+    @Test
+    public void testUnknownUsersAreVerifiedWithTheSlowestHash() throws Exception {
+        Map<String, Map<String, Object>> userConfigs = new HashMap<>();
+        addUser(userConfigs, "sha1", SHA1_ADMIN, null);
+        BasicAuthUserStore userStore = new BasicAuthUserStore(BasicAuthUserStore.createUsers(userConfigs),
+                CACHE_EXPIRY, CACHE_CAPACITY);
+        Assert.assertFalse(userStore.getUnknownUserVerifier().isSlow());
+
+        addUser(userConfigs, "pbkdf2", createPBKDF2Password("admin", 1000), null);
+        addUser(userConfigs, "pbkdf2Slow", createPBKDF2Password("admin", 2000), null);
+        userStore = new BasicAuthUserStore(BasicAuthUserStore.createUsers(userConfigs), CACHE_EXPIRY,
+                CACHE_CAPACITY);
+        PasswordVerifier unknownUserVerifier = userStore.getUnknownUserVerifier();
+        Assert.assertTrue(unknownUserVerifier.isSlow());
+        Assert.assertEquals(2000, unknownUserVerifier.getIterations());
+        Assert.assertFalse(unknownUserVerifier.verify("admin"));
+        Assert.assertNull(authenticate(userStore, "unknown", "admin"));
+    }
+
+    private static String authenticate(BasicAuthUserStore userStore, String userName, String password) {
+        String credential = Base64.getEncoder()
+                .encodeToString((userName + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return userStore.authenticate(credential, userName, password);
+    }
+
+    private static void addUser(Map<String, Map<String, Object>> userConfigs, String userName, String password,
+                                String scopes) {
+        Map<String, Object> userConfig = new HashMap<>();
+        userConfig.put("password", password);
+        userConfig.put("scopes", scopes);
+        userConfigs.put(userName, userConfig);
+    }
+
+    private static String createPBKDF2Password(String password, int iterations) throws Exception {
+        byte[] salt = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec(password.toCharArray(), salt, iterations, 256)).getEncoded();
+        return "@pbkdf2-sha256:{" + iterations + ":" + Base64.getEncoder().encodeToString(salt) + ":"
+                + Base64.getEncoder().encodeToString(hash) + "}";
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.publisher.ThrottleEventPayloadWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies that the throttle event aggregator accounts for every request exactly once.
+ */
+public class ThrottleEventAggregatorTest {
+    private static final long TIMESTAMP = 1577836800000L;
+
+    @Test
+    public void testAggregation() {
+        List<Event> events = new ArrayList<>();
+        ThrottleEventAggregator aggregator = new ThrottleEventAggregator(100, events::add);
+        for (int i = 0; i < 10; i++) {
+            aggregator.add(createPayload("message" + i, "app1", "{\"ip\":1}"), TIMESTAMP);
+        }
+        aggregator.add(createPayload("message", "app2", "{}"), TIMESTAMP);
+        Assert.assertEquals(2, aggregator.flush(TIMESTAMP));
+        Assert.assertEquals(2, events.size());
+        for (Event event : events) {
+            Object properties = event.getPayloadData()[ThrottleEventPayloadWriter.PROPERTIES_INDEX];
+            if ("app1".equals(event.getPayloadData()[1])) {
+                Assert.assertEquals("{\"requestCount\":10,\"ip\":1}", properties);
+            } else {
+                Assert.assertEquals("{}", properties);
+            }
+        }
+        // Keys without requests since the previous flush are removed
+        Assert.assertEquals(0, aggregator.flush(TIMESTAMP));
+        Assert.assertEquals(0, aggregator.size());
+    }
+
+    @Test
+    public void testKeysBeyondLimitArePublishedDirectly() {
+        List<Event> events = new ArrayList<>();
+        ThrottleEventAggregator aggregator = new ThrottleEventAggregator(1, events::add);
+        aggregator.add(createPayload("message1", "app1", "{}"), TIMESTAMP);
+        aggregator.add(createPayload("message2", "app2", "{}"), TIMESTAMP);
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("app2", events.get(0).getPayloadData()[1]);
+        Assert.assertEquals(1, aggregator.flush(TIMESTAMP));
+    }
+
+    @Test
+    public void testReusedPayloadIsNotRetained() {
+        List<Event> events = new ArrayList<>();
+        ThrottleEventAggregator aggregator = new ThrottleEventAggregator(100, events::add);
+        Object[] payloadData = createPayload("message1", "app1", "{}");
+        aggregator.add(payloadData, TIMESTAMP);
+        payloadData[1] = "app2";
+        aggregator.add(payloadData, TIMESTAMP);
+        Assert.assertEquals(2, aggregator.flush(TIMESTAMP));
+        Set<Object> appKeys = new HashSet<>();
+        for (Event event : events) {
+            appKeys.add(event.getPayloadData()[1]);
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("app1", "app2")), appKeys);
+    }
+
+    @Test
+    public void testShutdownPublishesPendingEvents() {
+        List<Event> events = new ArrayList<>();
+        ThrottleEventAggregator aggregator = new ThrottleEventAggregator(100, events::add);
+        aggregator.start(TimeUnit.HOURS.toMillis(1));
+        aggregator.add(createPayload("message1", "app1", "{}"), TIMESTAMP);
+        aggregator.add(createPayload("message2", "app1", "{}"), TIMESTAMP);
+        aggregator.shutdown();
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("{\"requestCount\":2}",
+                events.get(0).getPayloadData()[ThrottleEventPayloadWriter.PROPERTIES_INDEX]);
+    }
+
+    @Test
+    public void testAddRequestCount() {
+        Assert.assertEquals("{\"requestCount\":2}", ThrottleEventAggregator.addRequestCount("{ }", 2));
+        Assert.assertEquals("{\"requestCount\":2}", ThrottleEventAggregator.addRequestCount(null, 2));
+        Assert.assertEquals("{\"requestCount\":2,\"a\":\"b\"}",
+                ThrottleEventAggregator.addRequestCount("{\"a\":\"b\"}", 2));
+    }
+
+    @Test
+    public void testConcurrentAddsDuringFlush() throws Exception {
+        int threadCount = 8;
+        int requestsPerThread = 100000;
+        int keyCount = 50;
+        Queue<Event> events = new ConcurrentLinkedQueue<>();
+        ThrottleEventAggregator aggregator = new ThrottleEventAggregator(keyCount, events::add);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        aggregator.add(createPayload("message", "app" + (j % keyCount), "{}"), TIMESTAMP);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                while (!future.isDone()) {
+                    aggregator.flush(TIMESTAMP);
+                }
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        aggregator.flush(TIMESTAMP);
+        long requestCount = 0;
+        for (Event event : events) {
+            String properties = (String) event.getPayloadData()[ThrottleEventPayloadWriter.PROPERTIES_INDEX];
+            requestCount += "{}".equals(properties) ? 1 : Long.parseLong(properties.replaceAll("\\D", ""));
+        }
+        Assert.assertEquals((long) threadCount * requestsPerThread, requestCount);
+    }
+
+    private static Object[] createPayload(String messageId, String appKey, String properties) {
+        Object[] payloadData = new Object[ThrottleEventPayloadWriter.INSTANCE.getPayloadLength()];
+        payloadData[ThrottleEventPayloadWriter.MESSAGE_ID_INDEX] = messageId;
+        payloadData[1] = appKey;
+        payloadData[ThrottleEventPayloadWriter.PROPERTIES_INDEX] = properties;
+        return payloadData;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verifies the replay, the recovery and the disk cap of the spill log of the throttle events.
+ */
+public class EventSpillLogTest {
+    private static final long MAX_DISK_SIZE = 1024 * 1024;
+    private static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("spill");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            Assert.assertTrue(spillLog.read(10).isEmpty());
+            for (int i = 0; i < 5; i++) {
+                Assert.assertTrue(spillLog.append(createEvent(i)));
+            }
+            List<Event> events = spillLog.read(3);
+            Assert.assertEquals(3, events.size());
+            for (int i = 0; i < 3; i++) {
+                assertEvent(i, events.get(i));
+            }
+            // Events which are not committed are read again
+            spillLog.commit(2);
+            Assert.assertEquals(3, spillLog.size());
+            events = spillLog.read(10);
+            Assert.assertEquals(3, events.size());
+            assertEvent(2, events.get(0));
+            spillLog.commit(3);
+            Assert.assertEquals(0, spillLog.size());
+            Assert.assertTrue(spillLog.read(10).isEmpty());
+        }
+    }
+
+    @Test
+    public void testAttributeTypes() throws IOException {
+        Event event = new Event(STREAM_ID, 1L, null, new Object[]{"\u00e9\ud83d\ude00"},
+                new Object[]{"key", 1, 2L, 3.5f, 4.5d, true, null}, Collections.singletonMap("name", "value"));
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            spillLog.append(event);
+            Event spilledEvent = spillLog.read(1).get(0);
+            Assert.assertEquals(STREAM_ID, spilledEvent.getStreamId());
+            Assert.assertNull(spilledEvent.getMetaData());
+            Assert.assertArrayEquals(event.getCorrelationData(), spilledEvent.getCorrelationData());
+            Assert.assertArrayEquals(event.getPayloadData(), spilledEvent.getPayloadData());
+            Assert.assertEquals(event.getArbitraryDataMap(), spilledEvent.getArbitraryDataMap());
+        }
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        int eventCount = 5000;
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            for (int i = 0; i < eventCount; i++) {
+                spillLog.append(createEvent(i));
+            }
+            spillLog.read(100);
+            spillLog.commit(100);
+        }
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            Assert.assertEquals(eventCount - 100, spillLog.size());
+            List<Event> events = readAll(spillLog);
+            Assert.assertEquals(eventCount - 100, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEvent(i + 100, events.get(i));
+            }
+        }
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            Assert.assertEquals(0, spillLog.size());
+        }
+    }
+
+    @Test
+    public void testDiskCap() throws IOException {
+        int eventCount = 100000;
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            for (int i = 0; i < eventCount; i++) {
+                spillLog.append(createEvent(i));
+            }
+            Assert.assertTrue(spillLog.getDroppedEventCount() > 0);
+            Assert.assertEquals(eventCount, spillLog.size() + spillLog.getDroppedEventCount());
+            // The oldest events are dropped, and the rest are kept in order
+            List<Event> events = readAll(spillLog);
+            for (int i = 0; i < events.size(); i++) {
+                assertEvent((int) spillLog.getDroppedEventCount() + i, events.get(i));
+            }
+        }
+        long diskSize = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                diskSize += Files.size(file);
+            }
+        }
+        Assert.assertTrue(diskSize <= MAX_DISK_SIZE + 12);
+    }
+
+    @Test
+    public void testDroppedSegmentsAreUnmapped() throws IOException {
+        Path memoryMaps = Paths.get("/proc/self/maps");
+        // The mappings of the process are listed only on Linux
+        if (!Files.isReadable(memoryMaps)) {
+            return;
+        }
+        try (EventSpillLog spillLog = new EventSpillLog(directory, MAX_DISK_SIZE)) {
+            for (int i = 0; i < 100000; i++) {
+                spillLog.append(createEvent(i));
+            }
+            Assert.assertTrue(spillLog.getDroppedEventCount() > 0);
+            for (String mapping : Files.readAllLines(memoryMaps)) {
+                Assert.assertFalse("Dropped segment is still mapped: " + mapping,
+                        mapping.contains(directory.toString()) && mapping.endsWith("(deleted)"));
+            }
+        }
+    }
+
+    @Test
+    public void testTooSmallDiskCap() throws IOException {
+        try {
+            new EventSpillLog(directory, 1024).close();
+            Assert.fail("A spill log smaller than the minimum segments should not be created");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static List<Event> readAll(EventSpillLog spillLog) {
+        List<Event> events = new ArrayList<>();
+        List<Event> batch;
+        while (!(batch = spillLog.read(1000)).isEmpty()) {
+            events.addAll(batch);
+            spillLog.commit(batch.size());
+        }
+        return events;
+    }
+
+    private static Event createEvent(int index) {
+        return new Event(STREAM_ID, index, null, null, new Object[]{"message-" + index, "app-" + index, index,
+                (long) index}, null);
+    }
+
+    private static void assertEvent(int index, Event event) {
+        Assert.assertEquals(index, event.getTimeStamp());
+        Assert.assertArrayEquals(new Object[]{"message-" + index, "app-" + index, index, (long) index},
+                event.getPayloadData());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Verifies the buckets and the percentiles of the histograms of the data endpoint metrics.
+ */
+public class PowerOfTwoHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+        for (long value : new long[]{0, 1, 2, 3, 4, 7, 8, 1000}) {
+            histogram.record(value);
+        }
+        // 0 | 1 | 2-3 | 4-7 | 8-15 | ... | 512-1023
+        Assert.assertArrayEquals(new long[]{1, 1, 2, 2, 1, 0, 0, 0, 0, 0, 1}, histogram.getBuckets());
+        Assert.assertEquals(8, histogram.getCount());
+    }
+
+    @Test
+    public void testPercentiles() {
+        PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+        Assert.assertEquals(0, histogram.getPercentile(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(200);
+        }
+        histogram.record(5000);
+        Assert.assertEquals(255, histogram.getPercentile(50));
+        Assert.assertEquals(255, histogram.getPercentile(99));
+        Assert.assertEquals(8191, histogram.getPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+}
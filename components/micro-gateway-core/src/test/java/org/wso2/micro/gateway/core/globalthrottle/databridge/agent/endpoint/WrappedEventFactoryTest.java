@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+
+/**
+ * Verifies that the events written in place into a slot of the event queue are not affected by the reuse of the slot,
+ * and that a slot is not sent once its payload writer fails.
+ */
+public class WrappedEventFactoryTest {
+    private static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
+
+    private static final EventPayloadWriter<String> WRITER = new EventPayloadWriter<String>() {
+        @Override
+        public int getPayloadLength() {
+            return 2;
+        }
+
+        @Override
+        public void writePayload(String source, Object[] payloadData) {
+            payloadData[0] = source;
+            payloadData[1] = source.length();
+        }
+    };
+
+    @Test
+    public void testSlotReuse() {
+        WrappedEventFactory.WrappedEvent wrappedEvent = new WrappedEventFactory().newInstance();
+        wrappedEvent.writeEvent(STREAM_ID, 1000, WRITER, "first");
+        Event firstEvent = wrappedEvent.toEvent();
+        wrappedEvent.writeEvent(STREAM_ID, 2000, WRITER, "second");
+        Event secondEvent = wrappedEvent.toEvent();
+
+        Assert.assertEquals(STREAM_ID, firstEvent.getStreamId());
+        Assert.assertEquals(1000, firstEvent.getTimeStamp());
+        Assert.assertArrayEquals(new Object[]{"first", 5}, firstEvent.getPayloadData());
+        Assert.assertEquals(2000, secondEvent.getTimeStamp());
+        Assert.assertArrayEquals(new Object[]{"second", 6}, secondEvent.getPayloadData());
+    }
+
+    @Test
+    public void testFailedWriteInvalidatesSlot() {
+        EventPayloadWriter<String> failingWriter = new EventPayloadWriter<String>() {
+            @Override
+            public int getPayloadLength() {
+                return 2;
+            }
+
+            @Override
+            public void writePayload(String source, Object[] payloadData) {
+                payloadData[0] = source;
+                throw new IllegalStateException("Payload could not be written");
+            }
+        };
+        WrappedEventFactory.WrappedEvent wrappedEvent = new WrappedEventFactory().newInstance();
+        Assert.assertFalse("A slot which was never written should not be valid", wrappedEvent.isValid());
+        wrappedEvent.writeEvent(STREAM_ID, 1000, WRITER, "first");
+        Assert.assertTrue(wrappedEvent.isValid());
+        try {
+            wrappedEvent.writeEvent(STREAM_ID, 2000, failingWriter, "second");
+            Assert.fail("The exception of the writer should be thrown to the caller");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertFalse("A partially written slot should not be sent", wrappedEvent.isValid());
+
+        wrappedEvent.writeEvent(STREAM_ID, 3000, WRITER, "third");
+        Assert.assertTrue(wrappedEvent.isValid());
+        Assert.assertEquals(3000, wrappedEvent.toEvent().getTimeStamp());
+        Assert.assertArrayEquals(new Object[]{"third", 5}, wrappedEvent.toEvent().getPayloadData());
+    }
+
+    @Test
+    public void testEventSetAfterInPlaceWrite() {
+        WrappedEventFactory.WrappedEvent wrappedEvent = new WrappedEventFactory().newInstance();
+        wrappedEvent.writeEvent(STREAM_ID, 1000, WRITER, "first");
+        Event event = new Event(STREAM_ID, 2000, null, null, new Object[]{"event", 5});
+        wrappedEvent.setEvent(event);
+        Assert.assertSame(event, wrappedEvent.toEvent());
+    }
+}
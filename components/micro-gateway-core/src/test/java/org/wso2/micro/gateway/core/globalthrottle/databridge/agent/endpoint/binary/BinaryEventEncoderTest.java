@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies that the binary event encoder writes the publish message format with exact UTF-8 string lengths.
+ */
+public class BinaryEventEncoderTest {
+    private static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
+    private static final String SESSION_ID = "5b2a63f2-0e3b-4c4f-9a0f-9e4a2c7f1d3e";
+
+    @Test
+    public void testPublishMessage() throws IOException {
+        List<Event> events = new ArrayList<>();
+        events.add(new Event(STREAM_ID, 1000, null, null,
+                new Object[]{"ascii", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00", 1, 2L, 1.5f, 2.5d, true, null}));
+        events.add(new Event(STREAM_ID, 2000, new Object[]{"meta"}, new Object[]{false},
+                new Object[]{"\u00fcber"}, Collections.singletonMap("k\u00e9y", "v\u00e4lue")));
+        Assert.assertArrayEquals(getExpectedMessage(events, SESSION_ID), encode(events, SESSION_ID));
+    }
+
+    @Test
+    public void testBufferGrowth() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("\u20ac");
+        }
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(new Event(STREAM_ID, i, null, null, new Object[]{builder.toString(), i}));
+        }
+        // Larger than the initial buffer, as each char takes three bytes
+        byte[] message = encode(events, SESSION_ID);
+        Assert.assertTrue(message.length > BinaryEventEncoder.INITIAL_BUFFER_SIZE);
+        Assert.assertArrayEquals(getExpectedMessage(events, SESSION_ID), message);
+        // A released encoder starts the next message from an empty buffer
+        List<Event> singleEvent = Collections.singletonList(events.get(0));
+        Assert.assertArrayEquals(getExpectedMessage(singleEvent, SESSION_ID), encode(singleEvent, SESSION_ID));
+    }
+
+    @Test
+    public void testUnpairedSurrogates() {
+        String value = "a\ud83db\ude00c\ud83d";
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        int length = BinaryEventEncoder.putString(buffer, value);
+        byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(expected.length + 4, length);
+        buffer.flip();
+        Assert.assertEquals(expected.length, buffer.getInt());
+        byte[] actual = new byte[expected.length];
+        buffer.get(actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    private static byte[] encode(List<Event> events, String sessionId) throws IOException {
+        BinaryEventEncoder encoder = BinaryEventEncoder.acquire();
+        try {
+            encoder.encodePublishMessage(events, sessionId);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            encoder.writeTo(outputStream);
+            for (ByteBuffer buffer : encoder.getBuffers()) {
+                Assert.assertFalse(buffer.hasRemaining());
+            }
+            return outputStream.toByteArray();
+        } finally {
+            encoder.release();
+        }
+    }
+
+    private static byte[] getExpectedMessage(List<Event> events, String sessionId) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (Event event : events) {
+            ByteArrayOutputStream eventBytes = new ByteArrayOutputStream();
+            DataOutputStream eventOutput = new DataOutputStream(eventBytes);
+            eventOutput.writeLong(event.getTimeStamp());
+            writeData(eventOutput, event.getStreamId());
+            writeData(eventOutput, event.getMetaData());
+            writeData(eventOutput, event.getCorrelationData());
+            writeData(eventOutput, event.getPayloadData());
+            if (event.getArbitraryDataMap() != null) {
+                for (Map.Entry<String, String> entry : event.getArbitraryDataMap().entrySet()) {
+                    writeData(eventOutput, entry.getKey());
+                    writeData(eventOutput, entry.getValue());
+                }
+            }
+            new DataOutputStream(body).writeInt(eventBytes.size());
+            eventBytes.writeTo(body);
+        }
+        byte[] sessionIdBytes = sessionId.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        DataOutputStream messageOutput = new DataOutputStream(message);
+        messageOutput.writeByte(BinaryEventEncoder.PUBLISH_MESSAGE);
+        messageOutput.writeInt(8 + sessionIdBytes.length + body.size());
+        messageOutput.writeInt(sessionIdBytes.length);
+        messageOutput.write(sessionIdBytes);
+        messageOutput.writeInt(events.size());
+        body.writeTo(message);
+        return message.toByteArray();
+    }
+
+    private static void writeData(DataOutputStream output, Object[] data) throws IOException {
+        if (data != null) {
+            for (Object attribute : data) {
+                writeData(output, attribute);
+            }
+        }
+    }
+
+    private static void writeData(DataOutputStream output, Object data) throws IOException {
+        if (data instanceof String) {
+            byte[] bytes = ((String) data).getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else if (data instanceof Integer) {
+            output.writeInt((Integer) data);
+        } else if (data instanceof Long) {
+            output.writeLong((Long) data);
+        } else if (data instanceof Float) {
+            output.writeFloat((Float) data);
+        } else if (data instanceof Double) {
+            output.writeDouble((Double) data);
+        } else if (data instanceof Boolean) {
+            output.writeBoolean((Boolean) data);
+        } else {
+            output.writeInt(0);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the pipelining and the asynchronous acknowledgements of the non-blocking connection against a receiver
+ * which responds to the publish messages in order.
+ */
+public class NioConnectionTest {
+    private static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
+    private static final String SESSION_ID = "session";
+    private static final long TIMEOUT_MS = 5000;
+
+    private NioEventLoop eventLoop;
+    private ServerSocket serverSocket;
+    private final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+
+    private final NioConnection.Listener listener = new NioConnection.Listener() {
+        @Override
+        public void onPublished(NioConnection.Batch batch) {
+            results.add("published:" + batch.getEvents().get(0).getTimeStamp());
+        }
+
+        @Override
+        public void onRejected(NioConnection.Batch batch, String errorClassName, String errorMessage) {
+            results.add("rejected:" + batch.getEvents().get(0).getTimeStamp() + ":" + errorClassName);
+        }
+
+        @Override
+        public void onFailed(NioConnection.Batch batch, Exception cause) {
+            results.add("failed:" + batch.getEvents().get(0).getTimeStamp());
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        eventLoop = new NioEventLoop();
+        serverSocket = new ServerSocket(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        eventLoop.shutdown();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testPipelinedBatches() throws Exception {
+        int batchCount = 100;
+        NioConnection connection = new NioConnection(eventLoop, "localhost", serverSocket.getLocalPort(),
+                TIMEOUT_MS, listener);
+        // All the batches are sent before the receiver reads the first one
+        for (int i = 0; i < batchCount; i++) {
+            connection.send(createBatch(i));
+        }
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            for (int i = 0; i < batchCount; i++) {
+                Assert.assertEquals(i, readPublishMessage(inputStream));
+                if (i == 10) {
+                    writeErrorResponse(outputStream, "org.wso2.carbon.databridge.commons.exception."
+                            + "UndefinedEventTypeException", "Undefined stream");
+                } else {
+                    outputStream.writeByte(0);
+                }
+            }
+            outputStream.flush();
+            for (int i = 0; i < batchCount; i++) {
+                String expected = i == 10 ? "rejected:10:org.wso2.carbon.databridge.commons.exception."
+                        + "UndefinedEventTypeException" : "published:" + i;
+                Assert.assertEquals(expected, results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            }
+        }
+        Assert.assertEquals(0, connection.getPendingBatchCount());
+    }
+
+    @Test
+    public void testReceiverFailure() throws Exception {
+        NioConnection connection = new NioConnection(eventLoop, "localhost", serverSocket.getLocalPort(),
+                TIMEOUT_MS, listener);
+        connection.send(createBatch(0));
+        connection.send(createBatch(1));
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            readPublishMessage(inputStream);
+            readPublishMessage(inputStream);
+            socket.getOutputStream().write(0);
+            socket.getOutputStream().flush();
+            Assert.assertEquals("published:0", results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+        // The unacknowledged batch fails once the receiver closes the connection
+        Assert.assertEquals("failed:1", results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // The connection is opened again for the next batch
+        connection.send(createBatch(2));
+        try (Socket socket = serverSocket.accept()) {
+            Assert.assertEquals(2, readPublishMessage(new DataInputStream(socket.getInputStream())));
+            socket.getOutputStream().write(0);
+            socket.getOutputStream().flush();
+            Assert.assertEquals("published:2", results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testAcknowledgementTimeout() throws Exception {
+        NioConnection connection = new NioConnection(eventLoop, "localhost", serverSocket.getLocalPort(),
+                200, listener);
+        connection.send(createBatch(0));
+        try (Socket socket = serverSocket.accept()) {
+            readPublishMessage(new DataInputStream(socket.getInputStream()));
+            Assert.assertEquals("failed:0", results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+        Assert.assertEquals(0, connection.getPendingBatchCount());
+    }
+
+    private static NioConnection.Batch createBatch(long timeStamp) {
+        List<Event> events = new ArrayList<>();
+        events.add(new Event(STREAM_ID, timeStamp, null, null, new Object[]{"key", timeStamp}));
+        BinaryEventEncoder encoder = BinaryEventEncoder.acquire();
+        encoder.encodePublishMessage(events, SESSION_ID);
+        return new NioConnection.Batch(Collections.unmodifiableList(events), encoder);
+    }
+
+    /**
+     * Read a publish message of a single event and return the timestamp of the event.
+     */
+    static long readPublishMessage(DataInputStream inputStream) throws IOException {
+        Assert.assertEquals(BinaryEventEncoder.PUBLISH_MESSAGE, inputStream.readByte());
+        byte[] message = new byte[inputStream.readInt()];
+        inputStream.readFully(message);
+        DataInputStream messageStream = new DataInputStream(new ByteArrayInputStream(message));
+        messageStream.skipBytes(messageStream.readInt());
+        Assert.assertEquals(1, messageStream.readInt());
+        messageStream.readInt();
+        return messageStream.readLong();
+    }
+
+    private static void writeErrorResponse(DataOutputStream outputStream, String errorClassName, String errorMessage)
+            throws IOException {
+        byte[] errorClassNameBytes = errorClassName.getBytes(StandardCharsets.UTF_8);
+        byte[] errorMessageBytes = errorMessage.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeByte(1);
+        outputStream.writeInt(errorClassNameBytes.length);
+        outputStream.writeInt(errorMessageBytes.length);
+        outputStream.write(errorClassNameBytes);
+        outputStream.write(errorMessageBytes);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.binary;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.carbon.databridge.commons.Event;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.conf.DataEndpointConfiguration;
+import org.wso2.micro.gateway.core.globalthrottle.databridge.agent.endpoint.DataEndpoint;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the state and the pipeline slots of the NIO data endpoint as its batches fail and succeed.
+ */
+public class NioDataEndpointTest {
+    private static final String STREAM_ID = "org.wso2.throttle.request.stream:1.0.0";
+    private static final int SOCKET_TIMEOUT_MS = 500;
+    private static final long TIMEOUT_MS = 5000;
+
+    private NioEventLoop eventLoop;
+    private ServerSocket serverSocket;
+    private TestNioDataEndpoint dataEndpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        eventLoop = new NioEventLoop();
+        serverSocket = new ServerSocket(0);
+        // A single pipeline slot, hence each dispatch takes the endpoint to the busy state
+        dataEndpoint = new TestNioDataEndpoint(eventLoop);
+        dataEndpoint.openConnections("localhost", serverSocket.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        eventLoop.shutdown();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testFailedBatchFollowedBySuccessfulBatch() throws Exception {
+        dataEndpoint.dispatch(createEvents(0));
+        Assert.assertEquals(DataEndpoint.State.BUSY, dataEndpoint.getState());
+        try (Socket socket = serverSocket.accept()) {
+            NioConnectionTest.readPublishMessage(new DataInputStream(socket.getInputStream()));
+        }
+        // The receiver closed the connection without acknowledging the batch
+        List<Event> failedEvents = dataEndpoint.failedBatches.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(failedEvents);
+        Assert.assertEquals(0, failedEvents.get(0).getTimeStamp());
+        Assert.assertEquals(DataEndpoint.State.ACTIVE, dataEndpoint.getState());
+
+        dataEndpoint.dispatch(createEvents(1));
+        try (Socket socket = serverSocket.accept()) {
+            Assert.assertEquals(1, NioConnectionTest.readPublishMessage(
+                    new DataInputStream(socket.getInputStream())));
+            socket.getOutputStream().write(0);
+            socket.getOutputStream().flush();
+            waitForState(DataEndpoint.State.ACTIVE);
+        }
+        Assert.assertTrue(dataEndpoint.failedBatches.isEmpty());
+    }
+
+    @Test
+    public void testDispatchDoesNotWaitForUnresponsiveReceiver() throws Exception {
+        dataEndpoint.dispatch(createEvents(0));
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            NioConnectionTest.readPublishMessage(inputStream);
+            long startTime = System.currentTimeMillis();
+            // The receiver never acknowledges, hence the pipeline slot is freed only by the acknowledgement timeout
+            dataEndpoint.dispatch(createEvents(1));
+            Assert.assertTrue(System.currentTimeMillis() - startTime < TIMEOUT_MS);
+            Assert.assertNotNull(dataEndpoint.failedBatches.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void waitForState(DataEndpoint.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (dataEndpoint.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(state, dataEndpoint.getState());
+    }
+
+    private static List<Event> createEvents(long timeStamp) {
+        List<Event> events = new ArrayList<>();
+        events.add(new Event(STREAM_ID, timeStamp, null, null, new Object[]{"key", timeStamp}));
+        return events;
+    }
+
+    /**
+     * NIO data endpoint which records the failed batches instead of resending them through an endpoint group.
+     */
+    private static final class TestNioDataEndpoint extends NioDataEndpoint {
+        private final DataEndpointConfiguration configuration = new DataEndpointConfiguration(
+                "tcp://localhost:9611", "ssl://localhost:9711", "admin", "admin", null, null, 1, 0, 1, 1, 20);
+        private final BlockingQueue<List<Event>> failedBatches = new LinkedBlockingQueue<>();
+
+        private TestNioDataEndpoint(NioEventLoop eventLoop) {
+            super(eventLoop, 1, 1, SOCKET_TIMEOUT_MS);
+            configuration.setSessionId("session");
+            setState(State.ACTIVE);
+        }
+
+        @Override
+        protected DataEndpointConfiguration getDataEndpointConfiguration() {
+            return configuration;
+        }
+
+        @Override
+        protected void handleFailedEvents(List<Event> events) {
+            failedBatches.add(events);
+        }
+    }
+}
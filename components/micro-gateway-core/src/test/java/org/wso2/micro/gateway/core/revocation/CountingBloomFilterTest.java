@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.revocation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Verifies that the counting bloom filter has no false negatives while the items are added and removed, and that its
+ * false positive rate holds at the capacity it is sized for.
+ */
+public class CountingBloomFilterTest {
+    private static final long SEED = 42;
+
+    @Test
+    public void testNoFalseNegativesWithOverlappingItems() {
+        // A small filter, so that most of the counters are shared by several items
+        CountingBloomFilter bloomFilter = new CountingBloomFilter(50, 0.1);
+        Map<String, Integer> addedItems = new HashMap<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < 100000; i++) {
+            String item = "token-" + random.nextInt(200);
+            int count = addedItems.getOrDefault(item, 0);
+            if (count > 0 && random.nextBoolean()) {
+                bloomFilter.remove(item);
+                addedItems.put(item, count - 1);
+            } else {
+                bloomFilter.add(item);
+                addedItems.put(item, count + 1);
+            }
+            if (i % 1000 == 0) {
+                assertContains(bloomFilter, addedItems);
+            }
+        }
+        assertContains(bloomFilter, addedItems);
+    }
+
+    @Test
+    public void testSaturatedCountersAreNotDecremented() {
+        CountingBloomFilter bloomFilter = new CountingBloomFilter(1000, 0.01);
+        // The counters of the item saturate at 15 while the item is added 20 times
+        for (int i = 0; i < 20; i++) {
+            bloomFilter.add("revoked");
+        }
+        for (int i = 0; i < 19; i++) {
+            bloomFilter.remove("revoked");
+            Assert.assertTrue(bloomFilter.mightContain("revoked"));
+        }
+        // The saturated counters stay at 15, hence the item is still reported after its last removal
+        bloomFilter.remove("revoked");
+        Assert.assertTrue(bloomFilter.mightContain("revoked"));
+    }
+
+    @Test
+    public void testRemovalOfItemNotAdded() {
+        CountingBloomFilter bloomFilter = new CountingBloomFilter(1000, 0.01);
+        bloomFilter.add("revoked");
+        String notAdded = null;
+        for (int i = 0; notAdded == null; i++) {
+            if (!bloomFilter.mightContain("token-" + i)) {
+                notAdded = "token-" + i;
+            }
+        }
+        bloomFilter.remove(notAdded);
+        Assert.assertEquals(1, bloomFilter.getSize());
+        Assert.assertTrue(bloomFilter.mightContain("revoked"));
+        Assert.assertFalse(bloomFilter.mightContain(notAdded));
+
+        bloomFilter.remove("revoked");
+        bloomFilter.remove("revoked");
+        Assert.assertEquals(0, bloomFilter.getSize());
+        Assert.assertFalse(bloomFilter.mightContain("revoked"));
+    }
+
+    @Test
+    public void testFalsePositiveRateAtCapacity() {
+        int expectedItems = 10000;
+        double falsePositiveProbability = 0.01;
+        CountingBloomFilter bloomFilter = new CountingBloomFilter(expectedItems, falsePositiveProbability);
+        for (int i = 0; i < expectedItems; i++) {
+            bloomFilter.add("revoked-" + i);
+        }
+        int lookups = 100000;
+        int falsePositives = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (bloomFilter.mightContain("active-" + i)) {
+                falsePositives++;
+            }
+        }
+        double falsePositiveRate = (double) falsePositives / lookups;
+        Assert.assertTrue("False positive rate " + falsePositiveRate + " is too high",
+                falsePositiveRate < falsePositiveProbability * 1.5);
+        Assert.assertEquals(bloomFilter.getExpectedFalsePositiveProbability(), falsePositiveRate,
+                falsePositiveProbability / 2);
+    }
+
+    private static void assertContains(CountingBloomFilter bloomFilter, Map<String, Integer> addedItems) {
+        for (Map.Entry<String, Integer> addedItem : addedItems.entrySet()) {
+            if (addedItem.getValue() > 0) {
+                Assert.assertTrue("False negative for " + addedItem.getKey(),
+                        bloomFilter.mightContain(addedItem.getKey()));
+            }
+        }
+    }
+}
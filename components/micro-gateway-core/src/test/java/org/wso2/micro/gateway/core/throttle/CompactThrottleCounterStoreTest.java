@@ -0,0 +1,202 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the throttle decisions and the memory bound of the compact throttle counter store.
+ */
+public class CompactThrottleCounterStoreTest {
+    private static final long LIMIT = 10;
+    private static final long UNIT_TIME = TimeUnit.MINUTES.toMillis(1);
+    // Aligned to the unit time, as the windows of the compact store start at the epoch
+    private static final long BASE_TIME = 1577836800000L;
+    private static final long MEMORY_BUDGET = 1024 * 1024;
+    // Keeps the number of new keys low enough that no bucket of the store overflows
+    private static final int BUCKET_LOAD_DIVISOR = 8;
+
+    @Test
+    public void testFixedWindow() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        long requestTime = BASE_TIME + UNIT_TIME - 1000;
+        hit(store, "key", ThrottleAlgorithm.FIXED_WINDOW, requestTime, LIMIT - 1);
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        hit(store, "key", ThrottleAlgorithm.FIXED_WINDOW, requestTime, 1);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        // The same key of a different level has its own counter
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.API, "key", requestTime));
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", BASE_TIME + UNIT_TIME + 1000));
+    }
+
+    @Test
+    public void testSlidingWindowCounter() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        hit(store, "key", ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, BASE_TIME + UNIT_TIME - 1000, LIMIT);
+        long nextWindowTime = BASE_TIME + UNIT_TIME + UNIT_TIME / 4;
+        hit(store, "key", ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, nextWindowTime, 2);
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", nextWindowTime));
+        hit(store, "key", ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, nextWindowTime, 1);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", nextWindowTime));
+    }
+
+    @Test
+    public void testTokenBucket() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        long requestTime = BASE_TIME + 1000;
+        hit(store, "key", ThrottleAlgorithm.TOKEN_BUCKET, requestTime, LIMIT);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime + UNIT_TIME / LIMIT));
+    }
+
+    @Test
+    public void testPolicyChangeOfExistingKey() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        long requestTime = BASE_TIME + 1000;
+        hit(store, "key", ThrottleAlgorithm.FIXED_WINDOW, requestTime, LIMIT);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        // The window count of the fixed window policy is not read as the arrival time of the token bucket
+        hit(store, "key", ThrottleAlgorithm.TOKEN_BUCKET, requestTime, LIMIT - 1);
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        hit(store, "key", ThrottleAlgorithm.TOKEN_BUCKET, requestTime, 1);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        // Nor is the arrival time of the token bucket read as the window count of the sliding window counter
+        hit(store, "key", ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, requestTime, LIMIT - 1);
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+        hit(store, "key", ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, requestTime, 1);
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "key", requestTime));
+    }
+
+    @Test
+    public void testUnknownKeyIsNotThrottled() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "unknown", BASE_TIME));
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        Assert.assertTrue(store.getCapacity() > 0);
+        Assert.assertTrue((long) store.getCapacity() * CompactThrottleCounterStore.SLOT_BYTES <= MEMORY_BUDGET);
+        try {
+            new CompactThrottleCounterStore(CompactThrottleCounterStore.SLOT_BYTES);
+            Assert.fail("A store smaller than a bucket should not be created");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEvictionOfHighCardinalityKeys() {
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        int keyCount = store.getCapacity() * 4;
+        for (int i = 0; i < keyCount; i++) {
+            hit(store, "key-" + i, ThrottleAlgorithm.FIXED_WINDOW, BASE_TIME, 1);
+        }
+        Assert.assertTrue(store.getEvictionCount() >= keyCount - store.getCapacity());
+        // Keys of expired windows are reused without counting an eviction
+        long evictionCount = store.getEvictionCount();
+        long nextWindowTime = BASE_TIME + 2 * UNIT_TIME;
+        for (int i = 0; i < store.getCapacity() / BUCKET_LOAD_DIVISOR; i++) {
+            hit(store, "next-" + i, ThrottleAlgorithm.FIXED_WINDOW, nextWindowTime, 1);
+        }
+        Assert.assertEquals(evictionCount, store.getEvictionCount());
+        // A key which is used between the insertions survives the eviction of the others
+        hit(store, "hot", ThrottleAlgorithm.FIXED_WINDOW, nextWindowTime, LIMIT);
+        for (int i = 0; i < keyCount; i++) {
+            hit(store, "cold-" + i, ThrottleAlgorithm.FIXED_WINDOW, nextWindowTime, 1);
+            hit(store, "hot", ThrottleAlgorithm.FIXED_WINDOW, nextWindowTime, 1);
+        }
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "hot", nextWindowTime));
+    }
+
+    @Test
+    public void testConcurrentHits() throws Exception {
+        int threadCount = 16;
+        int hitsPerThread = 10000;
+        long totalHits = (long) threadCount * hitsPerThread;
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < hitsPerThread; j++) {
+                        store.hit(ThrottleData.ThrottleType.APP, "atLimit", ThrottleAlgorithm.FIXED_WINDOW,
+                                totalHits, UNIT_TIME, BASE_TIME);
+                        store.hit(ThrottleData.ThrottleType.APP, "belowLimit", ThrottleAlgorithm.FIXED_WINDOW,
+                                totalHits + 1, UNIT_TIME, BASE_TIME);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertTrue(store.isThrottled(ThrottleData.ThrottleType.APP, "atLimit", BASE_TIME));
+        Assert.assertFalse(store.isThrottled(ThrottleData.ThrottleType.APP, "belowLimit", BASE_TIME));
+    }
+
+    @Test
+    public void testConcurrentFirstHits() throws Exception {
+        int threadCount = 16;
+        int keyCount = 2000;
+        CompactThrottleCounterStore store = new CompactThrottleCounterStore(MEMORY_BUDGET);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (int i = 0; i < keyCount; i++) {
+                String key = "first-" + i;
+                CyclicBarrier barrier = new CyclicBarrier(threadCount);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int j = 0; j < threadCount; j++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        store.hit(ThrottleData.ThrottleType.APP, key, ThrottleAlgorithm.FIXED_WINDOW, threadCount,
+                                UNIT_TIME, BASE_TIME);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+                // The key is throttled only if none of its first hits went to a second slot
+                Assert.assertTrue("Hits of " + key + " are lost",
+                        store.isThrottled(ThrottleData.ThrottleType.APP, key, BASE_TIME));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void hit(CompactThrottleCounterStore store, String key, ThrottleAlgorithm algorithm,
+            long timestamp, long count) {
+        for (long i = 0; i < count; i++) {
+            store.hit(ThrottleData.ThrottleType.APP, key, algorithm, LIMIT, UNIT_TIME, timestamp);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the throttle decisions of the local throttle algorithms.
+ */
+public class ThrottleDataTest {
+    private static final long LIMIT = 10;
+    private static final long UNIT_TIME = TimeUnit.MINUTES.toMillis(1);
+    private static final long BASE_TIME = 1577836800000L;
+
+    @Test
+    public void testFixedWindow() {
+        ThrottleData throttleData = create(ThrottleAlgorithm.FIXED_WINDOW);
+        long requestTime = BASE_TIME + UNIT_TIME - 1000;
+        hit(throttleData, requestTime, LIMIT - 1);
+        Assert.assertFalse(throttleData.isThrottled(requestTime));
+        throttleData.hit(requestTime);
+        Assert.assertTrue(throttleData.isThrottled(requestTime));
+        // The fixed window allows the full limit again right after the window boundary
+        Assert.assertFalse(throttleData.isThrottled(BASE_TIME + UNIT_TIME + 1000));
+        Assert.assertEquals(BASE_TIME + UNIT_TIME, throttleData.getExpiryTime());
+    }
+
+    @Test
+    public void testSlidingWindowCounterLimitsBurstAtWindowBoundary() {
+        ThrottleData throttleData = create(ThrottleAlgorithm.SLIDING_WINDOW_COUNTER);
+        hit(throttleData, BASE_TIME + UNIT_TIME - 1000, LIMIT);
+        Assert.assertTrue(throttleData.isThrottled(BASE_TIME + UNIT_TIME - 1000));
+        long nextWindowTime = BASE_TIME + UNIT_TIME + UNIT_TIME / 4;
+        // 75% of the previous window overlaps with the sliding window, hence only three more requests are allowed
+        hit(throttleData, nextWindowTime, 2);
+        Assert.assertFalse(throttleData.isThrottled(nextWindowTime));
+        throttleData.hit(nextWindowTime);
+        Assert.assertTrue(throttleData.isThrottled(nextWindowTime));
+        Assert.assertFalse(throttleData.isThrottled(BASE_TIME + 2 * UNIT_TIME + 1000));
+    }
+
+    @Test
+    public void testSlidingWindowLog() {
+        ThrottleData throttleData = create(ThrottleAlgorithm.SLIDING_WINDOW_LOG);
+        long requestTime = BASE_TIME + UNIT_TIME - 1000;
+        hit(throttleData, requestTime, LIMIT);
+        Assert.assertTrue(throttleData.isThrottled(requestTime));
+        Assert.assertTrue(throttleData.isThrottled(requestTime + UNIT_TIME - 1));
+        Assert.assertFalse(throttleData.isThrottled(requestTime + UNIT_TIME));
+        Assert.assertEquals(requestTime + UNIT_TIME, throttleData.getExpiryTime());
+    }
+
+    @Test
+    public void testSlidingWindowLogFallsBackForLargeLimits() {
+        ThrottleData throttleData = new ThrottleData("key", ThrottleData.ThrottleType.APP,
+                ThrottleAlgorithm.SLIDING_WINDOW_LOG, ThrottleData.MAX_LOG_SIZE + 1, UNIT_TIME, BASE_TIME, true);
+        Assert.assertEquals(ThrottleAlgorithm.SLIDING_WINDOW_COUNTER, throttleData.getAlgorithm());
+    }
+
+    @Test
+    public void testTokenBucket() {
+        ThrottleData throttleData = create(ThrottleAlgorithm.TOKEN_BUCKET);
+        long requestTime = BASE_TIME + 1000;
+        hit(throttleData, requestTime, LIMIT);
+        Assert.assertTrue(throttleData.isThrottled(requestTime));
+        // A single token is refilled after each 1/10 of the unit time
+        long refillTime = requestTime + UNIT_TIME / LIMIT;
+        Assert.assertFalse(throttleData.isThrottled(refillTime));
+        throttleData.hit(refillTime);
+        Assert.assertTrue(throttleData.isThrottled(refillTime));
+        Assert.assertEquals(refillTime + UNIT_TIME, throttleData.getExpiryTime());
+    }
+
+    @Test
+    public void testUnlimitedPolicyIsNeverThrottled() {
+        ThrottleData throttleData = new ThrottleData("key", ThrottleData.ThrottleType.APP,
+                ThrottleAlgorithm.TOKEN_BUCKET, -1, UNIT_TIME, BASE_TIME, true);
+        hit(throttleData, BASE_TIME, LIMIT);
+        Assert.assertFalse(throttleData.isThrottled(BASE_TIME));
+    }
+
+    @Test
+    public void testConcurrentHitsAreNotLost() throws Exception {
+        int threadCount = 16;
+        int hitsPerThread = 10000;
+        long totalHits = (long) threadCount * hitsPerThread;
+        for (ThrottleAlgorithm algorithm : new ThrottleAlgorithm[]{ThrottleAlgorithm.FIXED_WINDOW,
+                ThrottleAlgorithm.TOKEN_BUCKET}) {
+            ThrottleData atLimit = new ThrottleData("key", ThrottleData.ThrottleType.APP, algorithm, totalHits,
+                    UNIT_TIME, BASE_TIME, true);
+            ThrottleData belowLimit = new ThrottleData("key", ThrottleData.ThrottleType.APP, algorithm,
+                    totalHits + 1, UNIT_TIME, BASE_TIME, true);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < threadCount; i++) {
+                    futures.add(executor.submit(() -> {
+                        hit(atLimit, BASE_TIME, hitsPerThread);
+                        hit(belowLimit, BASE_TIME, hitsPerThread);
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            Assert.assertTrue(algorithm.name(), atLimit.isThrottled(BASE_TIME));
+            Assert.assertFalse(algorithm.name(), belowLimit.isThrottled(BASE_TIME));
+        }
+    }
+
+    private static ThrottleData create(ThrottleAlgorithm algorithm) {
+        return new ThrottleData("key", ThrottleData.ThrottleType.APP, algorithm, LIMIT, UNIT_TIME, BASE_TIME, true);
+    }
+
+    private static void hit(ThrottleData throttleData, long timestamp, long count) {
+        for (long i = 0; i < count; i++) {
+            throttleData.hit(timestamp);
+        }
+    }
+}
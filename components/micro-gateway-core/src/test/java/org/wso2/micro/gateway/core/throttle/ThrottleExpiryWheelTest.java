@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.throttle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Churns millions of throttle keys through the expiry wheel and verifies that every key is expired exactly once,
+ * no sooner than its expiry time and no later than the following cleanup.
+ */
+public class ThrottleExpiryWheelTest {
+    private static final long START_TIME = 1577836800000L;
+    private static final long TICK_DURATION = 1000;
+    private static final long UNIT_TIME = TimeUnit.SECONDS.toMillis(10);
+    private static final int KEYS_PER_TICK = 20000;
+    private static final int CHURN_TICKS = 200;
+    private static final int HOT_KEY_COUNT = 1000;
+
+    @Test
+    public void testChurn() {
+        ThrottleExpiryWheel expiryWheel = new ThrottleExpiryWheel(TICK_DURATION, 512, START_TIME);
+        List<ThrottleData> hotKeys = new ArrayList<>();
+        for (int i = 0; i < HOT_KEY_COUNT; i++) {
+            ThrottleData throttleData = create(START_TIME);
+            hotKeys.add(throttleData);
+            expiryWheel.add(throttleData);
+        }
+        long expiredCount = 0;
+        for (int tick = 0; tick < CHURN_TICKS; tick++) {
+            long now = START_TIME + tick * TICK_DURATION;
+            for (int i = 0; i < KEYS_PER_TICK; i++) {
+                expiryWheel.add(create(now));
+            }
+            // Hot keys are used in every tick, hence they should never expire
+            for (ThrottleData throttleData : hotKeys) {
+                throttleData.hit(now);
+            }
+            expiredCount += expiryWheel.expire(now);
+            // Keys created within the last unit time are still valid
+            long liveChurnTicks = Math.min(tick + 1, UNIT_TIME / TICK_DURATION + 1);
+            Assert.assertEquals("Live keys at tick " + tick, HOT_KEY_COUNT + liveChurnTicks * KEYS_PER_TICK,
+                    expiryWheel.size());
+        }
+        Assert.assertEquals((long) (CHURN_TICKS - UNIT_TIME / TICK_DURATION - 1) * KEYS_PER_TICK, expiredCount);
+
+        // Once the hot keys are no longer used, every key expires
+        expiredCount += expiryWheel.expire(START_TIME + (CHURN_TICKS + 2) * TICK_DURATION + 2 * UNIT_TIME);
+        Assert.assertEquals(0, expiryWheel.size());
+        Assert.assertEquals((long) CHURN_TICKS * KEYS_PER_TICK + HOT_KEY_COUNT, expiredCount);
+    }
+
+    @Test
+    public void testConcurrentAddsDuringExpiry() throws Exception {
+        int threadCount = 4;
+        int keysPerThread = 250000;
+        ThrottleExpiryWheel expiryWheel = new ThrottleExpiryWheel(TICK_DURATION, 512, START_TIME);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        long expiredCount = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < keysPerThread; j++) {
+                        expiryWheel.add(create(START_TIME + (j % 100) * TICK_DURATION));
+                    }
+                }));
+            }
+            long now = START_TIME;
+            for (Future<?> future : futures) {
+                while (!future.isDone()) {
+                    now += TICK_DURATION;
+                    expiredCount += expiryWheel.expire(now);
+                }
+                future.get(1, TimeUnit.MINUTES);
+            }
+            expiredCount += expiryWheel.expire(now + 200 * TICK_DURATION + UNIT_TIME);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, expiryWheel.size());
+        Assert.assertEquals((long) threadCount * keysPerThread, expiredCount);
+    }
+
+    @Test
+    public void testKeysBeyondOneRevolution() {
+        ThrottleExpiryWheel expiryWheel = new ThrottleExpiryWheel(TICK_DURATION, 8, START_TIME);
+        ThrottleData throttleData = new ThrottleData("key", ThrottleData.ThrottleType.API,
+                ThrottleAlgorithm.FIXED_WINDOW, 10, 100 * TICK_DURATION, START_TIME, true);
+        expiryWheel.add(throttleData);
+        for (long tick = 1; tick < 100; tick++) {
+            Assert.assertEquals(0, expiryWheel.expire(START_TIME + tick * TICK_DURATION));
+        }
+        Assert.assertEquals(1, expiryWheel.expire(START_TIME + 101 * TICK_DURATION));
+        Assert.assertEquals(0, expiryWheel.size());
+    }
+
+    private static ThrottleData create(long baseTime) {
+        return new ThrottleData("key", ThrottleData.ThrottleType.APP, ThrottleAlgorithm.FIXED_WINDOW, 10, UNIT_TIME,
+                baseTime, true);
+    }
+}
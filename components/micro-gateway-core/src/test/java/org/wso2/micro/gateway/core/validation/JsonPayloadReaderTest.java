@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.wso2.micro.gateway.core.validation;
+
+import org.ballerinalang.jvm.values.ArrayValueImpl;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wso2.micro.gateway.core.Constants;
+import org.wso2.micro.gateway.core.utils.CommonUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Verifies the json values read by the streaming payload reader, and the validation of the raw payloads against
+ * the schemas.
+ */
+public class JsonPayloadReaderTest {
+    private static final String SERVICE_NAME = CommonUtils.getQualifiedServiceName("JsonPayloadReaderTestAPI",
+            "1.0.0");
+    private static final String RESOURCE_PATH = "/items";
+    private static final String METHOD = "post";
+
+    @BeforeClass
+    public static void setup() {
+        String itemsRef = "{\"$ref\": \"#/components/schemas/Items\"}";
+        String openAPI = "{\"openapi\": \"3.0.0\","
+                + "\"info\": {\"title\": \"JsonPayloadReaderTestAPI\", \"version\": \"1.0.0\"},"
+                + "\"paths\": {\"" + RESOURCE_PATH + "\": {\"" + METHOD + "\": {"
+                + "\"requestBody\": {\"content\": {\"application/json\": {\"schema\": " + itemsRef + "}}},"
+                + "\"responses\": {\"200\": {\"description\": \"OK\", "
+                + "\"content\": {\"application/json\": {\"schema\": " + itemsRef + "}}}}}}},"
+                + "\"components\": {\"schemas\": {"
+                + "\"Items\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/components/schemas/Item\"}},"
+                + "\"Item\": {\"type\": \"object\", \"required\": [\"id\"], \"properties\": {"
+                + "\"id\": {\"type\": \"integer\"}}}}}}";
+        CommonUtils.getOpenAPIMap().put(SERVICE_NAME, openAPI);
+    }
+
+    @Test
+    public void testTopLevelArray() throws IOException {
+        Object value = read("[1, \"two\", {\"three\": 3}, [4], null]");
+        Assert.assertTrue(value instanceof JSONArray);
+        JSONArray array = (JSONArray) value;
+        Assert.assertEquals(5, array.length());
+        Assert.assertEquals(1, ((Number) array.get(0)).intValue());
+        Assert.assertEquals("two", array.get(1));
+        Assert.assertEquals(3, ((Number) array.getJSONObject(2).get("three")).intValue());
+        Assert.assertEquals(1, array.getJSONArray(3).length());
+        Assert.assertSame(JSONObject.NULL, array.get(4));
+        Assert.assertEquals(0, ((JSONArray) read("[]")).length());
+    }
+
+    @Test
+    public void testScalars() throws IOException {
+        Assert.assertEquals("text", read("\"text\""));
+        Assert.assertEquals(42, ((Number) read("42")).intValue());
+        Assert.assertEquals(1.5, ((Number) read("1.5")).doubleValue(), 0);
+        Assert.assertEquals(Boolean.TRUE, read("true"));
+        Assert.assertEquals(Boolean.FALSE, read("false"));
+        Assert.assertSame(JSONObject.NULL, read("null"));
+    }
+
+    @Test
+    public void testNestedObjects() throws IOException {
+        Object value = read("{\"a\": {\"b\": {\"c\": [true, {\"d\": \"e\"}]}}, \"f\": {}}");
+        Assert.assertTrue(value instanceof JSONObject);
+        JSONObject object = (JSONObject) value;
+        JSONArray c = object.getJSONObject("a").getJSONObject("b").getJSONArray("c");
+        Assert.assertEquals(Boolean.TRUE, c.get(0));
+        Assert.assertEquals("e", c.getJSONObject(1).get("d"));
+        Assert.assertEquals(0, object.getJSONObject("f").length());
+    }
+
+    @Test
+    public void testMaximumNestingDepth() throws IOException {
+        Assert.assertTrue(read(nest(JsonPayloadReader.MAX_NESTING_DEPTH)) instanceof JSONArray);
+        assertInvalid(nest(JsonPayloadReader.MAX_NESTING_DEPTH + 1));
+        assertInvalid("{\"a\": " + nest(JsonPayloadReader.MAX_NESTING_DEPTH) + "}");
+    }
+
+    @Test
+    public void testTrailingContent() {
+        assertInvalid("{\"a\": 1} {\"b\": 2}");
+        assertInvalid("[1] 2");
+        assertInvalid("1 2");
+    }
+
+    @Test
+    public void testTruncatedInput() {
+        assertInvalid("");
+        assertInvalid("[1, 2");
+        assertInvalid("{\"a\": ");
+        assertInvalid("{\"a\": 1");
+        assertInvalid("{\"a\": \"text");
+        assertInvalid("[{\"a\": [1]");
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        assertInvalid("{\"a\": 1, \"a\": 2}");
+        assertInvalid("[{\"b\": {\"a\": 1, \"a\": 1}}]");
+    }
+
+    @Test
+    public void testStreamValidation() throws IOException {
+        Assert.assertEquals(Constants.VALIDATED_STATUS, validate("[{\"id\": 1}, {\"id\": 2}]"));
+        Assert.assertEquals(Constants.VALIDATED_STATUS, validate("[]"));
+        // Schema failures are returned as the validation messages
+        Assert.assertNotEquals(Constants.VALIDATED_STATUS, validate("[{\"id\": 1}, {\"id\": \"two\"}]"));
+        Assert.assertNotEquals(Constants.VALIDATED_STATUS, validate("[{\"name\": \"item\"}]"));
+        Assert.assertNotEquals(Constants.VALIDATED_STATUS, validate("{\"id\": 1}"));
+        String message = validate("[{\"id\": 1, \"id\": 2}]");
+        Assert.assertTrue(message, message.startsWith("Provided payload is not a valid json."));
+        message = validate("[{\"id\": 1}");
+        Assert.assertTrue(message, message.startsWith("Provided payload is not a valid json."));
+    }
+
+    private static Object read(String payload) throws IOException {
+        return JsonPayloadReader.read(toStream(payload));
+    }
+
+    private static void assertInvalid(String payload) {
+        try {
+            JsonPayloadReader.read(toStream(payload));
+            Assert.fail("Payload should not be read as a valid json : " + payload);
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static String validate(String payload) throws IOException {
+        return Validate.validateRequestStream(RESOURCE_PATH, METHOD,
+                new ArrayValueImpl(payload.getBytes(StandardCharsets.UTF_8)), SERVICE_NAME);
+    }
+
+    private static InputStream toStream(String payload) {
+        return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String nest(int depth) {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            payload.append('[');
+        }
+        for (int i = 0; i < depth; i++) {
+            payload.append(']');
+        }
+        return payload.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.core.validation;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wso2.micro.gateway.core.Constants;
+import org.wso2.micro.gateway.core.utils.CommonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates schemas of many distinct APIs in parallel to make sure that the $ref references of an API are never
+ * resolved against the definition of another API.
+ */
+public class ValidateConcurrencyTest {
+    private static final int API_COUNT = 64;
+    private static final int THREAD_COUNT = 16;
+    private static final int ITERATIONS_PER_THREAD = 2000;
+    private static final String RESOURCE_PATH = "/items";
+    private static final String METHOD = "post";
+
+    private static ResolutionContext[] contexts = new ResolutionContext[API_COUNT];
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        for (int i = 0; i < API_COUNT; i++) {
+            String openAPI = createOpenAPI(i);
+            contexts[i] = new ResolutionContext(openAPI);
+            CommonUtils.getOpenAPIMap().put(getServiceName(i), openAPI);
+        }
+    }
+
+    @Test
+    public void testParallelSchemaResolution() throws Exception {
+        runInParallel(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int j = 0; j < ITERATIONS_PER_THREAD; j++) {
+                int api = random.nextInt(API_COUNT);
+                String requestSchema = Validate.extractSchemaFromRequest(RESOURCE_PATH, METHOD, contexts[api]);
+                assertResolvedFor(api, requestSchema);
+                String responseSchema = Validate.extractResponse(RESOURCE_PATH, METHOD, "200", contexts[api]);
+                assertResolvedFor(api, responseSchema);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testParallelValidation() throws Exception {
+        runInParallel(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int j = 0; j < ITERATIONS_PER_THREAD; j++) {
+                int api = random.nextInt(API_COUNT);
+                int other = (api + 1 + random.nextInt(API_COUNT - 1)) % API_COUNT;
+                String serviceName = getServiceName(api);
+                Assert.assertEquals(Constants.VALIDATED_STATUS, Validate.validateRequest(RESOURCE_PATH, METHOD,
+                        createPayload(api), serviceName));
+                Assert.assertNotEquals(Constants.VALIDATED_STATUS, Validate.validateRequest(RESOURCE_PATH, METHOD,
+                        createPayload(other), serviceName));
+                Assert.assertEquals(Constants.VALIDATED_STATUS, Validate.validateResponse(RESOURCE_PATH, METHOD,
+                        "200", createPayload(api), serviceName));
+                Assert.assertNotEquals(Constants.VALIDATED_STATUS, Validate.validateResponse(RESOURCE_PATH, METHOD,
+                        "200", createPayload(other), serviceName));
+            }
+            return null;
+        });
+    }
+
+    private static void runInParallel(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    return task.call();
+                }));
+            }
+            startLatch.countDown();
+            for (Future<Void> future : futures) {
+                // Rethrows the assertion errors of the worker threads
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertResolvedFor(int api, String schema) {
+        Assert.assertNotNull(schema);
+        Assert.assertTrue("Schema is not resolved for the API " + api + " : " + schema,
+                schema.contains(getFieldName(api)));
+        for (int i = 0; i < API_COUNT; i++) {
+            if (i != api && schema.contains(getFieldName(i))) {
+                Assert.fail("Schema of the API " + api + " is resolved against the API " + i + " : " + schema);
+            }
+        }
+    }
+
+    private static String getServiceName(int api) {
+        return CommonUtils.getQualifiedServiceName("ConcurrencyTestAPI" + api, "1.0.0");
+    }
+
+    private static String getFieldName(int api) {
+        return "field_" + api + "_";
+    }
+
+    private static String createPayload(int api) {
+        return "{\"id\": " + api + ", \"detail\": {\"" + getFieldName(api) + "\": \"value\"}}";
+    }
+
+    /**
+     * Every API uses the same component names, but the referred Detail schema requires a property which is unique
+     * to the API. Hence resolving the reference against another API produces a different schema.
+     */
+    private static String createOpenAPI(int api) {
+        String schemaRef = "{\"$ref\": \"#/components/schemas/Item\"}";
+        return "{\"openapi\": \"3.0.0\","
+                + "\"info\": {\"title\": \"ConcurrencyTestAPI" + api + "\", \"version\": \"1.0.0\"},"
+                + "\"paths\": {\"" + RESOURCE_PATH + "\": {\"" + METHOD + "\": {"
+                + "\"requestBody\": {\"content\": {\"application/json\": {\"schema\": " + schemaRef + "}}},"
+                + "\"responses\": {\"200\": {\"description\": \"OK\", "
+                + "\"content\": {\"application/json\": {\"schema\": " + schemaRef + "}}}}}}},"
+                + "\"components\": {\"schemas\": {"
+                + "\"Item\": {\"type\": \"object\", \"required\": [\"id\", \"detail\"], \"properties\": {"
+                + "\"id\": {\"type\": \"integer\"}, \"detail\": {\"$ref\": \"#/components/schemas/Detail\"}}},"
+                + "\"Detail\": {\"type\": \"object\", \"required\": [\"" + getFieldName(api) + "\"], "
+                + "\"properties\": {\"" + getFieldName(api) + "\": {\"type\": \"string\"}}}}}}";
+    }
+}
@@ -18,6 +18,7 @@ package org.wso2.micro.gateway.jwt.generator;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract class for retrieve user claims from remote endpoint.
@@ -36,6 +37,17 @@ public abstract class AbstractMGWClaimRetriever {
 
     public abstract List<ClaimDTO> retrieveClaims(Map<String, Object> authContext);
 
+    /**
+     * Retrieve the user claims without blocking the caller. The claims are retrieved by the caller by default, hence
+     * the implementations which call a remote endpoint should override this.
+     *
+     * @param authContext Authentication context of the user
+     * @return Future completed with the claims, or with null if there are no claims
+     */
+    public CompletableFuture<List<ClaimDTO>> retrieveClaimsAsync(Map<String, Object> authContext) {
+        return CompletableFuture.completedFuture(retrieveClaims(authContext));
+    }
+
     public Map<String, String> getConfigurationMap() {
         return configurationMap;
     }
@@ -22,12 +22,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.MessageDigest;
-import java.security.PrivateKey;
-import java.security.Signature;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,12 +36,17 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Abstract class for generate JWT for backend claims.
+ * Abstract class for generate JWT for backend claims. The signing key and the JWT header are loaded from the keystore
+ * once and kept until the keystore settings are changed or {@link #reloadSigningKeys()} is called, hence generating
+ * a token does not read the keystore. The tokens are signed with RS256, ES256, EdDSA or HS256 as configured, where
+ * the "alg" header and the "kid" header of the new algorithms are set from the key.
+ * <p>
+ * The keys are loaded when the first token is generated, as the constructor should not call the methods which
+ * subclasses may override. Generators which override {@link #buildHeader()} or {@link #signJWT(String)} have their
+ * tokens built through those methods instead of the loaded header and signer.
  */
 public abstract class AbstractMGWJWTGenerator {
     private static final Logger logger = LogManager.getLogger(AbstractMGWJWTGenerator.class);
-    private static final String NONE = "NONE";
-    private static final String SHA256_WITH_RSA = "SHA256withRSA";
     private String dialectURI;
     private String signatureAlgorithm;
     private String keyStorePath;
@@ -55,6 +61,11 @@ public abstract class AbstractMGWJWTGenerator {
     private String[] tokenAudience;
     private Map<String, Object> apiDetails;
     private List<String> defaultRestrictedClaims;
+    private volatile SigningKeys signingKeys;
+    // Whether the header and the signature of the tokens are built by this class, hence the loaded keys are used
+    private final boolean defaultTokenHooks;
+    // Guards the API details of the generators which read them from the field to populate the claims
+    private final Object apiDetailsLock = new Object();
 
     public AbstractMGWJWTGenerator(String dialectURI,
                                    String signatureAlgorithm,
@@ -83,6 +94,8 @@ public abstract class AbstractMGWJWTGenerator {
         defaultRestrictedClaims = new ArrayList<>(Arrays.asList("iss", "sub", "aud", "exp",
                 "nbf", "iat", "jti", "application", "tierInfo", "subscribedAPIs", "keytype"));
         this.restrictedClaims.addAll(defaultRestrictedClaims);
+        this.defaultTokenHooks = !isOverridden(getClass(), "buildHeader")
+                && !isOverridden(getClass(), "signJWT", String.class);
     }
 
     public String getPrivateKeyAlias() {
@@ -91,6 +104,7 @@ public abstract class AbstractMGWJWTGenerator {
 
     public void setPrivateKeyAlias(String privateKeyAlias) {
         this.privateKeyAlias = privateKeyAlias;
+        this.signingKeys = null;
     }
 
     public List<String> getDefaultRestrictedClaims() {
@@ -107,6 +121,7 @@ public abstract class AbstractMGWJWTGenerator {
 
     public void setCertificateAlias(String certificateAlias) {
         this.certificateAlias = certificateAlias;
+        this.signingKeys = null;
     }
 
     public Map<String, Object> getApiDetails() {
@@ -163,6 +178,7 @@ public abstract class AbstractMGWJWTGenerator {
 
     public void setKeyStorePath(String keyStorePath) {
         this.keyStorePath = keyStorePath;
+        this.signingKeys = null;
     }
 
     public String getKeyStorePassword() {
@@ -171,6 +187,7 @@ public abstract class AbstractMGWJWTGenerator {
 
     public void setKeyStorePassword(String keyStorePassword) {
         this.keyStorePassword = keyStorePassword;
+        this.signingKeys = null;
     }
 
     public String getDialectURI() {
@@ -187,6 +204,7 @@ public abstract class AbstractMGWJWTGenerator {
 
     public void setSignatureAlgorithm(String signatureAlgorithm) {
         this.signatureAlgorithm = signatureAlgorithm;
+        this.signingKeys = null;
     }
 
     public int getJwtExpiryTime() {
@@ -197,24 +215,50 @@ public abstract class AbstractMGWJWTGenerator {
         this.jwtExpiryTime = jwtExpiryTime;
     }
 
+    /**
+     * Load the signing key and the certificate from the keystore again, so that a rotated key is used for the tokens
+     * generated from now on.
+     *
+     * @throws Exception if the keys could not be loaded
+     */
+    public void reloadSigningKeys() throws Exception {
+        signingKeys = loadSigningKeys();
+    }
+
     /**
      * Used to generate the JWT token.
      */
     public String generateToken(Map<String, Object> jwtInfo) throws Exception {
-        String jwtHeader = buildHeader();
-        String jwtBody = buildBody(jwtInfo);
-        String base64UrlEncodedHeader = "";
-        if (jwtHeader != null) {
-            base64UrlEncodedHeader = encode(jwtHeader.getBytes(Charset.defaultCharset()));
+        return generateToken(jwtInfo, apiDetails);
+    }
+
+    /**
+     * Used to generate the JWT token of a request to an API. The API details are passed with the request instead of
+     * being set on the generator, which is shared by the requests of all the APIs.
+     *
+     * @param jwtInfo    Payload of the authentication token
+     * @param apiDetails Details of the invoked API
+     * @return Generated token
+     * @throws Exception if the token could not be signed
+     */
+    public String generateToken(Map<String, Object> jwtInfo, Map<String, Object> apiDetails) throws Exception {
+        SigningKeys keys = defaultTokenHooks ? getSigningKeys() : null;
+        byte[] jwtBody = serializeBody(jwtInfo, apiDetails);
+        String base64UrlEncodedHeader;
+        if (keys != null) {
+            base64UrlEncodedHeader = keys.encodedHeader;
+        } else {
+            String jwtHeader = buildHeader();
+            base64UrlEncodedHeader = jwtHeader != null ? encode(jwtHeader.getBytes(Charset.defaultCharset())) : "";
         }
         String base64UrlEncodedBody = "";
         if (jwtBody != null) {
-            base64UrlEncodedBody = encode(jwtBody.getBytes());
+            base64UrlEncodedBody = encode(jwtBody);
         }
-        if (SHA256_WITH_RSA.equals(signatureAlgorithm)) {
+        if (keys != null ? keys.signer != null : JWTSigners.isSigned(signatureAlgorithm)) {
             String assertion = base64UrlEncodedHeader + '.' + base64UrlEncodedBody;
             //get the assertion signed
-            byte[] signedAssertion = signJWT(assertion);
+            byte[] signedAssertion = keys != null ? sign(keys, assertion) : signJWT(assertion);
             String base64UrlEncodedAssertion = encode(signedAssertion);
             return base64UrlEncodedHeader + '.' + base64UrlEncodedBody + '.' + base64UrlEncodedAssertion;
         } else {
@@ -226,8 +270,13 @@ public abstract class AbstractMGWJWTGenerator {
      * Used to build the JWT header.
      */
     public String buildHeader() throws Exception {
+        return getSigningKeys().header;
+    }
+
+    private String createHeader(Certificate publicCert) throws Exception {
         String jwtHeader = null;
-        if (NONE.equals(signatureAlgorithm)) {
+        String algorithm = JWTSigners.getAlgorithm(signatureAlgorithm);
+        if (JWTSigners.NONE.equals(signatureAlgorithm)) {
             StringBuilder jwtHeaderBuilder = new StringBuilder();
             jwtHeaderBuilder.append("{\"typ\":\"JWT\",");
             jwtHeaderBuilder.append("\"alg\":\"");
@@ -235,8 +284,11 @@ public abstract class AbstractMGWJWTGenerator {
             jwtHeaderBuilder.append('\"');
             jwtHeaderBuilder.append('}');
             jwtHeader = jwtHeaderBuilder.toString();
-        } else if (SHA256_WITH_RSA.equals(signatureAlgorithm)) {
-            jwtHeader = addCertToHeader();
+        } else if (JWTSigners.HS256.equals(algorithm)) {
+            // There is no certificate of a secret key, hence the key is identified by its alias
+            jwtHeader = "{\"typ\":\"JWT\",\"alg\":\"" + algorithm + "\",\"kid\":\"" + privateKeyAlias + "\"}";
+        } else if (algorithm != null) {
+            jwtHeader = createCertHeader(publicCert, algorithm);
         }
         return jwtHeader;
     }
@@ -245,27 +297,14 @@ public abstract class AbstractMGWJWTGenerator {
      * Used to sign the JWT using the keystore.
      */
     public byte[] signJWT(String assertion) throws Exception {
-        FileInputStream is;
-        is = new FileInputStream(keyStorePath);
-        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-        keystore.load(is, keyStorePassword.toCharArray());
-        Key key = keystore.getKey(privateKeyAlias, keyStorePassword.toCharArray());
-        Key privateKey = null;
-        if (key instanceof PrivateKey) {
-            privateKey = key;
-        }
-        //initialize signature with private key and algorithm
-        Signature signature = Signature.getInstance(signatureAlgorithm);
-        signature.initSign((PrivateKey) privateKey);
-        //update signature with data to be signed
-        byte[] dataInBytes = assertion.getBytes(Charset.defaultCharset());
-        signature.update(dataInBytes);
-
-        // close the file stream
-        is.close();
+        return sign(getSigningKeys(), assertion);
+    }
 
-        //sign the assertion and return the signature
-        return signature.sign();
+    private static byte[] sign(SigningKeys keys, String assertion) throws Exception {
+        if (keys.signer == null) {
+            throw new GeneralSecurityException("No key is loaded to sign the JWT");
+        }
+        return keys.signer.sign(assertion.getBytes(Charset.defaultCharset()));
     }
 
     /**
@@ -283,12 +322,12 @@ public abstract class AbstractMGWJWTGenerator {
      * Used to add "ballerina"the certificate from the keystore to the header.
      */
     public String addCertToHeader() throws Exception {
-        FileInputStream is;
-        is = new FileInputStream(keyStorePath);
-        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-        keystore.load(is, keyStorePassword.toCharArray());
-        Certificate publicCert = keystore.getCertificate(certificateAlias);
+        SigningKeys keys = getSigningKeys();
+        return keys.certificate != null ?
+                createCertHeader(keys.certificate, JWTSigners.getAlgorithm(signatureAlgorithm)) : null;
+    }
 
+    private String createCertHeader(Certificate publicCert, String algorithm) throws Exception {
         //generate the SHA-1 thumbprint of the certificate
         MessageDigest digestValue = MessageDigest.getInstance("SHA-1");
         byte[] der = publicCert.getEncoded();
@@ -297,25 +336,27 @@ public abstract class AbstractMGWJWTGenerator {
         String publicCertThumbprint = hexify(digestInBytes);
         String base64UrlEncodedThumbPrint;
         base64UrlEncodedThumbPrint = java.util.Base64.getUrlEncoder()
-                .encodeToString(publicCertThumbprint.getBytes("UTF-8"));
+                .encodeToString(publicCertThumbprint.getBytes(StandardCharsets.UTF_8));
         StringBuilder jwtHeader = new StringBuilder();
         //Sample header
         //{"typ":"JWT", "alg":"SHA256withRSA", "x5t":"a_jhNus21KVuoFx65LmkW2O_l10"}
         //{"typ":"JWT", "alg":"[2]", "x5t":"[1]"}
         jwtHeader.append("{\"typ\":\"JWT\",");
         jwtHeader.append("\"alg\":\"");
-        jwtHeader.append("RS256");
+        jwtHeader.append(algorithm);
         jwtHeader.append("\",");
 
         jwtHeader.append("\"x5t\":\"");
         jwtHeader.append(base64UrlEncodedThumbPrint);
         jwtHeader.append('\"');
+        // RS256 tokens keep the header known by the existing backends
+        if (!JWTSigners.RS256.equals(algorithm)) {
+            jwtHeader.append(",\"kid\":\"");
+            jwtHeader.append(base64UrlEncodedThumbPrint);
+            jwtHeader.append('\"');
+        }
 
         jwtHeader.append('}');
-
-        // close the file stream
-        is.close();
-
         return jwtHeader.toString();
     }
 
@@ -342,6 +383,28 @@ public abstract class AbstractMGWJWTGenerator {
         return jwtClaimsSet.toJSONObject().toString();
     }
 
+    /**
+     * Used to serialize the body of a request to an API. The claims are populated with the API details set on the
+     * generator, hence the generators which assemble the body from the passed API details should override this.
+     *
+     * @param jwtInfo    Payload of the authentication token
+     * @param apiDetails Details of the invoked API
+     * @return Serialized body
+     */
+    protected byte[] serializeBody(Map<String, Object> jwtInfo, Map<String, Object> apiDetails) {
+        String jwtBody;
+        synchronized (apiDetailsLock) {
+            Map<String, Object> currentApiDetails = this.apiDetails;
+            this.apiDetails = apiDetails;
+            try {
+                jwtBody = buildBody(jwtInfo);
+            } finally {
+                this.apiDetails = currentApiDetails;
+            }
+        }
+        return jwtBody != null ? jwtBody.getBytes() : null;
+    }
+
     /**
      * Used for base64 encoding.
      */
@@ -373,6 +436,69 @@ public abstract class AbstractMGWJWTGenerator {
         return jsonArray;
     }
 
+    private static boolean isOverridden(Class<?> generatorClass, String methodName, Class<?>... parameterTypes) {
+        try {
+            return generatorClass.getMethod(methodName, parameterTypes).getDeclaringClass()
+                    != AbstractMGWJWTGenerator.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private SigningKeys getSigningKeys() throws Exception {
+        SigningKeys keys = signingKeys;
+        if (keys == null) {
+            synchronized (this) {
+                keys = signingKeys;
+                if (keys == null) {
+                    keys = loadSigningKeys();
+                    signingKeys = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    private SigningKeys loadSigningKeys() throws Exception {
+        if (!JWTSigners.isSigned(signatureAlgorithm)) {
+            return new SigningKeys(null, null, createHeader(null));
+        }
+        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream is = new FileInputStream(keyStorePath)) {
+            keystore.load(is, keyStorePassword.toCharArray());
+        }
+        Key key = keystore.getKey(privateKeyAlias, keyStorePassword.toCharArray());
+        if (key == null) {
+            throw new GeneralSecurityException("No key found for the alias " + privateKeyAlias);
+        }
+        JWTSigner signer = JWTSigners.create(signatureAlgorithm, key);
+        if (JWTSigners.isSymmetric(signatureAlgorithm)) {
+            return new SigningKeys(signer, null, createHeader(null));
+        }
+        Certificate publicCert = keystore.getCertificate(certificateAlias);
+        if (publicCert == null) {
+            throw new GeneralSecurityException("No certificate found for the alias " + certificateAlias);
+        }
+        return new SigningKeys(signer, publicCert, createHeader(publicCert));
+    }
+
+    /**
+     * Signer, certificate and the header of the generated tokens, as loaded from the keystore.
+     */
+    private final class SigningKeys {
+        private final JWTSigner signer;
+        private final Certificate certificate;
+        private final String header;
+        private final String encodedHeader;
+
+        private SigningKeys(JWTSigner signer, Certificate certificate, String header) {
+            this.signer = signer;
+            this.certificate = certificate;
+            this.header = header;
+            this.encodedHeader = header != null ? encode(header.getBytes(Charset.defaultCharset())) : "";
+        }
+    }
+
     public abstract Map<String, Object> populateStandardClaims(Map<String, Object> jwtInfo);
 
     public abstract Map<String, Object> populateCustomClaims(Map<String, Object> jwtInfo,
@@ -0,0 +1,230 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.jwt.generator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JWT body of which the claims that do not change between the requests of an API are serialized once. The claims of
+ * a request are appended to the serialized claims in a buffer reused by the thread, hence a body is assembled
+ * without building a claim map or a JSON object per request.
+ */
+final class JWTBodyTemplate {
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    // Larger buffers are not kept by the thread, so that a single large body does not hold the memory
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    private static final ThreadLocal<Body> BODY = ThreadLocal.withInitial(Body::new);
+
+    private final byte[] staticClaims;
+    private final Set<String> staticClaimNames;
+
+    /**
+     * @param claims Claims shared by all the tokens of the template
+     */
+    JWTBodyTemplate(Map<String, Object> claims) {
+        Body body = new Body();
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            body.claim(claim.getKey(), claim.getValue());
+        }
+        this.staticClaims = Arrays.copyOfRange(body.buffer, 1, body.length);
+        this.staticClaimNames = new HashSet<>(claims.keySet());
+    }
+
+    /**
+     * Start the body of a token with the claims of the template. The body is reused by the thread, hence it should be
+     * completed with {@link Body#toByteArray()} before another body is started.
+     *
+     * @return Body to add the claims of the request
+     */
+    Body begin() {
+        Body body = BODY.get();
+        body.reset(this);
+        return body;
+    }
+
+    /**
+     * JSON object of a JWT body, which is written as UTF-8 into a growing buffer.
+     */
+    static final class Body {
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int length;
+        private final Set<String> claimNames = new HashSet<>();
+        private JWTBodyTemplate template;
+
+        private Body() {
+            buffer[0] = '{';
+            length = 1;
+        }
+
+        private void reset(JWTBodyTemplate template) {
+            if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+                buffer = new byte[INITIAL_BUFFER_SIZE];
+            }
+            this.template = template;
+            claimNames.clear();
+            ensureCapacity(1 + template.staticClaims.length);
+            buffer[0] = '{';
+            System.arraycopy(template.staticClaims, 0, buffer, 1, template.staticClaims.length);
+            length = 1 + template.staticClaims.length;
+        }
+
+        /**
+         * @param name Claim name
+         * @return true if a claim of the name is already in the body
+         */
+        boolean hasClaim(String name) {
+            return claimNames.contains(name) || (template != null && template.staticClaimNames.contains(name));
+        }
+
+        /**
+         * Add a claim to the body, unless a claim of the same name is already added.
+         *
+         * @param name  Claim name
+         * @param value String, number, boolean, map, array or collection value of the claim
+         */
+        void claim(String name, Object value) {
+            if (hasClaim(name)) {
+                return;
+            }
+            claimNames.add(name);
+            if (length > 1) {
+                write(',');
+            }
+            writeString(name);
+            write(':');
+            writeValue(value);
+        }
+
+        /**
+         * Complete the body.
+         *
+         * @return UTF-8 bytes of the JSON object
+         */
+        byte[] toByteArray() {
+            write('}');
+            byte[] bytes = Arrays.copyOf(buffer, length);
+            template = null;
+            return bytes;
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                writeAscii("null");
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writeAscii(value.toString());
+            } else if (value instanceof Map) {
+                write('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!first) {
+                        write(',');
+                    }
+                    first = false;
+                    writeString(String.valueOf(entry.getKey()));
+                    write(':');
+                    writeValue(entry.getValue());
+                }
+                write('}');
+            } else if (value instanceof Object[]) {
+                writeArray(Arrays.asList((Object[]) value));
+            } else if (value instanceof Collection) {
+                writeArray((Collection<?>) value);
+            } else {
+                writeString(value.toString());
+            }
+        }
+
+        private void writeArray(Collection<?> values) {
+            write('[');
+            boolean first = true;
+            for (Object value : values) {
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeValue(value);
+            }
+            write(']');
+        }
+
+        private void writeAscii(String value) {
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void writeString(String value) {
+            // Each char takes at most 6 bytes when escaped, while a surrogate pair of 2 chars takes 4 bytes
+            ensureCapacity(2 + 6 * value.length());
+            buffer[length++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    buffer[length++] = '\\';
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = '0';
+                    buffer[length++] = '0';
+                    buffer[length++] = HEX_DIGITS[c >> 4];
+                    buffer[length++] = HEX_DIGITS[c & 0xf];
+                } else if (c < 0x80) {
+                    buffer[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[length++] = (byte) (0xc0 | (c >> 6));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogates are replaced as done by String#getBytes
+                    buffer[length++] = '?';
+                } else {
+                    buffer[length++] = (byte) (0xe0 | (c >> 12));
+                    buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            buffer[length++] = '"';
+        }
+
+        private void write(char c) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+        }
+
+        private void ensureCapacity(int required) {
+            if (buffer.length - length < required) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + required));
+            }
+        }
+    }
+}
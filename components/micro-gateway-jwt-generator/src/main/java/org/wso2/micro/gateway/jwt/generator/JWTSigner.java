@@ -0,0 +1,38 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.micro.gateway.jwt.generator;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Signs the backend JWTs with a key loaded from the keystore. A signer may be used by many threads at once.
+ */
+public interface JWTSigner {
+
+    /**
+     * @return JWS algorithm of the signatures, as set to the "alg" header
+     */
+    String getAlgorithm();
+
+    /**
+     * Sign the encoded header and body of a JWT.
+     *
+     * @param content Encoded header and body separated by a dot
+     * @return Signature in the format defined for the JWS algorithm
+     * @throws GeneralSecurityException if the content could not be signed
+     */
+    byte[] sign(byte[] content) throws GeneralSecurityException;
+}
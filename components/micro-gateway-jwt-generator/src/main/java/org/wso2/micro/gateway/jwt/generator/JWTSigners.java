@@ -0,0 +1,326 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wso2.micro.gateway.jwt.generator;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * Creates the signer of a signature algorithm of the backend JWT generator. The JCA objects are initialized with the
+ * key once per thread and reused, as they are reset to the initialized state once a signature is produced.
+ */
+public final class JWTSigners {
+    public static final String NONE = "NONE";
+    public static final String SHA256_WITH_RSA = "SHA256withRSA";
+    public static final String RS256 = "RS256";
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+    public static final String ED25519 = "Ed25519";
+    public static final String HS256 = "HS256";
+
+    // Length of each of the R and S values of an ES256 signature
+    private static final int ES256_VALUE_LENGTH = 32;
+    // Ed25519 is supported by the JDK from Java 15
+    private static final int EDDSA_MIN_JAVA_VERSION = 15;
+
+    private JWTSigners() {
+    }
+
+    /**
+     * @param signatureAlgorithm Signature algorithm from the configuration
+     * @return true if the tokens of the algorithm are signed
+     */
+    public static boolean isSigned(String signatureAlgorithm) {
+        return getAlgorithm(signatureAlgorithm) != null;
+    }
+
+    /**
+     * @param signatureAlgorithm Signature algorithm from the configuration
+     * @return true if the algorithm is signed with a secret key instead of a private key
+     */
+    public static boolean isSymmetric(String signatureAlgorithm) {
+        return HS256.equals(getAlgorithm(signatureAlgorithm));
+    }
+
+    /**
+     * Provide the reason why a signature algorithm from the configuration cannot be used by the running JVM.
+     *
+     * @param signatureAlgorithm Signature algorithm from the configuration
+     * @return Reason, or null if the algorithm can be used
+     */
+    public static String getUnsupportedReason(String signatureAlgorithm) {
+        return getUnsupportedReason(signatureAlgorithm, System.getProperty("java.specification.version"));
+    }
+
+    static String getUnsupportedReason(String signatureAlgorithm, String javaSpecificationVersion) {
+        if (EDDSA.equals(getAlgorithm(signatureAlgorithm))
+                && getJavaVersion(javaSpecificationVersion) < EDDSA_MIN_JAVA_VERSION) {
+            return "The JWT signature algorithm " + signatureAlgorithm + " requires Java " + EDDSA_MIN_JAVA_VERSION
+                    + " or later, while the gateway runs on Java " + javaSpecificationVersion
+                    + ". Configure SHA256withRSA, ES256 or HS256 as the signingAlgorithm instead.";
+        }
+        return null;
+    }
+
+    /**
+     * Provide the major version of a Java specification version, which is in the form 1.8 up to Java 8 and 9 from
+     * Java 9. An unknown version is not rejected here, as the JDK rejects the algorithm if it is not supported.
+     */
+    private static int getJavaVersion(String javaSpecificationVersion) {
+        if (javaSpecificationVersion == null) {
+            return Integer.MAX_VALUE;
+        }
+        String version = javaSpecificationVersion.startsWith("1.") ?
+                javaSpecificationVersion.substring(2) : javaSpecificationVersion;
+        int separator = version.indexOf('.');
+        try {
+            return Integer.parseInt(separator < 0 ? version : version.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Provide the JWS algorithm of a signature algorithm from the configuration.
+     *
+     * @param signatureAlgorithm Signature algorithm, either the JCA or the JWS name
+     * @return JWS algorithm, or null if the tokens are not signed with the algorithm
+     */
+    public static String getAlgorithm(String signatureAlgorithm) {
+        if (signatureAlgorithm == null) {
+            return null;
+        }
+        switch (signatureAlgorithm.toUpperCase(Locale.ENGLISH)) {
+            case "SHA256WITHRSA":
+            case "RS256":
+                return RS256;
+            case "SHA256WITHECDSA":
+            case "ES256":
+                return ES256;
+            case "EDDSA":
+            case "ED25519":
+                return EDDSA;
+            case "HMACSHA256":
+            case "HS256":
+                return HS256;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Create the signer of an algorithm.
+     *
+     * @param signatureAlgorithm Signature algorithm from the configuration
+     * @param key                Private key, or the secret key of HS256
+     * @return Signer
+     * @throws GeneralSecurityException if the algorithm is not supported, or the key does not fit the algorithm
+     */
+    public static JWTSigner create(String signatureAlgorithm, Key key) throws GeneralSecurityException {
+        String algorithm = getAlgorithm(signatureAlgorithm);
+        if (algorithm == null) {
+            throw new NoSuchAlgorithmException("Unsupported JWT signature algorithm " + signatureAlgorithm);
+        }
+        String unsupportedReason = getUnsupportedReason(signatureAlgorithm);
+        if (unsupportedReason != null) {
+            throw new NoSuchAlgorithmException(unsupportedReason);
+        }
+        JWTSigner signer;
+        switch (algorithm) {
+            case RS256:
+                signer = new SignatureSigner(RS256, "SHA256withRSA", privateKey(key, "RSA"));
+                break;
+            case ES256:
+                PrivateKey ecKey = privateKey(key, "EC");
+                if (!(ecKey instanceof ECPrivateKey)
+                        || ((ECPrivateKey) ecKey).getParams().getCurve().getField().getFieldSize() != 256) {
+                    throw new InvalidKeyException("ES256 requires a key of the P-256 curve");
+                }
+                signer = new ECDSASigner(ecKey);
+                break;
+            case EDDSA:
+                PrivateKey edKey = key instanceof PrivateKey && (EDDSA.equals(key.getAlgorithm())
+                        || ED25519.equals(key.getAlgorithm())) ? (PrivateKey) key : null;
+                if (edKey == null) {
+                    throw new InvalidKeyException("EdDSA requires an Ed25519 private key");
+                }
+                signer = new SignatureSigner(EDDSA, ED25519, edKey);
+                break;
+            default:
+                if (!(key instanceof SecretKey)) {
+                    throw new InvalidKeyException("HS256 requires a secret key");
+                }
+                signer = new HMACSigner((SecretKey) key);
+                break;
+        }
+        // Fails here instead of on the first token if the key cannot be used
+        signer.sign(new byte[0]);
+        return signer;
+    }
+
+    private static PrivateKey privateKey(Key key, String keyAlgorithm) throws InvalidKeyException {
+        if (!(key instanceof PrivateKey) || !keyAlgorithm.equals(key.getAlgorithm())) {
+            throw new InvalidKeyException("The algorithm requires an " + keyAlgorithm + " private key");
+        }
+        return (PrivateKey) key;
+    }
+
+    /**
+     * Convert a DER encoded ECDSA signature into the concatenated R and S values used by JWS.
+     */
+    static byte[] toConcatenatedSignature(byte[] der, int valueLength) throws GeneralSecurityException {
+        if (der.length < 8 || der[0] != 0x30) {
+            throw new GeneralSecurityException("Invalid ECDSA signature");
+        }
+        // The sequence length takes a second byte once it exceeds 127
+        int offset = (der[1] & 0x80) != 0 ? 3 : 2;
+        byte[] signature = new byte[2 * valueLength];
+        offset = copyInteger(der, offset, signature, 0, valueLength);
+        copyInteger(der, offset, signature, valueLength, valueLength);
+        return signature;
+    }
+
+    private static int copyInteger(byte[] der, int offset, byte[] signature, int position, int valueLength)
+            throws GeneralSecurityException {
+        if (offset + 2 > der.length || der[offset] != 0x02) {
+            throw new GeneralSecurityException("Invalid ECDSA signature");
+        }
+        int length = der[offset + 1];
+        int start = offset + 2;
+        if (length < 0 || start + length > der.length) {
+            throw new GeneralSecurityException("Invalid ECDSA signature");
+        }
+        // Skips the sign padding of the DER integer
+        int valueStart = start;
+        int valueLengthInDer = length;
+        while (valueLengthInDer > valueLength && der[valueStart] == 0) {
+            valueStart++;
+            valueLengthInDer--;
+        }
+        if (valueLengthInDer > valueLength) {
+            throw new GeneralSecurityException("Invalid ECDSA signature");
+        }
+        System.arraycopy(der, valueStart, signature, position + valueLength - valueLengthInDer, valueLengthInDer);
+        return start + length;
+    }
+
+    /**
+     * Provide the cause of the failure to initialize the JCA object of a thread.
+     */
+    private static GeneralSecurityException unwrap(IllegalStateException e) {
+        if (e.getCause() instanceof GeneralSecurityException) {
+            return (GeneralSecurityException) e.getCause();
+        }
+        throw e;
+    }
+
+    /**
+     * Signer of the algorithms whose JCA signature is already in the JWS format.
+     */
+    private static class SignatureSigner implements JWTSigner {
+        private final String algorithm;
+        private final ThreadLocal<Signature> signature;
+
+        SignatureSigner(String algorithm, String jcaAlgorithm, PrivateKey privateKey) {
+            this.algorithm = algorithm;
+            this.signature = ThreadLocal.withInitial(() -> {
+                try {
+                    Signature instance = Signature.getInstance(jcaAlgorithm);
+                    instance.initSign(privateKey);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Error while initializing the " + algorithm + " signature", e);
+                }
+            });
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public byte[] sign(byte[] content) throws GeneralSecurityException {
+            Signature instance;
+            try {
+                instance = signature.get();
+            } catch (IllegalStateException e) {
+                throw unwrap(e);
+            }
+            instance.update(content);
+            return instance.sign();
+        }
+    }
+
+    /**
+     * Signer of ES256, which converts the DER encoded JCA signature into the JWS format.
+     */
+    private static final class ECDSASigner extends SignatureSigner {
+
+        ECDSASigner(PrivateKey privateKey) {
+            super(ES256, "SHA256withECDSA", privateKey);
+        }
+
+        @Override
+        public byte[] sign(byte[] content) throws GeneralSecurityException {
+            return toConcatenatedSignature(super.sign(content), ES256_VALUE_LENGTH);
+        }
+    }
+
+    /**
+     * Signer of HS256.
+     */
+    private static final class HMACSigner implements JWTSigner {
+        private final ThreadLocal<Mac> mac;
+
+        HMACSigner(SecretKey secretKey) {
+            this.mac = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac instance = Mac.getInstance("HmacSHA256");
+                    instance.init(secretKey);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Error while initializing the HS256 signature", e);
+                }
+            });
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return HS256;
+        }
+
+        @Override
+        public byte[] sign(byte[] content) throws GeneralSecurityException {
+            Mac instance;
+            try {
+                instance = mac.get();
+            } catch (IllegalStateException e) {
+                throw unwrap(e);
+            }
+            return instance.doFinal(content);
+        }
+    }
+}
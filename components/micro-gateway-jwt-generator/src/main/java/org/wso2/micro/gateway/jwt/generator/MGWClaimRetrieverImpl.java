@@ -36,6 +36,13 @@ import java.security.cert.CertificateException;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -43,14 +50,38 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 
 /**
- * Class to retrieve user claims from Key Manager component of the API Manager.
+ * Class to retrieve user claims from Key Manager component of the API Manager. The claims are cached per user and
+ * retrieved by a bounded pool of threads, over connections kept alive by the JDK and with strict timeouts, so that a
+ * slow Key Manager does not hold the gateway threads.
  */
 public class MGWClaimRetrieverImpl extends AbstractMGWClaimRetriever {
     private static final Logger logger = LogManager.getLogger(AbstractMGWJWTGenerator.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String CONNECT_TIMEOUT = "connectTimeout";
+    private static final String READ_TIMEOUT = "readTimeout";
+    private static final String CACHE_EXPIRY = "cacheExpiry";
+    private static final String NEGATIVE_CACHE_EXPIRY = "negativeCacheExpiry";
+    private static final String CACHE_CAPACITY = "cacheCapacity";
+    private static final String POOL_SIZE = "poolSize";
+    private static final String QUEUE_SIZE = "queueSize";
+    private static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+    private static final int DEFAULT_READ_TIMEOUT = 5000;
+    private static final long DEFAULT_CACHE_EXPIRY = 300000;
+    private static final long DEFAULT_NEGATIVE_CACHE_EXPIRY = 30000;
+    private static final int DEFAULT_CACHE_CAPACITY = 10000;
+    // The JDK keeps up to 5 idle connections per endpoint alive by default
+    private static final int DEFAULT_POOL_SIZE = 5;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
     private SSLSocketFactory sslSocketFactory;
     private String username;
     private String password;
     private String serverUrl;
+    private final String authorizationHeader;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final UserClaimCache claimCache;
 
     public MGWClaimRetrieverImpl(String trustStorePath, String trustStoreLocation,
                                  Map<String, String> configurationMap) {
@@ -60,41 +91,102 @@ public class MGWClaimRetrieverImpl extends AbstractMGWClaimRetriever {
         this.password = configurationMap.get("password");
         this.serverUrl = configurationMap.get("serverUrl");
         sslSocketFactory = createSSLSocketFactory();
+        this.authorizationHeader = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password)
+                .getBytes(StandardCharsets.UTF_8));
+        this.connectTimeout = (int) getLongConfiguration(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+        this.readTimeout = (int) getLongConfiguration(READ_TIMEOUT, DEFAULT_READ_TIMEOUT);
+        int poolSize = (int) getLongConfiguration(POOL_SIZE, DEFAULT_POOL_SIZE);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>((int) getLongConfiguration(QUEUE_SIZE, DEFAULT_QUEUE_SIZE)), runnable -> {
+                    Thread thread = new Thread(runnable, "claim-retriever-" + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.claimCache = new UserClaimCache(getLongConfiguration(CACHE_EXPIRY, DEFAULT_CACHE_EXPIRY),
+                getLongConfiguration(NEGATIVE_CACHE_EXPIRY, DEFAULT_NEGATIVE_CACHE_EXPIRY),
+                (int) getLongConfiguration(CACHE_CAPACITY, DEFAULT_CACHE_CAPACITY), executor);
     }
 
     @Override
     public List<ClaimDTO> retrieveClaims(Map<String, Object> authContext) {
         try {
-            HttpsURLConnection urlConn = null;
+            // A retrieval may wait in the queue, hence the caller waits for a connection and a read at most
+            return retrieveClaimsAsync(authContext).get(connectTimeout + readTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.error("Claim retrieval of the user " + authContext.get("username") + " is timed out");
+        } catch (ExecutionException e) {
+            logger.error("Error while retrieving user claims from remote endpoint", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<List<ClaimDTO>> retrieveClaimsAsync(Map<String, Object> authContext) {
+        return claimCache.get(authContext.get("username").toString(), this::retrieveRemoteClaims);
+    }
+
+    /**
+     * Remove the cached claims of all the users.
+     */
+    public void clearCache() {
+        claimCache.clear();
+    }
+
+    private List<ClaimDTO> retrieveRemoteClaims(String user) {
+        HttpsURLConnection urlConn = null;
+        try {
             String userInfoEndpoint = serverUrl + "/keymanager-operations/user-info/claims/generate";
             URL url = new URL(userInfoEndpoint);
             urlConn = (HttpsURLConnection) url.openConnection();
             urlConn.setSSLSocketFactory(sslSocketFactory);
             urlConn.setHostnameVerifier((s, sslSession) -> true);
+            urlConn.setConnectTimeout(connectTimeout);
+            urlConn.setReadTimeout(readTimeout);
             urlConn.setDoOutput(true);
             urlConn.setRequestMethod("POST");
-            String credential = Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
-            urlConn.setRequestProperty("Authorization", "Basic " + credential);
+            urlConn.setRequestProperty("Authorization", authorizationHeader);
             urlConn.setRequestProperty("Content-Type", "application/json");
-            String jsonInputString = "{\"username\": \"" +
-                    removeTenantFromUserName(authContext.get("username").toString()) + "\"}";
+            String jsonInputString = "{\"username\": \"" + removeTenantFromUserName(user) + "\"}";
             try (OutputStream os = urlConn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes("utf-8");
+                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
                 os.write(input, 0, input.length);
             }
             int responseCode = urlConn.getResponseCode();
             if (responseCode == 200) {
                 String responseStr = getResponseString(urlConn.getInputStream());
-                ObjectMapper mapper = new ObjectMapper();
-                return (List<ClaimDTO>) mapper.readValue(responseStr, Map.class).get("list");
+                return (List<ClaimDTO>) OBJECT_MAPPER.readValue(responseStr, Map.class).get("list");
+            }
+            // The error response is read, so that the connection is kept alive for the next retrieval
+            InputStream errorStream = urlConn.getErrorStream();
+            if (errorStream != null) {
+                getResponseString(errorStream);
             }
             logger.error("Claim Retrieval request is failed with the response code : " + responseCode);
         } catch (IOException e) {
             logger.error("Error while retrieving user claims from remote endpoint", e);
+            if (urlConn != null) {
+                urlConn.disconnect();
+            }
         }
         return null;
     }
 
+    private long getLongConfiguration(String configurationKey, long defaultValue) {
+        // The values of the configuration map are not converted to strings by the gateway
+        Object value = getConfigurationMap() != null ? ((Map) getConfigurationMap()).get(configurationKey) : null;
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            logger.error("Invalid value " + value + " for the claim retriever configuration " + configurationKey);
+            return defaultValue;
+        }
+    }
 
     /**
      * Get inputStream string as string.
@@ -22,15 +22,23 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
- * Class to implement standard claims and custom claims.
+ * Class to implement standard claims and custom claims. The claims of an API are serialized once into a template,
+ * into which the claims of each request are spliced.
  */
 public class MGWJWTGeneratorImpl extends AbstractMGWJWTGenerator {
     private static final Logger logger = LogManager.getLogger(MGWJWTGeneratorImpl.class);
     private static final String AUTH_APPLICATION_USER_LEVEL_TOKEN = "Application_User";
+    // The templates are keyed by the API details, which also carry the subscription tier and the tenant domain
+    private static final int MAX_TEMPLATES = 1000;
+
+    private final Map<Map<String, Object>, APITemplate> templates = new ConcurrentHashMap<>();
 
     public MGWJWTGeneratorImpl(String dialectURI,
                                String signatureAlgorithm,
@@ -50,63 +58,123 @@ public class MGWJWTGeneratorImpl extends AbstractMGWJWTGenerator {
 
     @Override
     public Map<String, Object> populateStandardClaims(Map<String, Object> jwtInfo) {
+        Map<String, Object> claims = new HashMap<>();
+        populateRequestClaims(jwtInfo, claims::put);
+        claims.putAll(populateAPIClaims(getApiDetails()));
+        return claims;
+    }
+
+    @Override
+    protected byte[] serializeBody(Map<String, Object> jwtInfo, Map<String, Object> apiDetails) {
+        // Subclasses may populate the claims differently, hence they are serialized from the populated claims
+        if (getClass() != MGWJWTGeneratorImpl.class) {
+            return super.serializeBody(jwtInfo, apiDetails);
+        }
+        JWTBodyTemplate.Body body = getTemplate(apiDetails).begin();
+        populateRequestClaims(jwtInfo, body::claim);
+        ArrayList<String> restrictedClaims = getRestrictedClaims();
+        for (Map.Entry<String, Object> entry : jwtInfo.entrySet()) {
+            if (entry.getKey().equals("customClaims")) {
+                Map<String, Object> customClaims = (Map<String, Object>) entry.getValue();
+                for (Map.Entry<String, Object> customClaim : customClaims.entrySet()) {
+                    if (!restrictedClaims.contains(customClaim.getKey())) {
+                        body.claim(customClaim.getKey(), customClaim.getValue());
+                    }
+                }
+            } else if (!restrictedClaims.contains(entry.getKey())) {
+                body.claim(entry.getKey(), entry.getValue());
+            }
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Provide the template of the claims which are common to the tokens of an API.
+     */
+    private JWTBodyTemplate getTemplate(Map<String, Object> apiDetails) {
+        APITemplate apiTemplate = templates.get(apiDetails);
+        String dialect = getDialectURI();
+        String issuer = getTokenIssuer();
+        // The claims are populated again if the dialect or the issuer is changed after the template is created
+        if (apiTemplate == null || apiTemplate.dialect != dialect || apiTemplate.issuer != issuer) {
+            if (templates.size() >= MAX_TEMPLATES) {
+                templates.clear();
+            }
+            Map<String, Object> claims = populateAPIClaims(apiDetails);
+            apiTemplate = new APITemplate(dialect, issuer, new JWTBodyTemplate(claims));
+            templates.put(new HashMap<>(apiDetails), apiTemplate);
+        }
+        return apiTemplate.template;
+    }
+
+    /**
+     * Populate the standard claims which are common to the tokens of an API.
+     */
+    private Map<String, Object> populateAPIClaims(Map<String, Object> apiDetails) {
+        String dialect = this.getDialectURI();
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", getTokenIssuer());
+        if (StringUtils.isNotEmpty((CharSequence) apiDetails.get("apiName"))) {
+            claims.put(dialect + "/apiname", apiDetails.get("apiName"));
+        }
+        if (StringUtils.isNotEmpty((CharSequence) apiDetails.get("subscriberTenantDomain"))) {
+            claims.put(dialect + "/enduserTenantDomain", apiDetails.get("subscriberTenantDomain"));
+        }
+        if (StringUtils.isNotEmpty((CharSequence) apiDetails.get("apiContext"))) {
+            claims.put(dialect + "/apicontext", apiDetails.get("apiContext"));
+        }
+        if (StringUtils.isNotEmpty((CharSequence) apiDetails.get("apiVersion"))) {
+            claims.put(dialect + "/version", apiDetails.get("apiVersion"));
+        }
+        if (StringUtils.isNotEmpty((CharSequence) apiDetails.get("apiTier"))) {
+            claims.put(dialect + "/tier", apiDetails.get("apiTier"));
+        }
+        claims.put(dialect + "/usertype", AUTH_APPLICATION_USER_LEVEL_TOKEN);
+        return claims;
+    }
+
+    /**
+     * Populate the standard claims which are specific to the token of a request.
+     */
+    private void populateRequestClaims(Map<String, Object> jwtInfo, BiConsumer<String, Object> claims) {
         long currentTime = System.currentTimeMillis();
         long expireIn = currentTime + getTTL();
         String dialect = this.getDialectURI();
-        Map<String, Object> claims = new HashMap<>();
         HashMap<String, Object> customClaims = (HashMap<String, Object>) jwtInfo.get("customClaims");
-        claims.put("iss", getTokenIssuer());
-        claims.put("jti", UUID.randomUUID().toString());
-        claims.put("iat", (int) (currentTime / 1000));
-        claims.put("exp", (int) (expireIn / 1000));
+        claims.accept("jti", UUID.randomUUID().toString());
+        claims.accept("iat", (int) (currentTime / 1000));
+        claims.accept("exp", (int) (expireIn / 1000));
         if (StringUtils.isNotEmpty((CharSequence) jwtInfo.get("sub"))) {
-            claims.put("sub", jwtInfo.get("sub"));
-            claims.put(dialect + "/enduser", jwtInfo.get("sub"));
+            claims.accept("sub", jwtInfo.get("sub"));
+            claims.accept(dialect + "/enduser", jwtInfo.get("sub"));
         }
         if (StringUtils.isNotEmpty((CharSequence) customClaims.get("scopes"))) {
-            claims.put("scopes", (customClaims.get("scopes")));
+            claims.accept("scopes", (customClaims.get("scopes")));
         }
         if (customClaims.get("application") != null) {
             if (StringUtils.isNotEmpty(((HashMap) customClaims.get("application")).get("id").toString())) {
-                claims.put(dialect + "/applicationid", ((HashMap) customClaims.get("application")).get("id")
+                claims.accept(dialect + "/applicationid", ((HashMap) customClaims.get("application")).get("id")
                         .toString());
             }
             if (StringUtils.isNotEmpty(((HashMap) customClaims.get("application")).get("uuid").toString())) {
-                claims.put(dialect + "/applicationUUId", ((HashMap) customClaims.get("application")).get("uuid")
+                claims.accept(dialect + "/applicationUUId", ((HashMap) customClaims.get("application")).get("uuid")
                         .toString());
             }
             if (StringUtils.isNotEmpty((CharSequence) ((HashMap) customClaims.get("application")).get("owner"))) {
-                claims.put(dialect + "/subscriber", ((HashMap) customClaims.get("application")).get("owner"));
+                claims.accept(dialect + "/subscriber", ((HashMap) customClaims.get("application")).get("owner"));
             }
             if (StringUtils.isNotEmpty((CharSequence) ((HashMap) customClaims.get("application")).get("name"))) {
-                claims.put(dialect + "/applicationname", ((HashMap) customClaims.get("application")).get("name"));
+                claims.accept(dialect + "/applicationname", ((HashMap) customClaims.get("application")).get("name"));
             }
             if (StringUtils.isNotEmpty((CharSequence) ((HashMap) customClaims.get("application")).get("tier"))) {
-                claims.put(dialect + "/applicationtier", ((HashMap) customClaims.get("application")).get("tier"));
+                claims.accept(dialect + "/applicationtier", ((HashMap) customClaims.get("application")).get("tier"));
             }
         }
-        if (StringUtils.isNotEmpty((CharSequence) getApiDetails().get("apiName"))) {
-            claims.put(dialect + "/apiname", getApiDetails().get("apiName"));
-        }
-        if (StringUtils.isNotEmpty((CharSequence) getApiDetails().get("subscriberTenantDomain"))) {
-            claims.put(dialect + "/enduserTenantDomain", getApiDetails().get("subscriberTenantDomain"));
-        }
-        if (StringUtils.isNotEmpty((CharSequence) getApiDetails().get("apiContext"))) {
-            claims.put(dialect + "/apicontext", getApiDetails().get("apiContext"));
-        }
-        if (StringUtils.isNotEmpty((CharSequence) getApiDetails().get("apiVersion"))) {
-            claims.put(dialect + "/version", getApiDetails().get("apiVersion"));
-        }
-        if (StringUtils.isNotEmpty((CharSequence) getApiDetails().get("apiTier"))) {
-            claims.put(dialect + "/tier", getApiDetails().get("apiTier"));
-        }
         if (StringUtils.isNotEmpty((CharSequence) customClaims.get("keytype"))) {
-            claims.put(dialect + "/keytype", customClaims.get("keytype"));
+            claims.accept(dialect + "/keytype", customClaims.get("keytype"));
         } else {
-            claims.put(dialect + "/keytype", "PRODUCTION");
+            claims.accept(dialect + "/keytype", "PRODUCTION");
         }
-        claims.put(dialect + "/usertype", AUTH_APPLICATION_USER_LEVEL_TOKEN);
-        return claims;
     }
 
     @Override
@@ -129,4 +197,19 @@ public class MGWJWTGeneratorImpl extends AbstractMGWJWTGenerator {
         }
         return claims;
     }
+
+    /**
+     * Template of an API, with the dialect and the issuer of its claims.
+     */
+    private static final class APITemplate {
+        private final String dialect;
+        private final String issuer;
+        private final JWTBodyTemplate template;
+
+        private APITemplate(String dialect, String issuer, JWTBodyTemplate template) {
+            this.dialect = dialect;
+            this.issuer = issuer;
+            this.template = template;
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.jwt.generator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Cache of the claims retrieved per user. Both the retrieved claims and the failed retrievals are cached, the latter
+ * for a shorter time so that an unavailable endpoint is not called by every request. The concurrent lookups of a user
+ * who is not in the cache wait for a single retrieval, which is run by the given executor.
+ */
+public final class UserClaimCache {
+    private static final Logger logger = LogManager.getLogger(UserClaimCache.class);
+
+    private final long expiryTime;
+    private final long negativeExpiryTime;
+    private final int capacity;
+    private final Executor executor;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<ClaimDTO>>> retrievals = new ConcurrentHashMap<>();
+
+    /**
+     * @param expiryTime         Time in milliseconds the retrieved claims are cached
+     * @param negativeExpiryTime Time in milliseconds a failed retrieval is cached
+     * @param capacity           Maximum number of users kept in the cache
+     * @param executor           Executor to run the retrievals
+     */
+    public UserClaimCache(long expiryTime, long negativeExpiryTime, int capacity, Executor executor) {
+        this.expiryTime = expiryTime;
+        this.negativeExpiryTime = negativeExpiryTime;
+        this.capacity = capacity;
+        this.executor = executor;
+    }
+
+    /**
+     * Provide the claims of a user, from the cache or else from a retrieval shared by the concurrent lookups.
+     *
+     * @param user      User of the claims
+     * @param retriever Retrieves the claims of the user, which returns null if the retrieval failed
+     * @return Future completed with the claims, or with null if the claims could not be retrieved
+     */
+    public CompletableFuture<List<ClaimDTO>> get(String user, Function<String, List<ClaimDTO>> retriever) {
+        Entry entry = entries.get(user);
+        if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(entry.claims);
+        }
+        CompletableFuture<List<ClaimDTO>> retrieval = new CompletableFuture<>();
+        CompletableFuture<List<ClaimDTO>> ongoingRetrieval = retrievals.putIfAbsent(user, retrieval);
+        if (ongoingRetrieval != null) {
+            return ongoingRetrieval;
+        }
+        try {
+            executor.execute(() -> retrieve(user, retriever, retrieval));
+        } catch (RejectedExecutionException e) {
+            // The caller is not blocked if the retrievals are backed up, and the claims are retrieved for a later call
+            logger.warn("Claim retrieval of the user " + user + " is skipped as too many retrievals are pending");
+            retrievals.remove(user, retrieval);
+            retrieval.complete(null);
+        }
+        return retrieval;
+    }
+
+    /**
+     * Remove the claims of all the users.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return Number of users in the cache, including the expired entries which are not yet removed
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void retrieve(String user, Function<String, List<ClaimDTO>> retriever,
+                          CompletableFuture<List<ClaimDTO>> retrieval) {
+        List<ClaimDTO> claims = null;
+        try {
+            claims = retriever.apply(user);
+        } catch (RuntimeException e) {
+            logger.error("Error while retrieving the claims of the user " + user, e);
+        }
+        long currentTime = System.currentTimeMillis();
+        if (entries.size() >= capacity) {
+            evict(currentTime);
+        }
+        entries.put(user, new Entry(claims, currentTime + (claims != null ? expiryTime : negativeExpiryTime)));
+        retrievals.remove(user, retrieval);
+        retrieval.complete(claims);
+    }
+
+    private void evict(long currentTime) {
+        entries.values().removeIf(entry -> entry.isExpired(currentTime));
+        // A tenth of the users are removed at once if none is expired, so that the cache is not scanned per insert
+        Iterator<Entry> iterator = entries.values().iterator();
+        int excess = entries.size() - capacity + Math.max(1, capacity / 10);
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Claims of a user with their expiry time.
+     */
+    private static final class Entry {
+        private final List<ClaimDTO> claims;
+        private final long expiryTime;
+
+        private Entry(List<ClaimDTO> claims, long expiryTime) {
+            this.claims = claims;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired(long currentTime) {
+            return currentTime >= expiryTime;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.jwt.generator;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+
+/**
+ * Verifies the tokens signed by the backend JWT generator with the keys loaded once from the keystore.
+ */
+public class AbstractMGWJWTGeneratorTest {
+    private static final String KEY_STORE = "jwt-generator-test.p12";
+    private static final String KEY_STORE_PASSWORD = "wso2carbon";
+    private static final String RSA_ALIAS = "rsa";
+    private static final String ES256_ALIAS = "es256";
+    private static final String ED25519_ALIAS = "ed25519";
+    private static final String HS256_ALIAS = "hs256";
+
+    private Path directory;
+    private Path keyStorePath;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jwt-generator");
+        keyStorePath = directory.resolve(KEY_STORE);
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(KEY_STORE)) {
+            Files.copy(inputStream, keyStorePath);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(keyStorePath);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSignedTokens() throws Exception {
+        AbstractMGWJWTGenerator generator = createGenerator("SHA256withRSA", RSA_ALIAS);
+        Certificate certificate = loadCertificate(RSA_ALIAS);
+        String header = decode(generator.generateToken(createJwtInfo("admin")).split("\\.")[0]);
+        Assert.assertTrue(header.contains("\"alg\":\"RS256\""));
+        Assert.assertEquals(header, generator.buildHeader());
+        Assert.assertEquals(header, generator.addCertToHeader());
+
+        // The keys are kept once loaded, hence the tokens are signed even after the keystore is removed
+        Files.delete(keyStorePath);
+        int threadCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                String user = "user" + i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        String token = generator.generateToken(createJwtInfo(user));
+                        Assert.assertTrue(verify(token, "SHA256withRSA", certificate));
+                        Assert.assertTrue(decode(token.split("\\.")[1]).contains(user));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReloadSigningKeys() throws Exception {
+        AbstractMGWJWTGenerator generator = createGenerator("SHA256withRSA", RSA_ALIAS);
+        // The keys are loaded by the first token
+        generator.generateToken(createJwtInfo("admin"));
+        Path movedKeyStorePath = directory.resolve("moved.p12");
+        Files.move(keyStorePath, movedKeyStorePath);
+        try {
+            generator.reloadSigningKeys();
+            Assert.fail("Keys should not be reloaded from a missing keystore");
+        } catch (IOException e) {
+            // expected
+        }
+        // Keys loaded before the failed reload are still used
+        Assert.assertTrue(verify(generator.generateToken(createJwtInfo("admin")), "SHA256withRSA",
+                loadCertificate(movedKeyStorePath, RSA_ALIAS)));
+        // Changing the keystore path loads the keys again
+        generator.setKeyStorePath(movedKeyStorePath.toString());
+        Files.move(movedKeyStorePath, keyStorePath);
+        try {
+            generator.generateToken(createJwtInfo("admin"));
+            Assert.fail("Keys should be loaded from the new keystore path");
+        } catch (IOException e) {
+            // expected
+        }
+        generator.setKeyStorePath(keyStorePath.toString());
+        Assert.assertTrue(verify(generator.generateToken(createJwtInfo("admin")), "SHA256withRSA",
+                loadCertificate(RSA_ALIAS)));
+    }
+
+    @Test
+    public void testUnsignedTokens() throws Exception {
+        AbstractMGWJWTGenerator generator = createGenerator("NONE", RSA_ALIAS);
+        String token = generator.generateToken(createJwtInfo("admin"));
+        Assert.assertTrue(token.endsWith("."));
+        Assert.assertEquals("{\"typ\":\"JWT\",\"alg\":\"none\"}", decode(token.split("\\.")[0]));
+    }
+
+    @Test
+    public void testES256Tokens() throws Exception {
+        AbstractMGWJWTGenerator generator = createGenerator("ES256", ES256_ALIAS);
+        String token = generator.generateToken(createJwtInfo("admin"));
+        String header = decode(token.split("\\.")[0]);
+        Assert.assertTrue(header.contains("\"alg\":\"ES256\""));
+        Assert.assertTrue(header.contains("\"kid\":"));
+        // JWS carries the R and S values of the signature concatenated instead of the DER encoding
+        int signatureIndex = token.lastIndexOf('.');
+        byte[] concatenated = Base64.getUrlDecoder().decode(token.substring(signatureIndex + 1));
+        Assert.assertEquals(64, concatenated.length);
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initVerify(loadCertificate(ES256_ALIAS));
+        signature.update(token.substring(0, signatureIndex).getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(signature.verify(toDer(concatenated)));
+    }
+
+    @Test
+    public void testEdDSATokens() throws Exception {
+        try {
+            Signature.getInstance("Ed25519");
+        } catch (NoSuchAlgorithmException e) {
+            Assume.assumeNoException("Ed25519 is not supported by the JDK", e);
+        }
+        AbstractMGWJWTGenerator generator = createGenerator("EdDSA", ED25519_ALIAS);
+        String token = generator.generateToken(createJwtInfo("admin"));
+        Assert.assertTrue(decode(token.split("\\.")[0]).contains("\"alg\":\"EdDSA\""));
+        Assert.assertTrue(verify(token, "Ed25519", loadCertificate(ED25519_ALIAS)));
+    }
+
+    @Test
+    public void testHS256Tokens() throws Exception {
+        AbstractMGWJWTGenerator generator = createGenerator("HS256", HS256_ALIAS);
+        String token = generator.generateToken(createJwtInfo("admin"));
+        Assert.assertEquals("{\"typ\":\"JWT\",\"alg\":\"HS256\",\"kid\":\"" + HS256_ALIAS + "\"}",
+                decode(token.split("\\.")[0]));
+        Assert.assertNull(generator.addCertToHeader());
+        int signatureIndex = token.lastIndexOf('.');
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(loadKey(HS256_ALIAS));
+        byte[] expected = mac.doFinal(token.substring(0, signatureIndex).getBytes(StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(expected, Base64.getUrlDecoder().decode(token.substring(signatureIndex + 1)));
+    }
+
+    @Test
+    public void testEdDSARequiresJava15() {
+        Assert.assertNotNull(JWTSigners.getUnsupportedReason("EdDSA", "1.8"));
+        Assert.assertNotNull(JWTSigners.getUnsupportedReason("Ed25519", "11"));
+        Assert.assertNull(JWTSigners.getUnsupportedReason("EdDSA", "15"));
+        Assert.assertNull(JWTSigners.getUnsupportedReason("EdDSA", "17"));
+        Assert.assertNull(JWTSigners.getUnsupportedReason("ES256", "1.8"));
+    }
+
+    @Test
+    public void testKeyOfAnotherAlgorithm() {
+        AbstractMGWJWTGenerator generator = createGenerator("ES256", RSA_ALIAS);
+        try {
+            generator.generateToken(createJwtInfo("admin"));
+            Assert.fail("An RSA key should not be used to sign ES256 tokens");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOverriddenTokenHooks() throws Exception {
+        // The hooks read the fields of the subclass, which are not initialized while the base class is constructed
+        AbstractMGWJWTGenerator generator = new MGWJWTGeneratorImpl("http://wso2.org/claims", "SHA256withRSA",
+                keyStorePath.toString(), KEY_STORE_PASSWORD, RSA_ALIAS, RSA_ALIAS, 900, new String[0], false, 900,
+                "wso2.org/products/am", new String[]{"http://org.wso2.apimgt/gateway"}) {
+            private final String header = "{\"typ\":\"JWT\",\"alg\":\"custom\"}";
+            private final byte[] signature = "signature".getBytes(StandardCharsets.UTF_8);
+
+            @Override
+            public String buildHeader() {
+                return header;
+            }
+
+            @Override
+            public byte[] signJWT(String assertion) {
+                return signature.clone();
+            }
+
+            @Override
+            public String encode(byte[] stringToBeEncoded) {
+                return header.isEmpty() ? "" : super.encode(stringToBeEncoded);
+            }
+        };
+        Map<String, Object> apiDetails = new HashMap<>();
+        apiDetails.put("apiName", "PizzaShackAPI");
+        String[] token = generator.generateToken(createJwtInfo("admin"), apiDetails).split("\\.");
+        Assert.assertEquals("{\"typ\":\"JWT\",\"alg\":\"custom\"}", decode(token[0]));
+        Assert.assertTrue(decode(token[1]).contains("admin"));
+        Assert.assertEquals("signature", decode(token[2]));
+    }
+
+    AbstractMGWJWTGenerator createGenerator(String signatureAlgorithm, String alias) {
+        MGWJWTGeneratorImpl generator = new MGWJWTGeneratorImpl("http://wso2.org/claims", signatureAlgorithm,
+                keyStorePath.toString(), KEY_STORE_PASSWORD, alias, alias, 900, new String[0], false, 900,
+                "wso2.org/products/am", new String[]{"http://org.wso2.apimgt/gateway"});
+        Map<String, Object> apiDetails = new HashMap<>();
+        apiDetails.put("apiName", "PizzaShackAPI");
+        apiDetails.put("apiContext", "/pizzashack/1.0.0");
+        apiDetails.put("apiVersion", "1.0.0");
+        generator.setApiDetails(apiDetails);
+        return generator;
+    }
+
+    static Map<String, Object> createJwtInfo(String user) {
+        Map<String, Object> customClaims = new HashMap<>();
+        customClaims.put("scopes", "read write");
+        Map<String, Object> jwtInfo = new HashMap<>();
+        jwtInfo.put("sub", user);
+        jwtInfo.put("customClaims", customClaims);
+        return jwtInfo;
+    }
+
+    Certificate loadCertificate(String alias) throws Exception {
+        return loadCertificate(keyStorePath, alias);
+    }
+
+    static Certificate loadCertificate(Path path, String alias) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            keyStore.load(inputStream, KEY_STORE_PASSWORD.toCharArray());
+        }
+        return keyStore.getCertificate(alias);
+    }
+
+    Key loadKey(String alias) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = Files.newInputStream(keyStorePath)) {
+            keyStore.load(inputStream, KEY_STORE_PASSWORD.toCharArray());
+        }
+        return keyStore.getKey(alias, KEY_STORE_PASSWORD.toCharArray());
+    }
+
+    static boolean verify(String token, String algorithm, Certificate certificate) throws Exception {
+        int signatureIndex = token.lastIndexOf('.');
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initVerify(certificate);
+        signature.update(token.substring(0, signatureIndex).getBytes(StandardCharsets.UTF_8));
+        return signature.verify(Base64.getUrlDecoder().decode(token.substring(signatureIndex + 1)));
+    }
+
+    /**
+     * Encode the concatenated R and S values of an ES256 signature as a DER sequence of two integers.
+     */
+    static byte[] toDer(byte[] concatenated) {
+        ByteArrayOutputStream values = new ByteArrayOutputStream();
+        for (int offset = 0; offset < concatenated.length; offset += 32) {
+            int start = offset;
+            while (start < offset + 31 && concatenated[start] == 0) {
+                start++;
+            }
+            boolean negative = concatenated[start] < 0;
+            int length = offset + 32 - start;
+            values.write(0x02);
+            values.write(negative ? length + 1 : length);
+            if (negative) {
+                values.write(0);
+            }
+            values.write(concatenated, start, length);
+        }
+        ByteArrayOutputStream der = new ByteArrayOutputStream();
+        der.write(0x30);
+        der.write(values.size());
+        der.write(values.toByteArray(), 0, values.size());
+        return der.toByteArray();
+    }
+
+    static String decode(String part) {
+        return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+    }
+}
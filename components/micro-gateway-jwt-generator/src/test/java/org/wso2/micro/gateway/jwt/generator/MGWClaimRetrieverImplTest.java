@@ -0,0 +1,176 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.jwt.generator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Verifies the caching, the coalescing and the timeouts of the claim retrieval from the Key Manager.
+ */
+public class MGWClaimRetrieverImplTest {
+    private static final String KEY_STORE = "jwt-generator-test.p12";
+    private static final String KEY_STORE_PASSWORD = "wso2carbon";
+    private static final String CLAIMS = "{\"count\":1,\"list\":[{\"uri\":\"http://wso2.org/claims/department\","
+            + "\"value\":\"engineering\"}]}";
+
+    private Path trustStorePath;
+    private HttpsServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        trustStorePath = Files.createTempFile("claim-retriever", ".p12");
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(KEY_STORE)) {
+            Files.copy(inputStream, trustStorePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = Files.newInputStream(trustStorePath)) {
+            keyStore.load(inputStream, KEY_STORE_PASSWORD.toCharArray());
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD.toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        server.createContext("/keymanager-operations/user-info/claims/generate", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        Files.deleteIfExists(trustStorePath);
+    }
+
+    @Test
+    public void testCachedClaims() {
+        MGWClaimRetrieverImpl retriever = createRetriever(new HashMap<>());
+        for (int i = 0; i < 3; i++) {
+            List<ClaimDTO> claims = retriever.retrieveClaims(createAuthContext("admin@carbon.super"));
+            Assert.assertNotNull(claims);
+            Assert.assertEquals(1, claims.size());
+        }
+        Assert.assertEquals(1, requestCount.get());
+        retriever.clearCache();
+        Assert.assertNotNull(retriever.retrieveClaims(createAuthContext("admin@carbon.super")));
+        Assert.assertEquals(2, requestCount.get());
+    }
+
+    @Test
+    public void testConcurrentRetrievalsAreCoalesced() throws Exception {
+        MGWClaimRetrieverImpl retriever = createRetriever(new HashMap<>());
+        List<CompletableFuture<List<ClaimDTO>>> retrievals = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            retrievals.add(retriever.retrieveClaimsAsync(createAuthContext("slow@carbon.super")));
+        }
+        for (CompletableFuture<List<ClaimDTO>> retrieval : retrievals) {
+            Assert.assertEquals(1, retrieval.get(10, TimeUnit.SECONDS).size());
+        }
+        Assert.assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void testFailedRetrievalIsCached() throws Exception {
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put("negativeCacheExpiry", "300");
+        MGWClaimRetrieverImpl retriever = createRetriever(configuration);
+        Assert.assertNull(retriever.retrieveClaims(createAuthContext("fail@carbon.super")));
+        Assert.assertNull(retriever.retrieveClaims(createAuthContext("fail@carbon.super")));
+        Assert.assertEquals(1, requestCount.get());
+        Thread.sleep(400);
+        Assert.assertNull(retriever.retrieveClaims(createAuthContext("fail@carbon.super")));
+        Assert.assertEquals(2, requestCount.get());
+    }
+
+    @Test
+    public void testReadTimeout() {
+        Map<String, String> configuration = new HashMap<>();
+        configuration.put("readTimeout", "500");
+        MGWClaimRetrieverImpl retriever = createRetriever(configuration);
+        long startTime = System.nanoTime();
+        Assert.assertNull(retriever.retrieveClaims(createAuthContext("hang@carbon.super")));
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    private MGWClaimRetrieverImpl createRetriever(Map<String, String> configuration) {
+        configuration.put("username", "admin");
+        configuration.put("password", "admin");
+        configuration.put("serverUrl", "https://localhost:" + server.getAddress().getPort());
+        return new MGWClaimRetrieverImpl(trustStorePath.toString(), KEY_STORE_PASSWORD, configuration);
+    }
+
+    private static Map<String, Object> createAuthContext(String username) {
+        Map<String, Object> authContext = new HashMap<>();
+        authContext.put("username", username);
+        return authContext;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String request;
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            request = MGWClaimRetrieverImpl.getResponseString(inputStream);
+        }
+        try {
+            if (request.contains("\"slow\"")) {
+                Thread.sleep(300);
+            } else if (request.contains("\"hang\"")) {
+                Thread.sleep(3000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int status = request.contains("\"fail\"") ? 500 : 200;
+        byte[] response = (status == 200 ? CLAIMS : "{}").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(response);
+        }
+    }
+}
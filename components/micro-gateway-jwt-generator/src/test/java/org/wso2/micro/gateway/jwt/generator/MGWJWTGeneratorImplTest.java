@@ -0,0 +1,169 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.micro.gateway.jwt.generator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the bodies assembled from the templates of the APIs against the claims populated by the generator.
+ */
+public class MGWJWTGeneratorImplTest {
+    private static final String DIALECT = "http://wso2.org/claims";
+    private static final String ISSUER = "wso2.org/products/am";
+
+    @Test
+    public void testBodyMatchesPopulatedClaims() throws Exception {
+        MGWJWTGeneratorImpl generator = createGenerator();
+        Map<String, Object> jwtInfo = createJwtInfo("admin");
+        Map<String, Object> apiDetails = createApiDetails("PizzaShackAPI");
+        Map<String, Object> body = parseBody(generator.generateToken(jwtInfo, apiDetails));
+        generator.setApiDetails(apiDetails);
+        Map<String, Object> populatedBody = new ObjectMapper().readValue(generator.buildBody(jwtInfo), Map.class);
+
+        Assert.assertNotNull(body.remove("jti"));
+        Assert.assertTrue((long) body.remove("exp") >= (long) body.remove("iat"));
+        populatedBody.remove("jti");
+        populatedBody.remove("exp");
+        populatedBody.remove("iat");
+        Assert.assertEquals(populatedBody, body);
+        Assert.assertEquals(ISSUER, body.get("iss"));
+        Assert.assertEquals("PizzaShackAPI", body.get(DIALECT + "/apiname"));
+        Assert.assertEquals("admin", body.get(DIALECT + "/enduser"));
+        Assert.assertEquals("quoted \"value\" \u00fc\ud83d\ude00\n", body.get("department"));
+        // Restricted claims are not taken from the custom claims
+        Assert.assertFalse(body.containsKey("aud"));
+        // The API details are not set on the generator
+        Assert.assertSame(apiDetails, generator.getApiDetails());
+    }
+
+    @Test
+    public void testConcurrentAPIs() throws Exception {
+        MGWJWTGeneratorImpl generator = createGenerator();
+        int threadCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                String apiName = "API" + (i % 2);
+                String user = "user" + i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        Map<String, Object> body = parseBody(generator.generateToken(createJwtInfo(user),
+                                createApiDetails(apiName)));
+                        Assert.assertEquals(apiName, body.get(DIALECT + "/apiname"));
+                        Assert.assertEquals(user, body.get("sub"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTemplateFollowsIssuer() throws Exception {
+        MGWJWTGeneratorImpl generator = createGenerator();
+        Map<String, Object> apiDetails = createApiDetails("PizzaShackAPI");
+        Assert.assertEquals(ISSUER, parseBody(generator.generateToken(createJwtInfo("admin"), apiDetails)).get("iss"));
+        generator.setTokenIssuer("https://localhost:9443/oauth2/token");
+        Assert.assertEquals("https://localhost:9443/oauth2/token",
+                parseBody(generator.generateToken(createJwtInfo("admin"), apiDetails)).get("iss"));
+    }
+
+    @Test
+    public void testSubclassPopulatesClaims() throws Exception {
+        MGWJWTGeneratorImpl generator = new MGWJWTGeneratorImpl(DIALECT, "NONE", "", "", "", "", 900,
+                new String[0], false, 900, ISSUER, new String[0]) {
+            @Override
+            public Map<String, Object> populateStandardClaims(Map<String, Object> jwtInfo) {
+                Map<String, Object> claims = super.populateStandardClaims(jwtInfo);
+                claims.put("department", "engineering");
+                return claims;
+            }
+        };
+        Map<String, Object> body = parseBody(generator.generateToken(createJwtInfo("admin"),
+                createApiDetails("PizzaShackAPI")));
+        Assert.assertEquals("engineering", body.get("department"));
+        Assert.assertEquals("PizzaShackAPI", body.get(DIALECT + "/apiname"));
+        Assert.assertNull(generator.getApiDetails());
+    }
+
+    private static MGWJWTGeneratorImpl createGenerator() {
+        MGWJWTGeneratorImpl generator = new MGWJWTGeneratorImpl(DIALECT, "NONE", "", "", "", "", 900,
+                new String[0], false, 900, ISSUER, new String[]{"http://org.wso2.apimgt/gateway"});
+        generator.setApiDetails(createApiDetails("DefaultAPI"));
+        return generator;
+    }
+
+    private static Map<String, Object> createApiDetails(String apiName) {
+        Map<String, Object> apiDetails = new HashMap<>();
+        apiDetails.put("apiName", apiName);
+        apiDetails.put("apiContext", "/" + apiName.toLowerCase() + "/1.0.0");
+        apiDetails.put("apiVersion", "1.0.0");
+        apiDetails.put("apiTier", "Unlimited");
+        apiDetails.put("apiPublisher", "admin");
+        apiDetails.put("subscriberTenantDomain", "carbon.super");
+        return apiDetails;
+    }
+
+    private static Map<String, Object> createJwtInfo(String user) {
+        HashMap<String, Object> application = new HashMap<>();
+        application.put("id", "1");
+        application.put("uuid", "a1b2c3");
+        application.put("owner", "admin");
+        application.put("name", "DefaultApplication");
+        application.put("tier", "Unlimited");
+        Map<String, Object> address = new HashMap<>();
+        address.put("country", "LK");
+        HashMap<String, Object> customClaims = new HashMap<>();
+        customClaims.put("scopes", "read write");
+        customClaims.put("keytype", "SANDBOX");
+        customClaims.put("application", application);
+        customClaims.put("department", "quoted \"value\" \u00fc\ud83d\ude00\n");
+        customClaims.put("groups", new Object[]{"admin", "publisher"});
+        customClaims.put("address", address);
+        customClaims.put("aud", "http://org.wso2.apimgt/gateway");
+        Map<String, Object> jwtInfo = new HashMap<>();
+        jwtInfo.put("sub", user);
+        jwtInfo.put("iss", "https://localhost:9443/oauth2/token");
+        jwtInfo.put("client", "mobile");
+        jwtInfo.put("customClaims", customClaims);
+        return jwtInfo;
+    }
+
+    private static Map<String, Object> parseBody(String token) throws Exception {
+        String body = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+        return new ObjectMapper().readValue(body, Map.class);
+    }
+}